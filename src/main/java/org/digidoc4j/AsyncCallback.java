@@ -0,0 +1,36 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j;
+
+/**
+ * Callback of an asynchronous operation, like signature finalization or OCSP and timestamp requests.
+ * <p/>
+ * Callback methods are called in the thread executing the operation, so they should not block.
+ *
+ * @param <T> type of the operation result
+ */
+public interface AsyncCallback<T> {
+
+  /**
+   * Called when the operation has completed successfully.
+   *
+   * @param result result of the operation
+   */
+  void onSuccess(T result);
+
+  /**
+   * Called when the operation has failed.
+   *
+   * @param exception cause of the failure
+   */
+  void onFailure(Exception exception);
+
+}
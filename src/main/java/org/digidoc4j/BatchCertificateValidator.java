@@ -0,0 +1,37 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+
+import org.digidoc4j.exceptions.CertificateValidationException;
+
+/**
+ * Certificate validator able to check several certificates at once.
+ * <p/>
+ * Validators built by {@link CertificateValidatorBuilder} implement this interface, check with
+ * <code>instanceof</code> before using it with other validators.
+ */
+public interface BatchCertificateValidator extends CertificateValidator {
+
+  /**
+   * Calls validation logic for given certificates. Certificates are checked in as few requests as possible,
+   * several certificates are checked with a single OCSP request.
+   *
+   * @param subjectCertificates subject certificates to validate
+   * @return exceptions containing validation status of the certificates that failed validation, mapped to the
+   * certificates. Certificates that are not present in the map are valid.
+   */
+  Map<X509Certificate, CertificateValidationException> validate(List<X509Certificate> subjectCertificates);
+
+}
@@ -31,6 +31,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,6 +40,8 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.digidoc4j.exceptions.ConfigurationException;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.impl.ConfigurationSingeltonHolder;
+import org.digidoc4j.impl.OCSPRequestSigner;
+import org.digidoc4j.impl.OCSPResponseCache;
 import org.digidoc4j.impl.asic.tsl.TslManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,9 +106,24 @@ import eu.europa.esig.dss.client.http.Protocol;
  * Default value: {@value org.digidoc4j.Constant.JDigiDoc#CANONICALIZATION_FACTORY_IMPLEMENTATION}</li>
  * <li>CONNECTION_TIMEOUT: TSL HTTP Connection timeout (milliseconds).<br>
  * Default value: 1000  </li>
+ * <li>CONNECTION_POOL_ENABLED: Should OCSP and timestamp requests use shared pooled keep-alive connections?
+ * Allowed values: true, false</li>
+ * <li>CONNECTION_POOL_MAX_TOTAL: maximum number of pooled connections. Default value: 20</li>
+ * <li>CONNECTION_POOL_MAX_PER_ROUTE: maximum number of pooled connections per endpoint. Default value: 10</li>
+ * <li>CONNECTION_KEEP_ALIVE_TIME: how many milliseconds an unused pooled connection is kept alive at most.
+ * Default value: 30000</li>
+ * <li>ENDPOINT_MAX_CONCURRENT_REQUESTS: maximum number of concurrent requests to a single OCSP or TSP source.
+ * Default value: 0 (unlimited)</li>
+ * <li>ENDPOINT_MAX_REQUESTS_PER_SECOND: maximum number of requests per second to a single OCSP or TSP source.
+ * Default value: 0 (unlimited)</li>
+ * <li>ENDPOINT_QUEUE_TIMEOUT: how many milliseconds a request waits for admission to an OCSP or TSP source before it
+ * is rejected. Default value: 5000</li>
+ * <li>CONNECTION_IDLE_EVICTION_TIME: after how many milliseconds idle pooled connections are closed.
+ * Default value: 60000</li>
  * <li>DIGIDOC_FACTORY_IMPL: Factory implementation.<br>
  * Default value: {@value org.digidoc4j.Constant.JDigiDoc#FACTORY_IMPLEMENTATION}</li>
- * <li>DIGIDOC_DF_CACHE_DIR: Temporary directory to use. Default: uses system's default temporary directory</li>
+ * <li>DIGIDOC_DF_CACHE_DIR: Temporary directory to use, also for data files that are not cached in memory.
+ * Default: uses system's default temporary directory</li>
  * <li>DIGIDOC_MAX_DATAFILE_CACHED: Maximum datafile size that will be cached in MB.
  * Must be numeric. Set to -1 to cache all files. Set to 0 to prevent caching for all files<br>
  * Default value: {@value org.digidoc4j.Constant.JDigiDoc#MAX_DATAFILE_CACHED}</li>
@@ -125,12 +144,56 @@ import eu.europa.esig.dss.client.http.Protocol;
  * <li>DIGIDOC_PKCS12_PASSWD: OCSP access certificate password</li>
  * <li>OCSP_SOURCE: Online Certificate Service Protocol source</li>
  * <li>SIGN_OCSP_REQUESTS: Should OCSP requests be signed? Allowed values: true, false</li>
+ * <li>OCSP_FAILOVER_SOURCES: comma separated list of OCSP sources used together with OCSP_SOURCE</li>
+ * <li>TSP_FAILOVER_SOURCES: comma separated list of Time Stamp Protocol sources used together with TSP_SOURCE</li>
+ * <li>ENDPOINT_HEDGING_PERCENTILE: latency percentile of an OCSP or TSP source after which a hedged request is sent
+ * to the next source. Default value: 0 (hedging disabled)</li>
+ * <li>ENDPOINT_FAILURE_THRESHOLD: number of consecutive failures after which an OCSP or TSP source is skipped.
+ * Default value: 3</li>
+ * <li>ENDPOINT_OPEN_CIRCUIT_TIME: how many milliseconds a failed OCSP or TSP source is skipped.
+ * Default value: 30000</li>
+ * <li>OCSP_CACHE_ENABLED: Should OCSP responses used for certificate validation be cached?
+ * Allowed values: true, false</li>
+ * <li>OCSP_CACHE_MAX_AGE: how many milliseconds after its production time a cached OCSP response is used.
+ * Default value: 60000</li>
+ * <li>OCSP_CACHE_MAX_SIZE: maximum number of cached OCSP responses. Default value: 10000</li>
+ * <li>OCSP_BATCH_SIZE: maximum number of certificates checked with a single OCSP request when validating several
+ * certificates at once. Default value: 20</li>
+ * <li>OCSP_REUSE_WINDOW: how many milliseconds after its production time an OCSP response of the signer certificate
+ * is reused for further LT signatures. Default value: 0 (not reused)</li>
+ * <li>LAZY_CONTAINER_LOADING: Should the data files of ASiC containers opened from a file be read from the file only
+ * when needed? Allowed values: true, false. Default value: false</li>
+ * <li>MEMORY_MAPPED_CONTAINER_READING: Should ASiC containers opened from a file be read through memory mappings of
+ * the file instead of {@link java.util.zip.ZipFile}? Allowed values: true, false. Default value: false</li>
+ * <li>STREAMING_VALIDATION: Should the data files of ASiC containers opened from a stream only be digested while
+ * reading the stream, without keeping their content? Allowed values: true, false. Default value: false</li>
+ * <li>STREAMING_VALIDATION_DIGEST_ALGORITHMS: comma separated digest algorithms data files are digested with in
+ * streaming validation mode. Default value: SHA256, SHA384, SHA512</li>
  * <li>TSL_LOCATION: TSL Location</li>
  * <li>TSP_SOURCE: Time Stamp Protocol source address</li>
  * <li>VALIDATION_POLICY: Validation policy source file</li>
  * <li>TSL_KEYSTORE_LOCATION: keystore location for tsl signing certificates</li>
  * <li>TSL_KEYSTORE_PASSWORD: keystore password for the keystore in TSL_KEYSTORE_LOCATION</li>
  * <li>TSL_CACHE_EXPIRATION_TIME: TSL cache expiration time in milliseconds</li>
+ * <li>TSL_BACKGROUND_REFRESH: Should expired TSL be refreshed in the background while the previous one is still
+ * served? Allowed values: true, false</li>
+ * <li>TSL_REFRESH_AHEAD_TIME: how many milliseconds before the TSL cache expires the background refresh is started</li>
+ * <li>TSL_MAX_STALENESS_TIME: how many milliseconds after the TSL cache has expired the previous TSL can still be
+ * served while the background refresh is running</li>
+ * <li>TSL_PERSISTENT_SNAPSHOT: Should validated TSL be stored in a snapshot file which is used instead of loading
+ * TSL again after restart? Allowed values: true, false</li>
+ * <li>TSL_SNAPSHOT_DIRECTORY: directory accessible only by the current user where the persistent TSL snapshot and
+ * the secret its seal key is derived from are stored. Default value: .digidoc4j/tsl-snapshot in the user home
+ * directory</li>
+ * <li>TSL_LOADER_THREADS: how many trusted lists are downloaded and validated in parallel</li>
+ * <li>TSL_TERRITORY_TIMEOUT: how many milliseconds downloading a single trusted list may take before the
+ * territory is skipped</li>
+ * <li>TSL_SHARED: Should configurations with the same TSL location, TSL keystore and trusted territories share
+ * one loaded TSL? Allowed values: true, false</li>
+ * <li>ASYNC_TASK_THREADS: how many asynchronous signature finalizations, OCSP and timestamp requests run in
+ * parallel. Default value: 8</li>
+ * <li>ASYNC_TASK_QUEUE_SIZE: how many asynchronous tasks may wait for a free thread before new tasks are rejected.
+ * Default value: 100</li>
  * <li>TRUSTED_TERRITORIES: list of countries and territories to trust and load TSL certificates
  * (for example, EE, LV, FR)</li>
  * <li>HTTP_PROXY_HOST: network proxy host name</li>
@@ -157,6 +220,11 @@ public class Configuration implements Serializable {
   private static final Logger LOGGER = LoggerFactory.getLogger(Configuration.class);
   private final Mode mode;
   private transient ExecutorService threadExecutor;
+  private transient ExecutorService tslThreadExecutor;
+  private transient ExecutorService asyncTaskExecutor;
+  private transient OCSPResponseCache ocspResponseCache;
+  private transient OCSPResponseCache signingOCSPResponseCache;
+  private transient OCSPRequestSigner ocspRequestSigner;
   private TslManager tslManager;
   private Hashtable<String, String> jDigiDocConfiguration = new Hashtable<>();
   private ConfigurationRegistry registry = new ConfigurationRegistry();
@@ -300,6 +368,155 @@ public class Configuration implements Serializable {
     this.setJDigiDocParameter(Constant.JDigiDoc.OCSP_SIGN_REQUESTS, value);
   }
 
+  /**
+   * Enables or disables caching of OCSP responses used by {@link CertificateValidator}.
+   * <p/>
+   * When enabled, a certificate validated again within the OCSP cache max age is validated against the cached OCSP
+   * response instead of sending a new OCSP request. OCSP responses obtained for signatures are never cached.
+   * Default is false.
+   *
+   * @param ocspCacheEnabled true to cache OCSP responses
+   * @see #setOCSPCacheMaxAge(long)
+   */
+  public void setOCSPCacheEnabled(boolean ocspCacheEnabled) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheEnabled, String.valueOf(ocspCacheEnabled));
+  }
+
+  /**
+   * Are OCSP responses used by certificate validation cached?
+   *
+   * @return true if OCSP responses are cached
+   */
+  public boolean isOCSPCacheEnabled() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.OcspCacheEnabled));
+  }
+
+  /**
+   * Sets how long a cached OCSP response is used, counted from the production time of the response. The cached
+   * response is never used after its nextUpdate time.
+   *
+   * @param maxAgeInMilliseconds max age in milliseconds
+   */
+  public void setOCSPCacheMaxAge(long maxAgeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheMaxAgeInMillis,
+        String.valueOf(maxAgeInMilliseconds));
+  }
+
+  /**
+   * @return max age of cached OCSP responses in milliseconds
+   */
+  public long getOCSPCacheMaxAge() {
+    return this.getConfigurationParameter(ConfigurationParameter.OcspCacheMaxAgeInMillis, Long.class);
+  }
+
+  /**
+   * Sets the maximum number of cached OCSP responses. The least recently used responses are dropped first.
+   *
+   * @param maxSize maximum number of cached OCSP responses
+   */
+  public void setOCSPCacheMaxSize(int maxSize) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheMaxSize, String.valueOf(maxSize));
+    this.ocspResponseCache = null;
+    this.signingOCSPResponseCache = null;
+  }
+
+  /**
+   * @return maximum number of cached OCSP responses
+   */
+  public int getOCSPCacheMaxSize() {
+    return this.getConfigurationParameter(ConfigurationParameter.OcspCacheMaxSize, Integer.class);
+  }
+
+  /**
+   * Sets the maximum number of certificates checked with a single OCSP request by
+   * {@link BatchCertificateValidator#validate(List)}.
+   *
+   * @param batchSize maximum number of certificates in a single OCSP request
+   */
+  public void setOCSPBatchSize(int batchSize) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspBatchSize, String.valueOf(batchSize));
+  }
+
+  /**
+   * @return maximum number of certificates checked with a single OCSP request
+   */
+  public int getOCSPBatchSize() {
+    return this.getConfigurationParameter(ConfigurationParameter.OcspBatchSize, Integer.class);
+  }
+
+  /**
+   * Sets how long an OCSP response of the signer certificate is reused for further timestamp based (LT) signatures.
+   * The nonce of LT signature OCSP requests is not bound to the signature, so a response produced within the window
+   * can be embedded into several signatures of the same signer. Only responses produced after the timestamp of the
+   * signature are reused, so that the OCSP response stays later than the timestamp. 0 disables reuse, which is the
+   * default.
+   * <p/>
+   * A signature created after another one is timestamped after the OCSP response of the other signature was
+   * produced, so signatures created one by one don't share responses. Baseline (B_BES) signatures extended together
+   * to LT or LTA with {@link Container#extendSignatureProfile(SignatureProfile)} are timestamped in batches first and
+   * then get a single OCSP response per signer for the whole batch.
+   * <p/>
+   * The window is capped by {@link #getAllowedTimestampAndOCSPResponseDeltaInMinutes()}, so the signatures stay
+   * within the timestamp and OCSP response time delta checked on validation. Time-mark (LT_TM) signatures never
+   * reuse OCSP responses.
+   *
+   * @param windowInMilliseconds reuse window in milliseconds
+   */
+  public void setOCSPReuseWindow(long windowInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspReuseWindowInMillis,
+        String.valueOf(windowInMilliseconds));
+  }
+
+  /**
+   * @return how many milliseconds an OCSP response is reused for LT signatures, 0 if not reused
+   */
+  public long getOCSPReuseWindow() {
+    long window = this.getConfigurationParameter(ConfigurationParameter.OcspReuseWindowInMillis, Long.class);
+    long allowedDelta = TimeUnit.MINUTES.toMillis(this.getAllowedTimestampAndOCSPResponseDeltaInMinutes());
+    return Math.max(0, Math.min(window, allowedDelta));
+  }
+
+  /**
+   * Returns the signer of OCSP requests using the configured OCSP access certificate. The signer loads the access
+   * certificate once and reloads it when the access certificate file, its password or the file contents change.
+   *
+   * @return OCSP request signer
+   */
+  public synchronized OCSPRequestSigner getOCSPRequestSigner() {
+    String fileName = this.getOCSPAccessCertificateFileName();
+    String password = this.getOCSPAccessCertificatePasswordAsString();
+    if (this.ocspRequestSigner == null || !this.ocspRequestSigner.isFor(fileName, password)) {
+      this.ocspRequestSigner = new OCSPRequestSigner(fileName, password);
+    }
+    return this.ocspRequestSigner;
+  }
+
+  /**
+   * Returns the OCSP response cache of this configuration.
+   *
+   * @return OCSP response cache
+   */
+  public synchronized OCSPResponseCache getOCSPResponseCache() {
+    if (this.ocspResponseCache == null) {
+      this.ocspResponseCache = new OCSPResponseCache(this.getOCSPCacheMaxSize());
+    }
+    return this.ocspResponseCache;
+  }
+
+  /**
+   * Returns the cache of OCSP responses reused by timestamp based (LT) signatures. It is kept apart from the OCSP
+   * response cache of certificate validation, as responses embedded into signatures are accepted by different rules.
+   *
+   * @return OCSP response cache of signing
+   * @see #setOCSPReuseWindow(long)
+   */
+  public synchronized OCSPResponseCache getSigningOCSPResponseCache() {
+    if (this.signingOCSPResponseCache == null) {
+      this.signingOCSPResponseCache = new OCSPResponseCache(this.getOCSPCacheMaxSize());
+    }
+    return this.signingOCSPResponseCache;
+  }
+
   /**
    * Add configuration settings from a stream. After loading closes stream.
    *
@@ -408,6 +625,109 @@ public class Configuration implements Serializable {
     return maxDataFileCachedInMB == -1 || maxDataFileCachedInMB == Long.MAX_VALUE;
   }
 
+  /**
+   * Set whether the data files of ASiC containers opened from a file are read from the container file on demand.
+   * <p/>
+   * When enabled, opening a container reads only the ZIP central directory, the manifest and the signatures. Data
+   * files are read directly from the container file when their content is needed, so the container file stays open
+   * until {@link org.digidoc4j.impl.asic.AsicContainer#close()} is called. Default is false (data files are read when
+   * the container is opened).
+   *
+   * @param lazyContainerLoading true to read data files on demand
+   */
+  public void setLazyContainerLoading(boolean lazyContainerLoading) {
+    this.setConfigurationParameter(ConfigurationParameter.LazyContainerLoading, String.valueOf(lazyContainerLoading));
+  }
+
+  /**
+   * Are the data files of ASiC containers opened from a file read on demand?
+   *
+   * @return true if data files are read on demand
+   */
+  public boolean isLazyContainerLoading() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.LazyContainerLoading));
+  }
+
+  /**
+   * Set whether ASiC containers opened from a file are read through memory mappings of the file.
+   * <p/>
+   * When enabled, the ZIP central directory is parsed from a mapping of the file and entries are read from mappings of
+   * their regions, uncompressed entries without any copying. Together with lazy container loading this keeps the heap
+   * usage of opening and validating large containers independent of their size. ZIP64 containers are not supported
+   * in this mode. Default is false.
+   * <p/>
+   * Mappings are released only when garbage collected, not when the container is closed. On Windows a memory mapped
+   * container file therefore can't be deleted or replaced, for example by saving a lazily loaded container over its
+   * own file, until then.
+   *
+   * @param memoryMappedContainerReading true to read containers through memory mappings
+   * @see #setLazyContainerLoading(boolean)
+   */
+  public void setMemoryMappedContainerReading(boolean memoryMappedContainerReading) {
+    this.setConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReading,
+        String.valueOf(memoryMappedContainerReading));
+  }
+
+  /**
+   * Are ASiC containers opened from a file read through memory mappings?
+   *
+   * @return true if containers are memory mapped
+   */
+  public boolean isMemoryMappedContainerReading() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReading));
+  }
+
+  /**
+   * Set whether ASiC containers opened from a stream are read in streaming validation mode.
+   * <p/>
+   * In this mode each data file is run through the streaming validation digest algorithms while the container is read
+   * and its content is then dropped. Signature references are checked against these digests, so validating a container
+   * keeps neither the data files in memory nor in temporary files. The data file content of such containers can't be
+   * read and the containers can't be saved. References using other digest algorithms fail validation. Default is
+   * false.
+   *
+   * @param streamingValidation true to read containers opened from a stream in streaming validation mode
+   * @see #setStreamingValidationDigestAlgorithms(DigestAlgorithm...)
+   */
+  public void setStreamingValidation(boolean streamingValidation) {
+    this.setConfigurationParameter(ConfigurationParameter.StreamingValidation, String.valueOf(streamingValidation));
+  }
+
+  /**
+   * Are ASiC containers opened from a stream read in streaming validation mode?
+   *
+   * @return true if only data file digests are kept
+   */
+  public boolean isStreamingValidation() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.StreamingValidation));
+  }
+
+  /**
+   * Set the digest algorithms data files are digested with in streaming validation mode. These should cover the
+   * digest algorithms allowed by the validation policy for signature references.
+   *
+   * @param digestAlgorithms digest algorithms
+   */
+  public void setStreamingValidationDigestAlgorithms(DigestAlgorithm... digestAlgorithms) {
+    this.setConfigurationParameter(ConfigurationParameter.StreamingValidationDigestAlgorithms,
+        StringUtils.join(digestAlgorithms, ","));
+  }
+
+  /**
+   * @return digest algorithms data files are digested with in streaming validation mode
+   */
+  public List<DigestAlgorithm> getStreamingValidationDigestAlgorithms() {
+    List<DigestAlgorithm> digestAlgorithms = new ArrayList<>();
+    for (String name : this.getListParameter(ConfigurationParameter.StreamingValidationDigestAlgorithms)) {
+      try {
+        digestAlgorithms.add(DigestAlgorithm.valueOf(name));
+      } catch (IllegalArgumentException e) {
+        throw new ConfigurationException("Unsupported streaming validation digest algorithm: " + name);
+      }
+    }
+    return digestAlgorithms;
+  }
+
   /**
    * Returns configuration item must be OCSP request signed. Reads it from registry parameter SIGN_OCSP_REQUESTS.
    * Default value is false for {@link Configuration.Mode#PROD} and false for {@link Configuration.Mode#TEST}
@@ -444,6 +764,32 @@ public class Configuration implements Serializable {
     }
   }
 
+  /**
+   * Sets the directory of the temporary files data files larger than the maximum cached data file size are stored in.
+   * This is also the spill directory of containers parsed from a stream.
+   * <p/>
+   * Used by DigiDoc4J and by JDigiDoc (DIGIDOC_DF_CACHE_DIR).
+   *
+   * @param tempFileDirectory directory path, null to use the system's default temporary directory
+   */
+  public void setTempFileDirectory(String tempFileDirectory) {
+    LOGGER.debug("Set temporary file directory to: " + tempFileDirectory);
+    if (tempFileDirectory == null) {
+      jDigiDocConfiguration.remove("DIGIDOC_DF_CACHE_DIR");
+    } else {
+      jDigiDocConfiguration.put("DIGIDOC_DF_CACHE_DIR", tempFileDirectory);
+    }
+  }
+
+  /**
+   * Get the directory of temporary data files.
+   *
+   * @return directory path or null if the system's default temporary directory is used
+   */
+  public String getTempFileDirectory() {
+    return jDigiDocConfiguration.get("DIGIDOC_DF_CACHE_DIR");
+  }
+
   /**
    * Get TSL location.
    *
@@ -487,6 +833,27 @@ public class Configuration implements Serializable {
     return tslManager.getTsl();
   }
 
+  /**
+   * Starts loading TSL in the background, so that the first validation does not have to wait for it.
+   * <p/>
+   * TSL is loaded only if it has not been loaded yet or its cache has expired.
+   *
+   * @return future which completes with the state of the TSL after loading has finished
+   * @see #getTslState()
+   */
+  public Future<TslState> preloadTSL() {
+    return this.tslManager.preloadTsl();
+  }
+
+  /**
+   * Returns the readiness state of the TSL. Querying the state does not load TSL, so it can be used for health checks.
+   *
+   * @return TSL state
+   */
+  public TslState getTslState() {
+    return this.tslManager.getTslState();
+  }
+
   /**
    * Flags that TSL signature should be validated.
    *
@@ -576,6 +943,96 @@ public class Configuration implements Serializable {
     return this.getConfigurationParameter(ConfigurationParameter.SocketTimeoutInMillis, Integer.class);
   }
 
+  /**
+   * Enables or disables pooled keep-alive connections for OCSP and timestamp requests.
+   * <p/>
+   * When enabled, configurations with the same connection settings share a connection pool, so consecutive requests
+   * to the same OCSP or timestamp service reuse the TCP connection and TLS session instead of opening a new one for
+   * every request. Default is false.
+   *
+   * @param connectionPoolEnabled true to use pooled connections
+   */
+  public void setConnectionPoolEnabled(boolean connectionPoolEnabled) {
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolEnabled,
+        String.valueOf(connectionPoolEnabled));
+  }
+
+  /**
+   * Are pooled keep-alive connections used for OCSP and timestamp requests?
+   *
+   * @return true if pooled connections are used
+   */
+  public boolean isConnectionPoolEnabled() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.ConnectionPoolEnabled));
+  }
+
+  /**
+   * Sets the maximum total number of pooled connections.
+   *
+   * @param maxTotal maximum number of connections
+   */
+  public void setConnectionPoolMaxTotal(int maxTotal) {
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxTotal, String.valueOf(maxTotal));
+  }
+
+  /**
+   * @return maximum total number of pooled connections
+   */
+  public int getConnectionPoolMaxTotal() {
+    return this.getConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxTotal, Integer.class);
+  }
+
+  /**
+   * Sets the maximum number of pooled connections to a single endpoint.
+   *
+   * @param maxPerRoute maximum number of connections per endpoint
+   */
+  public void setConnectionPoolMaxPerRoute(int maxPerRoute) {
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxPerRoute, String.valueOf(maxPerRoute));
+  }
+
+  /**
+   * @return maximum number of pooled connections to a single endpoint
+   */
+  public int getConnectionPoolMaxPerRoute() {
+    return this.getConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxPerRoute, Integer.class);
+  }
+
+  /**
+   * Sets how long an unused pooled connection is kept alive at most. Shorter keep-alive time sent by the server
+   * is respected.
+   *
+   * @param keepAliveTimeInMilliseconds keep-alive time in milliseconds
+   */
+  public void setConnectionKeepAliveTime(long keepAliveTimeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionKeepAliveTimeInMillis,
+        String.valueOf(keepAliveTimeInMilliseconds));
+  }
+
+  /**
+   * @return keep-alive time of pooled connections in milliseconds
+   */
+  public long getConnectionKeepAliveTime() {
+    return this.getConfigurationParameter(ConfigurationParameter.ConnectionKeepAliveTimeInMillis, Long.class);
+  }
+
+  /**
+   * Sets after how long idle pooled connections are closed in the background.
+   *
+   * @param idleEvictionTimeInMilliseconds idle eviction time in milliseconds
+   */
+  public void setConnectionIdleEvictionTime(long idleEvictionTimeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionIdleEvictionTimeInMillis,
+        String.valueOf(idleEvictionTimeInMilliseconds));
+  }
+
+  /**
+   * @return idle eviction time of pooled connections in milliseconds
+   */
+  public long getConnectionIdleEvictionTime() {
+    return this.getConfigurationParameter(ConfigurationParameter.ConnectionIdleEvictionTimeInMillis, Long.class);
+  }
+
   /**
    * Set the TSP Source
    *
@@ -601,6 +1058,7 @@ public class Configuration implements Serializable {
    */
   public void setTslKeyStoreLocation(String tslKeyStoreLocation) {
     this.setConfigurationParameter(ConfigurationParameter.TslKeyStoreLocation, tslKeyStoreLocation);
+    this.tslManager.setTsl(null);
   }
 
   /**
@@ -619,6 +1077,7 @@ public class Configuration implements Serializable {
    */
   public void setTslKeyStorePassword(String tslKeyStorePassword) {
     this.setConfigurationParameter(ConfigurationParameter.TslKeyStorePassword, tslKeyStorePassword);
+    this.tslManager.setTsl(null);
   }
 
   /**
@@ -651,6 +1110,234 @@ public class Configuration implements Serializable {
     return this.getConfigurationParameter(ConfigurationParameter.TslCacheExpirationTimeInMillis, Long.class);
   }
 
+  /**
+   * Enables or disables refreshing TSL in the background.
+   * <p/>
+   * When enabled, a fresh TSL is downloaded in a background thread shortly before the TSL cache expires and
+   * replaces the previous one once it has been fully loaded. The previous TSL is served to all validations
+   * meanwhile, so the threads doing validations are not blocked by the TSL download. Default is false.
+   *
+   * @param backgroundRefresh true to refresh TSL in the background
+   * @see #setTslRefreshAheadTime(long)
+   * @see #setTslMaxStalenessTime(long)
+   */
+  public void setTslBackgroundRefresh(boolean backgroundRefresh) {
+    this.setConfigurationParameter(ConfigurationParameter.TslBackgroundRefresh, String.valueOf(backgroundRefresh));
+  }
+
+  /**
+   * Is TSL refreshed in the background?
+   *
+   * @return true if TSL is refreshed in the background
+   */
+  public boolean isTslBackgroundRefresh() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.TslBackgroundRefresh));
+  }
+
+  /**
+   * Sets how many milliseconds before the TSL cache expires the background refresh is started.
+   * Only applicable when background refresh is enabled.
+   *
+   * @param refreshAheadTimeInMilliseconds refresh-ahead time in milliseconds
+   */
+  public void setTslRefreshAheadTime(long refreshAheadTimeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.TslRefreshAheadTimeInMillis,
+        String.valueOf(refreshAheadTimeInMilliseconds));
+  }
+
+  /**
+   * Returns how many milliseconds before the TSL cache expires the background refresh is started.
+   *
+   * @return refresh-ahead time in milliseconds
+   */
+  public long getTslRefreshAheadTime() {
+    return this.getConfigurationParameter(ConfigurationParameter.TslRefreshAheadTimeInMillis, Long.class);
+  }
+
+  /**
+   * Sets how many milliseconds after the TSL cache has expired the previous TSL can still be used while the
+   * background refresh has not yet succeeded. When this time is exceeded, TSL is refreshed synchronously.
+   * Only applicable when background refresh is enabled.
+   *
+   * @param maxStalenessTimeInMilliseconds maximum staleness time in milliseconds
+   */
+  public void setTslMaxStalenessTime(long maxStalenessTimeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.TslMaxStalenessTimeInMillis,
+        String.valueOf(maxStalenessTimeInMilliseconds));
+  }
+
+  /**
+   * Returns how many milliseconds after the TSL cache has expired the previous TSL can still be used.
+   *
+   * @return maximum staleness time in milliseconds
+   */
+  public long getTslMaxStalenessTime() {
+    return this.getConfigurationParameter(ConfigurationParameter.TslMaxStalenessTimeInMillis, Long.class);
+  }
+
+  /**
+   * Enables or disables the persistent TSL snapshot.
+   * <p/>
+   * When enabled, a successfully loaded and validated TSL is stored in a sealed snapshot file in the TSL snapshot
+   * directory. After restart, the snapshot is used instead of downloading, parsing and validating the TSL again,
+   * as long as it is younger than the TSL cache expiration time and none of its trusted lists has passed its next
+   * update time. Default is false.
+   *
+   * @param persistentSnapshot true to store and use the persistent TSL snapshot
+   */
+  public void setTslPersistentSnapshot(boolean persistentSnapshot) {
+    this.setConfigurationParameter(ConfigurationParameter.TslPersistentSnapshot, String.valueOf(persistentSnapshot));
+  }
+
+  /**
+   * Is the persistent TSL snapshot used?
+   *
+   * @return true if the persistent TSL snapshot is stored and used
+   */
+  public boolean isTslPersistentSnapshot() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.TslPersistentSnapshot));
+  }
+
+  /**
+   * Sets the directory of the persistent TSL snapshot.
+   * <p/>
+   * The directory is created accessible only by the current user. The snapshot is not used if the directory is owned
+   * by another user or other users have access to it, as the seal key of the snapshot is derived from a secret stored
+   * in the same directory. Default is .digidoc4j/tsl-snapshot in the user home directory.
+   *
+   * @param tslSnapshotDirectory path of the directory
+   */
+  public void setTslSnapshotDirectory(String tslSnapshotDirectory) {
+    this.setConfigurationParameter(ConfigurationParameter.TslSnapshotDirectory, tslSnapshotDirectory);
+  }
+
+  /**
+   * Get the directory of the persistent TSL snapshot.
+   *
+   * @return path of the directory
+   */
+  public String getTslSnapshotDirectory() {
+    return this.getConfigurationParameter(ConfigurationParameter.TslSnapshotDirectory);
+  }
+
+  /**
+   * Sets how many trusted lists are downloaded and their signatures validated in parallel. Not used when
+   * TSL thread executor is set. Default is 8.
+   *
+   * @param threads number of threads loading trusted lists
+   * @see #setTslThreadExecutor(ExecutorService)
+   */
+  public void setTslLoaderThreads(int threads) {
+    this.setConfigurationParameter(ConfigurationParameter.TslLoaderThreads, String.valueOf(threads));
+  }
+
+  /**
+   * Returns how many trusted lists are downloaded and validated in parallel.
+   *
+   * @return number of threads loading trusted lists
+   */
+  public int getTslLoaderThreads() {
+    return this.getConfigurationParameter(ConfigurationParameter.TslLoaderThreads, Integer.class);
+  }
+
+  /**
+   * Sets how many asynchronous signature finalizations, OCSP and timestamp requests run in parallel. Not used when
+   * asynchronous task executor is set. Default is 8.
+   *
+   * @param threads number of threads running asynchronous tasks
+   * @see #setAsyncTaskExecutor(ExecutorService)
+   */
+  public void setAsyncTaskThreads(int threads) {
+    this.setConfigurationParameter(ConfigurationParameter.AsyncTaskThreads, String.valueOf(threads));
+  }
+
+  /**
+   * Returns how many asynchronous tasks run in parallel.
+   *
+   * @return number of threads running asynchronous tasks
+   */
+  public int getAsyncTaskThreads() {
+    return this.getConfigurationParameter(ConfigurationParameter.AsyncTaskThreads, Integer.class);
+  }
+
+  /**
+   * Sets how many asynchronous tasks may wait for a free thread. Submitting a task to a full queue fails. Not used
+   * when asynchronous task executor is set. Default is 100.
+   *
+   * @param queueSize number of waiting asynchronous tasks
+   * @see #setAsyncTaskExecutor(ExecutorService)
+   */
+  public void setAsyncTaskQueueSize(int queueSize) {
+    this.setConfigurationParameter(ConfigurationParameter.AsyncTaskQueueSize, String.valueOf(queueSize));
+  }
+
+  /**
+   * Returns how many asynchronous tasks may wait for a free thread.
+   *
+   * @return number of waiting asynchronous tasks
+   */
+  public int getAsyncTaskQueueSize() {
+    return this.getConfigurationParameter(ConfigurationParameter.AsyncTaskQueueSize, Integer.class);
+  }
+
+  /**
+   * Sets how many milliseconds downloading a single trusted list may take in total. A territory whose trusted list
+   * is not downloaded in time is skipped and the trusted lists of the other territories are still loaded.
+   * Default is 60 seconds.
+   *
+   * @param territoryTimeoutInMilliseconds territory timeout in milliseconds
+   */
+  public void setTslTerritoryTimeout(long territoryTimeoutInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.TslTerritoryTimeoutInMillis,
+        String.valueOf(territoryTimeoutInMilliseconds));
+  }
+
+  /**
+   * Returns how many milliseconds downloading a single trusted list may take in total.
+   *
+   * @return territory timeout in milliseconds
+   */
+  public long getTslTerritoryTimeout() {
+    return this.getConfigurationParameter(ConfigurationParameter.TslTerritoryTimeoutInMillis, Long.class);
+  }
+
+  /**
+   * Enables or disables sharing the TSL between configurations.
+   * <p/>
+   * When enabled, all configurations with the same TSL location, TSL keystore, trusted territories and TSL signature
+   * checking use one process-wide TSL which is loaded and refreshed only once. Other TSL settings of the shared TSL
+   * are taken from a copy of the configuration that loaded it first. Certificates added to the shared TSL are visible
+   * to all configurations sharing it. Copies of the configuration share the TSL instead of copying it. A TSL set by
+   * {@link #setTSL(TSLCertificateSource)} is used instead of the shared TSL. Configurations that are no longer used
+   * must release the shared TSL with {@link #releaseSharedTSL()}. Default is false.
+   *
+   * @param shared true to share the TSL between configurations
+   */
+  public void setTslShared(boolean shared) {
+    this.setConfigurationParameter(ConfigurationParameter.TslShared, String.valueOf(shared));
+    this.tslManager.resetLoadedTsl();
+  }
+
+  /**
+   * Releases the shared TSL used by this configuration. The shared TSL is dropped, and its background refresh
+   * stopped, after all configurations sharing it have released it. The configuration acquires the shared TSL again
+   * when it is needed.
+   *
+   * @see #setTslShared(boolean)
+   */
+  public void releaseSharedTSL() {
+    this.tslManager.releaseSharedTsl();
+  }
+
+  /**
+   * Is the TSL shared between configurations?
+   *
+   * @return true if the TSL is shared
+   */
+  public boolean isTslShared() {
+    return Boolean.parseBoolean(this.getConfigurationParameter(ConfigurationParameter.TslShared));
+  }
+
   /**
    * Returns allowed delay between timestamp and OCSP response in minutes.
    *
@@ -680,6 +1367,154 @@ public class Configuration implements Serializable {
     this.setConfigurationParameter(ConfigurationParameter.OcspSource, ocspSource);
   }
 
+  /**
+   * Set OCSP sources to be used together with the OCSP source. Requests are sent to the fastest available source
+   * and fail over to the other sources when a source fails.
+   *
+   * @param ocspSources OCSP sources
+   * @see #setEndpointHedgingPercentile(int)
+   */
+  public void setOcspFailoverSources(String... ocspSources) {
+    this.setConfigurationParameter(ConfigurationParameter.OcspFailoverSources, StringUtils.join(ocspSources, ","));
+  }
+
+  /**
+   * @return OCSP sources used together with the OCSP source, never null
+   */
+  public List<String> getOcspFailoverSources() {
+    return this.getListParameter(ConfigurationParameter.OcspFailoverSources);
+  }
+
+  /**
+   * Set Time Stamp Protocol sources to be used together with the TSP source. Requests are sent to the fastest
+   * available source and fail over to the other sources when a source fails.
+   *
+   * @param tspSources TSP sources
+   * @see #setEndpointHedgingPercentile(int)
+   */
+  public void setTspFailoverSources(String... tspSources) {
+    this.setConfigurationParameter(ConfigurationParameter.TspFailoverSources, StringUtils.join(tspSources, ","));
+  }
+
+  /**
+   * @return TSP sources used together with the TSP source, never null
+   */
+  public List<String> getTspFailoverSources() {
+    return this.getListParameter(ConfigurationParameter.TspFailoverSources);
+  }
+
+  /**
+   * Sets the latency percentile of an OCSP or TSP source after which a hedged request is sent to the next source,
+   * if failover sources are configured. The first valid response is used. 0 disables hedging, which is the default.
+   * <p/>
+   * For example, with value 95 a second request is sent when the first one has taken longer than 95% of the recent
+   * requests to the same source.
+   *
+   * @param percentile latency percentile between 1 and 99, or 0 to disable hedging
+   */
+  public void setEndpointHedgingPercentile(int percentile) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointHedgingPercentile, String.valueOf(percentile));
+  }
+
+  /**
+   * @return latency percentile after which a hedged request is sent, 0 if hedging is disabled
+   */
+  public int getEndpointHedgingPercentile() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointHedgingPercentile, Integer.class);
+  }
+
+  /**
+   * Sets the number of consecutive failures after which an OCSP or TSP source with failover sources is skipped
+   * (its circuit breaker opens).
+   *
+   * @param failureThreshold number of consecutive failures
+   */
+  public void setEndpointFailureThreshold(int failureThreshold) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointFailureThreshold, String.valueOf(failureThreshold));
+  }
+
+  /**
+   * @return number of consecutive failures after which an OCSP or TSP source is skipped
+   */
+  public int getEndpointFailureThreshold() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointFailureThreshold, Integer.class);
+  }
+
+  /**
+   * Sets how long a failed OCSP or TSP source is skipped before a trial request is sent to it again.
+   *
+   * @param openCircuitTimeInMilliseconds time in milliseconds
+   */
+  public void setEndpointOpenCircuitTime(long openCircuitTimeInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointOpenCircuitTimeInMillis,
+        String.valueOf(openCircuitTimeInMilliseconds));
+  }
+
+  /**
+   * @return how many milliseconds a failed OCSP or TSP source is skipped
+   */
+  public long getEndpointOpenCircuitTime() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointOpenCircuitTimeInMillis, Long.class);
+  }
+
+  /**
+   * Sets the maximum number of concurrent requests to a single OCSP or TSP source. Requests over the limit wait
+   * for a free slot until the queue timeout and are then rejected. 0 means no limit, which is the default.
+   * The limits of the first configuration sending requests to a source apply to that source in the whole process.
+   *
+   * @param maxConcurrentRequests maximum number of concurrent requests per source
+   * @see #setEndpointQueueTimeout(long)
+   */
+  public void setEndpointMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointMaxConcurrentRequests,
+        String.valueOf(maxConcurrentRequests));
+  }
+
+  /**
+   * @return maximum number of concurrent requests to a single OCSP or TSP source, 0 if unlimited
+   */
+  public int getEndpointMaxConcurrentRequests() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointMaxConcurrentRequests, Integer.class);
+  }
+
+  /**
+   * Sets the maximum number of requests per second to a single OCSP or TSP source. Requests over the rate wait
+   * for their turn until the queue timeout and are then rejected. 0 means no limit, which is the default.
+   * The limits of the first configuration sending requests to a source apply to that source in the whole process.
+   *
+   * @param maxRequestsPerSecond maximum number of requests per second per source
+   * @see #setEndpointQueueTimeout(long)
+   */
+  public void setEndpointMaxRequestsPerSecond(int maxRequestsPerSecond) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointMaxRequestsPerSecond,
+        String.valueOf(maxRequestsPerSecond));
+  }
+
+  /**
+   * @return maximum number of requests per second to a single OCSP or TSP source, 0 if unlimited
+   */
+  public int getEndpointMaxRequestsPerSecond() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointMaxRequestsPerSecond, Integer.class);
+  }
+
+  /**
+   * Sets how long a request waits for admission to a rate or concurrency limited OCSP or TSP source before
+   * {@link org.digidoc4j.exceptions.EndpointOverloadedException} is thrown.
+   *
+   * @param queueTimeoutInMilliseconds time in milliseconds
+   */
+  public void setEndpointQueueTimeout(long queueTimeoutInMilliseconds) {
+    this.setConfigurationParameter(ConfigurationParameter.EndpointQueueTimeoutInMillis,
+        String.valueOf(queueTimeoutInMilliseconds));
+  }
+
+  /**
+   * @return how many milliseconds a request waits for admission to an OCSP or TSP source
+   */
+  public long getEndpointQueueTimeout() {
+    return this.getConfigurationParameter(ConfigurationParameter.EndpointQueueTimeoutInMillis, Long.class);
+  }
+
   /**
    * Get the validation policy
    *
@@ -1055,6 +1890,47 @@ public class Configuration implements Serializable {
     return threadExecutor;
   }
 
+  /**
+   * Set thread executor service used for downloading and validating trusted lists in parallel.
+   * When not set, a shared executor with TSL loader threads is used.
+   *
+   * @param tslThreadExecutor Thread executor service object.
+   * @see #setTslLoaderThreads(int)
+   */
+  public void setTslThreadExecutor(ExecutorService tslThreadExecutor) {
+    this.tslThreadExecutor = tslThreadExecutor;
+  }
+
+  /**
+   * Get TSL thread executor. It can be null.
+   *
+   * @return TSL thread executor.
+   */
+  public ExecutorService getTslThreadExecutor() {
+    return tslThreadExecutor;
+  }
+
+  /**
+   * Set executor service used for asynchronous signature finalization, OCSP and timestamp requests.
+   * When not set, a shared bounded executor with asynchronous task threads and queue size is used.
+   *
+   * @param asyncTaskExecutor executor service object.
+   * @see #setAsyncTaskThreads(int)
+   * @see #setAsyncTaskQueueSize(int)
+   */
+  public void setAsyncTaskExecutor(ExecutorService asyncTaskExecutor) {
+    this.asyncTaskExecutor = asyncTaskExecutor;
+  }
+
+  /**
+   * Get asynchronous task executor. It can be null.
+   *
+   * @return asynchronous task executor.
+   */
+  public ExecutorService getAsyncTaskExecutor() {
+    return asyncTaskExecutor;
+  }
+
   /**
    * Set countries and territories (2 letter country codes) whom to trust and accept certificates.
    * <p/>
@@ -1069,6 +1945,7 @@ public class Configuration implements Serializable {
    */
   public void setTrustedTerritories(String... trustedTerritories) {
     this.trustedTerritories = Arrays.asList(trustedTerritories);
+    this.tslManager.setTsl(null);
   }
 
   /**
@@ -1134,11 +2011,51 @@ public class Configuration implements Serializable {
         String.valueOf(Constant.ONE_SECOND_IN_MILLISECONDS));
     this.setConfigurationParameter(ConfigurationParameter.SocketTimeoutInMillis,
         String.valueOf(Constant.ONE_SECOND_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.EndpointHedgingPercentile, "0");
+    this.setConfigurationParameter(ConfigurationParameter.EndpointFailureThreshold, "3");
+    this.setConfigurationParameter(ConfigurationParameter.EndpointOpenCircuitTimeInMillis,
+        String.valueOf(30 * Constant.ONE_SECOND_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.EndpointMaxConcurrentRequests, "0");
+    this.setConfigurationParameter(ConfigurationParameter.EndpointMaxRequestsPerSecond, "0");
+    this.setConfigurationParameter(ConfigurationParameter.EndpointQueueTimeoutInMillis,
+        String.valueOf(5 * Constant.ONE_SECOND_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheEnabled, "false");
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheMaxAgeInMillis,
+        String.valueOf(60 * Constant.ONE_SECOND_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.OcspCacheMaxSize, "10000");
+    this.setConfigurationParameter(ConfigurationParameter.OcspBatchSize, "20");
+    this.setConfigurationParameter(ConfigurationParameter.OcspReuseWindowInMillis, "0");
+    this.setConfigurationParameter(ConfigurationParameter.LazyContainerLoading, "false");
+    this.setConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReading, "false");
+    this.setConfigurationParameter(ConfigurationParameter.StreamingValidation, "false");
+    this.setConfigurationParameter(ConfigurationParameter.StreamingValidationDigestAlgorithms,
+        "SHA256,SHA384,SHA512");
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolEnabled, "false");
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxTotal, "20");
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionPoolMaxPerRoute, "10");
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionKeepAliveTimeInMillis,
+        String.valueOf(30 * Constant.ONE_SECOND_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.ConnectionIdleEvictionTimeInMillis,
+        String.valueOf(60 * Constant.ONE_SECOND_IN_MILLISECONDS));
     this.setConfigurationParameter(ConfigurationParameter.TslKeyStorePassword, "digidoc4j-password");
     this.setConfigurationParameter(ConfigurationParameter.RevocationAndTimestampDeltaInMinutes,
         String.valueOf(Constant.ONE_DAY_IN_MINUTES));
     this.setConfigurationParameter(ConfigurationParameter.TslCacheExpirationTimeInMillis,
         String.valueOf(Constant.ONE_DAY_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.TslBackgroundRefresh, "false");
+    this.setConfigurationParameter(ConfigurationParameter.TslRefreshAheadTimeInMillis,
+        String.valueOf(Constant.ONE_HOUR_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.TslMaxStalenessTimeInMillis,
+        String.valueOf(Constant.ONE_DAY_IN_MILLISECONDS));
+    this.setConfigurationParameter(ConfigurationParameter.TslPersistentSnapshot, "false");
+    this.setConfigurationParameter(ConfigurationParameter.TslSnapshotDirectory,
+        System.getProperty("user.home") + File.separator + ".digidoc4j" + File.separator + "tsl-snapshot");
+    this.setConfigurationParameter(ConfigurationParameter.TslLoaderThreads, "8");
+    this.setConfigurationParameter(ConfigurationParameter.TslShared, "false");
+    this.setConfigurationParameter(ConfigurationParameter.AsyncTaskThreads, "8");
+    this.setConfigurationParameter(ConfigurationParameter.AsyncTaskQueueSize, "100");
+    this.setConfigurationParameter(ConfigurationParameter.TslTerritoryTimeoutInMillis,
+        String.valueOf(60 * Constant.ONE_SECOND_IN_MILLISECONDS));
     this.setConfigurationParameter(ConfigurationParameter.AllowedTimestampAndOCSPResponseDeltaInMinutes, "15");
     this.setConfigurationParameter(ConfigurationParameter.SignatureProfile, Constant.Default.SIGNATURE_PROFILE);
     this.setConfigurationParameter(ConfigurationParameter.SignatureDigestAlgorithm,
@@ -1196,11 +2113,56 @@ public class Configuration implements Serializable {
         ConfigurationParameter.OcspAccessCertificatePassword);
     this.setConfigurationParameterFromFile("CONNECTION_TIMEOUT", ConfigurationParameter.ConnectionTimeoutInMillis);
     this.setConfigurationParameterFromFile("SOCKET_TIMEOUT", ConfigurationParameter.SocketTimeoutInMillis);
+    this.setConfigurationParameterFromFile("CONNECTION_POOL_ENABLED", ConfigurationParameter.ConnectionPoolEnabled);
+    this.setConfigurationParameterFromFile("CONNECTION_POOL_MAX_TOTAL", ConfigurationParameter.ConnectionPoolMaxTotal);
+    this.setConfigurationParameterFromFile("CONNECTION_POOL_MAX_PER_ROUTE",
+        ConfigurationParameter.ConnectionPoolMaxPerRoute);
+    this.setConfigurationParameterFromFile("CONNECTION_KEEP_ALIVE_TIME",
+        ConfigurationParameter.ConnectionKeepAliveTimeInMillis);
+    this.setConfigurationParameterFromFile("CONNECTION_IDLE_EVICTION_TIME",
+        ConfigurationParameter.ConnectionIdleEvictionTimeInMillis);
     this.setConfigurationParameterFromFile("SIGN_OCSP_REQUESTS", ConfigurationParameter.SignOcspRequests);
+    this.setConfigurationParameterFromFile("OCSP_FAILOVER_SOURCES", ConfigurationParameter.OcspFailoverSources);
+    this.setConfigurationParameterFromFile("TSP_FAILOVER_SOURCES", ConfigurationParameter.TspFailoverSources);
+    this.setConfigurationParameterFromFile("ENDPOINT_HEDGING_PERCENTILE",
+        ConfigurationParameter.EndpointHedgingPercentile);
+    this.setConfigurationParameterFromFile("ENDPOINT_FAILURE_THRESHOLD",
+        ConfigurationParameter.EndpointFailureThreshold);
+    this.setConfigurationParameterFromFile("ENDPOINT_OPEN_CIRCUIT_TIME",
+        ConfigurationParameter.EndpointOpenCircuitTimeInMillis);
+    this.setConfigurationParameterFromFile("ENDPOINT_MAX_CONCURRENT_REQUESTS",
+        ConfigurationParameter.EndpointMaxConcurrentRequests);
+    this.setConfigurationParameterFromFile("ENDPOINT_MAX_REQUESTS_PER_SECOND",
+        ConfigurationParameter.EndpointMaxRequestsPerSecond);
+    this.setConfigurationParameterFromFile("ENDPOINT_QUEUE_TIMEOUT",
+        ConfigurationParameter.EndpointQueueTimeoutInMillis);
+    this.setConfigurationParameterFromFile("OCSP_CACHE_ENABLED", ConfigurationParameter.OcspCacheEnabled);
+    this.setConfigurationParameterFromFile("OCSP_CACHE_MAX_AGE", ConfigurationParameter.OcspCacheMaxAgeInMillis);
+    this.setConfigurationParameterFromFile("OCSP_CACHE_MAX_SIZE", ConfigurationParameter.OcspCacheMaxSize);
+    this.setConfigurationParameterFromFile("OCSP_BATCH_SIZE", ConfigurationParameter.OcspBatchSize);
+    this.setConfigurationParameterFromFile("OCSP_REUSE_WINDOW", ConfigurationParameter.OcspReuseWindowInMillis);
+    this.setConfigurationParameterFromFile("LAZY_CONTAINER_LOADING", ConfigurationParameter.LazyContainerLoading);
+    this.setConfigurationParameterFromFile("MEMORY_MAPPED_CONTAINER_READING",
+        ConfigurationParameter.MemoryMappedContainerReading);
+    this.setConfigurationParameterFromFile("STREAMING_VALIDATION", ConfigurationParameter.StreamingValidation);
+    this.setConfigurationParameterFromFile("STREAMING_VALIDATION_DIGEST_ALGORITHMS",
+        ConfigurationParameter.StreamingValidationDigestAlgorithms);
     this.setConfigurationParameterFromFile("TSL_KEYSTORE_LOCATION", ConfigurationParameter.TslKeyStoreLocation);
     this.setConfigurationParameterFromFile("TSL_KEYSTORE_PASSWORD", ConfigurationParameter.TslKeyStorePassword);
     this.setConfigurationParameterFromFile("TSL_CACHE_EXPIRATION_TIME",
         ConfigurationParameter.TslCacheExpirationTimeInMillis);
+    this.setConfigurationParameterFromFile("TSL_BACKGROUND_REFRESH", ConfigurationParameter.TslBackgroundRefresh);
+    this.setConfigurationParameterFromFile("TSL_REFRESH_AHEAD_TIME",
+        ConfigurationParameter.TslRefreshAheadTimeInMillis);
+    this.setConfigurationParameterFromFile("TSL_MAX_STALENESS_TIME",
+        ConfigurationParameter.TslMaxStalenessTimeInMillis);
+    this.setConfigurationParameterFromFile("TSL_PERSISTENT_SNAPSHOT", ConfigurationParameter.TslPersistentSnapshot);
+    this.setConfigurationParameterFromFile("TSL_SNAPSHOT_DIRECTORY", ConfigurationParameter.TslSnapshotDirectory);
+    this.setConfigurationParameterFromFile("TSL_LOADER_THREADS", ConfigurationParameter.TslLoaderThreads);
+    this.setConfigurationParameterFromFile("TSL_SHARED", ConfigurationParameter.TslShared);
+    this.setConfigurationParameterFromFile("ASYNC_TASK_THREADS", ConfigurationParameter.AsyncTaskThreads);
+    this.setConfigurationParameterFromFile("ASYNC_TASK_QUEUE_SIZE", ConfigurationParameter.AsyncTaskQueueSize);
+    this.setConfigurationParameterFromFile("TSL_TERRITORY_TIMEOUT", ConfigurationParameter.TslTerritoryTimeoutInMillis);
     this.setConfigurationParameterFromFile("REVOCATION_AND_TIMESTAMP_DELTA_IN_MINUTES",
         ConfigurationParameter.RevocationAndTimestampDeltaInMinutes);
     this.setConfigurationParameterFromFile("ALLOWED_TS_AND_OCSP_RESPONSE_DELTA_IN_MINUTES",
@@ -1286,8 +2248,15 @@ public class Configuration implements Serializable {
 
   private boolean valueIsAllowed(String configParameter, String value) {
     List<String> mustBeBooleans = Arrays.asList("SIGN_OCSP_REQUESTS", "KEY_USAGE_CHECK", "DATAFILE_HASHCODE_MODE",
-        "DIGIDOC_USE_LOCAL_TSL", "ALLOW_UNSAFE_INTEGER", "PRINT_VALIDATION_REPORT");
-    List<String> mustBeIntegers = Arrays.asList("DIGIDOC_MAX_DATAFILE_CACHED", "HTTP_PROXY_PORT");
+        "DIGIDOC_USE_LOCAL_TSL", "ALLOW_UNSAFE_INTEGER", "PRINT_VALIDATION_REPORT", "TSL_BACKGROUND_REFRESH",
+        "TSL_PERSISTENT_SNAPSHOT", "TSL_SHARED", "CONNECTION_POOL_ENABLED",
+        "OCSP_CACHE_ENABLED", "LAZY_CONTAINER_LOADING", "MEMORY_MAPPED_CONTAINER_READING",
+        "STREAMING_VALIDATION");
+    List<String> mustBeIntegers = Arrays.asList("DIGIDOC_MAX_DATAFILE_CACHED", "HTTP_PROXY_PORT",
+        "TSL_LOADER_THREADS", "ASYNC_TASK_THREADS", "ASYNC_TASK_QUEUE_SIZE", "CONNECTION_POOL_MAX_TOTAL",
+        "CONNECTION_POOL_MAX_PER_ROUTE", "OCSP_CACHE_MAX_SIZE", "OCSP_BATCH_SIZE",
+        "ENDPOINT_HEDGING_PERCENTILE", "ENDPOINT_FAILURE_THRESHOLD",
+        "ENDPOINT_MAX_CONCURRENT_REQUESTS", "ENDPOINT_MAX_REQUESTS_PER_SECOND");
     boolean errorFound = false;
     if (mustBeBooleans.contains(configParameter)) {
       errorFound = !(this.isValidBooleanParameter(configParameter, value));
@@ -1467,6 +2436,14 @@ public class Configuration implements Serializable {
     return null;
   }
 
+  private List<String> getListParameter(ConfigurationParameter parameter) {
+    String value = this.getConfigurationParameter(parameter);
+    if (StringUtils.isBlank(value)) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Arrays.asList(value.trim().split("\\s*,\\s*")));
+  }
+
   private List<String> getStringListParameterFromFile(String key) {
     String value = getParameterFromFile(key);
     if (value == null) {
@@ -7,7 +7,22 @@ public enum ConfigurationParameter {
 
   ConnectionTimeoutInMillis,
   SocketTimeoutInMillis,
+  ConnectionPoolEnabled,
+  ConnectionPoolMaxTotal,
+  ConnectionPoolMaxPerRoute,
+  ConnectionKeepAliveTimeInMillis,
+  ConnectionIdleEvictionTimeInMillis,
   TslCacheExpirationTimeInMillis,
+  TslBackgroundRefresh,
+  TslRefreshAheadTimeInMillis,
+  TslMaxStalenessTimeInMillis,
+  TslPersistentSnapshot,
+  TslSnapshotDirectory,
+  TslLoaderThreads,
+  TslTerritoryTimeoutInMillis,
+  TslShared,
+  AsyncTaskThreads,
+  AsyncTaskQueueSize,
   TslKeyStorePassword,
   RevocationAndTimestampDeltaInMinutes,
   AllowedTimestampAndOCSPResponseDeltaInMinutes,
@@ -18,6 +33,14 @@ public enum ConfigurationParameter {
   TslKeyStoreLocation,
   ValidationPolicy,
   OcspSource,
+  OcspFailoverSources,
+  TspFailoverSources,
+  EndpointHedgingPercentile,
+  EndpointFailureThreshold,
+  EndpointOpenCircuitTimeInMillis,
+  EndpointMaxConcurrentRequests,
+  EndpointMaxRequestsPerSecond,
+  EndpointQueueTimeoutInMillis,
   OcspAccessCertificateFile,
   OcspAccessCertificatePassword,
   HttpProxyHost,
@@ -33,6 +56,15 @@ public enum ConfigurationParameter {
   SslTruststorePath,
   SslTruststorePassword,
   SignOcspRequests,
+  OcspCacheEnabled,
+  OcspCacheMaxAgeInMillis,
+  OcspCacheMaxSize,
+  OcspBatchSize,
+  OcspReuseWindowInMillis,
+  LazyContainerLoading,
+  MemoryMappedContainerReading,
+  StreamingValidation,
+  StreamingValidationDigestAlgorithms,
   TspsCount,
   TspCountrySource,
   TspCountryKeystorePath,
@@ -14,6 +14,7 @@ public final class Constant {
 
   public static final int ONE_SECOND_IN_MILLISECONDS = 1000;
   public static final int ONE_DAY_IN_MINUTES = 24 * 60;
+  public static final long ONE_HOUR_IN_MILLISECONDS = 1000 * 60 * 60;
   public static final long ONE_DAY_IN_MILLISECONDS = 1000 * 60 * 60 * 24;
   public static final long ONE_MB_IN_BYTES = 1048576;
   public static final long CACHE_ALL_DATA_FILES = -1;
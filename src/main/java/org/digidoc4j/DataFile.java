@@ -24,14 +24,16 @@ import org.apache.commons.io.IOUtils;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.exceptions.InvalidDataFileException;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.DigestCache;
+import org.digidoc4j.impl.DigestCachingFileDocument;
 import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.asic.DigestedEntryDocument;
+import org.digidoc4j.impl.asic.ZipEntryDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.europa.esig.dss.DSSDocument;
 import eu.europa.esig.dss.DSSException;
-import eu.europa.esig.dss.DSSUtils;
-import eu.europa.esig.dss.Digest;
 import eu.europa.esig.dss.DigestAlgorithm;
 import eu.europa.esig.dss.FileDocument;
 import eu.europa.esig.dss.InMemoryDocument;
@@ -44,7 +46,7 @@ public class DataFile implements Serializable {
   private static final Logger logger = LoggerFactory.getLogger(DataFile.class);
 
   private DSSDocument document = null;
-  private Digest digest = null;
+  private final DigestCache digestCache = new DigestCache();
   private String id;
 
   /**
@@ -56,7 +58,7 @@ public class DataFile implements Serializable {
   public DataFile(String path, String mimeType) {
     logger.debug("Path: " + path + ", mime type: " + mimeType);
     try {
-      document = new FileDocument(path);
+      document = new DigestCachingFileDocument(path);
       document.setMimeType(getMimeType(mimeType));
     } catch (Exception e) {
       logger.error(e.getMessage());
@@ -127,7 +129,8 @@ public class DataFile implements Serializable {
   }
 
   /**
-   * Calculates digest for data file. If digest is already calculated returns it, otherwise calculates the digest.
+   * Calculates digest for data file. If digest with the same method is already calculated returns it, otherwise
+   * calculates the digest.
    * <p>Supported uris for BDoc:</p>
    * <br>http://www.w3.org/2000/09/xmldsig#sha1
    * <br>http://www.w3.org/2001/04/xmldsig-more#sha224
@@ -141,13 +144,8 @@ public class DataFile implements Serializable {
    */
   public byte[] calculateDigest(URL method) {        // TODO exceptions to throw
     logger.debug("URL method: " + method);
-    if (digest == null) {
-      DigestAlgorithm digestAlgorithm = DigestAlgorithm.forXML(method.toString());
-      digest = new Digest(digestAlgorithm, calculateDigestInternal(digestAlgorithm));
-    } else {
-      logger.debug("Returning existing digest value");
-    }
-    return digest.getValue();
+    DigestAlgorithm digestAlgorithm = DigestAlgorithm.forXML(method.toString());
+    return digestCache.getDocumentDigest(document, digestAlgorithm);
   }
 
   /**
@@ -159,11 +157,6 @@ public class DataFile implements Serializable {
     return calculateDigest(digestType.uri());
   }
 
-  byte[] calculateDigestInternal(DigestAlgorithm digestAlgorithm) {
-    logger.debug("Digest algorithm: " + digestAlgorithm);
-    return DSSUtils.digest(digestAlgorithm, getBytes());
-  }
-
   /**
    * Returns the data file name.
    *
@@ -205,6 +198,16 @@ public class DataFile implements Serializable {
         throw new DigiDoc4JException(e);
       }
     }
+    if (document instanceof DigestedEntryDocument) {
+      fileSize = ((DigestedEntryDocument) document).getSize();
+      logger.debug("Digested entry size: " + fileSize);
+      return fileSize;
+    }
+    if (document instanceof ZipEntryDocument && ((ZipEntryDocument) document).getSize() >= 0) {
+      fileSize = ((ZipEntryDocument) document).getSize();
+      logger.debug("Container entry size: " + fileSize);
+      return fileSize;
+    }
     fileSize = getBytes().length;
     logger.debug("File document size: " + fileSize);
     return fileSize;
@@ -295,5 +298,6 @@ public class DataFile implements Serializable {
 
   public void setDocument(DSSDocument document) {
     this.document = document;
+    digestCache.clear();
   }
 }
@@ -11,6 +11,10 @@
 package org.digidoc4j;
 
 import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.digidoc4j.impl.AsyncTaskExecutor;
 
 import org.digidoc4j.impl.SignatureFinalizer;
 import org.slf4j.Logger;
@@ -28,7 +32,8 @@ import org.slf4j.LoggerFactory;
  * <p>
  *   After a signature has been created externally, then it must be included back by calling
  *   {@link DataToSign#finalize(byte[])} with the signature value. This will return a {@link Signature} object
- *   with the signature value, OCSP response etc included.
+ *   with the signature value, OCSP response etc included. {@link DataToSign#finalizeAsync(byte[], AsyncCallback)}
+ *   does the same without blocking the calling thread for the OCSP and timestamp requests.
  * </p>
  */
 public class DataToSign implements Serializable {
@@ -38,6 +43,7 @@ public class DataToSign implements Serializable {
 
   private SignatureParameters signatureParameters;
   private SignatureFinalizer signatureFinalizer;
+  private Configuration configuration;
 
   /**
    * Constructor
@@ -46,9 +52,22 @@ public class DataToSign implements Serializable {
    * @param signatureFinalizer Signature finalizer
    */
   public DataToSign(byte[] data, SignatureParameters signatureParameters, SignatureFinalizer signatureFinalizer) {
+    this(data, signatureParameters, signatureFinalizer, null);
+  }
+
+  /**
+   * Constructor
+   * @param data Digest value of the data
+   * @param signatureParameters Signature parameters
+   * @param signatureFinalizer Signature finalizer
+   * @param configuration Configuration of the asynchronous task executor, can be null
+   */
+  public DataToSign(byte[] data, SignatureParameters signatureParameters, SignatureFinalizer signatureFinalizer,
+                    Configuration configuration) {
     this.dataToSign = data;
     this.signatureParameters = signatureParameters;
     this.signatureFinalizer = signatureFinalizer;
+    this.configuration = configuration;
   }
 
   /**
@@ -86,4 +105,39 @@ public class DataToSign implements Serializable {
     logger.debug("Finalizing signature");
     return signatureFinalizer.finalizeSignature(signatureValue);
   }
+
+  /**
+   * Finalize the signature asynchronously by adding externally created signature value in bytes.
+   * OCSP and timestamp requests are made in the asynchronous task executor, blocking one of its threads until the
+   * responses have arrived.
+   *
+   * @param signatureValue externally created signature value bytes.
+   * @return future of the finalized signature.
+   * @see AsyncTaskExecutor
+   */
+  public Future<Signature> finalizeAsync(byte[] signatureValue) {
+    return this.finalizeAsync(signatureValue, null);
+  }
+
+  /**
+   * Finalize the signature asynchronously by adding externally created signature value in bytes.
+   * OCSP and timestamp requests are made in the asynchronous task executor, blocking one of its threads until the
+   * responses have arrived.
+   *
+   * @param signatureValue externally created signature value bytes.
+   * @param callback callback to notify when the signature has been finalized or finalizing has failed, can be null.
+   * @return future of the finalized signature.
+   * @see AsyncTaskExecutor
+   */
+  public Future<Signature> finalizeAsync(final byte[] signatureValue, AsyncCallback<Signature> callback) {
+    logger.debug("Finalizing signature asynchronously");
+    return AsyncTaskExecutor.submit(this.configuration, new Callable<Signature>() {
+
+      @Override
+      public Signature call() {
+        return signatureFinalizer.finalizeSignature(signatureValue);
+      }
+
+    }, callback);
+  }
 }
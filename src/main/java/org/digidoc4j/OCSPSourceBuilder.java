@@ -13,6 +13,7 @@ package org.digidoc4j;
 import org.digidoc4j.impl.ConfigurationSingeltonHolder;
 import org.digidoc4j.impl.CommonOCSPSource;
 import org.digidoc4j.impl.SKOnlineOCSPSource;
+import org.digidoc4j.impl.SKOnlineTSPSource;
 import org.digidoc4j.impl.asic.SkDataLoader;
 import org.digidoc4j.impl.asic.ocsp.BDocTMOcspSource;
 import org.digidoc4j.utils.Helper;
@@ -28,6 +29,7 @@ public class OCSPSourceBuilder {
   private Configuration configuration;
   private SignatureProfile signatureProfile;
   private byte[] signatureValue;
+  private SKOnlineTSPSource timeStampSource;
 
   /**
    * @param defaultOCSPSource whether to use default OCSP source
@@ -68,7 +70,10 @@ public class OCSPSourceBuilder {
       if (SignatureProfile.LT_TM.equals(this.signatureProfile)) {
         source = new BDocTMOcspSource(this.configuration, this.signatureValue);
       } else {
-        source = new CommonOCSPSource(this.configuration);
+        CommonOCSPSource commonSource = new CommonOCSPSource(this.configuration);
+        commonSource.setReuseWindow(this.configuration.getOCSPReuseWindow());
+        commonSource.setTimeStampSource(this.timeStampSource);
+        source = commonSource;
       }
       loader.setUserAgent(Helper.createBDocUserAgent(this.signatureProfile));
     }
@@ -97,6 +102,19 @@ public class OCSPSourceBuilder {
     return this;
   }
 
+  /**
+   * @param timeStampSource source of the signature timestamp, OCSP responses are reused only with it
+   * @return OCSPSourceBuilder
+   * @see Configuration#setOCSPReuseWindow(long)
+   */
+  public OCSPSourceBuilder withTimeStampSource(SKOnlineTSPSource timeStampSource) {
+    if (this.defaultOCSPSource) {
+      throw new IllegalStateException("Not applicable for default OCSP source");
+    }
+    this.timeStampSource = timeStampSource;
+    return this;
+  }
+
   /**
    * @param signatureProfile signature profile
    * @return OCSPSourceBuilder
@@ -1,14 +1,14 @@
 package org.digidoc4j;
 
-import java.lang.reflect.Field;
 import java.util.concurrent.ExecutorService;
 
+import org.digidoc4j.impl.AsyncTaskExecutor;
 import org.digidoc4j.impl.ConfigurationSingeltonHolder;
-import org.digidoc4j.impl.asic.tsl.LazyTslCertificateSource;
+import org.digidoc4j.impl.asic.SkConnectionPool;
+import org.digidoc4j.impl.asic.tsl.TslLoader;
+import org.digidoc4j.impl.asic.tsl.TslRefreshScheduler;
 import org.digidoc4j.impl.asic.xades.validation.ThreadPoolManager;
 
-import eu.europa.esig.dss.tsl.service.TSLValidationJob;
-
 /**
  * Shutdown hook for clean shutdown. Please register this hook by Runtime.getRuntime().addShutdownHook(new
  * ShutdownHook()) when necessary. This hook works only for limited cases. NB! Currently in experimental status
@@ -21,10 +21,13 @@ public class ShutdownHook extends Thread {
   @Override
   public void run() {
     this.shutdownDefaultExecutorService();
+    this.shutdownTslRefreshScheduler();
+    this.shutdownTslLoader();
+    this.shutdownConnectionPool();
+    this.shutdownAsyncTaskExecutor();
     if (ConfigurationSingeltonHolder.isInitialized()) {
       Configuration configuration = ConfigurationSingeltonHolder.getInstance();
       this.shutdownExecutorService(configuration);
-      this.shutdownTSLValidationJob(configuration);
     }
   }
 
@@ -43,6 +46,38 @@ public class ShutdownHook extends Thread {
     }
   }
 
+  private void shutdownTslRefreshScheduler() {
+    try {
+      TslRefreshScheduler.shutdown();
+    } catch (Exception e) {
+      System.err.println(String.format("Unable to shutdown TSL refresh scheduler: %s", e.getMessage()));
+    }
+  }
+
+  private void shutdownTslLoader() {
+    try {
+      TslLoader.shutdown();
+    } catch (Exception e) {
+      System.err.println(String.format("Unable to shutdown TSL loader: %s", e.getMessage()));
+    }
+  }
+
+  private void shutdownConnectionPool() {
+    try {
+      SkConnectionPool.shutdown();
+    } catch (Exception e) {
+      System.err.println(String.format("Unable to shutdown connection pool: %s", e.getMessage()));
+    }
+  }
+
+  private void shutdownAsyncTaskExecutor() {
+    try {
+      AsyncTaskExecutor.shutdown();
+    } catch (Exception e) {
+      System.err.println(String.format("Unable to shutdown asynchronous task executor: %s", e.getMessage()));
+    }
+  }
+
   private void shutdownExecutorService(Configuration configuration) {
     ExecutorService executorService = configuration.getThreadExecutor();
     if (executorService != null) {
@@ -54,27 +89,4 @@ public class ShutdownHook extends Thread {
     }
   }
 
-  private void shutdownTSLValidationJob(Configuration configuration) {
-    TSLValidationJob job = null;
-    TSLCertificateSource source = configuration.getTSL();
-    if (source instanceof LazyTslCertificateSource) {
-      job = ((LazyTslCertificateSource) source).getTslLoader().getTslValidationJob();
-    } else {
-      System.out.println("Unable to shutdown TSL validation job");
-    }
-    if (job != null) {
-      String name = "executorService";
-      Field field;
-      try {
-        field = job.getClass().getDeclaredField(name);
-        field.setAccessible(true);
-        ((ExecutorService) field.get(job)).shutdown();
-      } catch (NoSuchFieldException e) {
-        System.err.println(String.format("Executor service field <%s> not found", name));
-      } catch (Exception e) {
-        System.err.println(String.format("Unable to shutdown TSL validation job: %s", e.getMessage()));
-      }
-    }
-  }
-
 }
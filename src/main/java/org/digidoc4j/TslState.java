@@ -0,0 +1,41 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j;
+
+/**
+ * Readiness state of the TSL.
+ */
+public enum TslState {
+  /**
+   * TSL has not been loaded yet and is not being loaded
+   */
+  NOT_LOADED,
+  /**
+   * TSL is being loaded for the first time
+   */
+  LOADING,
+  /**
+   * TSL is loaded and its cache has not expired
+   */
+  READY,
+  /**
+   * TSL is loaded, but its cache has expired and it has not been refreshed yet
+   */
+  STALE,
+  /**
+   * TSL is loaded, but its latest refresh failed and the previously loaded TSL is still used
+   */
+  REFRESH_FAILED,
+  /**
+   * Loading TSL failed and no previously loaded TSL is available
+   */
+  FAILED
+}
@@ -0,0 +1,23 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.exceptions;
+
+/**
+ * Thrown when a request to an OCSP or timestamp endpoint is not sent because the concurrency or rate limit of the
+ * endpoint did not admit it in time.
+ */
+public class EndpointOverloadedException extends DigiDoc4JException {
+
+  public EndpointOverloadedException(String url, String reason) {
+    super(String.format("Request to <%s> rejected: %s", url, reason));
+  }
+
+}
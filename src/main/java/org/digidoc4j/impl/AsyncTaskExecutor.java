@@ -0,0 +1,173 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.digidoc4j.AsyncCallback;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor of asynchronous signature finalization, OCSP and timestamp requests.
+ * <p/>
+ * Tasks run in the executor set by {@link Configuration#setAsyncTaskExecutor(ExecutorService)}. When it is not set,
+ * a shared bounded pool of daemon threads is used, one for each combination of asynchronous task threads and queue
+ * size in the configuration. Idle threads are terminated after a minute. Submitting a task fails with
+ * {@link TechnicalException} when all threads are busy and the queue is full.
+ * <p/>
+ * The executor is kept separate from the validation thread pool, as signature finalization itself validates
+ * signatures in the validation thread pool and sharing the same pool could exhaust it.
+ * <p/>
+ * Tasks do not use non-blocking I/O. The HTTP client sends OCSP and timestamp requests synchronously and DSS calls
+ * the OCSP and timestamp sources synchronously while extending a signature, so each running task occupies a pool
+ * thread until its responses arrive. Asynchronous calls only move the waiting from the calling thread to the pool:
+ * the number of requests in flight is limited by the number of threads, and slow responders can fill the queue and
+ * make further submissions fail.
+ */
+public final class AsyncTaskExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncTaskExecutor.class);
+  private static final int DEFAULT_THREADS = 8;
+  private static final int DEFAULT_QUEUE_SIZE = 100;
+  private static final long THREAD_KEEP_ALIVE_IN_SECONDS = 60;
+  private static final Map<List<Integer>, ExecutorService> executorServices = new HashMap<>();
+
+  private AsyncTaskExecutor() {
+  }
+
+  /**
+   * Submits a task to the executor of the configuration. The callback, if present, is notified of the result in the
+   * executing thread before the returned future completes.
+   *
+   * @param configuration configuration context, default settings are used when null
+   * @param task          task to execute
+   * @param callback      callback to notify, can be null
+   * @param <T>           type of the task result
+   * @return future of the task result
+   * @throws TechnicalException if the executor does not accept more tasks
+   */
+  public static <T> Future<T> submit(Configuration configuration, final Callable<T> task,
+                                     final AsyncCallback<T> callback) {
+    try {
+      return AsyncTaskExecutor.getExecutorService(configuration).submit(new Callable<T>() {
+
+        @Override
+        public T call() throws Exception {
+          T result;
+          try {
+            result = task.call();
+          } catch (Exception e) {
+            AsyncTaskExecutor.notifyFailure(callback, e);
+            throw e;
+          }
+          AsyncTaskExecutor.notifySuccess(callback, result);
+          return result;
+        }
+
+      });
+    } catch (RejectedExecutionException e) {
+      throw new TechnicalException("Asynchronous task was rejected, too many tasks are waiting to be executed", e);
+    }
+  }
+
+  /**
+   * @param configuration configuration context, default settings are used when null
+   * @return executor service used for asynchronous tasks of the configuration
+   */
+  public static ExecutorService getExecutorService(Configuration configuration) {
+    if (configuration == null) {
+      return AsyncTaskExecutor.getDefaultExecutorService(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+    }
+    if (configuration.getAsyncTaskExecutor() != null) {
+      return configuration.getAsyncTaskExecutor();
+    }
+    return AsyncTaskExecutor.getDefaultExecutorService(configuration.getAsyncTaskThreads(),
+        configuration.getAsyncTaskQueueSize());
+  }
+
+  /**
+   * Shuts down the shared executor services. New ones are created when next task is submitted. Executor services
+   * set in configurations are left to their owners.
+   */
+  public static synchronized void shutdown() {
+    for (ExecutorService executorService : AsyncTaskExecutor.executorServices.values()) {
+      executorService.shutdown();
+    }
+    AsyncTaskExecutor.executorServices.clear();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static synchronized ExecutorService getDefaultExecutorService(int threads, int queueSize) {
+    List<Integer> key = Arrays.asList(Math.max(1, threads), Math.max(1, queueSize));
+    ExecutorService executorService = AsyncTaskExecutor.executorServices.get(key);
+    if (executorService == null || executorService.isShutdown()) {
+      logger.debug("Initializing asynchronous task executor with <{}> threads and queue size <{}>", key.get(0),
+          key.get(1));
+      ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(key.get(0), key.get(0),
+          THREAD_KEEP_ALIVE_IN_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(key.get(1)),
+          new ThreadFactory() {
+
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "digidoc4j-async-" + this.counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+
+          });
+      threadPoolExecutor.allowCoreThreadTimeOut(true);
+      executorService = threadPoolExecutor;
+      AsyncTaskExecutor.executorServices.put(key, executorService);
+    }
+    return executorService;
+  }
+
+  private static <T> void notifySuccess(AsyncCallback<T> callback, T result) {
+    if (callback != null) {
+      try {
+        callback.onSuccess(result);
+      } catch (RuntimeException e) {
+        logger.warn("Asynchronous task callback failed: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  private static <T> void notifyFailure(AsyncCallback<T> callback, Exception exception) {
+    if (callback != null) {
+      try {
+        callback.onFailure(exception);
+      } catch (RuntimeException e) {
+        logger.warn("Asynchronous task callback failed: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+}
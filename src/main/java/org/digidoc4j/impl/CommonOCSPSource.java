@@ -1,5 +1,8 @@
 package org.digidoc4j.impl;
 
+import java.util.Date;
+import java.util.concurrent.Callable;
+
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
 import org.bouncycastle.asn1.x509.Extension;
@@ -8,12 +11,18 @@ import org.digidoc4j.utils.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import eu.europa.esig.dss.DSSRevocationUtils;
+import eu.europa.esig.dss.x509.CertificateToken;
+import eu.europa.esig.dss.x509.ocsp.OCSPToken;
+
 /**
  * Created by Janar Rahumeel (CGI Estonia)
  */
 public class CommonOCSPSource extends SKOnlineOCSPSource {
 
   private final Logger log = LoggerFactory.getLogger(CommonOCSPSource.class);
+  private long reuseWindow;
+  private SKOnlineTSPSource timeStampSource;
 
   /**
    * @param configuration configuration
@@ -22,6 +31,30 @@ public class CommonOCSPSource extends SKOnlineOCSPSource {
     super(configuration);
   }
 
+  /**
+   * Returns a response of the same OCSP responder for the same certificate produced within the reuse window and
+   * after the last timestamp of the timestamp source, if there is one, otherwise requests a new response. Responses
+   * are not reused without a timestamp.
+   */
+  @Override
+  public OCSPToken getOCSPToken(final CertificateToken certificateToken,
+                                final CertificateToken issuerCertificateToken) {
+    Date timeStampTime = this.timeStampSource == null ? null : this.timeStampSource.getLastTimeStampTime();
+    if (this.reuseWindow <= 0 || timeStampTime == null) {
+      return super.getOCSPToken(certificateToken, issuerCertificateToken);
+    }
+    return this.getConfiguration().getSigningOCSPResponseCache().getToken(this.getAccessLocation(),
+        DSSRevocationUtils.getOCSPCertificateID(certificateToken, issuerCertificateToken), this.reuseWindow,
+        timeStampTime, new Callable<OCSPToken>() {
+
+          @Override
+          public OCSPToken call() {
+            return CommonOCSPSource.super.getOCSPToken(certificateToken, issuerCertificateToken);
+          }
+
+        });
+  }
+
   @Override
   public Extension createNonce() {
     this.log.debug("Creating default OCSP nonce ...");
@@ -29,4 +62,32 @@ public class CommonOCSPSource extends SKOnlineOCSPSource {
         .generateRandomBytes(32)));
   }
 
+  /*
+   * ACCESSORS
+   */
+
+  /**
+   * @param reuseWindow how many milliseconds after its production time an OCSP response is reused, 0 to request a
+   *                    new response every time
+   */
+  public void setReuseWindow(long reuseWindow) {
+    this.reuseWindow = reuseWindow;
+  }
+
+  public long getReuseWindow() {
+    return reuseWindow;
+  }
+
+  /**
+   * @param timeStampSource source of the timestamp of the signature, only responses produced after its last
+   *                        timestamp are reused
+   */
+  public void setTimeStampSource(SKOnlineTSPSource timeStampSource) {
+    this.timeStampSource = timeStampSource;
+  }
+
+  public SKOnlineTSPSource getTimeStampSource() {
+    return timeStampSource;
+  }
+
 }
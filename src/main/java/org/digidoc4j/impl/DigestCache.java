@@ -0,0 +1,221 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.DSSDocument;
+import eu.europa.esig.dss.DSSException;
+import eu.europa.esig.dss.DigestAlgorithm;
+
+/**
+ * Digests of the content of a document, one per digest algorithm.
+ * <p/>
+ * Missing digests are calculated in a single pass over the content. Each pass also calculates the companion
+ * algorithms of the cache, so that digests commonly needed together (for example a signature reference digest and the
+ * SHA-256 digest of a data file) don't require reading the content again. Digests are returned as copies, so
+ * callers can't change the cached values.
+ */
+public class DigestCache implements Serializable {
+
+  private static final Logger logger = LoggerFactory.getLogger(DigestCache.class);
+  private static final int BUFFER_SIZE = 8192;
+  private final Set<DigestAlgorithm> companionAlgorithms;
+  private final Map<DigestAlgorithm, byte[]> digests = new EnumMap<>(DigestAlgorithm.class);
+
+  /**
+   * Creates a cache calculating SHA-256 digests together with any other digest.
+   */
+  public DigestCache() {
+    this(DigestAlgorithm.SHA256);
+  }
+
+  /**
+   * @param companionAlgorithms digest algorithms calculated whenever the content is read
+   */
+  public DigestCache(DigestAlgorithm... companionAlgorithms) {
+    this.companionAlgorithms = companionAlgorithms.length == 0 ? EnumSet.noneOf(DigestAlgorithm.class)
+        : EnumSet.copyOf(Arrays.asList(companionAlgorithms));
+  }
+
+  /**
+   * @param document        document of which content is digested
+   * @param digestAlgorithm digest algorithm
+   * @return digest of the content
+   * @throws DSSException if the content can't be read
+   */
+  public byte[] getDigest(DSSDocument document, DigestAlgorithm digestAlgorithm) {
+    return this.getDigests(document, Collections.singleton(digestAlgorithm)).get(digestAlgorithm);
+  }
+
+  /**
+   * Returns the digests of the content, calculating all missing digests in a single pass over the content.
+   *
+   * @param document         document of which content is digested
+   * @param digestAlgorithms digest algorithms
+   * @return digests of the content by algorithm
+   * @throws DSSException if the content can't be read
+   */
+  public Map<DigestAlgorithm, byte[]> getDigests(DSSDocument document, Collection<DigestAlgorithm> digestAlgorithms) {
+    return this.getDigests(document, null, digestAlgorithms);
+  }
+
+  /**
+   * Returns the digests of the content, calculating all missing digests in a single pass over the given content
+   * instead of reading the document.
+   *
+   * @param document         document of which content is digested
+   * @param content          content of the document or null to read the content from the document
+   * @param digestAlgorithms digest algorithms
+   * @return digests of the content by algorithm
+   * @throws DSSException if the content can't be read
+   */
+  public synchronized Map<DigestAlgorithm, byte[]> getDigests(DSSDocument document, ByteBuffer content,
+                                                              Collection<DigestAlgorithm> digestAlgorithms) {
+    Set<DigestAlgorithm> missingAlgorithms = EnumSet.noneOf(DigestAlgorithm.class);
+    for (DigestAlgorithm digestAlgorithm : digestAlgorithms) {
+      if (!this.digests.containsKey(digestAlgorithm)) {
+        missingAlgorithms.add(digestAlgorithm);
+      }
+    }
+    if (!missingAlgorithms.isEmpty()) {
+      for (DigestAlgorithm companionAlgorithm : this.companionAlgorithms) {
+        if (!this.digests.containsKey(companionAlgorithm)) {
+          missingAlgorithms.add(companionAlgorithm);
+        }
+      }
+      this.calculateDigests(document, content, missingAlgorithms);
+    }
+    Map<DigestAlgorithm, byte[]> result = new EnumMap<>(DigestAlgorithm.class);
+    for (DigestAlgorithm digestAlgorithm : digestAlgorithms) {
+      result.put(digestAlgorithm, this.digests.get(digestAlgorithm).clone());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the digest the document gives for its content, asking the document only once. Meant for documents that
+   * calculate or hold their digests themselves, including documents without any content.
+   *
+   * @param document        document of which content is digested
+   * @param digestAlgorithm digest algorithm
+   * @return digest of the content
+   * @throws DSSException if the document can't give the digest
+   */
+  public synchronized byte[] getDocumentDigest(DSSDocument document, DigestAlgorithm digestAlgorithm) {
+    byte[] digest = this.digests.get(digestAlgorithm);
+    if (digest == null) {
+      logger.debug("Getting {} digest of <{}>", digestAlgorithm, document.getName());
+      digest = Base64.decodeBase64(document.getDigest(digestAlgorithm));
+      this.digests.put(digestAlgorithm, digest);
+    }
+    return digest.clone();
+  }
+
+  /**
+   * Calculates the missing digests of a document keeping its digests in a cache in a single pass over the content.
+   * Other documents are left as they are.
+   *
+   * @param document         document of which content is digested
+   * @param digestAlgorithms digest algorithms
+   * @throws DSSException if the content can't be read
+   */
+  public static void prefill(DSSDocument document, Collection<DigestAlgorithm> digestAlgorithms) {
+    if (document instanceof DigestCachingDocument) {
+      ((DigestCachingDocument) document).cacheDigests(digestAlgorithms);
+    }
+  }
+
+  /**
+   * @param digestAlgorithms digest algorithms
+   * @return true if digests of all the given algorithms are cached
+   */
+  public synchronized boolean contains(Collection<DigestAlgorithm> digestAlgorithms) {
+    return this.digests.keySet().containsAll(digestAlgorithms);
+  }
+
+  /**
+   * Removes all cached digests.
+   */
+  public synchronized void clear() {
+    this.digests.clear();
+  }
+
+  /**
+   * @return number of cached digests
+   */
+  public synchronized int size() {
+    return this.digests.size();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void calculateDigests(DSSDocument document, ByteBuffer content, Set<DigestAlgorithm> digestAlgorithms) {
+    logger.debug("Calculating {} digests of <{}>", digestAlgorithms, document.getName());
+    List<DigestAlgorithm> algorithms = new ArrayList<>(digestAlgorithms);
+    List<MessageDigest> messageDigests = new ArrayList<>();
+    InputStream stream = null;
+    try {
+      for (DigestAlgorithm digestAlgorithm : algorithms) {
+        messageDigests.add(MessageDigest.getInstance(digestAlgorithm.getJavaName()));
+      }
+      if (content != null) {
+        for (MessageDigest messageDigest : messageDigests) {
+          messageDigest.update(content.duplicate());
+        }
+        this.putDigests(algorithms, messageDigests);
+        return;
+      }
+      stream = document.openStream();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int count;
+      while ((count = stream.read(buffer)) != -1) {
+        for (MessageDigest messageDigest : messageDigests) {
+          messageDigest.update(buffer, 0, count);
+        }
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.error(e.getMessage());
+      throw new DSSException(e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+    this.putDigests(algorithms, messageDigests);
+  }
+
+  private void putDigests(List<DigestAlgorithm> algorithms, List<MessageDigest> messageDigests) {
+    for (int i = 0; i < algorithms.size(); i++) {
+      this.digests.put(algorithms.get(i), messageDigests.get(i).digest());
+    }
+  }
+
+}
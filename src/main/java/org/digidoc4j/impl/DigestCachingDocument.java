@@ -0,0 +1,30 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.util.Collection;
+
+import eu.europa.esig.dss.DigestAlgorithm;
+
+/**
+ * Document keeping the digests of its content in a {@link DigestCache}.
+ */
+public interface DigestCachingDocument {
+
+  /**
+   * Calculates the missing digests of the content in a single pass, so that later digest requests don't read the
+   * content again.
+   *
+   * @param digestAlgorithms digest algorithms
+   */
+  void cacheDigests(Collection<DigestAlgorithm> digestAlgorithms);
+
+}
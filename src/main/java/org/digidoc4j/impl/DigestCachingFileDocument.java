@@ -0,0 +1,49 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.util.Collection;
+
+import org.apache.commons.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.DigestAlgorithm;
+import eu.europa.esig.dss.FileDocument;
+
+/**
+ * @see FileDocument keeping the digests of the file in a {@link DigestCache}, so that digests of several algorithms
+ * are calculated reading the file once.
+ */
+public class DigestCachingFileDocument extends FileDocument implements DigestCachingDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(DigestCachingFileDocument.class);
+  private final DigestCache digestCache = new DigestCache();
+
+  /**
+   * @param path path of the file
+   */
+  public DigestCachingFileDocument(String path) {
+    super(path);
+  }
+
+  @Override
+  public String getDigest(DigestAlgorithm digestAlgorithm) {
+    logger.debug("Digest algorithm: " + digestAlgorithm);
+    return Base64.encodeBase64String(this.digestCache.getDigest(this, digestAlgorithm));
+  }
+
+  @Override
+  public void cacheDigests(Collection<DigestAlgorithm> digestAlgorithms) {
+    this.digestCache.getDigests(this, digestAlgorithms);
+  }
+
+}
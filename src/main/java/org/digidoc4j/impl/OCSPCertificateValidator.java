@@ -2,19 +2,24 @@ package org.digidoc4j.impl;
 
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.security.auth.x500.X500Principal;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.digidoc4j.CertificateValidator;
+import org.digidoc4j.BatchCertificateValidator;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.exceptions.CertificateValidationException;
 import org.digidoc4j.exceptions.SignatureVerificationException;
+import org.digidoc4j.impl.asic.tsl.CertificateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import eu.europa.esig.dss.DSSRevocationUtils;
 import eu.europa.esig.dss.DSSUtils;
 import eu.europa.esig.dss.x509.CertificateSource;
 import eu.europa.esig.dss.x509.CertificateToken;
@@ -27,7 +32,7 @@ import eu.europa.esig.dss.x509.ocsp.OCSPToken;
  * <p>
  * Created by Janar Rahumeel (CGI Estonia)
  */
-public class OCSPCertificateValidator implements CertificateValidator {
+public class OCSPCertificateValidator implements BatchCertificateValidator {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(OCSPCertificateValidator.class);
   private final Configuration configuration;
@@ -52,21 +57,169 @@ public class OCSPCertificateValidator implements CertificateValidator {
       if (subjectCertificate == null) {
         throw new IllegalArgumentException("Subject certificate is not provided");
       }
-      this.verifyOCSPToken(this.ocspSource.getOCSPToken(new CertificateToken(subjectCertificate),
+      this.verifyOCSPToken(this.getOCSPToken(new CertificateToken(subjectCertificate),
           this.getIssuerCertificateToken(subjectCertificate)));
-    } catch (SignatureVerificationException e) {
-      throw CertificateValidationException.of(CertificateValidationException.CertificateValidationStatus.UNTRUSTED, e);
-    } catch (CertificateValidationException e) {
-      throw e;
     } catch (Exception e) {
-      throw CertificateValidationException.of(e);
+      throw this.toValidationException(e);
+    }
+  }
+
+  /**
+   * Validates certificates in batches of {@link Configuration#getOCSPBatchSize()} certificates, each batch is checked
+   * with a single OCSP request. Only the certificates without a fresh response in the OCSP response cache are
+   * included in the request.
+   */
+  @Override
+  public Map<X509Certificate, CertificateValidationException> validate(List<X509Certificate> subjectCertificates) {
+    if (subjectCertificates == null || subjectCertificates.contains(null)) {
+      throw new IllegalArgumentException("Subject certificates are not provided");
+    }
+    Map<X509Certificate, CertificateValidationException> failures = new LinkedHashMap<>();
+    if (!(this.ocspSource instanceof SKOnlineOCSPSource)) {
+      for (X509Certificate subjectCertificate : subjectCertificates) {
+        try {
+          this.validate(subjectCertificate);
+        } catch (CertificateValidationException e) {
+          failures.put(subjectCertificate, e);
+        }
+      }
+      return failures;
+    }
+    Map<X509Certificate, CertificateToken> subjectTokens = new LinkedHashMap<>();
+    Map<CertificateToken, CertificateToken> certificateIssuers = new LinkedHashMap<>();
+    for (X509Certificate subjectCertificate : subjectCertificates) {
+      if (subjectTokens.containsKey(subjectCertificate) || failures.containsKey(subjectCertificate)) {
+        continue;
+      }
+      try {
+        CertificateToken issuerToken = this.getIssuerCertificateToken(subjectCertificate);
+        CertificateToken subjectToken = new CertificateToken(subjectCertificate);
+        subjectTokens.put(subjectCertificate, subjectToken);
+        certificateIssuers.put(subjectToken, issuerToken);
+      } catch (Exception e) {
+        failures.put(subjectCertificate, this.toValidationException(e));
+      }
+      if (subjectTokens.size() >= this.configuration.getOCSPBatchSize()) {
+        this.validateBatch(subjectTokens, certificateIssuers, failures);
+        subjectTokens.clear();
+        certificateIssuers.clear();
+      }
+    }
+    if (!subjectTokens.isEmpty()) {
+      this.validateBatch(subjectTokens, certificateIssuers, failures);
     }
+    return failures;
   }
 
   /*
    * RESTRICTED METHODS
    */
 
+  private void validateBatch(Map<X509Certificate, CertificateToken> subjectTokens,
+                             Map<CertificateToken, CertificateToken> certificateIssuers,
+                             Map<X509Certificate, CertificateValidationException> failures) {
+    Map<CertificateToken, OCSPToken> tokens = this.getCachedOCSPTokens(certificateIssuers);
+    Map<CertificateToken, CertificateToken> missingIssuers = new LinkedHashMap<>();
+    for (Map.Entry<CertificateToken, CertificateToken> entry : certificateIssuers.entrySet()) {
+      if (!tokens.containsKey(entry.getKey())) {
+        missingIssuers.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (!missingIssuers.isEmpty()) {
+      LOGGER.debug("Validating <{}> certificates with a single OCSP request", missingIssuers.size());
+      try {
+        Map<CertificateToken, OCSPToken> requestedTokens = ((SKOnlineOCSPSource) this.ocspSource)
+            .getOCSPTokens(missingIssuers);
+        this.cacheOCSPTokens(missingIssuers, requestedTokens);
+        tokens.putAll(requestedTokens);
+      } catch (Exception e) {
+        for (Map.Entry<X509Certificate, CertificateToken> entry : subjectTokens.entrySet()) {
+          if (missingIssuers.containsKey(entry.getValue())) {
+            failures.put(entry.getKey(), this.toValidationException(e));
+          }
+        }
+      }
+    }
+    for (Map.Entry<X509Certificate, CertificateToken> entry : subjectTokens.entrySet()) {
+      if (failures.containsKey(entry.getKey())) {
+        continue;
+      }
+      try {
+        this.verifyOCSPToken(tokens.get(entry.getValue()));
+      } catch (Exception e) {
+        failures.put(entry.getKey(), this.toValidationException(e));
+      }
+    }
+  }
+
+  private Map<CertificateToken, OCSPToken> getCachedOCSPTokens(
+      Map<CertificateToken, CertificateToken> certificateIssuers) {
+    Map<CertificateToken, OCSPToken> tokens = new LinkedHashMap<>();
+    if (!this.isOCSPCacheApplicable()) {
+      return tokens;
+    }
+    OCSPResponseCache cache = this.configuration.getOCSPResponseCache();
+    String accessLocation = ((SKOnlineOCSPSource) this.ocspSource).getAccessLocation();
+    for (Map.Entry<CertificateToken, CertificateToken> entry : certificateIssuers.entrySet()) {
+      OCSPToken token = cache.getCachedToken(accessLocation, DSSRevocationUtils.getOCSPCertificateID(entry.getKey(),
+          entry.getValue()), this.configuration.getOCSPCacheMaxAge());
+      if (token != null) {
+        tokens.put(entry.getKey(), token);
+      }
+    }
+    LOGGER.debug("Using <{}> cached OCSP responses", tokens.size());
+    return tokens;
+  }
+
+  private void cacheOCSPTokens(Map<CertificateToken, CertificateToken> certificateIssuers,
+                               Map<CertificateToken, OCSPToken> tokens) {
+    if (!this.isOCSPCacheApplicable()) {
+      return;
+    }
+    OCSPResponseCache cache = this.configuration.getOCSPResponseCache();
+    String accessLocation = ((SKOnlineOCSPSource) this.ocspSource).getAccessLocation();
+    for (Map.Entry<CertificateToken, OCSPToken> entry : tokens.entrySet()) {
+      if (entry.getValue() != null) {
+        cache.putToken(accessLocation, DSSRevocationUtils.getOCSPCertificateID(entry.getKey(),
+            certificateIssuers.get(entry.getKey())), entry.getValue());
+      }
+    }
+  }
+
+  private CertificateValidationException toValidationException(Exception e) {
+    if (e instanceof SignatureVerificationException) {
+      return CertificateValidationException.of(CertificateValidationException.CertificateValidationStatus.UNTRUSTED, e);
+    }
+    if (e instanceof CertificateValidationException) {
+      return (CertificateValidationException) e;
+    }
+    return CertificateValidationException.of(e);
+  }
+
+  private OCSPToken getOCSPToken(final CertificateToken subjectToken, final CertificateToken issuerToken) {
+    if (!this.isOCSPCacheApplicable()) {
+      return this.ocspSource.getOCSPToken(subjectToken, issuerToken);
+    }
+    return this.configuration.getOCSPResponseCache().getToken(((SKOnlineOCSPSource) this.ocspSource)
+            .getAccessLocation(), DSSRevocationUtils.getOCSPCertificateID(subjectToken, issuerToken),
+        this.configuration.getOCSPCacheMaxAge(), new Callable<OCSPToken>() {
+
+          @Override
+          public OCSPToken call() {
+            return OCSPCertificateValidator.this.ocspSource.getOCSPToken(subjectToken, issuerToken);
+          }
+
+        });
+  }
+
+  /**
+   * Only responses of the common OCSP source are cached, the nonce of time-mark OCSP source is bound to the
+   * signature value.
+   */
+  private boolean isOCSPCacheApplicable() {
+    return this.configuration.isOCSPCacheEnabled() && this.ocspSource instanceof CommonOCSPSource;
+  }
+
   private CertificateToken getIssuerCertificateToken(X509Certificate certificate) throws CertificateEncodingException {
     CertificateToken certificateToken = null;
     try {
@@ -93,7 +246,7 @@ public class OCSPCertificateValidator implements CertificateValidator {
   }
 
   private List<CertificateToken> getCertificateTokens(X500Principal principal) {
-    List<CertificateToken> tokens = this.configuration.getTSL().get(principal);
+    List<CertificateToken> tokens = CertificateIndex.findBySubject(this.configuration.getTSL(), principal);
     if (CollectionUtils.isEmpty(tokens)) {
       tokens = this.certificateSource.get(principal);
     }
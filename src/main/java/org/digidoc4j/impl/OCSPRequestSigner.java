@@ -0,0 +1,141 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.io.File;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Objects;
+
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.token.KSPrivateKeyEntry;
+import eu.europa.esig.dss.token.Pkcs12SignatureToken;
+
+/**
+ * Signer of OCSP requests.
+ * <p/>
+ * The OCSP access certificate and its private key are loaded from the PKCS#12 file once and reloaded only when the
+ * modification time or the size of the file changes. The signer is safe for concurrent use, a new content signer is
+ * created for each request.
+ */
+public class OCSPRequestSigner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OCSPRequestSigner.class);
+  private static final String SIGNATURE_ALGORITHM = "SHA1withRSA";
+  private final String fileName;
+  private final String password;
+  private volatile SigningKey signingKey;
+
+  /**
+   * @param fileName PKCS#12 file of the OCSP access certificate
+   * @param password password of the PKCS#12 file
+   */
+  public OCSPRequestSigner(String fileName, String password) {
+    this.fileName = fileName;
+    this.password = password;
+  }
+
+  /**
+   * Builds a signed OCSP request.
+   *
+   * @param builder OCSP request builder with the requests and extensions added
+   * @return signed OCSP request
+   */
+  public OCSPReq sign(OCSPReqBuilder builder) {
+    SigningKey key = this.getSigningKey();
+    try {
+      builder.setRequestorName(key.requestorName);
+      return builder.build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(key.privateKey),
+          new X509CertificateHolder[]{key.certificateHolder});
+    } catch (Exception e) {
+      throw new TechnicalException("Unable to sign OCSP request", e);
+    }
+  }
+
+  /**
+   * @param fileName PKCS#12 file of the OCSP access certificate
+   * @param password password of the PKCS#12 file
+   * @return true if the signer uses the given file and password
+   */
+  public boolean isFor(String fileName, String password) {
+    return Objects.equals(this.fileName, fileName) && Objects.equals(this.password, password);
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private SigningKey getSigningKey() {
+    File file = new File(this.fileName);
+    long lastModified = file.lastModified();
+    long length = file.length();
+    SigningKey key = this.signingKey;
+    if (key != null && key.isLoadedFrom(lastModified, length)) {
+      return key;
+    }
+    synchronized (this) {
+      key = this.signingKey;
+      if (key == null || !key.isLoadedFrom(lastModified, length)) {
+        key = this.loadSigningKey(lastModified, length);
+        this.signingKey = key;
+      }
+      return key;
+    }
+  }
+
+  private SigningKey loadSigningKey(long lastModified, long length) {
+    LOGGER.debug("Loading OCSP access certificate from <{}>", this.fileName);
+    Pkcs12SignatureToken token = new Pkcs12SignatureToken(this.fileName, this.password);
+    try {
+      KSPrivateKeyEntry privateKeyEntry = (KSPrivateKeyEntry) token.getKeys().get(0);
+      X509Certificate certificate = privateKeyEntry.getCertificate().getCertificate();
+      return new SigningKey(privateKeyEntry.getPrivateKey(), new X509CertificateHolder(certificate.getEncoded()),
+          new GeneralName(new JcaX509CertificateHolder(certificate).getSubject()), lastModified, length);
+    } catch (Exception e) {
+      throw new TechnicalException("Unable to load OCSP access certificate", e);
+    } finally {
+      token.close();
+    }
+  }
+
+  private static class SigningKey {
+
+    private final PrivateKey privateKey;
+    private final X509CertificateHolder certificateHolder;
+    private final GeneralName requestorName;
+    private final long lastModified;
+    private final long length;
+
+    SigningKey(PrivateKey privateKey, X509CertificateHolder certificateHolder, GeneralName requestorName,
+               long lastModified, long length) {
+      this.privateKey = privateKey;
+      this.certificateHolder = certificateHolder;
+      this.requestorName = requestorName;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    boolean isLoadedFrom(long lastModified, long length) {
+      return this.lastModified == lastModified && this.length == length;
+    }
+
+  }
+
+}
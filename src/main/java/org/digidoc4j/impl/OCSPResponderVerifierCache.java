@@ -0,0 +1,129 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.CollectionUtils;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.exceptions.SignatureVerificationException;
+import org.digidoc4j.impl.asic.tsl.CertificateIndex;
+import org.digidoc4j.impl.asic.tsl.LazyTslCertificateSource;
+import org.digidoc4j.impl.asic.tsl.TslSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.DSSUtils;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+/**
+ * Cache of OCSP responder signature verifiers.
+ * <p/>
+ * Responder certificates embedded into OCSP responses are resolved to the trusted responder certificates of the TSL
+ * and a verifier provider is built for each of them once per TSL snapshot. Verifiers are cached by the SHA-256
+ * digest of the embedded responder certificate. When the TSL is refreshed, verifiers are resolved again against the
+ * new snapshot and the verifiers of the previous snapshot are released together with the snapshot.
+ * <p/>
+ * Verifiers are cached only for TSL sources refreshed by DigiDoc4J, other TSL sources may be modified at any time.
+ */
+public final class OCSPResponderVerifierCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OCSPResponderVerifierCache.class);
+  private static final Map<TslSnapshot, Map<String, ContentVerifierProvider>> verifiers = new WeakHashMap<>();
+
+  private OCSPResponderVerifierCache() {
+  }
+
+  /**
+   * Returns the verifier of signatures made by the given responder certificate. The responder certificate must be
+   * present in the TSL.
+   *
+   * @param tsl                  TSL source
+   * @param responderCertificate responder certificate embedded into OCSP response
+   * @return verifier provider of the trusted responder certificate
+   * @throws SignatureVerificationException if the responder certificate is not found in the TSL
+   */
+  public static ContentVerifierProvider getVerifierProvider(TSLCertificateSource tsl,
+                                                            X509CertificateHolder responderCertificate) {
+    if (!(tsl instanceof LazyTslCertificateSource)) {
+      return OCSPResponderVerifierCache.createVerifierProvider(CertificateIndex.findBySubject(tsl,
+          OCSPResponderVerifierCache.getSubject(responderCertificate)), responderCertificate);
+    }
+    TslSnapshot snapshot = ((LazyTslCertificateSource) tsl).getSnapshot();
+    Map<String, ContentVerifierProvider> snapshotVerifiers = OCSPResponderVerifierCache.getVerifiers(snapshot);
+    String digest = DigestUtils.sha256Hex(OCSPResponderVerifierCache.getEncoded(responderCertificate));
+    ContentVerifierProvider provider = snapshotVerifiers.get(digest);
+    if (provider == null) {
+      LOGGER.debug("Resolving OCSP responder certificate against TSL snapshot version {}", snapshot.getVersion());
+      provider = OCSPResponderVerifierCache.createVerifierProvider(snapshot.getCertificateIndex().getBySubject(
+          OCSPResponderVerifierCache.getSubject(responderCertificate)), responderCertificate);
+      snapshotVerifiers.put(digest, provider);
+    }
+    return provider;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static Map<String, ContentVerifierProvider> getVerifiers(TslSnapshot snapshot) {
+    synchronized (OCSPResponderVerifierCache.verifiers) {
+      Map<String, ContentVerifierProvider> snapshotVerifiers = OCSPResponderVerifierCache.verifiers.get(snapshot);
+      if (snapshotVerifiers == null) {
+        snapshotVerifiers = new ConcurrentHashMap<>();
+        OCSPResponderVerifierCache.verifiers.put(snapshot, snapshotVerifiers);
+      }
+      return snapshotVerifiers;
+    }
+  }
+
+  private static ContentVerifierProvider createVerifierProvider(List<CertificateToken> tokens,
+                                                                X509CertificateHolder responderCertificate) {
+    if (CollectionUtils.isEmpty(tokens) || tokens.size() != 1) {
+      throw new SignatureVerificationException(String.format("OCSP response certificate <%s> match is not found " +
+          "in TSL (<%s> results in total)", DSSUtils.loadCertificate(OCSPResponderVerifierCache.getEncoded(
+          responderCertificate)).getDSSIdAsString(), tokens == null ? 0 : tokens.size()));
+    }
+    try {
+      return new JcaContentVerifierProviderBuilder().setProvider("BC").build(new X509CertificateHolder(
+          tokens.get(0).getEncoded()));
+    } catch (Exception e) {
+      throw new SignatureVerificationException("Unable to verify response signature", e);
+    }
+  }
+
+  private static X500Principal getSubject(X509CertificateHolder certificate) {
+    try {
+      return new X500Principal(certificate.getSubject().getEncoded());
+    } catch (IOException e) {
+      throw new SignatureVerificationException("Unable to verify response signature", e);
+    }
+  }
+
+  private static byte[] getEncoded(X509CertificateHolder certificate) {
+    try {
+      return certificate.getEncoded();
+    } catch (IOException e) {
+      throw new SignatureVerificationException("Unable to verify response signature", e);
+    }
+  }
+
+}
@@ -0,0 +1,249 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.x509.ocsp.OCSPToken;
+
+/**
+ * Cache of OCSP responses used by certificate validation.
+ * <p/>
+ * Responses are cached by OCSP responder location and certificate ID. A cached response is served as long as it is
+ * younger than the configured maximum age counted from its production time (thisUpdate) and its nextUpdate time, if
+ * present, has not passed. Concurrent requests for the same certificate are sent to the OCSP responder only once,
+ * the other callers wait for the response of the first request. The least recently used responses are dropped when
+ * the cache is full.
+ * <p/>
+ * Only responses to requests without signature-bound nonces may be cached, so the cache must not be used for
+ * time-mark (LT_TM) signatures.
+ */
+public class OCSPResponseCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OCSPResponseCache.class);
+  private final Map<Key, OCSPToken> tokens;
+  private final Map<Key, FutureTask<OCSPToken>> inFlightRequests = new HashMap<>();
+
+  /**
+   * @param maxSize maximum number of cached responses
+   */
+  public OCSPResponseCache(final int maxSize) {
+    this.tokens = new LinkedHashMap<Key, OCSPToken>(16, 0.75f, true) {
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, OCSPToken> eldest) {
+        return this.size() > maxSize;
+      }
+
+    };
+  }
+
+  /**
+   * Returns a fresh cached OCSP response or requests a new one. Only one request per certificate is in flight at
+   * a time.
+   *
+   * @param accessLocation OCSP responder location
+   * @param certificateID  ID of the certificate
+   * @param maxAge         maximum age of the cached response in milliseconds
+   * @param request        request to the OCSP responder
+   * @return OCSP token or null, if the responder did not return a usable response
+   */
+  public OCSPToken getToken(String accessLocation, CertificateID certificateID, long maxAge,
+                            Callable<OCSPToken> request) {
+    return this.getToken(accessLocation, certificateID, maxAge, null, request);
+  }
+
+  /**
+   * Returns a fresh cached OCSP response produced at or after the given time or requests a new one. A response of a
+   * request in flight produced earlier than that is not used either.
+   *
+   * @param accessLocation OCSP responder location
+   * @param certificateID  ID of the certificate
+   * @param maxAge         maximum age of the cached response in milliseconds
+   * @param producedAfter  earliest accepted production time of the response, null to accept any
+   * @param request        request to the OCSP responder
+   * @return OCSP token or null, if the responder did not return a usable response
+   */
+  public OCSPToken getToken(String accessLocation, CertificateID certificateID, long maxAge, Date producedAfter,
+                            Callable<OCSPToken> request) {
+    Key key = new Key(accessLocation, certificateID);
+    FutureTask<OCSPToken> task;
+    boolean requester = false;
+    synchronized (this) {
+      OCSPToken token = this.tokens.get(key);
+      if (token != null) {
+        if (!this.isFresh(token, maxAge)) {
+          this.tokens.remove(key);
+        } else if (this.isProducedAfter(token, producedAfter)) {
+          LOGGER.debug("Using cached OCSP response produced at <{}>", token.getThisUpdate());
+          return token;
+        }
+      }
+      task = this.inFlightRequests.get(key);
+      if (task == null) {
+        task = new FutureTask<>(request);
+        this.inFlightRequests.put(key, task);
+        requester = true;
+      }
+    }
+    if (requester) {
+      this.request(key, task);
+      return this.getResult(task);
+    }
+    LOGGER.debug("Waiting for OCSP request in flight");
+    OCSPToken token = this.getResult(task);
+    if (token == null || this.isProducedAfter(token, producedAfter)) {
+      return token;
+    }
+    LOGGER.debug("OCSP response in flight was produced before <{}>, requesting a new one", producedAfter);
+    return this.getToken(accessLocation, certificateID, maxAge, producedAfter, request);
+  }
+
+  /**
+   * Returns a fresh cached OCSP response without requesting a new one.
+   *
+   * @param accessLocation OCSP responder location
+   * @param certificateID  ID of the certificate
+   * @param maxAge         maximum age of the cached response in milliseconds
+   * @return cached OCSP token or null, if there is no fresh cached response
+   */
+  public synchronized OCSPToken getCachedToken(String accessLocation, CertificateID certificateID, long maxAge) {
+    Key key = new Key(accessLocation, certificateID);
+    OCSPToken token = this.tokens.get(key);
+    if (token == null) {
+      return null;
+    }
+    if (!this.isFresh(token, maxAge)) {
+      this.tokens.remove(key);
+      return null;
+    }
+    return token;
+  }
+
+  /**
+   * Caches an OCSP response requested outside of the cache, e.g. a response to a request for several certificates.
+   *
+   * @param accessLocation OCSP responder location
+   * @param certificateID  ID of the certificate
+   * @param token          OCSP token
+   */
+  public synchronized void putToken(String accessLocation, CertificateID certificateID, OCSPToken token) {
+    this.tokens.put(new Key(accessLocation, certificateID), token);
+  }
+
+  /**
+   * @return number of cached responses
+   */
+  public synchronized int size() {
+    return this.tokens.size();
+  }
+
+  /**
+   * Removes all cached responses.
+   */
+  public synchronized void clear() {
+    this.tokens.clear();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void request(Key key, FutureTask<OCSPToken> task) {
+    try {
+      task.run();
+    } finally {
+      synchronized (this) {
+        this.inFlightRequests.remove(key);
+        if (task.isDone() && !task.isCancelled()) {
+          try {
+            OCSPToken token = task.get();
+            if (token != null) {
+              this.tokens.put(key, token);
+            }
+          } catch (InterruptedException | ExecutionException e) {
+            LOGGER.debug("OCSP response is not cached: {}", e.getMessage());
+          }
+        }
+      }
+    }
+  }
+
+  private OCSPToken getResult(FutureTask<OCSPToken> task) {
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new TechnicalException("OCSP request failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TechnicalException("Interrupted while waiting for OCSP response", e);
+    }
+  }
+
+  private boolean isFresh(OCSPToken token, long maxAge) {
+    long now = System.currentTimeMillis();
+    Date thisUpdate = token.getThisUpdate();
+    Date nextUpdate = token.getNextUpdate();
+    return thisUpdate != null && now < thisUpdate.getTime() + maxAge
+        && (nextUpdate == null || now < nextUpdate.getTime());
+  }
+
+  private boolean isProducedAfter(OCSPToken token, Date producedAfter) {
+    return producedAfter == null || token.getProductionDate() != null
+        && !token.getProductionDate().before(producedAfter);
+  }
+
+  private static class Key {
+
+    private final String accessLocation;
+    private final CertificateID certificateID;
+
+    Key(String accessLocation, CertificateID certificateID) {
+      this.accessLocation = accessLocation;
+      this.certificateID = certificateID;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return Objects.equals(this.accessLocation, key.accessLocation)
+          && Objects.equals(this.certificateID, key.certificateID);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.accessLocation, this.certificateID);
+    }
+
+  }
+
+}
@@ -10,26 +10,27 @@
 
 package org.digidoc4j.impl;
 
-import java.io.IOException;
-import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
-import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.CertificateID;
 import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.operator.ContentVerifierProvider;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.digidoc4j.AsyncCallback;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.Constant;
 import org.digidoc4j.exceptions.ConfigurationException;
@@ -42,10 +43,6 @@ import org.slf4j.LoggerFactory;
 
 import eu.europa.esig.dss.DSSException;
 import eu.europa.esig.dss.DSSRevocationUtils;
-import eu.europa.esig.dss.DSSUtils;
-import eu.europa.esig.dss.token.DSSPrivateKeyEntry;
-import eu.europa.esig.dss.token.KSPrivateKeyEntry;
-import eu.europa.esig.dss.token.Pkcs12SignatureToken;
 import eu.europa.esig.dss.x509.CertificateToken;
 import eu.europa.esig.dss.x509.ocsp.OCSPSource;
 import eu.europa.esig.dss.x509.ocsp.OCSPToken;
@@ -91,26 +88,43 @@ public abstract class SKOnlineOCSPSource implements OCSPSource {
         LOGGER.trace("Querying by DSS ID <{}>", certificateToken.getDSSIdAsString());
       }
       CertificateID certificateID = DSSRevocationUtils.getOCSPCertificateID(certificateToken, issuerCertificateToken);
-      Extension nonceExtension = this.createNonce();
-      BasicOCSPResp response = (BasicOCSPResp) new OCSPResp(this.dataLoader.post(this.getAccessLocation(),
-          this.buildRequest(certificateID, nonceExtension))).getResponseObject();
+      BasicOCSPResp response = this.requestResponse(Collections.singletonList(certificateID));
       if (response == null) {
-        LOGGER.warn("Basic OCSP response is empty");
         return null;
       }
-      this.verifyResponse(response);
-      this.checkNonce(response, nonceExtension);
-      OCSPToken token = new OCSPToken();
-      token.setBasicOCSPResp(response);
-      token.setCertId(certificateID);
-      token.setSourceURL(this.getAccessLocation());
-      token.extractInfo();
-      if (token.getThisUpdate() == null) {
-        LOGGER.warn("No best single match of OCSP response found");
-        return null;
+      return this.createToken(response, certificateToken, certificateID);
+    } catch (DSSException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new DSSException(e);
+    }
+  }
+
+  /**
+   * Gets OCSP tokens of several certificates with a single OCSP request. The response must contain a single response
+   * for each certificate.
+   *
+   * @param certificateIssuers certificates to be checked mapped to their issuers
+   * @return OCSP tokens mapped to certificates, the token is null when no single response of the certificate is found
+   */
+  public Map<CertificateToken, OCSPToken> getOCSPTokens(Map<CertificateToken, CertificateToken> certificateIssuers) {
+    LOGGER.debug("Getting OCSP tokens of <{}> certificates ...", certificateIssuers.size());
+    try {
+      if (this.dataLoader == null) {
+        throw new TechnicalException("Data loader is null");
+      }
+      Map<CertificateToken, CertificateID> certificateIDs = new LinkedHashMap<>();
+      for (Map.Entry<CertificateToken, CertificateToken> entry : certificateIssuers.entrySet()) {
+        certificateIDs.put(entry.getKey(), DSSRevocationUtils.getOCSPCertificateID(entry.getKey(),
+            entry.getValue()));
       }
-      certificateToken.addRevocationToken(token);
-      return token;
+      BasicOCSPResp response = this.requestResponse(certificateIDs.values());
+      Map<CertificateToken, OCSPToken> tokens = new LinkedHashMap<>();
+      for (Map.Entry<CertificateToken, CertificateID> entry : certificateIDs.entrySet()) {
+        tokens.put(entry.getKey(), response == null ? null : this.createToken(response, entry.getKey(),
+            entry.getValue()));
+      }
+      return tokens;
     } catch (DSSException e) {
       throw e;
     } catch (Exception e) {
@@ -118,6 +132,28 @@ public abstract class SKOnlineOCSPSource implements OCSPSource {
     }
   }
 
+  /**
+   * Requests an OCSP token asynchronously.
+   *
+   * @param certificateToken       certificate to be checked
+   * @param issuerCertificateToken issuer of the certificate
+   * @param callback               callback to notify of the result, can be null
+   * @return future of the OCSP token, the token can be null
+   * @see AsyncTaskExecutor
+   */
+  public Future<OCSPToken> getOCSPTokenAsync(final CertificateToken certificateToken,
+                                             final CertificateToken issuerCertificateToken,
+                                             AsyncCallback<OCSPToken> callback) {
+    return AsyncTaskExecutor.submit(this.configuration, new Callable<OCSPToken>() {
+
+      @Override
+      public OCSPToken call() {
+        return SKOnlineOCSPSource.this.getOCSPToken(certificateToken, issuerCertificateToken);
+      }
+
+    }, callback);
+  }
+
   /*
    * RESTRICTED METHODS
    */
@@ -135,23 +171,49 @@ public abstract class SKOnlineOCSPSource implements OCSPSource {
     }
   }
 
-  private byte[] buildRequest(final CertificateID certificateID, Extension nonceExtension) throws DSSException {
+  private BasicOCSPResp requestResponse(Collection<CertificateID> certificateIDs) throws Exception {
+    Extension nonceExtension = this.createNonce();
+    BasicOCSPResp response = (BasicOCSPResp) new OCSPResp(this.dataLoader.post(this.getAccessLocation(),
+        this.buildRequest(certificateIDs, nonceExtension))).getResponseObject();
+    if (response == null) {
+      LOGGER.warn("Basic OCSP response is empty");
+      return null;
+    }
+    this.verifyResponse(response);
+    this.checkNonce(response, nonceExtension);
+    return response;
+  }
+
+  private OCSPToken createToken(BasicOCSPResp response, CertificateToken certificateToken,
+                                CertificateID certificateID) {
+    OCSPToken token = new OCSPToken();
+    token.setBasicOCSPResp(response);
+    token.setCertId(certificateID);
+    token.setSourceURL(this.getAccessLocation());
+    token.extractInfo();
+    if (token.getThisUpdate() == null) {
+      LOGGER.warn("No best single match of OCSP response found");
+      return null;
+    }
+    certificateToken.addRevocationToken(token);
+    return token;
+  }
+
+  private byte[] buildRequest(Collection<CertificateID> certificateIDs, Extension nonceExtension)
+      throws DSSException {
     try {
-      LOGGER.debug("Building OCSP request ...");
+      LOGGER.debug("Building OCSP request for <{}> certificates ...", certificateIDs.size());
       OCSPReqBuilder builder = new OCSPReqBuilder();
-      builder.addRequest(certificateID);
+      for (CertificateID certificateID : certificateIDs) {
+        builder.addRequest(certificateID);
+      }
       builder.setRequestExtensions(new Extensions(nonceExtension));
       if (this.configuration.hasToBeOCSPRequestSigned()) {
         LOGGER.info("Using signed OCSP request ...");
-        JcaContentSignerBuilder signerBuilder = new JcaContentSignerBuilder("SHA1withRSA");
         if (!this.configuration.isOCSPSigningConfigurationAvailable()) {
           throw new ConfigurationException("Configuration needed for OCSP request signing is not complete");
         }
-        DSSPrivateKeyEntry privateKeyEntry = this.getOCSPAccessCertificatePrivateKey();
-        X509Certificate signingCertificate = privateKeyEntry.getCertificate().getCertificate();
-        builder.setRequestorName(new GeneralName(new JcaX509CertificateHolder(signingCertificate).getSubject()));
-        return builder.build(signerBuilder.build(((KSPrivateKeyEntry) privateKeyEntry).getPrivateKey()),
-            new X509CertificateHolder[]{new X509CertificateHolder(signingCertificate.getEncoded())}).getEncoded();
+        return this.configuration.getOCSPRequestSigner().sign(builder).getEncoded();
       }
       return builder.build().getEncoded();
     } catch (Exception e) {
@@ -159,28 +221,20 @@ public abstract class SKOnlineOCSPSource implements OCSPSource {
     }
   }
 
-  private void verifyResponse(BasicOCSPResp response) throws IOException {
+  private void verifyResponse(BasicOCSPResp response) {
     List<X509CertificateHolder> holders = Arrays.asList(response.getCerts());
     if (CollectionUtils.isNotEmpty(holders)) {
       for (X509CertificateHolder holder : holders) {
-        CertificateToken token = DSSUtils.loadCertificate(holder.getEncoded());
-        List<CertificateToken> tokens = this.configuration.getTSL().get(
-            token.getCertificate().getSubjectX500Principal());
-        if (CollectionUtils.isEmpty(tokens) || tokens.size() != 1) {
-          throw new SignatureVerificationException(String.format("OCSP response certificate <%s> match is not found " +
-              "in TSL (<%s> results in total)", token.getDSSIdAsString(), tokens.size()));
-        } else {
-          try {
-            ContentVerifierProvider provider = new JcaContentVerifierProviderBuilder().setProvider("BC").build(new
-                X509CertificateHolder(tokens.get(0).getEncoded()));
-            if (!response.isSignatureValid(provider)) {
-              throw new SignatureVerificationException("OCSP response signature is invalid");
-            }
-          } catch (SignatureVerificationException e) {
-            throw e;
-          } catch (Exception e) {
-            throw new SignatureVerificationException("Unable to verify response signature", e);
+        ContentVerifierProvider provider = OCSPResponderVerifierCache.getVerifierProvider(this.configuration.getTSL(),
+            holder);
+        try {
+          if (!response.isSignatureValid(provider)) {
+            throw new SignatureVerificationException("OCSP response signature is invalid");
           }
+        } catch (SignatureVerificationException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new SignatureVerificationException("Unable to verify response signature", e);
         }
       }
     } else {
@@ -190,13 +244,6 @@ public abstract class SKOnlineOCSPSource implements OCSPSource {
     }
   }
 
-  private DSSPrivateKeyEntry getOCSPAccessCertificatePrivateKey() throws IOException {
-    Pkcs12SignatureToken signatureTokenConnection = new Pkcs12SignatureToken(
-        this.configuration.getOCSPAccessCertificateFileName(), this.configuration
-        .getOCSPAccessCertificatePasswordAsString());
-    return signatureTokenConnection.getKeys().get(0);
-  }
-
   /*
    * ACCESSORS
    */
@@ -0,0 +1,91 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.bouncycastle.tsp.TimeStampToken;
+import org.digidoc4j.AsyncCallback;
+import org.digidoc4j.Configuration;
+
+import eu.europa.esig.dss.DigestAlgorithm;
+import eu.europa.esig.dss.client.tsp.OnlineTSPSource;
+
+/**
+ * Online TSP source supporting asynchronous timestamp requests. The source remembers the time of the last timestamp
+ * it returned, so that an OCSP source used for the same signature can tell which responses are later than the
+ * timestamp.
+ */
+public class SKOnlineTSPSource extends OnlineTSPSource {
+
+  private Configuration configuration;
+  private volatile Date lastTimeStampTime;
+
+  /**
+   * @param tspServer timestamp service location
+   */
+  public SKOnlineTSPSource(String tspServer) {
+    super(tspServer);
+  }
+
+  /**
+   * @param tspServer     timestamp service location
+   * @param configuration configuration context of asynchronous requests
+   */
+  public SKOnlineTSPSource(String tspServer, Configuration configuration) {
+    super(tspServer);
+    this.configuration = configuration;
+  }
+
+  @Override
+  public TimeStampToken getTimeStampResponse(DigestAlgorithm digestAlgorithm, byte[] digest) {
+    TimeStampToken token = super.getTimeStampResponse(digestAlgorithm, digest);
+    if (token != null) {
+      this.lastTimeStampTime = token.getTimeStampInfo().getGenTime();
+    }
+    return token;
+  }
+
+  /**
+   * Requests a timestamp asynchronously.
+   *
+   * @param digestAlgorithm digest algorithm of the digest
+   * @param digest          digest to be timestamped
+   * @param callback        callback to notify of the result, can be null
+   * @return future of the timestamp token
+   * @see AsyncTaskExecutor
+   */
+  public Future<TimeStampToken> getTimeStampResponseAsync(final DigestAlgorithm digestAlgorithm, final byte[] digest,
+                                                          AsyncCallback<TimeStampToken> callback) {
+    return AsyncTaskExecutor.submit(this.configuration, new Callable<TimeStampToken>() {
+
+      @Override
+      public TimeStampToken call() {
+        return SKOnlineTSPSource.this.getTimeStampResponse(digestAlgorithm, digest);
+      }
+
+    }, callback);
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  /**
+   * @return generation time of the last timestamp returned by this source, null if none
+   */
+  public Date getLastTimeStampTime() {
+    return lastTimeStampTime;
+  }
+
+}
@@ -17,6 +17,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
@@ -25,7 +26,6 @@ import org.slf4j.LoggerFactory;
 
 import eu.europa.esig.dss.CommonDocument;
 import eu.europa.esig.dss.DSSException;
-import eu.europa.esig.dss.DSSUtils;
 import eu.europa.esig.dss.DigestAlgorithm;
 import eu.europa.esig.dss.MimeType;
 
@@ -33,13 +33,14 @@ import eu.europa.esig.dss.MimeType;
  * @see eu.europa.esig.dss.DSSDocument implementation to handle big files. It writes data to temporary
  * files.
  */
-public class StreamDocument extends CommonDocument {
+public class StreamDocument extends CommonDocument implements DigestCachingDocument {
   private static final Logger logger = LoggerFactory.getLogger(StreamDocument.class);
 
   private static final int MAX_SIZE_IN_MEMORY = 1024 * 5;
   String documentName;
   MimeType mimeType;
   File temporaryFile;
+  private final DigestCache digestCache = new DigestCache();
 
   //TODO if file is small enough you can read it into byte[] and cache it
 
@@ -51,20 +52,30 @@ public class StreamDocument extends CommonDocument {
    * @param mimeType     mime type
    */
   public StreamDocument(InputStream stream, String documentName, MimeType mimeType) {
+    this(stream, documentName, mimeType, null);
+  }
+
+  /**
+   * @param stream       stream
+   * @param documentName document Name
+   * @param mimeType     mime type
+   * @param directory    directory of the temporary file, null for the system's default temporary directory
+   */
+  public StreamDocument(InputStream stream, String documentName, MimeType mimeType, File directory) {
     logger.debug("Document name: " + documentName + ", mime type: " + mimeType);
-    createTemporaryFileOfStream(stream);
+    createTemporaryFileOfStream(stream, directory);
     this.documentName = documentName;
     this.mimeType = mimeType;
   }
 
-  private void createTemporaryFileOfStream(InputStream stream) {
+  private void createTemporaryFileOfStream(InputStream stream, File directory) {
     logger.debug("");
     byte[] bytes = new byte[MAX_SIZE_IN_MEMORY];
 
     FileOutputStream out = null;
 
     try {
-      temporaryFile = File.createTempFile("digidoc4j", ".tmp");
+      temporaryFile = File.createTempFile("digidoc4j", ".tmp", directory);
       out = new FileOutputStream(temporaryFile);
       int result;
       while ((result = stream.read(bytes)) > 0) {
@@ -140,14 +151,12 @@ public class StreamDocument extends CommonDocument {
   @Override
   public String getDigest(DigestAlgorithm digestAlgorithm) {
     logger.debug("Digest algorithm: " + digestAlgorithm);
-    byte[] digestBytes;
-    try {
-      digestBytes = DSSUtils.digest(digestAlgorithm, getTemporaryFileAsStream());
-    } catch (FileNotFoundException e) {
-      logger.error(e.getMessage());
-      throw new DSSException(e);
-    }
-    return Base64.encodeBase64String(digestBytes);
+    return Base64.encodeBase64String(digestCache.getDigest(this, digestAlgorithm));
+  }
+
+  @Override
+  public void cacheDigests(Collection<DigestAlgorithm> digestAlgorithms) {
+    digestCache.getDigests(this, digestAlgorithms);
   }
 
   protected FileInputStream getTemporaryFileAsStream() throws FileNotFoundException {
@@ -2,15 +2,19 @@ package org.digidoc4j.impl.asic;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.Configuration;
@@ -49,7 +53,7 @@ import eu.europa.esig.dss.DSSDocument;
 /**
  * Created by Andrei on 7.11.2017.
  */
-public abstract class AsicContainer implements Container {
+public abstract class AsicContainer implements Container, Closeable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AsicContainer.class);
   protected Configuration configuration;
@@ -174,6 +178,10 @@ public abstract class AsicContainer implements Container {
   @Override
   public File saveAsFile(String filePath) {
     LOGGER.debug("Saving container to file: " + filePath);
+    AsicZipFile containerFile = this.containerParseResult == null ? null : this.containerParseResult.getContainerFile();
+    if (containerFile != null && containerFile.isFileOf(filePath)) {
+      return this.replaceContainerFile(filePath);
+    }
     File file = new File(filePath);
     try (OutputStream stream = Helper.bufferedOutputStream(file)) {
       save(stream);
@@ -185,6 +193,20 @@ public abstract class AsicContainer implements Container {
     }
   }
 
+  /**
+   * Releases the container file of a container opened with lazy loading.
+   * Data files that have not been read cannot be read after closing.
+   * Closing a container that holds no open resources does nothing.
+   *
+   * @see Configuration#setLazyContainerLoading(boolean)
+   */
+  @Override
+  public void close() {
+    if (this.containerParseResult != null && this.containerParseResult.getContainerFile() != null) {
+      this.containerParseResult.getContainerFile().close();
+    }
+  }
+
   @Override
   public Configuration getConfiguration() {
     return configuration;
@@ -281,6 +303,40 @@ public abstract class AsicContainer implements Container {
     this.populateContainerWithParseResult(new AsicStreamContainerParser(inputStream, this.getConfiguration()).read());
   }
 
+  /**
+   * The entries of a lazily opened container are read from the file being saved, so the container is written to a
+   * temporary file next to it that then replaces the original. The entries are read from the new file afterwards.
+   * Memory mappings of the original are not released until they are garbage collected, so on Windows replacing a
+   * memory mapped container file may fail.
+   */
+  private File replaceContainerFile(String filePath) {
+    File file = new File(filePath);
+    File temporaryFile;
+    try {
+      temporaryFile = File.createTempFile("digidoc4j", ".tmp", file.getAbsoluteFile().getParentFile());
+    } catch (IOException e) {
+      throw new TechnicalException("Unable to create temporary file for saving " + filePath, e);
+    }
+    try {
+      try (OutputStream stream = Helper.bufferedOutputStream(temporaryFile)) {
+        save(stream);
+      }
+      this.containerParseResult.getContainerFile().release();
+      Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      LOGGER.info("Container was saved to file " + filePath);
+      return file;
+    } catch (IOException e) {
+      LOGGER.error("Unable to replace container file: " + e.getMessage());
+      if (this.containerParseResult.getContainerFile().isMemoryMapped()) {
+        throw new TechnicalException("Unable to replace memory mapped container file " + filePath
+            + ", save the container to another file", e);
+      }
+      throw new TechnicalException("Unable to replace container file " + filePath, e);
+    } finally {
+      FileUtils.deleteQuietly(temporaryFile);
+    }
+  }
+
   private void populateContainerWithParseResult(AsicParseResult parseResult) {
     this.containerParseResult = parseResult;
     this.dataFiles.addAll(parseResult.getDataFiles());
@@ -10,8 +10,12 @@
 
 package org.digidoc4j.impl.asic;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -68,10 +72,14 @@ public abstract class AsicContainerParser {
   private boolean manifestFound = false;
   private long maxDataFileCachedInBytes;
   private DataFile timestampToken;
+  private File tempFileDirectory;
 
   protected AsicContainerParser(Configuration configuration) {
     storeDataFilesOnlyInMemory = configuration.storeDataFilesOnlyInMemory();
     maxDataFileCachedInBytes = configuration.getMaxDataFileCachedInBytes();
+    if (configuration.getTempFileDirectory() != null) {
+      tempFileDirectory = new File(configuration.getTempFileDirectory());
+    }
   }
 
   /**
@@ -153,21 +161,52 @@ public abstract class AsicContainerParser {
     logger.debug("Extracting data file");
     String fileName = entry.getName();
     validateDataFile(fileName);
-    DSSDocument document = extractStreamDocument(entry);
+    DSSDocument document = extractDataFileDocument(entry);
     DataFile dataFile = new AsicDataFile(document);
     dataFiles.put(fileName, dataFile);
     detachedContents.add(document);
     extractAsicEntry(entry, document);
   }
 
-  private DSSDocument extractStreamDocument(ZipEntry entry) {
+  protected DSSDocument extractDataFileDocument(ZipEntry entry) {
+    return extractStreamDocument(entry);
+  }
+
+  protected DSSDocument extractStreamDocument(ZipEntry entry) {
     logger.debug("Zip entry size is <{}> bytes", entry.getSize());
     MimeType mimeTypeCode = MimeTypeUtil.mimeTypeOf(this.getDataFileMimeType(entry.getName()));
-    if (this.storeDataFilesOnlyInMemory || entry.getSize() <= this.maxDataFileCachedInBytes) {
+    if (this.storeDataFilesOnlyInMemory) {
+      return new InMemoryDocument(this.getZipEntryInputStream(entry), entry.getName(), mimeTypeCode);
+    } else if (entry.getSize() < 0) {
+      return this.extractDocumentOfUnknownSize(entry, mimeTypeCode);
+    } else if (entry.getSize() <= this.maxDataFileCachedInBytes) {
       return new InMemoryDocument(this.getZipEntryInputStream(entry), entry.getName(), mimeTypeCode);
     } else {
-      return new StreamDocument(this.getZipEntryInputStream(entry), entry.getName(), mimeTypeCode);
+      return new StreamDocument(this.getZipEntryInputStream(entry), entry.getName(), mimeTypeCode,
+          this.tempFileDirectory);
+    }
+  }
+
+  /**
+   * Entries read from a stream usually don't know their size in advance. The entry is buffered in memory up to the
+   * maximum cached data file size and spilled to a temporary file once more bytes arrive.
+   */
+  private DSSDocument extractDocumentOfUnknownSize(ZipEntry entry, MimeType mimeTypeCode) {
+    InputStream stream = this.getZipEntryInputStream(entry);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try {
+      long bufferedBytes = IOUtils.copyLarge(stream, buffer, 0, this.maxDataFileCachedInBytes + 1);
+      if (bufferedBytes <= this.maxDataFileCachedInBytes) {
+        return new InMemoryDocument(buffer.toByteArray(), entry.getName(), mimeTypeCode);
+      }
+    } catch (IOException e) {
+      logger.error("Error reading data file '" + entry.getName() + "' from the asic container: " + e.getMessage());
+      throw new TechnicalException("Error reading data file '" + entry.getName() + "' from the asic container", e);
     }
+    logger.debug("Zip entry <{}> exceeds <{}> bytes, spilling it to a temporary file", entry.getName(),
+        this.maxDataFileCachedInBytes);
+    InputStream spilledStream = new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), stream);
+    return new StreamDocument(spilledStream, entry.getName(), mimeTypeCode, this.tempFileDirectory);
   }
 
   protected AsicEntry extractAsicEntry(ZipEntry entry) {
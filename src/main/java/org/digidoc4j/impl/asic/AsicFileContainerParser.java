@@ -12,16 +12,19 @@ package org.digidoc4j.impl.asic;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
+import java.util.Collections;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.apache.commons.io.IOUtils;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.utils.MimeTypeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import eu.europa.esig.dss.DSSDocument;
 import eu.europa.esig.dss.InMemoryDocument;
 
 /**
@@ -31,6 +34,8 @@ public class AsicFileContainerParser extends AsicContainerParser{
 
   private static final Logger logger = LoggerFactory.getLogger(AsicFileContainerParser.class);
   private ZipFile zipFile;
+  private MappedZipFile mappedZipFile;
+  private AsicZipFile asicZipFile;
 
   /**
    * @param containerPath path
@@ -39,27 +44,55 @@ public class AsicFileContainerParser extends AsicContainerParser{
   public AsicFileContainerParser(String containerPath, Configuration configuration) {
     super(configuration);
     try {
-      zipFile = new ZipFile(containerPath);
+      if (configuration.isMemoryMappedContainerReading()) {
+        mappedZipFile = new MappedZipFile(containerPath);
+      } else {
+        zipFile = new ZipFile(containerPath);
+      }
     } catch (IOException e) {
       logger.error("Error reading container from " + containerPath + " - " + e.getMessage());
       throw new RuntimeException("Error reading container from " + containerPath);
     }
+    if (configuration.isLazyContainerLoading()) {
+      asicZipFile = mappedZipFile != null ? new AsicZipFile(containerPath, mappedZipFile)
+          : new AsicZipFile(containerPath, zipFile);
+    }
+  }
+
+  /**
+   * In lazy mode the data files of the result read their content from the container file on demand and the file
+   * stays open until {@link AsicParseResult#getContainerFile()} is closed.
+   *
+   * @return parsing result
+   */
+  @Override
+  public AsicParseResult read() {
+    AsicParseResult parseResult;
+    try {
+      parseResult = super.read();
+    } catch (RuntimeException e) {
+      IOUtils.closeQuietly(asicZipFile);
+      throw e;
+    }
+    parseResult.setContainerFile(asicZipFile);
+    return parseResult;
   }
 
   @Override
   protected void parseContainer() {
     logger.debug("Parsing zip file");
     try {
-      String zipFileComment = zipFile.getComment();
+      String zipFileComment = mappedZipFile != null ? mappedZipFile.getComment() : zipFile.getComment();
       setZipFileComment(zipFileComment);
       parseZipFileManifest();
-      Enumeration<? extends ZipEntry> entries = zipFile.entries();
-      while (entries.hasMoreElements()) {
-        ZipEntry zipEntry = entries.nextElement();
+      for (ZipEntry zipEntry : getEntries()) {
         parseEntry(zipEntry);
       }
     } finally {
-      IOUtils.closeQuietly(zipFile);
+      if (asicZipFile == null) {
+        IOUtils.closeQuietly(zipFile);
+        IOUtils.closeQuietly(mappedZipFile);
+      }
     }
   }
 
@@ -68,18 +101,32 @@ public class AsicFileContainerParser extends AsicContainerParser{
     extractAsicEntry(entry);
   }
 
+  @Override
+  protected DSSDocument extractStreamDocument(ZipEntry entry) {
+    if (asicZipFile == null) {
+      return super.extractStreamDocument(entry);
+    }
+    logger.debug("Zip entry <{}> is read on demand", entry.getName());
+    return new ZipEntryDocument(asicZipFile, entry.getName(),
+        MimeTypeUtil.mimeTypeOf(getDataFileMimeType(entry.getName())));
+  }
+
   @Override
   protected InputStream getZipEntryInputStream(ZipEntry entry) {
     try {
-      return zipFile.getInputStream(entry);
+      return mappedZipFile != null ? mappedZipFile.getInputStream(entry) : zipFile.getInputStream(entry);
     } catch (IOException e) {
       logger.error("Error reading data file '" + entry.getName() + "' from the asic container: " + e.getMessage());
       throw new TechnicalException("Error reading data file '" + entry.getName() + "' from the asic container", e);
     }
   }
 
+  private List<? extends ZipEntry> getEntries() {
+    return mappedZipFile != null ? mappedZipFile.entries() : Collections.list(zipFile.entries());
+  }
+
   private void parseZipFileManifest() {
-    ZipEntry entry = zipFile.getEntry(MANIFEST);
+    ZipEntry entry = mappedZipFile != null ? mappedZipFile.getEntry(MANIFEST) : zipFile.getEntry(MANIFEST);
     if (entry == null) {
       return;
     }
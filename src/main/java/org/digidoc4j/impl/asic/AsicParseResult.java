@@ -32,6 +32,7 @@ public class AsicParseResult implements Serializable {
   private ManifestParser manifestParser;
   private DataFile timeStampToken;
   private String mimeType;
+  private AsicZipFile containerFile;
 
   /**
    * @return list of data files
@@ -119,4 +120,16 @@ public class AsicParseResult implements Serializable {
   public String getMimeType() {
     return mimeType;
   }
+
+  /**
+   * @return container file the data files are read from on demand, null if the container was fully read
+   */
+  public AsicZipFile getContainerFile() {
+    return containerFile;
+  }
+
+  public void setContainerFile(AsicZipFile containerFile) {
+    this.containerFile = containerFile;
+  }
+
 }
@@ -18,6 +18,7 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -37,7 +38,9 @@ import org.digidoc4j.exceptions.InvalidSignatureException;
 import org.digidoc4j.exceptions.OCSPRequestFailedException;
 import org.digidoc4j.exceptions.SignerCertificateRequiredException;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.DigestCache;
 import org.digidoc4j.impl.SKOnlineOCSPSource;
+import org.digidoc4j.impl.SKOnlineTSPSource;
 import org.digidoc4j.impl.SignatureFinalizer;
 import org.digidoc4j.impl.asic.asice.AsicEContainer;
 import org.digidoc4j.impl.asic.asice.AsicESignature;
@@ -55,7 +58,6 @@ import org.slf4j.LoggerFactory;
 import eu.europa.esig.dss.DSSDocument;
 import eu.europa.esig.dss.InMemoryDocument;
 import eu.europa.esig.dss.SignerLocation;
-import eu.europa.esig.dss.client.tsp.OnlineTSPSource;
 import eu.europa.esig.dss.xades.signature.DSSSignatureUtils;
 
 /**
@@ -66,6 +68,7 @@ public class AsicSignatureBuilder extends SignatureBuilder implements SignatureF
   private static final Logger logger = LoggerFactory.getLogger(AsicSignatureBuilder.class);
   private static final int hexMaxlen = 10;
   protected transient XadesSigningDssFacade facade;
+  protected transient SKOnlineTSPSource tspSource;
   private Date signingDate;
   private boolean isLTorLTAprofile = false;
 
@@ -89,7 +92,7 @@ public class AsicSignatureBuilder extends SignatureBuilder implements SignatureF
   @Override
   public DataToSign buildDataToSign() throws SignerCertificateRequiredException, ContainerWithoutFilesException {
     byte[] dataToSign = getDataToBeSigned();
-    return new DataToSign(dataToSign, signatureParameters, this);
+    return new DataToSign(dataToSign, signatureParameters, this, getConfiguration());
   }
 
   @Override
@@ -153,6 +156,7 @@ public class AsicSignatureBuilder extends SignatureBuilder implements SignatureF
     populateSignatureParameters();
     Collection<DataFile> dataFilesToSign = getDataFiles();
     validateDataFilesToSign(dataFilesToSign);
+    prefillDataFileDigests(dataFilesToSign);
     byte[] dataToSign = facade.getDataToSign(dataFilesToSign);
     String signatureId = facade.getSignatureId();
     signatureParameters.setSignatureId(signatureId);
@@ -222,6 +226,7 @@ public class AsicSignatureBuilder extends SignatureBuilder implements SignatureF
     SKOnlineOCSPSource ocspSource = (SKOnlineOCSPSource) OCSPSourceBuilder.anOcspSource().
         withSignatureProfile(this.signatureParameters.getSignatureProfile()).
         withSignatureValue(signatureValueBytes).
+        withTimeStampSource(this.tspSource).
         withConfiguration(getConfiguration()).
         build();
     this.facade.setOcspSource(ocspSource);
@@ -229,11 +234,23 @@ public class AsicSignatureBuilder extends SignatureBuilder implements SignatureF
 
   protected void setTimeStampProviderSource() {
     Configuration configuration = this.getConfiguration();
-    OnlineTSPSource tspSource = new OnlineTSPSource(this.getTspSource(configuration));
+    this.tspSource = new SKOnlineTSPSource(this.getTspSource(configuration), configuration);
     SkDataLoader dataLoader = SkDataLoader.timestamp(configuration);
     dataLoader.setUserAgent(Helper.createBDocUserAgent(this.signatureParameters.getSignatureProfile()));
-    tspSource.setDataLoader(dataLoader);
-    this.facade.setTspSource(tspSource);
+    this.tspSource.setDataLoader(dataLoader);
+    this.facade.setTspSource(this.tspSource);
+  }
+
+  /**
+   * Calculates the reference digests needed for signing together with the SHA-256 digests of the data files, reading
+   * every data file once. DSS takes the reference digests from the data file documents afterwards.
+   */
+  protected void prefillDataFileDigests(Collection<DataFile> dataFiles) {
+    Collection<eu.europa.esig.dss.DigestAlgorithm> digestAlgorithms = EnumSet.of(
+        signatureParameters.getDigestAlgorithm().getDssDigestAlgorithm(), eu.europa.esig.dss.DigestAlgorithm.SHA256);
+    for (DataFile dataFile : dataFiles) {
+      DigestCache.prefill(dataFile.getDocument(), digestAlgorithms);
+    }
   }
 
   protected void setDigestAlgorithm() {
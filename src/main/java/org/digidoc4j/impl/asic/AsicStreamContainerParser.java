@@ -12,17 +12,25 @@ package org.digidoc4j.impl.asic;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.DigestAlgorithm;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.utils.MimeTypeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import eu.europa.esig.dss.DSSDocument;
+
 /**
  * ASIC container parser from input stream
  */
@@ -30,6 +38,7 @@ public class AsicStreamContainerParser extends AsicContainerParser{
 
   private static final Logger logger = LoggerFactory.getLogger(AsicStreamContainerParser.class);
   private ZipInputStream zipInputStream;
+  private List<DigestAlgorithm> digestAlgorithms;
 
   /**
    * @param inputStream input stream
@@ -38,6 +47,9 @@ public class AsicStreamContainerParser extends AsicContainerParser{
   public AsicStreamContainerParser(InputStream inputStream, Configuration configuration) {
     super(configuration);
     zipInputStream = new ZipInputStream(inputStream);
+    if (configuration.isStreamingValidation()) {
+      digestAlgorithms = configuration.getStreamingValidationDigestAlgorithms();
+    }
   }
 
   @Override
@@ -79,4 +91,40 @@ public class AsicStreamContainerParser extends AsicContainerParser{
   protected InputStream getZipEntryInputStream(ZipEntry entry) {
     return zipInputStream;
   }
+
+  /**
+   * In streaming validation mode the data file is only run through the digest algorithms and its content is dropped.
+   */
+  @Override
+  protected DSSDocument extractDataFileDocument(ZipEntry entry) {
+    if (digestAlgorithms == null) {
+      return super.extractDataFileDocument(entry);
+    }
+    logger.debug("Digesting data file <{}> with {}", entry.getName(), digestAlgorithms);
+    List<MessageDigest> messageDigests = new ArrayList<>();
+    long size = 0;
+    try {
+      for (DigestAlgorithm digestAlgorithm : digestAlgorithms) {
+        messageDigests.add(MessageDigest.getInstance(digestAlgorithm.getDssDigestAlgorithm().getJavaName()));
+      }
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = zipInputStream.read(buffer)) != -1) {
+        for (MessageDigest messageDigest : messageDigests) {
+          messageDigest.update(buffer, 0, count);
+        }
+        size += count;
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.error("Error digesting data file '" + entry.getName() + "': " + e.getMessage());
+      throw new TechnicalException("Error digesting data file '" + entry.getName() + "'", e);
+    }
+    DigestedEntryDocument document = new DigestedEntryDocument(entry.getName(),
+        MimeTypeUtil.mimeTypeOf(getDataFileMimeType(entry.getName())), size);
+    for (int i = 0; i < digestAlgorithms.size(); i++) {
+      document.addDigest(digestAlgorithms.get(i).getDssDigestAlgorithm(),
+          Base64.encodeBase64String(messageDigests.get(i).digest()));
+    }
+    return document;
+  }
 }
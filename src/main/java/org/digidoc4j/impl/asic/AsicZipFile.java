@@ -0,0 +1,193 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Container file kept open for reading its entries on demand.
+ * <p/>
+ * Entries are located by the central directory of the ZIP file, so reading an entry does not read the entries before
+ * it. The file is read either through {@link ZipFile} or through a {@link MappedZipFile}. After deserialization the
+ * file is reopened from its path on first access.
+ */
+public class AsicZipFile implements Closeable, Serializable {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsicZipFile.class);
+  private final String path;
+  private final boolean memoryMapped;
+  private transient ZipFile zipFile;
+  private transient MappedZipFile mappedZipFile;
+  private transient boolean closed;
+
+  /**
+   * @param path    path of the container file
+   * @param zipFile container file opened from the path
+   */
+  public AsicZipFile(String path, ZipFile zipFile) {
+    this.path = new File(path).getAbsolutePath();
+    this.memoryMapped = false;
+    this.zipFile = zipFile;
+  }
+
+  /**
+   * @param path          path of the container file
+   * @param mappedZipFile container file mapped from the path
+   */
+  public AsicZipFile(String path, MappedZipFile mappedZipFile) {
+    this.path = new File(path).getAbsolutePath();
+    this.memoryMapped = true;
+    this.mappedZipFile = mappedZipFile;
+  }
+
+  /**
+   * @param entryName name of the entry
+   * @return stream of the entry content, must be closed by the caller
+   */
+  public InputStream getInputStream(String entryName) {
+    ZipEntry entry = this.getExistingEntry(entryName);
+    try {
+      return this.memoryMapped ? this.getMappedZipFile().getInputStream(entry)
+          : this.getZipFile().getInputStream(entry);
+    } catch (IOException e) {
+      throw new TechnicalException(String.format("Error reading entry <%s> from container <%s>", entryName,
+          this.path), e);
+    }
+  }
+
+  /**
+   * @param entryName name of the entry
+   * @return content of the entry as a read-only buffer if the file is memory mapped and the entry is not compressed,
+   * null otherwise
+   */
+  public ByteBuffer getStoredContent(String entryName) {
+    if (!this.memoryMapped) {
+      return null;
+    }
+    ZipEntry entry = this.getExistingEntry(entryName);
+    try {
+      return this.getMappedZipFile().getStoredContent(entry);
+    } catch (IOException e) {
+      throw new TechnicalException(String.format("Error reading entry <%s> from container <%s>", entryName,
+          this.path), e);
+    }
+  }
+
+  /**
+   * @param entryName name of the entry
+   * @return uncompressed size of the entry or -1 if not known
+   */
+  public long getSize(String entryName) {
+    ZipEntry entry = this.getEntry(entryName);
+    return entry == null ? -1 : entry.getSize();
+  }
+
+  /**
+   * @param path file path
+   * @return true if this is the container at the given path
+   */
+  public boolean isFileOf(String path) {
+    return this.path.equals(new File(path).getAbsolutePath());
+  }
+
+  /**
+   * Closes the container file. Entries cannot be read afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    logger.debug("Closing container <{}>", this.path);
+    this.release();
+    this.closed = true;
+  }
+
+  /**
+   * Closes the container file until the next entry is read, so that the file can be replaced.
+   */
+  synchronized void release() {
+    IOUtils.closeQuietly(this.zipFile);
+    IOUtils.closeQuietly(this.mappedZipFile);
+    this.zipFile = null;
+    this.mappedZipFile = null;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private ZipEntry getEntry(String entryName) {
+    return this.memoryMapped ? this.getMappedZipFile().getEntry(entryName) : this.getZipFile().getEntry(entryName);
+  }
+
+  private ZipEntry getExistingEntry(String entryName) {
+    ZipEntry entry = this.getEntry(entryName);
+    if (entry == null) {
+      throw new TechnicalException(String.format("Entry <%s> not found in container <%s>", entryName, this.path));
+    }
+    return entry;
+  }
+
+  private synchronized ZipFile getZipFile() {
+    this.checkNotClosed();
+    if (this.zipFile == null) {
+      logger.debug("Reopening container <{}>", this.path);
+      try {
+        this.zipFile = new ZipFile(this.path);
+      } catch (IOException e) {
+        throw new TechnicalException(String.format("Error reading container from <%s>", this.path), e);
+      }
+    }
+    return this.zipFile;
+  }
+
+  private synchronized MappedZipFile getMappedZipFile() {
+    this.checkNotClosed();
+    if (this.mappedZipFile == null) {
+      logger.debug("Remapping container <{}>", this.path);
+      try {
+        this.mappedZipFile = new MappedZipFile(this.path);
+      } catch (IOException e) {
+        throw new TechnicalException(String.format("Error reading container from <%s>", this.path), e);
+      }
+    }
+    return this.mappedZipFile;
+  }
+
+  private void checkNotClosed() {
+    if (this.closed) {
+      throw new TechnicalException(String.format("Container <%s> is closed", this.path));
+    }
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  public String getPath() {
+    return path;
+  }
+
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+}
@@ -10,15 +10,55 @@
 
 package org.digidoc4j.impl.asic;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.digidoc4j.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import eu.europa.esig.dss.DSSException;
 import eu.europa.esig.dss.client.http.commons.FileCacheDataLoader;
 
 /**
  * Cache data loader
+ * <p/>
+ * When download timeout is set, each download is limited to the given total time regardless of the connection and
+ * socket timeouts, which only limit single network operations. The download runs in the calling thread and a download
+ * that has not finished in time is aborted, which closes its connection, and fails with {@link DSSException}.
+ * <p/>
+ * Expired files are downloaded with conditional requests. ETag and Last-Modified values of the previous response are
+ * stored next to the cached file and sent as If-None-Match and If-Modified-Since headers, so the server only returns
+ * the content when it has changed. On response 304 (Not Modified) the file of the cache is used again.
  */
 public class CachingDataLoader extends FileCacheDataLoader {
 
+  private static final Logger logger = LoggerFactory.getLogger(CachingDataLoader.class);
+  private static final String VALIDATORS_FILE_SUFFIX = ".validators";
+  private static ScheduledExecutorService downloadTimer;
+  private long downloadTimeout;
+  private File conditionalCacheDirectory;
+
   /**
    * @param configuration configuration
    */
@@ -27,4 +67,174 @@ public class CachingDataLoader extends FileCacheDataLoader {
     DataLoaderDecorator.decorateWithSslSettings(this, configuration);
   }
 
+  @Override
+  public void setFileCacheDirectory(File fileCacheDirectory) {
+    super.setFileCacheDirectory(fileCacheDirectory);
+    this.conditionalCacheDirectory = fileCacheDirectory;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected byte[] httpGet(String url) {
+    if (this.conditionalCacheDirectory == null && this.downloadTimeout <= 0) {
+      return super.httpGet(url);
+    }
+    File validatorsFile = null;
+    Properties validators = new Properties();
+    if (this.conditionalCacheDirectory != null) {
+      String cacheKey = DigestUtils.sha256Hex(url.trim());
+      validatorsFile = new File(this.conditionalCacheDirectory, cacheKey + VALIDATORS_FILE_SUFFIX);
+      validators = this.readValidators(validatorsFile);
+    }
+    HttpGet httpRequest = null;
+    HttpResponse httpResponse = null;
+    CloseableHttpClient client = null;
+    ScheduledFuture<?> downloadAbort = null;
+    try {
+      httpRequest = new HttpGet(URI.create(url.trim()));
+      if (this.contentType != null) {
+        httpRequest.setHeader(CONTENT_TYPE, this.contentType);
+      }
+      if (validators.containsKey(HttpHeaders.ETAG)) {
+        httpRequest.setHeader(HttpHeaders.IF_NONE_MATCH, validators.getProperty(HttpHeaders.ETAG));
+      }
+      if (validators.containsKey(HttpHeaders.LAST_MODIFIED)) {
+        httpRequest.setHeader(HttpHeaders.IF_MODIFIED_SINCE, validators.getProperty(HttpHeaders.LAST_MODIFIED));
+      }
+      downloadAbort = this.scheduleAbort(httpRequest);
+      client = this.getHttpClient(url);
+      httpResponse = this.getHttpResponse(client, httpRequest, url);
+      if (httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED && !validators.isEmpty()) {
+        byte[] cachedContent = this.getCachedContent(url);
+        if (cachedContent != null) {
+          logger.debug("<{}> has not been modified, using previously downloaded content", url);
+          return cachedContent;
+        }
+        logger.debug("<{}> has not been modified but its cached content is missing, downloading it again", url);
+        FileUtils.deleteQuietly(validatorsFile);
+        return this.httpGet(url);
+      }
+      byte[] content = this.readHttpResponse(url, httpResponse);
+      if (this.conditionalCacheDirectory != null) {
+        this.storeValidators(httpResponse, validatorsFile);
+      }
+      return content;
+    } catch (IOException | DSSException e) {
+      if (httpRequest != null && httpRequest.isAborted()) {
+        throw new DSSException(String.format("Downloading <%s> did not finish in %s ms", url, this.downloadTimeout));
+      }
+      throw e instanceof DSSException ? (DSSException) e : new DSSException(e);
+    } finally {
+      if (downloadAbort != null) {
+        downloadAbort.cancel(false);
+      }
+      try {
+        if (httpRequest != null) {
+          httpRequest.releaseConnection();
+        }
+        if (httpResponse != null) {
+          EntityUtils.consumeQuietly(httpResponse.getEntity());
+        }
+      } finally {
+        IOUtils.closeQuietly(client);
+      }
+    }
+  }
+
+  private ScheduledFuture<?> scheduleAbort(final HttpGet httpRequest) {
+    if (this.downloadTimeout <= 0) {
+      return null;
+    }
+    return CachingDataLoader.getDownloadTimer().schedule(new Runnable() {
+
+      @Override
+      public void run() {
+        logger.warn("Aborting download of <{}> after {} ms", httpRequest.getURI(), downloadTimeout);
+        httpRequest.abort();
+      }
+
+    }, this.downloadTimeout, TimeUnit.MILLISECONDS);
+  }
+
+  private byte[] getCachedContent(String url) {
+    try {
+      return this.loadFileFromCache(url);
+    } catch (DSSException e) {
+      return null;
+    }
+  }
+
+  private Properties readValidators(File validatorsFile) {
+    Properties validators = new Properties();
+    if (validatorsFile.isFile()) {
+      try {
+        validators.load(new StringReader(FileUtils.readFileToString(validatorsFile, StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        logger.warn("Unable to read cached response validators from {}: {}", validatorsFile, e.getMessage());
+        validators.clear();
+      }
+    }
+    return validators;
+  }
+
+  private void storeValidators(HttpResponse httpResponse, File validatorsFile) {
+    Properties validators = new Properties();
+    Header eTag = httpResponse.getFirstHeader(HttpHeaders.ETAG);
+    if (eTag != null) {
+      validators.setProperty(HttpHeaders.ETAG, eTag.getValue());
+    }
+    Header lastModified = httpResponse.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+    if (lastModified != null) {
+      validators.setProperty(HttpHeaders.LAST_MODIFIED, lastModified.getValue());
+    }
+    try {
+      if (validators.isEmpty()) {
+        FileUtils.deleteQuietly(validatorsFile);
+        return;
+      }
+      StringWriter writer = new StringWriter();
+      validators.store(writer, null);
+      FileUtils.writeStringToFile(validatorsFile, writer.toString(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.warn("Unable to store response validators to {}: {}", validatorsFile, e.getMessage());
+      FileUtils.deleteQuietly(validatorsFile);
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getDownloadTimer() {
+    if (CachingDataLoader.downloadTimer == null) {
+      CachingDataLoader.downloadTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "digidoc4j-tsl-download-timer");
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+    }
+    return CachingDataLoader.downloadTimer;
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  /**
+   * Limits the total time of a single download. Zero or negative value disables the limit.
+   *
+   * @param downloadTimeout download timeout in milliseconds
+   */
+  public void setDownloadTimeout(long downloadTimeout) {
+    this.downloadTimeout = downloadTimeout;
+  }
+
+  public long getDownloadTimeout() {
+    return downloadTimeout;
+  }
+
 }
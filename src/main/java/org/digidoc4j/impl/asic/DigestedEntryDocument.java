@@ -0,0 +1,44 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.DigestDocument;
+import eu.europa.esig.dss.MimeType;
+
+/**
+ * Container entry of which only the digests calculated while reading the container are kept.
+ * <p/>
+ * Signature references are checked against the digests, the content itself can't be read.
+ */
+public class DigestedEntryDocument extends DigestDocument {
+
+  private final long size;
+
+  /**
+   * @param name     name of the entry
+   * @param mimeType mime type
+   * @param size     uncompressed size of the entry in bytes
+   */
+  public DigestedEntryDocument(String name, MimeType mimeType, long size) {
+    this.setName(name);
+    this.setMimeType(mimeType);
+    this.size = size;
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  public long getSize() {
+    return size;
+  }
+
+}
@@ -0,0 +1,482 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.DSSException;
+
+/**
+ * Group of interchangeable OCSP or timestamp endpoints.
+ * <p/>
+ * A request is sent to the endpoint with the lowest median latency among the endpoints whose circuit breaker is
+ * closed. Endpoints without latency samples are tried in their configured order before the others, so that new
+ * endpoints get measured. When a request fails or its response is not valid, the request is sent to the next
+ * endpoint. After {@link Configuration#getEndpointFailureThreshold()} consecutive failures, the circuit breaker of
+ * the endpoint opens and the endpoint is skipped for {@link Configuration#getEndpointOpenCircuitTime()}
+ * milliseconds, after which a single trial request is let through. When the circuits of all endpoints of the group
+ * are open, the request fails without being sent.
+ * <p/>
+ * Requests are sent in the calling thread. When hedging is enabled, a second request is sent to the next endpoint
+ * in a thread of a small bounded pool as soon as the first request has taken longer than the configured latency
+ * percentile of its endpoint. The first valid response wins, when the hedged request wins the first request is
+ * aborted. When no pool thread is free, the request is not hedged.
+ * <p/>
+ * Endpoint statistics are shared by all groups in the process. Statistics of at most {@value #MAX_ENDPOINTS} endpoints
+ * are kept, the least recently used endpoint is forgotten first.
+ */
+public class EndpointGroup {
+
+  private static final Logger logger = LoggerFactory.getLogger(EndpointGroup.class);
+  private static final int MAX_HEDGING_THREADS = 8;
+  private static final long THREAD_KEEP_ALIVE_IN_SECONDS = 60;
+  private static final int MAX_ENDPOINTS = 1000;
+  private static final Map<String, Endpoint> endpoints = new LinkedHashMap<String, Endpoint>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Endpoint> eldest) {
+      return this.size() > MAX_ENDPOINTS;
+    }
+
+  };
+  private static ScheduledThreadPoolExecutor hedgingTimer;
+  private static ThreadPoolExecutor hedgingExecutor;
+  private final List<String> urls;
+  private final Configuration configuration;
+
+  /**
+   * Request sent to an endpoint of the group.
+   */
+  public interface Request {
+
+    /**
+     * @param url endpoint location
+     * @return response of the endpoint
+     * @throws Exception if sending the request failed
+     */
+    byte[] send(String url) throws Exception;
+
+    /**
+     * @param response response of the endpoint
+     * @return true if the response can be used
+     */
+    boolean isValid(byte[] response);
+
+    /**
+     * Aborts the request to the endpoint. Called from another thread when a hedged request has returned a valid
+     * response first. The request may not have been sent yet, in which case it must not be sent any more.
+     *
+     * @param url endpoint location
+     */
+    void abort(String url);
+
+  }
+
+  /**
+   * @param urls          endpoint locations, duplicates are ignored
+   * @param configuration configuration context
+   */
+  public EndpointGroup(List<String> urls, Configuration configuration) {
+    this.urls = new ArrayList<>(new LinkedHashSet<>(urls));
+    this.configuration = configuration;
+  }
+
+  /**
+   * Sends the request to the endpoints of the group until a valid response is received.
+   *
+   * @param request request to send
+   * @return first valid response
+   * @throws DSSException if no endpoint returned a valid response or the circuits of all endpoints are open
+   */
+  public byte[] execute(Request request) {
+    Set<Endpoint> trials = Collections.synchronizedSet(new HashSet<Endpoint>());
+    List<Endpoint> candidates = this.selectEndpoints(trials);
+    Exception lastError = null;
+    try {
+      int next = 0;
+      while (next < candidates.size()) {
+        Endpoint endpoint = candidates.get(next++);
+        Hedge hedge = null;
+        if (next < candidates.size()) {
+          hedge = this.scheduleHedge(endpoint, candidates.get(next), request, trials);
+        }
+        trials.remove(endpoint);
+        Attempt attempt = this.attempt(endpoint, request, hedge);
+        if (attempt.response != null) {
+          if (hedge != null) {
+            hedge.cancel();
+          }
+          return attempt.response;
+        }
+        lastError = attempt.error;
+        if (hedge != null) {
+          Attempt hedgedAttempt = hedge.cancelOrAwait();
+          if (hedgedAttempt != null) {
+            next++;
+            if (hedgedAttempt.response != null) {
+              return hedgedAttempt.response;
+            }
+            lastError = hedgedAttempt.error;
+          }
+        }
+        if (next < candidates.size()) {
+          logger.debug("Failing over to <{}>", candidates.get(next).url);
+        }
+      }
+    } finally {
+      synchronized (trials) {
+        for (Endpoint endpoint : trials) {
+          endpoint.releaseTrial();
+        }
+      }
+    }
+    if (lastError instanceof RuntimeException) {
+      throw (RuntimeException) lastError;
+    }
+    throw new DSSException(lastError);
+  }
+
+  /**
+   * Forgets the statistics and circuit breaker states of all endpoints.
+   */
+  public static void reset() {
+    synchronized (EndpointGroup.endpoints) {
+      EndpointGroup.endpoints.clear();
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  /**
+   * Endpoints with an open circuit whose open time has passed are selected for a single trial request. The trial is
+   * claimed here, so that concurrent requests don't select the same endpoint for a trial.
+   */
+  private List<Endpoint> selectEndpoints(Set<Endpoint> trials) {
+    List<Endpoint> all = new ArrayList<>();
+    synchronized (EndpointGroup.endpoints) {
+      for (String url : this.urls) {
+        Endpoint endpoint = EndpointGroup.endpoints.get(url);
+        if (endpoint == null) {
+          endpoint = new Endpoint(url);
+          EndpointGroup.endpoints.put(url, endpoint);
+        }
+        all.add(endpoint);
+      }
+    }
+    List<Endpoint> available = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    for (Endpoint endpoint : all) {
+      if (endpoint.isClosed()) {
+        available.add(endpoint);
+      } else if (endpoint.claimTrial(now)) {
+        available.add(endpoint);
+        trials.add(endpoint);
+      }
+    }
+    if (available.isEmpty()) {
+      throw new DSSException(String.format("Circuits of all endpoints %s are open, not sending the request",
+          this.urls));
+    }
+    final Map<Endpoint, Long> latencies = new HashMap<>();
+    for (Endpoint endpoint : available) {
+      latencies.put(endpoint, Math.max(0, endpoint.getLatencyPercentile(50)));
+    }
+    Collections.sort(available, new Comparator<Endpoint>() {
+
+      @Override
+      public int compare(Endpoint endpoint1, Endpoint endpoint2) {
+        return Long.compare(latencies.get(endpoint1), latencies.get(endpoint2));
+      }
+
+    });
+    return available;
+  }
+
+  private Attempt attempt(Endpoint endpoint, Request request, Hedge hedge) {
+    long start = System.nanoTime();
+    try {
+      byte[] response = request.send(endpoint.url);
+      if (!request.isValid(response)) {
+        throw new TechnicalException(String.format("Endpoint <%s> returned invalid response", endpoint.url));
+      }
+      endpoint.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return new Attempt(response, null);
+    } catch (Exception e) {
+      if (hedge != null && hedge.isPrimaryAborted()) {
+        logger.debug("Request to <{}> was aborted after hedged request succeeded", endpoint.url);
+        endpoint.releaseTrial();
+      } else {
+        logger.warn("Request to <{}> failed: {}", endpoint.url, e.getMessage());
+        endpoint.recordFailure(System.currentTimeMillis(), this.configuration.getEndpointFailureThreshold(),
+            this.configuration.getEndpointOpenCircuitTime());
+      }
+      return new Attempt(null, e);
+    }
+  }
+
+  private Hedge scheduleHedge(Endpoint primaryEndpoint, Endpoint endpoint, Request request, Set<Endpoint> trials) {
+    int hedgingPercentile = this.configuration.getEndpointHedgingPercentile();
+    if (hedgingPercentile <= 0) {
+      return null;
+    }
+    long hedgingDelay = primaryEndpoint.getLatencyPercentile(hedgingPercentile);
+    if (hedgingDelay < 0) {
+      return null;
+    }
+    Hedge hedge = new Hedge(primaryEndpoint, endpoint, request, trials);
+    hedge.schedule(hedgingDelay);
+    return hedge;
+  }
+
+  private static synchronized ScheduledThreadPoolExecutor getHedgingTimer() {
+    if (EndpointGroup.hedgingTimer == null) {
+      EndpointGroup.hedgingTimer = new ScheduledThreadPoolExecutor(1, EndpointGroup.createThreadFactory(
+          "digidoc4j-endpoint-hedging-timer"));
+      EndpointGroup.hedgingTimer.setRemoveOnCancelPolicy(true);
+    }
+    return EndpointGroup.hedgingTimer;
+  }
+
+  private static synchronized ThreadPoolExecutor getHedgingExecutor() {
+    if (EndpointGroup.hedgingExecutor == null) {
+      EndpointGroup.hedgingExecutor = new ThreadPoolExecutor(0, MAX_HEDGING_THREADS, THREAD_KEEP_ALIVE_IN_SECONDS,
+          TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), EndpointGroup.createThreadFactory(
+          "digidoc4j-endpoint-hedging"));
+    }
+    return EndpointGroup.hedgingExecutor;
+  }
+
+  private static ThreadFactory createThreadFactory(final String name) {
+    return new ThreadFactory() {
+
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + "-" + this.counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    };
+  }
+
+  /**
+   * Hedged request, sent in a pool thread if the primary request has not completed within the hedging delay.
+   */
+  private class Hedge implements Runnable {
+
+    private final Endpoint primaryEndpoint;
+    private final Endpoint endpoint;
+    private final Request request;
+    private final Set<Endpoint> trials;
+    private ScheduledFuture<?> scheduledTask;
+    private boolean started;
+    private boolean cancelled;
+    private boolean primaryAborted;
+    private Attempt attempt;
+
+    Hedge(Endpoint primaryEndpoint, Endpoint endpoint, Request request, Set<Endpoint> trials) {
+      this.primaryEndpoint = primaryEndpoint;
+      this.endpoint = endpoint;
+      this.request = request;
+      this.trials = trials;
+    }
+
+    synchronized void schedule(long delay) {
+      this.scheduledTask = EndpointGroup.getHedgingTimer().schedule(this, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (this.cancelled) {
+          return;
+        }
+      }
+      try {
+        EndpointGroup.getHedgingExecutor().execute(new Runnable() {
+
+          @Override
+          public void run() {
+            Hedge.this.send();
+          }
+
+        });
+      } catch (RejectedExecutionException e) {
+        logger.debug("No thread free for hedged request to <{}>", this.endpoint.url);
+        this.cancel();
+      }
+    }
+
+    synchronized void cancel() {
+      this.cancelled = true;
+      if (this.scheduledTask != null) {
+        this.scheduledTask.cancel(false);
+      }
+    }
+
+    /**
+     * @return result of the hedged request or null if it was not sent
+     */
+    synchronized Attempt cancelOrAwait() {
+      if (!this.started) {
+        this.cancel();
+        return null;
+      }
+      try {
+        while (this.attempt == null) {
+          this.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TechnicalException("Interrupted while waiting for endpoint response", e);
+      }
+      return this.attempt;
+    }
+
+    synchronized boolean isPrimaryAborted() {
+      return this.primaryAborted;
+    }
+
+    private void send() {
+      synchronized (this) {
+        if (this.cancelled) {
+          return;
+        }
+        this.started = true;
+        this.trials.remove(this.endpoint);
+      }
+      logger.debug("No response from <{}>, sending hedged request to <{}>", this.primaryEndpoint.url,
+          this.endpoint.url);
+      Attempt result = EndpointGroup.this.attempt(this.endpoint, this.request, null);
+      boolean abortPrimary;
+      synchronized (this) {
+        this.attempt = result;
+        abortPrimary = result.response != null && !this.cancelled;
+        this.primaryAborted = abortPrimary;
+        this.notifyAll();
+      }
+      if (abortPrimary) {
+        this.request.abort(this.primaryEndpoint.url);
+      }
+    }
+
+  }
+
+  private static class Attempt {
+
+    private final byte[] response;
+    private final Exception error;
+
+    Attempt(byte[] response, Exception error) {
+      this.response = response;
+      this.error = error;
+    }
+
+  }
+
+  private static class Endpoint {
+
+    private static final int SAMPLES = 100;
+    private static final int MIN_SAMPLES = 10;
+    private final String url;
+    private final long[] latencies = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInProgress;
+
+    Endpoint(String url) {
+      this.url = url;
+    }
+
+    synchronized boolean isClosed() {
+      return this.openUntil == 0;
+    }
+
+    /**
+     * @return true if the open time has passed and no other trial request is in progress
+     */
+    synchronized boolean claimTrial(long now) {
+      if (this.openUntil == 0 || now < this.openUntil || this.trialInProgress) {
+        return false;
+      }
+      logger.debug("Letting trial request through to <{}>", this.url);
+      this.trialInProgress = true;
+      return true;
+    }
+
+    synchronized void releaseTrial() {
+      this.trialInProgress = false;
+    }
+
+    synchronized void recordSuccess(long latency) {
+      this.latencies[this.nextSample] = latency;
+      this.nextSample = (this.nextSample + 1) % SAMPLES;
+      this.sampleCount = Math.min(this.sampleCount + 1, SAMPLES);
+      this.consecutiveFailures = 0;
+      this.openUntil = 0;
+      this.trialInProgress = false;
+    }
+
+    synchronized void recordFailure(long now, int failureThreshold, long openCircuitTime) {
+      this.consecutiveFailures++;
+      this.trialInProgress = false;
+      if (this.consecutiveFailures >= failureThreshold) {
+        logger.warn("Opening circuit of <{}> for {} ms after {} consecutive failures", this.url, openCircuitTime,
+            this.consecutiveFailures);
+        this.openUntil = now + openCircuitTime;
+      }
+    }
+
+    /**
+     * @return latency percentile in milliseconds or -1 if there are not enough samples
+     */
+    synchronized long getLatencyPercentile(int percentile) {
+      if (this.sampleCount < MIN_SAMPLES) {
+        return -1;
+      }
+      long[] samples = Arrays.copyOf(this.latencies, this.sampleCount);
+      Arrays.sort(samples);
+      int index = (int) Math.ceil(percentile / 100.0 * samples.length) - 1;
+      return samples[Math.max(0, Math.min(index, samples.length - 1))];
+    }
+
+  }
+
+}
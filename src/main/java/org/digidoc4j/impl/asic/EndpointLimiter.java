@@ -0,0 +1,222 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.digidoc4j.exceptions.EndpointOverloadedException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control for requests to a single OCSP or timestamp endpoint.
+ * <p/>
+ * Limits the number of concurrent requests and the request rate (token bucket with a burst of one second) of an
+ * endpoint. A request waits for admission until its queue timeout, after which it is rejected with
+ * {@link EndpointOverloadedException} instead of being sent. Limiters are shared by all data loaders in the process,
+ * the limits of the first configuration using an endpoint apply to all requests to that endpoint.
+ */
+public class EndpointLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(EndpointLimiter.class);
+  private static final Map<String, EndpointLimiter> limiters = new HashMap<>();
+  private final String url;
+  private final int maxConcurrentRequests;
+  private final int maxRequestsPerSecond;
+  private final Semaphore permits;
+  private final AtomicLong acceptedRequests = new AtomicLong();
+  private final AtomicLong rejectedRequests = new AtomicLong();
+  private final AtomicLong queueTimeInNanos = new AtomicLong();
+  private boolean limitMismatchReported;
+  private double tokens;
+  private long lastRefill = System.nanoTime();
+
+  /**
+   * @param url                   endpoint location
+   * @param maxConcurrentRequests maximum number of concurrent requests, 0 for no limit
+   * @param maxRequestsPerSecond  maximum number of requests per second, 0 for no limit
+   */
+  public EndpointLimiter(String url, int maxConcurrentRequests, int maxRequestsPerSecond) {
+    this.url = url;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.maxRequestsPerSecond = maxRequestsPerSecond;
+    this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+    this.tokens = maxRequestsPerSecond;
+  }
+
+  /**
+   * Returns the shared limiter of the endpoint, creating it with the given limits if there is none. An existing
+   * limiter keeps its limits, so that requests of one configuration can't reset the admission state built up by
+   * requests of others. A warning is logged once when the limits differ.
+   *
+   * @param url                   endpoint location
+   * @param maxConcurrentRequests maximum number of concurrent requests, 0 for no limit
+   * @param maxRequestsPerSecond  maximum number of requests per second, 0 for no limit
+   * @return endpoint limiter
+   */
+  public static EndpointLimiter getLimiter(String url, int maxConcurrentRequests, int maxRequestsPerSecond) {
+    synchronized (EndpointLimiter.limiters) {
+      EndpointLimiter limiter = EndpointLimiter.limiters.get(url);
+      if (limiter == null) {
+        limiter = new EndpointLimiter(url, maxConcurrentRequests, maxRequestsPerSecond);
+        EndpointLimiter.limiters.put(url, limiter);
+      } else if ((limiter.maxConcurrentRequests != maxConcurrentRequests
+          || limiter.maxRequestsPerSecond != maxRequestsPerSecond) && !limiter.limitMismatchReported) {
+        logger.warn("Endpoint <{}> is already limited to {} concurrent requests and {} requests per second, " +
+                "ignoring limits of {} concurrent requests and {} requests per second", url,
+            limiter.maxConcurrentRequests, limiter.maxRequestsPerSecond, maxConcurrentRequests, maxRequestsPerSecond);
+        limiter.limitMismatchReported = true;
+      }
+      return limiter;
+    }
+  }
+
+  /**
+   * @param url endpoint location
+   * @return shared limiter of the endpoint or null if no requests have been limited
+   */
+  public static EndpointLimiter getLimiter(String url) {
+    synchronized (EndpointLimiter.limiters) {
+      return EndpointLimiter.limiters.get(url);
+    }
+  }
+
+  /**
+   * Forgets all shared limiters.
+   */
+  public static void reset() {
+    synchronized (EndpointLimiter.limiters) {
+      EndpointLimiter.limiters.clear();
+    }
+  }
+
+  /**
+   * Waits until the request is admitted. Every successful call must be followed by {@link #release()}.
+   *
+   * @param queueTimeout maximum time to wait in milliseconds
+   * @throws EndpointOverloadedException if the request was not admitted in time
+   */
+  public void acquire(long queueTimeout) {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+    try {
+      if (this.permits != null && !this.permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS)) {
+        this.reject(String.format("%d concurrent requests in progress", this.maxConcurrentRequests));
+      }
+      try {
+        this.takeToken(deadline);
+      } catch (RuntimeException e) {
+        this.releasePermit();
+        throw e;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TechnicalException("Interrupted while waiting for admission to <" + this.url + ">", e);
+    }
+    this.acceptedRequests.incrementAndGet();
+    this.queueTimeInNanos.addAndGet(System.nanoTime() - start);
+  }
+
+  /**
+   * Releases the concurrency permit taken by {@link #acquire(long)}.
+   */
+  public void release() {
+    this.releasePermit();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  /**
+   * Reserves the next token and sleeps until it becomes available, unless that is later than the deadline.
+   */
+  private void takeToken(long deadline) throws InterruptedException {
+    if (this.maxRequestsPerSecond <= 0) {
+      return;
+    }
+    long wait;
+    synchronized (this) {
+      long now = System.nanoTime();
+      double refill = (now - this.lastRefill) * this.maxRequestsPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+      this.tokens = Math.min(this.maxRequestsPerSecond, this.tokens + refill);
+      this.lastRefill = now;
+      wait = this.tokens >= 1 ? 0
+          : (long) Math.ceil((1 - this.tokens) * TimeUnit.SECONDS.toNanos(1) / this.maxRequestsPerSecond);
+      if (now + wait > deadline) {
+        this.reject(String.format("rate of %d requests per second exceeded", this.maxRequestsPerSecond));
+      }
+      this.tokens--;
+    }
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+
+  private void reject(String reason) {
+    this.rejectedRequests.incrementAndGet();
+    logger.warn("Request to <{}> rejected: {}", this.url, reason);
+    throw new EndpointOverloadedException(this.url, reason);
+  }
+
+  private void releasePermit() {
+    if (this.permits != null) {
+      this.permits.release();
+    }
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  /**
+   * @return number of requests in progress, 0 if concurrency is not limited
+   */
+  public int getActiveRequests() {
+    return this.permits == null ? 0 : this.maxConcurrentRequests - this.permits.availablePermits();
+  }
+
+  /**
+   * @return number of requests waiting for a concurrency permit
+   */
+  public int getQueuedRequests() {
+    return this.permits == null ? 0 : this.permits.getQueueLength();
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public int getMaxRequestsPerSecond() {
+    return maxRequestsPerSecond;
+  }
+
+  public long getAcceptedRequests() {
+    return this.acceptedRequests.get();
+  }
+
+  public long getRejectedRequests() {
+    return this.rejectedRequests.get();
+  }
+
+  /**
+   * @return total time admitted requests have waited for admission in milliseconds
+   */
+  public long getQueueTime() {
+    return TimeUnit.NANOSECONDS.toMillis(this.queueTimeInNanos.get());
+  }
+
+}
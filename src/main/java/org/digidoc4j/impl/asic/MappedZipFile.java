@@ -0,0 +1,336 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.utils.ByteBufferInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ZIP file reader working on memory mappings of the file.
+ * <p/>
+ * The central directory is parsed directly from a mapping of the end of the file. The content of an entry is read
+ * from a mapping of its own region, so reading an entry copies nothing to the heap: STORED entries are available as
+ * read-only buffer slices and DEFLATED entries are inflated straight from the mapping. ZIP64 archives and
+ * entries larger than 2 GB are not supported.
+ * <p/>
+ * As with {@link java.util.zip.ZipFile}, entries with duplicate names are all listed by {@link #entries()}, so that
+ * callers can reject such files, while {@link #getEntry(String)} returns the first of them.
+ * <p/>
+ * Mappings are released only when their buffers are garbage collected, not when the file is closed. On Windows the
+ * file can't be replaced or deleted while buffers of it are still reachable.
+ */
+public class MappedZipFile implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedZipFile.class);
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_LENGTH = 46;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_LENGTH = 30;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+  private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+  private final String path;
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final List<MappedEntry> entries = new ArrayList<>();
+  private final Map<String, MappedEntry> entriesByName = new HashMap<>();
+  private final Map<ZipEntry, MappedEntry> entriesByZipEntry = new IdentityHashMap<>();
+  private String comment;
+
+  /**
+   * Opens the file and reads its central directory.
+   *
+   * @param path path of the ZIP file
+   * @throws IOException if the file can't be read or is not a valid ZIP file
+   */
+  public MappedZipFile(String path) throws IOException {
+    this.path = path;
+    this.file = new RandomAccessFile(path, "r");
+    this.channel = this.file.getChannel();
+    try {
+      this.readCentralDirectory();
+    } catch (IOException | RuntimeException e) {
+      this.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return entries in the order of the central directory, including entries with duplicate names
+   */
+  public List<ZipEntry> entries() {
+    List<ZipEntry> result = new ArrayList<>(this.entries.size());
+    for (MappedEntry entry : this.entries) {
+      result.add(entry.zipEntry);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @param name entry name
+   * @return first entry with the name or null if the file has no such entry
+   */
+  public ZipEntry getEntry(String name) {
+    MappedEntry entry = this.entriesByName.get(name);
+    return entry == null ? null : entry.zipEntry;
+  }
+
+  /**
+   * @param entry entry of this file
+   * @return stream of the uncompressed entry content
+   * @throws IOException if the entry can't be read
+   */
+  public InputStream getInputStream(ZipEntry entry) throws IOException {
+    MappedEntry mappedEntry = this.getMappedEntry(entry);
+    ByteBuffer data = this.mapData(mappedEntry);
+    if (mappedEntry.zipEntry.getMethod() == ZipEntry.STORED) {
+      return new ByteBufferInputStream(data);
+    }
+    return new MappedInflaterInputStream(new ByteBufferInputStream(data));
+  }
+
+  /**
+   * Returns the content of a STORED entry as a read-only slice of the mapping.
+   *
+   * @param entry entry of this file
+   * @return content of the entry or null if the entry is compressed
+   * @throws IOException if the entry can't be read
+   */
+  public ByteBuffer getStoredContent(ZipEntry entry) throws IOException {
+    MappedEntry mappedEntry = this.getMappedEntry(entry);
+    if (mappedEntry.zipEntry.getMethod() != ZipEntry.STORED) {
+      return null;
+    }
+    return this.mapData(mappedEntry);
+  }
+
+  /**
+   * Closes the file. Buffers already returned stay readable and keep their mappings until they are garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    logger.debug("Closing mapped zip file <{}>", this.path);
+    this.file.close();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void readCentralDirectory() throws IOException {
+    long fileSize = this.channel.size();
+    if (fileSize < END_OF_CENTRAL_DIRECTORY_LENGTH) {
+      throw new IOException("File <" + this.path + "> is not a zip file");
+    }
+    long tailOffset = Math.max(0, fileSize - END_OF_CENTRAL_DIRECTORY_LENGTH - MAX_COMMENT_LENGTH);
+    ByteBuffer tail = this.map(tailOffset, fileSize - tailOffset);
+    int end = this.findEndOfCentralDirectory(tail);
+    int entryCount = tail.getShort(end + 10) & 0xFFFF;
+    long directorySize = tail.getInt(end + 12) & ZIP64_MARKER;
+    long directoryOffset = tail.getInt(end + 16) & ZIP64_MARKER;
+    int commentLength = tail.getShort(end + 20) & 0xFFFF;
+    if (directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER || entryCount == 0xFFFF) {
+      throw new IOException("ZIP64 file <" + this.path + "> is not supported");
+    }
+    if (directoryOffset + directorySize > tailOffset + end) {
+      throw new IOException("Central directory of <" + this.path + "> is out of bounds");
+    }
+    this.comment = commentLength == 0 ? null : this.readString(tail, end + END_OF_CENTRAL_DIRECTORY_LENGTH,
+        Math.min(commentLength, tail.limit() - end - END_OF_CENTRAL_DIRECTORY_LENGTH));
+    ByteBuffer directory = this.map(directoryOffset, directorySize);
+    int position = 0;
+    for (int i = 0; i < entryCount; i++) {
+      if (directory.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException("Invalid central directory header in <" + this.path + ">");
+      }
+      MappedEntry entry = this.readEntry(directory, position);
+      position += CENTRAL_DIRECTORY_HEADER_LENGTH + (directory.getShort(position + 28) & 0xFFFF)
+          + (directory.getShort(position + 30) & 0xFFFF) + (directory.getShort(position + 32) & 0xFFFF);
+      this.entries.add(entry);
+      this.entriesByZipEntry.put(entry.zipEntry, entry);
+      if (this.entriesByName.containsKey(entry.zipEntry.getName())) {
+        logger.warn("Duplicate entry <{}> in <{}>", entry.zipEntry.getName(), this.path);
+      } else {
+        this.entriesByName.put(entry.zipEntry.getName(), entry);
+      }
+    }
+    logger.debug("Read {} entries from the central directory of <{}>", entryCount, this.path);
+  }
+
+  private int findEndOfCentralDirectory(ByteBuffer tail) throws IOException {
+    for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_LENGTH; position >= 0; position--) {
+      if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return position;
+      }
+    }
+    throw new IOException("End of central directory not found in <" + this.path + ">");
+  }
+
+  private MappedEntry readEntry(ByteBuffer directory, int position) throws IOException {
+    int method = directory.getShort(position + 10) & 0xFFFF;
+    long crc = directory.getInt(position + 16) & ZIP64_MARKER;
+    long compressedSize = directory.getInt(position + 20) & ZIP64_MARKER;
+    long size = directory.getInt(position + 24) & ZIP64_MARKER;
+    int nameLength = directory.getShort(position + 28) & 0xFFFF;
+    int extraLength = directory.getShort(position + 30) & 0xFFFF;
+    int commentLength = directory.getShort(position + 32) & 0xFFFF;
+    long localHeaderOffset = directory.getInt(position + 42) & ZIP64_MARKER;
+    if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localHeaderOffset == ZIP64_MARKER) {
+      throw new IOException("ZIP64 entries of <" + this.path + "> are not supported");
+    }
+    if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+      throw new IOException("Unsupported compression method " + method + " in <" + this.path + ">");
+    }
+    int namePosition = position + CENTRAL_DIRECTORY_HEADER_LENGTH;
+    ZipEntry zipEntry = new ZipEntry(this.readString(directory, namePosition, nameLength));
+    zipEntry.setMethod(method);
+    zipEntry.setCrc(crc);
+    zipEntry.setSize(size);
+    zipEntry.setCompressedSize(compressedSize);
+    if (extraLength > 0) {
+      byte[] extra = new byte[extraLength];
+      ByteBuffer extraBuffer = directory.duplicate();
+      extraBuffer.position(namePosition + nameLength);
+      extraBuffer.get(extra);
+      zipEntry.setExtra(extra);
+    }
+    if (commentLength > 0) {
+      zipEntry.setComment(this.readString(directory, namePosition + nameLength + extraLength, commentLength));
+    }
+    return new MappedEntry(zipEntry, localHeaderOffset);
+  }
+
+  private ByteBuffer mapData(MappedEntry entry) throws IOException {
+    if (entry.dataOffset < 0) {
+      ByteBuffer header = this.map(entry.localHeaderOffset, LOCAL_HEADER_LENGTH);
+      if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+        throw new IOException("Invalid local header of entry <" + entry.zipEntry.getName() + ">");
+      }
+      entry.dataOffset = entry.localHeaderOffset + LOCAL_HEADER_LENGTH + (header.getShort(26) & 0xFFFF)
+          + (header.getShort(28) & 0xFFFF);
+    }
+    return this.map(entry.dataOffset, entry.zipEntry.getCompressedSize()).asReadOnlyBuffer();
+  }
+
+  private ByteBuffer map(long offset, long length) throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Region of " + length + " bytes in <" + this.path + "> is too large to map");
+    }
+    ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  private MappedEntry getMappedEntry(ZipEntry zipEntry) {
+    MappedEntry entry = this.entriesByZipEntry.get(zipEntry);
+    if (entry == null) {
+      entry = this.entriesByName.get(zipEntry.getName());
+    }
+    if (entry == null) {
+      throw new TechnicalException("Entry <" + zipEntry.getName() + "> not found in <" + this.path + ">");
+    }
+    return entry;
+  }
+
+  private String readString(ByteBuffer buffer, int position, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(position);
+    duplicate.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  /**
+   * @return comment of the ZIP file or null if there is none
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  private static class MappedEntry {
+
+    private final ZipEntry zipEntry;
+    private final long localHeaderOffset;
+    private long dataOffset = -1;
+
+    MappedEntry(ZipEntry zipEntry, long localHeaderOffset) {
+      this.zipEntry = zipEntry;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+  }
+
+  /**
+   * Inflates raw deflate data. As with {@link java.util.zip.ZipFile}, a dummy byte is fed to the inflater at the end
+   * of the input and the inflater is released on close.
+   */
+  private static class MappedInflaterInputStream extends InflaterInputStream {
+
+    private boolean endOfInput;
+    private boolean closed;
+
+    MappedInflaterInputStream(InputStream in) {
+      super(in, new Inflater(true), 8192);
+    }
+
+    @Override
+    protected void fill() throws IOException {
+      if (this.endOfInput) {
+        throw new EOFException("Unexpected end of deflated entry");
+      }
+      this.len = this.in.read(this.buf, 0, this.buf.length);
+      if (this.len == -1) {
+        this.buf[0] = 0;
+        this.len = 1;
+        this.endOfInput = true;
+      }
+      this.inf.setInput(this.buf, 0, this.len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!this.closed) {
+        this.closed = true;
+        this.inf.end();
+        super.close();
+      }
+    }
+
+  }
+
+}
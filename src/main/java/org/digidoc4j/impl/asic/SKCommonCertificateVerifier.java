@@ -14,9 +14,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 
-import org.digidoc4j.impl.asic.tsl.ClonedTslCertificateSource;
-import org.digidoc4j.impl.asic.tsl.LazyCertificatePool;
-import org.digidoc4j.impl.asic.tsl.LazyTslCertificateSource;
+import org.digidoc4j.impl.asic.tsl.OverlayCertificatePool;
+import org.digidoc4j.impl.asic.tsl.SnapshotTslCertificateSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,10 +40,10 @@ public class SKCommonCertificateVerifier implements Serializable, CertificateVer
 
   @Override
   public CertificateSource getTrustedCertSource() {
-    if (this.trustedCertSource instanceof ClonedTslCertificateSource) {
-      if (((ClonedTslCertificateSource) this.trustedCertSource).getTrustedListsCertificateSource() != null) {
-        this.log.debug("get TrustedListCertificateSource from ClonedTslCertificateSource");
-        return ((ClonedTslCertificateSource) this.trustedCertSource).getTrustedListsCertificateSource();
+    if (this.trustedCertSource instanceof SnapshotTslCertificateSource) {
+      if (((SnapshotTslCertificateSource) this.trustedCertSource).getTrustedListsCertificateSource() != null) {
+        this.log.debug("get TrustedListCertificateSource from SnapshotTslCertificateSource");
+        return ((SnapshotTslCertificateSource) this.trustedCertSource).getTrustedListsCertificateSource();
       }
     }
     return this.commonCertificateVerifier.getTrustedCertSource();
@@ -52,15 +51,9 @@ public class SKCommonCertificateVerifier implements Serializable, CertificateVer
 
   @Override
   public void setTrustedCertSource(final CertificateSource trustedCertSource) {
-    ClonedTslCertificateSource clonedTslCertificateSource = new ClonedTslCertificateSource(trustedCertSource);
-    this.trustedCertSource = clonedTslCertificateSource;
-    if (trustedCertSource instanceof LazyTslCertificateSource) {
-      this.log.debug("get TrustedCertSource from LazyTslCertificateSource");
-      this.commonCertificateVerifier.setTrustedCertSource(
-          ((LazyTslCertificateSource) trustedCertSource).getTslLoader().getTslCertificateSource());
-    } else {
-      this.commonCertificateVerifier.setTrustedCertSource(clonedTslCertificateSource);
-    }
+    SnapshotTslCertificateSource snapshotTslCertificateSource = new SnapshotTslCertificateSource(trustedCertSource);
+    this.trustedCertSource = snapshotTslCertificateSource;
+    this.commonCertificateVerifier.setTrustedCertSource(snapshotTslCertificateSource);
   }
 
   @Override
@@ -128,7 +121,7 @@ public class SKCommonCertificateVerifier implements Serializable, CertificateVer
     if (this.trustedCertSource == null) {
       return this.commonCertificateVerifier.createValidationPool();
     }
-    return new LazyCertificatePool(this.trustedCertSource);
+    return new OverlayCertificatePool(this.trustedCertSource);
   }
   
   /*
@@ -0,0 +1,268 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared HTTP clients with pooled keep-alive connections for OCSP and timestamp requests.
+ * <p/>
+ * One client is created for each distinct combination of connection pool, timeout, proxy and SSL settings and is
+ * shared by all data loaders using the same settings. Connections are kept alive between requests, idle connections
+ * are evicted in the background and TLS sessions are resumed as all connections of a client use the same SSL context.
+ * Passwords are not kept in the keys of the clients, only their salted digests are.
+ */
+public final class SkConnectionPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(SkConnectionPool.class);
+  private static final Map<List<Object>, CloseableHttpClient> clients = new HashMap<>();
+  private static final byte[] passwordDigestSalt = SkConnectionPool.createPasswordDigestSalt();
+
+  private SkConnectionPool() {
+  }
+
+  /**
+   * Returns the shared HTTP client matching the configuration. The client must not be closed by the caller.
+   *
+   * @param configuration configuration context
+   * @return shared HTTP client
+   */
+  public static synchronized CloseableHttpClient getHttpClient(Configuration configuration) {
+    List<Object> key = SkConnectionPool.createKey(configuration);
+    CloseableHttpClient client = SkConnectionPool.clients.get(key);
+    if (client == null) {
+      logger.debug("Creating pooled HTTP client with at most {} connections per route",
+          configuration.getConnectionPoolMaxPerRoute());
+      client = SkConnectionPool.createHttpClient(configuration);
+      SkConnectionPool.clients.put(key, client);
+    }
+    return client;
+  }
+
+  /**
+   * Closes all shared HTTP clients and their connections.
+   */
+  public static synchronized void shutdown() {
+    for (CloseableHttpClient client : SkConnectionPool.clients.values()) {
+      IOUtils.closeQuietly(client);
+    }
+    SkConnectionPool.clients.clear();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static CloseableHttpClient createHttpClient(final Configuration configuration) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+        SkConnectionPool.createSocketFactoryRegistry(configuration));
+    connectionManager.setMaxTotal(configuration.getConnectionPoolMaxTotal());
+    connectionManager.setDefaultMaxPerRoute(configuration.getConnectionPoolMaxPerRoute());
+    HttpClientBuilder builder = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(configuration.getConnectionTimeout())
+            .setConnectionRequestTimeout(configuration.getConnectionTimeout())
+            .setSocketTimeout(configuration.getSocketTimeout())
+            .build())
+        .setKeepAliveStrategy(SkConnectionPool.createKeepAliveStrategy(configuration.getConnectionKeepAliveTime()))
+        .evictExpiredConnections()
+        .evictIdleConnections(configuration.getConnectionIdleEvictionTime(), TimeUnit.MILLISECONDS)
+        .disableConnectionState();
+    if (configuration.isNetworkProxyEnabled()) {
+      SkConnectionPool.configureProxy(builder, configuration);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Uses the keep-alive time sent by the server, but not longer than the configured keep-alive time.
+   */
+  private static ConnectionKeepAliveStrategy createKeepAliveStrategy(final long keepAliveTime) {
+    return new ConnectionKeepAliveStrategy() {
+
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return duration > 0 ? Math.min(duration, keepAliveTime) : keepAliveTime;
+      }
+
+    };
+  }
+
+  private static void configureProxy(HttpClientBuilder builder, Configuration configuration) {
+    final HttpHost httpProxy = SkConnectionPool.createProxy(configuration.getHttpProxyHost(),
+        configuration.getHttpProxyPort());
+    final HttpHost httpsProxy = SkConnectionPool.createProxy(configuration.getHttpsProxyHost(),
+        configuration.getHttpsProxyPort());
+    builder.setRoutePlanner(new DefaultRoutePlanner(null) {
+
+      @Override
+      protected HttpHost determineProxy(HttpHost target, HttpRequest request, HttpContext context)
+          throws HttpException {
+        return "https".equalsIgnoreCase(target.getSchemeName()) ? httpsProxy : httpProxy;
+      }
+
+    });
+    if (StringUtils.isNotBlank(configuration.getHttpProxyUser())
+        && StringUtils.isNotBlank(configuration.getHttpProxyPassword())) {
+      CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+      UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(configuration.getHttpProxyUser(),
+          configuration.getHttpProxyPassword());
+      for (HttpHost proxy : Arrays.asList(httpProxy, httpsProxy)) {
+        if (proxy != null) {
+          credentialsProvider.setCredentials(new AuthScope(proxy.getHostName(), proxy.getPort()), credentials);
+        }
+      }
+      builder.setDefaultCredentialsProvider(credentialsProvider);
+    }
+  }
+
+  private static HttpHost createProxy(String host, Integer port) {
+    if (StringUtils.isBlank(host) || port == null) {
+      return null;
+    }
+    return new HttpHost(host, port);
+  }
+
+  private static Registry<ConnectionSocketFactory> createSocketFactoryRegistry(Configuration configuration) {
+    return RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", new SSLConnectionSocketFactory(SkConnectionPool.createSslContext(configuration)))
+        .build();
+  }
+
+  private static SSLContext createSslContext(Configuration configuration) {
+    if (!configuration.isSslConfigurationEnabled()) {
+      return SSLContexts.createSystemDefault();
+    }
+    try {
+      SSLContextBuilder builder = SSLContexts.custom();
+      if (StringUtils.isNotBlank(configuration.getSslTruststorePath())) {
+        builder.loadTrustMaterial(SkConnectionPool.loadKeyStore(configuration.getSslTruststorePath(),
+            configuration.getSslTruststoreType(), configuration.getSslTruststorePassword()), null);
+      }
+      if (StringUtils.isNotBlank(configuration.getSslKeystorePath())) {
+        String password = StringUtils.defaultString(configuration.getSslKeystorePassword());
+        builder.loadKeyMaterial(SkConnectionPool.loadKeyStore(configuration.getSslKeystorePath(),
+            configuration.getSslKeystoreType(), password), password.toCharArray());
+      }
+      return builder.build();
+    } catch (GeneralSecurityException | IOException e) {
+      throw new TechnicalException("Unable to create SSL context for pooled connections", e);
+    }
+  }
+
+  private static KeyStore loadKeyStore(String path, String type, String password)
+      throws GeneralSecurityException, IOException {
+    KeyStore keyStore = KeyStore.getInstance(StringUtils.defaultIfBlank(type, "JKS"));
+    File file = new File(path);
+    InputStream stream = file.exists() ? FileUtils.openInputStream(file)
+        : SkConnectionPool.class.getClassLoader().getResourceAsStream(path);
+    if (stream == null) {
+      throw new IOException(String.format("Keystore not found by location <%s>", path));
+    }
+    try {
+      keyStore.load(stream, password == null ? null : password.toCharArray());
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+    return keyStore;
+  }
+
+  private static List<Object> createKey(Configuration configuration) {
+    List<Object> key = new ArrayList<>();
+    key.addAll(Arrays.<Object>asList(configuration.getConnectionPoolMaxTotal(),
+        configuration.getConnectionPoolMaxPerRoute(), configuration.getConnectionKeepAliveTime(),
+        configuration.getConnectionIdleEvictionTime(), configuration.getConnectionTimeout(),
+        configuration.getSocketTimeout()));
+    if (configuration.isNetworkProxyEnabled()) {
+      key.addAll(Arrays.<Object>asList(configuration.getHttpProxyHost(), configuration.getHttpProxyPort(),
+          configuration.getHttpsProxyHost(), configuration.getHttpsProxyPort(), configuration.getHttpProxyUser(),
+          SkConnectionPool.digestPassword(configuration.getHttpProxyPassword())));
+    }
+    if (configuration.isSslConfigurationEnabled()) {
+      key.addAll(Arrays.<Object>asList(configuration.getSslKeystorePath(), configuration.getSslKeystoreType(),
+          SkConnectionPool.digestPassword(configuration.getSslKeystorePassword()),
+          configuration.getSslTruststorePath(), configuration.getSslTruststoreType(),
+          SkConnectionPool.digestPassword(configuration.getSslTruststorePassword())));
+    }
+    return key;
+  }
+
+  private static String digestPassword(String password) {
+    if (password == null) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(SkConnectionPool.passwordDigestSalt);
+      return Hex.encodeHexString(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new TechnicalException("SHA-256 digest is not available", e);
+    }
+  }
+
+  private static byte[] createPasswordDigestSalt() {
+    byte[] salt = new byte[16];
+    new SecureRandom().nextBytes(salt);
+    return salt;
+  }
+
+}
@@ -13,6 +13,11 @@ package org.digidoc4j.impl.asic;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -23,6 +28,9 @@ import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
+import org.bouncycastle.asn1.cmp.PKIStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.tsp.TimeStampResponse;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.slf4j.Logger;
@@ -39,9 +47,13 @@ public class SkDataLoader extends CommonsDataLoader {
 
   private static final String TIMESTAMP_CONTENT_TYPE = "application/timestamp-query";
   private final Logger log = LoggerFactory.getLogger(SkDataLoader.class);
+  private final Configuration configuration;
   private String userAgent;
+  private String primaryUrl;
+  private List<String> failoverUrls = Collections.emptyList();
 
   protected SkDataLoader(Configuration configuration) {
+    this.configuration = configuration;
     DataLoaderDecorator.decorateWithProxySettings(this, configuration);
     DataLoaderDecorator.decorateWithSslSettings(this, configuration);
   }
@@ -55,6 +67,9 @@ public class SkDataLoader extends CommonsDataLoader {
   public static SkDataLoader ocsp(Configuration configuration) {
     SkDataLoader dataLoader = new SkDataLoader(configuration);
     dataLoader.setContentType(OCSPDataLoader.OCSP_CONTENT_TYPE);
+    if (configuration != null) {
+      dataLoader.setFailoverUrls(configuration.getOcspSource(), configuration.getOcspFailoverSources());
+    }
     return dataLoader;
   }
 
@@ -67,6 +82,9 @@ public class SkDataLoader extends CommonsDataLoader {
   public static SkDataLoader timestamp(Configuration configuration) {
     SkDataLoader dataLoader = new SkDataLoader(configuration);
     dataLoader.setContentType(SkDataLoader.TIMESTAMP_CONTENT_TYPE);
+    if (configuration != null) {
+      dataLoader.setFailoverUrls(configuration.getTspSource(), configuration.getTspFailoverSources());
+    }
     return dataLoader;
   }
 
@@ -75,6 +93,61 @@ public class SkDataLoader extends CommonsDataLoader {
     if (StringUtils.isBlank(url)) {
       throw new TechnicalException("SK endpoint url is unset");
     }
+    if (this.failoverUrls.isEmpty() || !url.trim().equals(this.primaryUrl)) {
+      return this.postTo(url, content, null);
+    }
+    List<String> urls = new ArrayList<>();
+    urls.add(this.primaryUrl);
+    urls.addAll(this.failoverUrls);
+    return new EndpointGroup(urls, this.configuration).execute(new EndpointGroup.Request() {
+
+      private final ConcurrentMap<String, HttpPost> httpRequests = new ConcurrentHashMap<>();
+
+      @Override
+      public byte[] send(String endpointUrl) {
+        return SkDataLoader.this.postTo(endpointUrl, content, this.getHttpRequest(endpointUrl));
+      }
+
+      @Override
+      public boolean isValid(byte[] response) {
+        return SkDataLoader.this.isValidResponse(response);
+      }
+
+      @Override
+      public void abort(String endpointUrl) {
+        this.getHttpRequest(endpointUrl).abort();
+      }
+
+      private HttpPost getHttpRequest(String endpointUrl) {
+        HttpPost httpRequest = new HttpPost(URI.create(endpointUrl.trim()));
+        HttpPost existingRequest = this.httpRequests.putIfAbsent(endpointUrl, httpRequest);
+        return existingRequest == null ? httpRequest : existingRequest;
+      }
+
+    });
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private byte[] postTo(final String url, final byte[] content, HttpPost preparedRequest) {
+    EndpointLimiter limiter = this.getLimiter(url);
+    if (limiter == null) {
+      return this.send(url, content, preparedRequest);
+    }
+    limiter.acquire(this.configuration.getEndpointQueueTimeout());
+    try {
+      return this.send(url, content, preparedRequest);
+    } finally {
+      limiter.release();
+    }
+  }
+
+  /**
+   * @param preparedRequest request to send, can be aborted from another thread; a new request is created when null
+   */
+  private byte[] send(final String url, final byte[] content, HttpPost preparedRequest) {
     this.log.debug("Getting OCSP response from <{}>", url);
     if (StringUtils.isBlank(this.userAgent)) {
       throw new TechnicalException("Header <User-Agent> is unset");
@@ -83,8 +156,7 @@ public class SkDataLoader extends CommonsDataLoader {
     HttpResponse httpResponse = null;
     CloseableHttpClient client = null;
     try {
-      final URI uri = URI.create(url.trim());
-      httpRequest = new HttpPost(uri);
+      httpRequest = preparedRequest == null ? new HttpPost(URI.create(url.trim())) : preparedRequest;
       httpRequest.setHeader("User-Agent", this.userAgent);
       ByteArrayInputStream bis = new ByteArrayInputStream(content);
       HttpEntity httpEntity = new InputStreamEntity(bis, content.length);
@@ -93,25 +165,71 @@ public class SkDataLoader extends CommonsDataLoader {
       if (StringUtils.isNotBlank(this.contentType)) {
         httpRequest.setHeader(CONTENT_TYPE, this.contentType);
       }
-      client = this.getHttpClient(url);
-      httpResponse = this.getHttpResponse(client, httpRequest, url);
+      if (this.isConnectionPoolEnabled()) {
+        httpResponse = this.getHttpResponse(SkConnectionPool.getHttpClient(this.configuration), httpRequest, url);
+      } else {
+        client = this.getHttpClient(url);
+        httpResponse = this.getHttpResponse(client, httpRequest, url);
+      }
       return readHttpResponse(url, httpResponse);
     } catch (IOException e) {
       throw new DSSException(e);
     } finally {
       try {
-        if (httpRequest != null) {
-          httpRequest.releaseConnection();
-        }
         if (httpResponse != null) {
           EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
+        if (httpRequest != null) {
+          httpRequest.releaseConnection();
+        }
       } finally {
         IOUtils.closeQuietly(client);
       }
     }
   }
 
+  private void setFailoverUrls(String primaryUrl, List<String> failoverUrls) {
+    if (StringUtils.isNotBlank(primaryUrl)) {
+      this.primaryUrl = primaryUrl.trim();
+      this.failoverUrls = failoverUrls;
+    }
+  }
+
+  /**
+   * Responses that are not successful OCSP or timestamp responses are failed over to the next endpoint.
+   */
+  private boolean isValidResponse(byte[] response) {
+    if (response == null || response.length == 0) {
+      return false;
+    }
+    try {
+      if (OCSPDataLoader.OCSP_CONTENT_TYPE.equals(this.contentType)) {
+        return new OCSPResp(response).getStatus() == OCSPResp.SUCCESSFUL;
+      }
+      if (SkDataLoader.TIMESTAMP_CONTENT_TYPE.equals(this.contentType)) {
+        int status = new TimeStampResponse(response).getStatus();
+        return status == PKIStatus.GRANTED || status == PKIStatus.GRANTED_WITH_MODS;
+      }
+      return true;
+    } catch (Exception e) {
+      this.log.debug("Unable to parse response: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private EndpointLimiter getLimiter(String url) {
+    if (this.configuration == null || this.configuration.getEndpointMaxConcurrentRequests() <= 0
+        && this.configuration.getEndpointMaxRequestsPerSecond() <= 0) {
+      return null;
+    }
+    return EndpointLimiter.getLimiter(url.trim(), this.configuration.getEndpointMaxConcurrentRequests(),
+        this.configuration.getEndpointMaxRequestsPerSecond());
+  }
+
+  private boolean isConnectionPoolEnabled() {
+    return this.configuration != null && this.configuration.isConnectionPoolEnabled();
+  }
+
   /*
    * ACCESSORS
    */
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.commons.codec.binary.Base64;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
@@ -93,7 +94,7 @@ public class TimeStampTokenValidator {
     if (!isSignatureValid) {
       errors.add(new DigiDoc4JException("Signature not intact"));
     }
-    boolean isMessageImprintsValid = this.isMessageImprintsValid(dataFile.getBytes(), token);
+    boolean isMessageImprintsValid = this.isMessageImprintsValid(dataFile, token);
     if (isSignatureValid && !isMessageImprintsValid) {
       errors.add(new DigiDoc4JException("Signature not intact"));
     }
@@ -104,9 +105,9 @@ public class TimeStampTokenValidator {
     return errors;
   }
 
-  private boolean isMessageImprintsValid(byte[] dataFileBytes, TimeStampToken token) {
+  private boolean isMessageImprintsValid(DataFile dataFile, TimeStampToken token) {
     return Arrays.equals(token.getTimeStampInfo().getMessageImprintDigest(),
-        DSSUtils.digest(DigestAlgorithm.SHA256, dataFileBytes));
+        Base64.decodeBase64(dataFile.getDocument().getDigest(DigestAlgorithm.SHA256)));
   }
 
   private boolean isVersionValid(TimeStampToken token) {
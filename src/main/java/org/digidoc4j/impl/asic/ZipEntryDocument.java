@@ -0,0 +1,132 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.impl.DigestCache;
+import org.digidoc4j.impl.DigestCachingDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.CommonDocument;
+import eu.europa.esig.dss.DSSException;
+import eu.europa.esig.dss.DigestAlgorithm;
+import eu.europa.esig.dss.MimeType;
+
+/**
+ * @see eu.europa.esig.dss.DSSDocument implementation reading the content of a container entry from the container file
+ * on demand. Nothing is copied to memory or temporary files. Uncompressed entries of memory mapped containers are
+ * digested directly from the mapping.
+ */
+public class ZipEntryDocument extends CommonDocument implements DigestCachingDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(ZipEntryDocument.class);
+  private final AsicZipFile zipFile;
+  private final String entryName;
+  private MimeType mimeType;
+  private final DigestCache digestCache = new DigestCache();
+
+  /**
+   * @param zipFile   container file
+   * @param entryName name of the entry
+   * @param mimeType  mime type
+   */
+  public ZipEntryDocument(AsicZipFile zipFile, String entryName, MimeType mimeType) {
+    this.zipFile = zipFile;
+    this.entryName = entryName;
+    this.mimeType = mimeType;
+  }
+
+  @Override
+  public InputStream openStream() throws DSSException {
+    logger.debug("Reading entry <{}> from container", this.entryName);
+    return this.zipFile.getInputStream(this.entryName);
+  }
+
+  @Override
+  public String getName() {
+    return entryName;
+  }
+
+  @Override
+  public void setName(String s) {
+
+  }
+
+  @Override
+  public String getAbsolutePath() {
+    return this.zipFile.getPath() + "!/" + this.entryName;
+  }
+
+  @Override
+  public MimeType getMimeType() {
+    return mimeType;
+  }
+
+  @Override
+  public void setMimeType(MimeType mimeType) {
+    this.mimeType = mimeType;
+  }
+
+  @Override
+  public void save(String filePath) {
+    logger.debug("File Path: " + filePath);
+    try (InputStream stream = this.openStream();
+         OutputStream outputStream = FileUtils.openOutputStream(new File(filePath))) {
+      IOUtils.copy(stream, outputStream);
+    } catch (IOException e) {
+      logger.error(e.getMessage());
+      throw new DSSException(e);
+    }
+  }
+
+  @Override
+  public String getDigest(DigestAlgorithm digestAlgorithm) {
+    logger.debug("Digest algorithm: " + digestAlgorithm);
+    byte[] digest = this.getDigests(Collections.singleton(digestAlgorithm)).get(digestAlgorithm);
+    return Base64.encodeBase64String(digest);
+  }
+
+  @Override
+  public void cacheDigests(Collection<DigestAlgorithm> digestAlgorithms) {
+    this.getDigests(digestAlgorithms);
+  }
+
+  /**
+   * @return uncompressed size of the entry in bytes or -1 if not known
+   */
+  public long getSize() {
+    return this.zipFile.getSize(this.entryName);
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private Map<DigestAlgorithm, byte[]> getDigests(Collection<DigestAlgorithm> digestAlgorithms) {
+    //Entry is mapped only when some digest has to be calculated
+    ByteBuffer content = this.digestCache.contains(digestAlgorithms) ? null
+        : this.zipFile.getStoredContent(this.entryName);
+    return this.digestCache.getDigests(this, content, digestAlgorithms);
+  }
+
+}
@@ -0,0 +1,260 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.apache.commons.codec.binary.Hex;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.x509.CertificatePool;
+import eu.europa.esig.dss.x509.CertificateSource;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+/**
+ * Immutable hash index of certificates by subject, subject key identifier, issuer and serial number, DSS identifier
+ * and SHA-256 digest of the encoded certificate. Certificate extensions are parsed only once while building the index.
+ */
+public final class CertificateIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(CertificateIndex.class);
+  private final long version;
+  private final List<CertificateToken> certificates;
+  private final Map<X500Principal, List<CertificateToken>> bySubject = new HashMap<>();
+  private final Map<String, List<CertificateToken>> bySubjectKeyIdentifier = new HashMap<>();
+  private final Map<String, CertificateToken> byIssuerAndSerialNumber = new HashMap<>();
+  private final Map<String, CertificateToken> byDigest = new HashMap<>();
+  private final Map<String, CertificateToken> byDssId = new HashMap<>();
+  private final Map<X509Certificate, CertificateKeys> keys = new IdentityHashMap<>();
+
+  private CertificateIndex(Collection<CertificateToken> certificates, long version, CertificateIndex previousIndex) {
+    this.version = version;
+    MessageDigest digest = CertificateIndex.createDigest();
+    for (CertificateToken certificate : certificates) {
+      CertificateKeys keys = previousIndex == null ? null : previousIndex.keys.get(certificate.getCertificate());
+      this.add(certificate, keys == null ? new CertificateKeys(certificate, digest) : keys);
+    }
+    this.certificates = Collections.unmodifiableList(new ArrayList<>(certificates));
+  }
+
+  /**
+   * @param certificates certificates to index
+   * @return new index of given certificates
+   */
+  public static CertificateIndex of(Collection<CertificateToken> certificates) {
+    return new CertificateIndex(certificates, 0, null);
+  }
+
+  /**
+   * Returns the given index if it was built from the given version of the pool, otherwise builds a new index. Keys of
+   * the certificates found in the previous index are taken over without parsing the certificates again.
+   *
+   * @param index         current index, may be null
+   * @param previousIndex index of the same certificate objects to take the keys from, may be null
+   * @param pool          pool of the indexed certificates
+   * @param version       modification count of the pool, increases whenever certificates are added to the pool
+   * @return up to date index
+   */
+  public static CertificateIndex refresh(CertificateIndex index, CertificateIndex previousIndex, CertificatePool pool,
+                                         long version) {
+    if (index != null && index.version == version) {
+      return index;
+    }
+    logger.debug("Building certificate index");
+    CertificateIndex certificateIndex = new CertificateIndex(pool.getCertificateTokens(), version, previousIndex);
+    logger.debug("Finished building certificate index of {} certificates", certificateIndex.size());
+    return certificateIndex;
+  }
+
+  /**
+   * Finds certificates by subject using the index of the source when available.
+   *
+   * @param source  source of certificates
+   * @param subject subject of the certificate
+   * @return certificates with the given subject
+   */
+  public static List<CertificateToken> findBySubject(CertificateSource source, X500Principal subject) {
+    if (source instanceof IndexedCertificateSource) {
+      return ((IndexedCertificateSource) source).getCertificateIndex().getBySubject(subject);
+    }
+    return source.get(subject);
+  }
+
+  /**
+   * @param subject subject of the certificate
+   * @return certificates with the given subject, never null
+   */
+  public List<CertificateToken> getBySubject(X500Principal subject) {
+    return CertificateIndex.unmodifiable(this.bySubject.get(subject));
+  }
+
+  /**
+   * @param subjectKeyIdentifier value of the subject key identifier extension
+   * @return certificates with the given subject key identifier, never null
+   */
+  public List<CertificateToken> getBySubjectKeyIdentifier(byte[] subjectKeyIdentifier) {
+    if (subjectKeyIdentifier == null) {
+      return Collections.emptyList();
+    }
+    return CertificateIndex.unmodifiable(this.bySubjectKeyIdentifier.get(Hex.encodeHexString(subjectKeyIdentifier)));
+  }
+
+  /**
+   * @param issuer       issuer of the certificate
+   * @param serialNumber serial number of the certificate
+   * @return matching certificate or null
+   */
+  public CertificateToken getByIssuerAndSerialNumber(X500Principal issuer, BigInteger serialNumber) {
+    return this.byIssuerAndSerialNumber.get(CertificateIndex.issuerAndSerialNumberKey(issuer, serialNumber));
+  }
+
+  /**
+   * @param sha256Digest SHA-256 digest of the encoded certificate
+   * @return matching certificate or null
+   */
+  public CertificateToken getByDigest(byte[] sha256Digest) {
+    return this.byDigest.get(Hex.encodeHexString(sha256Digest));
+  }
+
+  /**
+   * @param encodedCertificate DER encoded certificate
+   * @return the same certificate from the index or null
+   */
+  public CertificateToken getByEncoded(byte[] encodedCertificate) {
+    return this.getByDigest(CertificateIndex.createDigest().digest(encodedCertificate));
+  }
+
+  /**
+   * Finds the same certificate by its DSS identifier, which the token calculates only once.
+   *
+   * @param certificate certificate
+   * @return the same certificate from the index or null
+   */
+  public CertificateToken getByToken(CertificateToken certificate) {
+    return this.byDssId.get(certificate.getDSSIdAsString());
+  }
+
+  /**
+   * @return all indexed certificates
+   */
+  public List<CertificateToken> getCertificates() {
+    return certificates;
+  }
+
+  /**
+   * @return modification count of the pool the index was built from
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return number of indexed certificates
+   */
+  public int size() {
+    return certificates.size();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void add(CertificateToken token, CertificateKeys certificateKeys) {
+    this.keys.put(token.getCertificate(), certificateKeys);
+    CertificateIndex.put(this.bySubject, token.getCertificate().getSubjectX500Principal(), token);
+    if (certificateKeys.subjectKeyIdentifier != null) {
+      CertificateIndex.put(this.bySubjectKeyIdentifier, certificateKeys.subjectKeyIdentifier, token);
+    }
+    this.byIssuerAndSerialNumber.put(certificateKeys.issuerAndSerialNumber, token);
+    this.byDigest.put(certificateKeys.digest, token);
+    this.byDssId.put(token.getDSSIdAsString(), token);
+  }
+
+  private static byte[] getSubjectKeyIdentifier(X509Certificate certificate) {
+    byte[] extensionValue = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+    if (extensionValue == null) {
+      return null;
+    }
+    try {
+      return ASN1OctetString.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extensionValue)).getOctets();
+    } catch (Exception e) {
+      logger.warn("Unable to parse subject key identifier of <{}>: {}", certificate.getSubjectX500Principal(),
+          e.getMessage());
+      return null;
+    }
+  }
+
+  private static String issuerAndSerialNumberKey(X500Principal issuer, BigInteger serialNumber) {
+    return issuer.getName(X500Principal.CANONICAL) + "|" + serialNumber.toString(16);
+  }
+
+  private static <K> void put(Map<K, List<CertificateToken>> map, K key, CertificateToken token) {
+    List<CertificateToken> tokens = map.get(key);
+    if (tokens == null) {
+      tokens = new ArrayList<>(1);
+      map.put(key, tokens);
+    }
+    tokens.add(token);
+  }
+
+  private static List<CertificateToken> unmodifiable(List<CertificateToken> tokens) {
+    if (tokens == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(tokens);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new TechnicalException("SHA-256 digest is not available", e);
+    }
+  }
+
+  /**
+   * Keys of a certificate that require parsing or hashing the certificate.
+   */
+  private static class CertificateKeys {
+
+    private final String subjectKeyIdentifier;
+    private final String issuerAndSerialNumber;
+    private final String digest;
+
+    CertificateKeys(CertificateToken token, MessageDigest digest) {
+      X509Certificate certificate = token.getCertificate();
+      byte[] subjectKeyIdentifier = CertificateIndex.getSubjectKeyIdentifier(certificate);
+      this.subjectKeyIdentifier = subjectKeyIdentifier == null ? null : Hex.encodeHexString(subjectKeyIdentifier);
+      this.issuerAndSerialNumber = CertificateIndex.issuerAndSerialNumberKey(certificate.getIssuerX500Principal(),
+          certificate.getSerialNumber());
+      this.digest = Hex.encodeHexString(digest.digest(token.getEncoded()));
+    }
+
+  }
+
+}
@@ -0,0 +1,25 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import eu.europa.esig.dss.x509.CertificateSource;
+
+/**
+ * Certificate source offering hash lookups of its certificates.
+ */
+public interface IndexedCertificateSource extends CertificateSource {
+
+  /**
+   * @return index of all the certificates of this source
+   */
+  CertificateIndex getCertificateIndex();
+
+}
@@ -10,20 +10,24 @@
 
 package org.digidoc4j.impl.asic.tsl;
 
+import java.lang.ref.WeakReference;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.security.auth.x500.X500Principal;
 
 import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.TslState;
 import org.digidoc4j.exceptions.TslCertificateSourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.europa.esig.dss.DSSException;
 import eu.europa.esig.dss.tsl.ServiceInfo;
-import eu.europa.esig.dss.tsl.service.TSLValidationJob;
 import eu.europa.esig.dss.x509.CertificatePool;
 import eu.europa.esig.dss.x509.CertificateToken;
 
@@ -37,15 +41,33 @@ import eu.europa.esig.dss.x509.CertificateToken;
  * it is really necessary to check the certificates.
  *
  * To achieve that, a lazily initialized certificate source is used.
+ *
+ * When background refresh is enabled, an expiring TSL is reloaded on {@link TslRefreshScheduler} into a separate
+ * certificate source which replaces the current one after it has been fully loaded. Until then the previous TSL
+ * is served, unless it is older than the cache expiration time plus the maximum staleness time.
+ *
+ * TSL is always loaded into a new certificate source, which is sealed when it is published as a {@link TslSnapshot}.
+ * Certificates added to this source are added to a copy of the current certificate source which is then published,
+ * and they are added again to every TSL loaded later.
+ *
+ * When persistent TSL snapshots are enabled, the first load uses a still valid snapshot written by a previous
+ * process instead of downloading and validating the TSL, see {@link TslSnapshotStore}.
  */
-public class LazyTslCertificateSource implements TSLCertificateSource {
+public class LazyTslCertificateSource implements TSLCertificateSource, IndexedCertificateSource {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LazyTslCertificateSource.class);
-  private transient TSLValidationJob tslValidationJob;
-  private TSLCertificateSource certificateSource;
-  private Long lastCacheReloadingTime;
+  private static final long FAILED_REFRESH_RETRY_DELAY_IN_MILLISECONDS = 60 * 1000;
+  private volatile TSLCertificateSourceImpl certificateSource;
+  private final TSLCertificateSourceImpl addedCertificates = new TSLCertificateSourceImpl();
+  private transient volatile TslSnapshot snapshot;
   private Long cacheExpirationTime;
-  private TslLoader tslLoader;
+  private volatile TslLoader tslLoader;
+  private volatile boolean backgroundRefresh;
+  private long refreshAheadTime;
+  private long maxStalenessTime;
+  private final AtomicBoolean backgroundRefreshScheduled = new AtomicBoolean(false);
+  private volatile boolean loading;
+  private volatile boolean loadingFailed;
 
   /**
    * @param tslLoader TSL loader
@@ -61,8 +83,12 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
   }
 
   @Override
-  public CertificateToken addCertificate(CertificateToken certificate) {
-    return this.getCertificateSource().addCertificate(certificate);
+  public synchronized CertificateToken addCertificate(CertificateToken certificate) {
+    TSLCertificateSourceImpl source = this.copyCertificateSource();
+    CertificateToken token = source.addCertificate(certificate);
+    this.addedCertificates.addCertificate(certificate);
+    this.publishSnapshot(this.tslLoader, source, this.snapshot.getLoadTime());
+    return token;
   }
 
   @Override
@@ -71,13 +97,20 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
   }
 
   @Override
-  public void addTSLCertificate(X509Certificate certificate) {
-    this.getCertificateSource().addTSLCertificate(certificate);
+  public synchronized void addTSLCertificate(X509Certificate certificate) {
+    TSLCertificateSourceImpl source = this.copyCertificateSource();
+    source.addTSLCertificate(certificate);
+    this.addedCertificates.addTSLCertificate(certificate);
+    this.publishSnapshot(this.tslLoader, source, this.snapshot.getLoadTime());
   }
 
   @Override
-  public CertificateToken addCertificate(CertificateToken certificate, ServiceInfo serviceInfo) {
-    return this.getCertificateSource().addCertificate(certificate, serviceInfo);
+  public synchronized CertificateToken addCertificate(CertificateToken certificate, ServiceInfo serviceInfo) {
+    TSLCertificateSourceImpl source = this.copyCertificateSource();
+    CertificateToken token = source.addCertificate(certificate, serviceInfo);
+    this.addedCertificates.addCertificate(certificate, serviceInfo);
+    this.publishSnapshot(this.tslLoader, source, this.snapshot.getLoadTime());
+    return token;
   }
 
   @Override
@@ -85,6 +118,60 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
     return this.getCertificateSource().getCertificates();
   }
 
+  /**
+   * Get the current TSL snapshot, loading or refreshing the TSL if the cache has expired.
+   *
+   * @return shared read-only TSL snapshot
+   */
+  public TslSnapshot getSnapshot() {
+    this.refreshIfCacheExpired();
+    return this.snapshot;
+  }
+
+  /**
+   * Starts loading TSL in the background, unless it is already loaded and its cache has not expired.
+   *
+   * @return future which completes with the state of the TSL after loading has finished
+   */
+  public Future<TslState> preload() {
+    LOGGER.debug("Preloading TSL in the background");
+    return TslRefreshScheduler.preload(new Callable<TslState>() {
+
+      @Override
+      public TslState call() {
+        try {
+          refreshIfCacheExpired();
+        } catch (RuntimeException e) {
+          LOGGER.warn("Preloading TSL failed: {}", e.getMessage());
+        }
+        return getState();
+      }
+
+    });
+  }
+
+  /**
+   * @return readiness state of the TSL
+   */
+  public TslState getState() {
+    TslSnapshot snapshot = this.snapshot;
+    if (snapshot == null) {
+      if (this.loading) {
+        return TslState.LOADING;
+      }
+      return this.loadingFailed ? TslState.FAILED : TslState.NOT_LOADED;
+    }
+    if (this.loadingFailed) {
+      return TslState.REFRESH_FAILED;
+    }
+    return this.isCacheExpired(snapshot) ? TslState.STALE : TslState.READY;
+  }
+
+  @Override
+  public CertificateIndex getCertificateIndex() {
+    return this.getSnapshot().getCertificateIndex();
+  }
+
   @Override
   public void invalidateCache() {
     LOGGER.debug("Invalidating TSL cache");
@@ -93,7 +180,7 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
 
   @Override
   public void refresh() {
-    this.refreshTsl();
+    this.refreshTsl(false);
   }
 
   /*
@@ -101,7 +188,10 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
    */
 
   protected void refreshIfCacheExpired() {
-    if (this.isCacheExpired()) {
+    TslSnapshot snapshot = this.snapshot;
+    if (this.backgroundRefresh && snapshot != null) {
+      this.refreshInBackgroundIfNeeded(snapshot);
+    } else if (this.isCacheExpired(snapshot)) {
       this.initTsl();
     }
   }
@@ -114,45 +204,176 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
 
   private synchronized void initTsl() {
     //Using double-checked locking to avoid other threads to start loading TSL
-    if (this.isCacheExpired()) {
+    if (this.isCacheExpired(this.snapshot)) {
       LOGGER.debug("Initializing TSL");
-      this.refreshTsl();
+      this.refreshTsl(this.snapshot == null);
     }
   }
 
-  private synchronized void refreshTsl() {
+  private synchronized void refreshTsl(boolean restoreSnapshot) {
+    this.loading = true;
+    boolean loaded = false;
     try {
-      this.populateTsl();
-      LOGGER.debug("Refreshing TSL");
-      this.tslValidationJob.refresh();
-      this.lastCacheReloadingTime = new Date().getTime();
+      TslLoader loader = this.createLoader();
+      Long restoredSnapshotTime = restoreSnapshot ? loader.restoreSnapshot() : null;
+      if (restoredSnapshotTime != null) {
+        this.publishSnapshot(loader, this.withAddedCertificates(loader.getTslCertificateSource()),
+            restoredSnapshotTime);
+      } else {
+        LOGGER.debug("Refreshing TSL");
+        loader.refresh();
+        loader.storeSnapshot();
+        this.publishSnapshot(loader, this.withAddedCertificates(loader.getTslCertificateSource()),
+            new Date().getTime());
+      }
       if (LOGGER.isDebugEnabled()) {
         LOGGER.debug("Finished refreshing TSL, cache expires at {}", this.getNextCacheExpirationDate());
       }
+      loaded = true;
+    } catch (DSSException e) {
+      throw new TslCertificateSourceInitializationException("Unable to load TSL", e);
+    } finally {
+      this.loadingFailed = !loaded;
+      this.loading = false;
+    }
+    if (this.backgroundRefresh) {
+      this.scheduleBackgroundRefresh(this.getTimeUntilBackgroundRefresh());
+    }
+  }
+
+  /**
+   * Creates a loader with a new certificate source. Trusted lists that have not changed are taken over from the
+   * current loader without parsing and validating them again.
+   */
+  private TslLoader createLoader() {
+    TslLoader loader = this.tslLoader.copy();
+    loader.prepareTsl(this.tslLoader);
+    return loader;
+  }
+
+  private void refreshInBackgroundIfNeeded(TslSnapshot snapshot) {
+    long cacheAge = new Date().getTime() - snapshot.getLoadTime();
+    if (cacheAge > this.cacheExpirationTime + this.maxStalenessTime) {
+      this.reloadStaleTsl();
+    } else if (cacheAge > this.cacheExpirationTime - this.getEffectiveRefreshAheadTime()) {
+      this.scheduleBackgroundRefresh(0);
+    }
+  }
+
+  private synchronized void reloadStaleTsl() {
+    //Using double-checked locking to avoid other threads to start loading TSL
+    long cacheAge = new Date().getTime() - this.snapshot.getLoadTime();
+    if (cacheAge > this.cacheExpirationTime + this.maxStalenessTime) {
+      LOGGER.warn("TSL has not been refreshed within allowed staleness time, reloading TSL synchronously");
+      this.reloadTsl();
+    }
+  }
+
+  private void scheduleBackgroundRefresh(long delayInMilliseconds) {
+    if (!this.backgroundRefreshScheduled.compareAndSet(false, true)) {
+      LOGGER.debug("Background TSL refresh is already scheduled");
+      return;
+    }
+    TslRefreshScheduler.schedule(new BackgroundRefreshTask(this), delayInMilliseconds);
+  }
+
+  private void runBackgroundRefresh() {
+    if (!this.backgroundRefresh) {
+      LOGGER.debug("Background TSL refresh has been disabled, stopping background refresh");
+      this.backgroundRefreshScheduled.set(false);
+      return;
+    }
+    try {
+      this.reloadTsl();
+    } catch (Exception e) {
+      LOGGER.warn("Background TSL refresh failed, continuing to use TSL loaded at {}: {}",
+          new Date(this.snapshot.getLoadTime()), e.getMessage());
+      this.backgroundRefreshScheduled.set(false);
+      this.scheduleBackgroundRefresh(FAILED_REFRESH_RETRY_DELAY_IN_MILLISECONDS);
+      return;
+    }
+    this.backgroundRefreshScheduled.set(false);
+    this.scheduleBackgroundRefresh(this.getTimeUntilBackgroundRefresh());
+  }
+
+  /**
+   * Loads TSL into a new certificate source and swaps it in only after loading has succeeded. Trusted lists that
+   * have not changed are taken over from the current loader without parsing and validating them again.
+   */
+  private void reloadTsl() {
+    LOGGER.debug("Loading TSL into a separate certificate source");
+    TslLoader loader;
+    try {
+      loader = this.createLoader();
+      loader.setCacheExpirationTime(this.cacheExpirationTime - this.getEffectiveRefreshAheadTime());
+      loader.refresh();
+      loader.storeSnapshot();
     } catch (DSSException e) {
+      this.loadingFailed = true;
       throw new TslCertificateSourceInitializationException("Unable to load TSL", e);
+    } catch (RuntimeException e) {
+      this.loadingFailed = true;
+      throw e;
+    }
+    synchronized (this) {
+      this.publishSnapshot(loader, this.withAddedCertificates(loader.getTslCertificateSource()), new Date().getTime());
+      this.loadingFailed = false;
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Finished reloading TSL, cache expires at {}", this.getNextCacheExpirationDate());
     }
   }
 
-  private void populateTsl() {
-    if (this.tslValidationJob == null || this.certificateSource == null) {
-      this.tslLoader.prepareTsl();
-      this.tslValidationJob = this.tslLoader.getTslValidationJob();
-      this.certificateSource = this.tslLoader.getTslCertificateSource();
+  private TSLCertificateSourceImpl copyCertificateSource() {
+    this.refreshIfCacheExpired();
+    return this.certificateSource.copy();
+  }
+
+  private TSLCertificateSourceImpl withAddedCertificates(TSLCertificateSourceImpl source) {
+    if (this.addedCertificates.getCertificates().isEmpty()) {
+      return source;
     }
+    TSLCertificateSourceImpl copy = source.isSealed() ? source.copy() : source;
+    copy.addCertificates(this.addedCertificates);
+    return copy;
+  }
+
+  /**
+   * Certificate source and the time it was loaded are published together in the immutable snapshot, so readers never
+   * see a new source with the load time of the previous one or no load time at all.
+   */
+  private void publishSnapshot(TslLoader loader, TSLCertificateSourceImpl source, long loadTime) {
+    long version = this.snapshot == null ? 1 : this.snapshot.getVersion() + 1;
+    source.seal();
+    this.tslLoader = loader;
+    this.certificateSource = source;
+    this.snapshot = new TslSnapshot(version, loadTime, source, source);
+    LOGGER.debug("Published TSL snapshot version {}", version);
+  }
+
+  private long getTimeUntilBackgroundRefresh() {
+    long refreshTime = this.snapshot.getLoadTime() + this.cacheExpirationTime - this.getEffectiveRefreshAheadTime();
+    return refreshTime - new Date().getTime();
+  }
+
+  /**
+   * Refresh-ahead time is limited to half of the cache expiration time to avoid refreshing TSL continuously.
+   */
+  private long getEffectiveRefreshAheadTime() {
+    return Math.max(0, Math.min(this.refreshAheadTime, this.cacheExpirationTime / 2));
   }
 
-  private boolean isCacheExpired() {
-    if (this.lastCacheReloadingTime == null) {
+  private boolean isCacheExpired(TslSnapshot snapshot) {
+    if (snapshot == null) {
       return true;
     }
     long currentTime = new Date().getTime();
-    long timeToReload = this.lastCacheReloadingTime + this.cacheExpirationTime;
+    long timeToReload = snapshot.getLoadTime() + this.cacheExpirationTime;
     return currentTime > timeToReload;
   }
 
   private String getNextCacheExpirationDate() {
-    return new Date(this.lastCacheReloadingTime + this.cacheExpirationTime).toString();
+    return new Date(this.snapshot.getLoadTime() + this.cacheExpirationTime).toString();
   }
 
   /*
@@ -160,7 +381,8 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
    */
 
   public Long getLastCacheReloadingTime() {
-    return lastCacheReloadingTime;
+    TslSnapshot snapshot = this.snapshot;
+    return snapshot == null ? null : snapshot.getLoadTime();
   }
 
   public Long getCacheExpirationTime() {
@@ -171,8 +393,56 @@ public class LazyTslCertificateSource implements TSLCertificateSource {
     this.cacheExpirationTime = cacheExpirationTime;
   }
 
+  public boolean isBackgroundRefresh() {
+    return backgroundRefresh;
+  }
+
+  public void setBackgroundRefresh(boolean backgroundRefresh) {
+    this.backgroundRefresh = backgroundRefresh;
+  }
+
+  public long getRefreshAheadTime() {
+    return refreshAheadTime;
+  }
+
+  public void setRefreshAheadTime(long refreshAheadTime) {
+    this.refreshAheadTime = refreshAheadTime;
+  }
+
+  public long getMaxStalenessTime() {
+    return maxStalenessTime;
+  }
+
+  public void setMaxStalenessTime(long maxStalenessTime) {
+    this.maxStalenessTime = maxStalenessTime;
+  }
+
   public TslLoader getTslLoader(){
     return tslLoader;
   }
 
+  /**
+   * Holds the certificate source weakly, so that a scheduled refresh does not keep an otherwise unused source alive.
+   * Refreshes of a garbage collected source are not rescheduled.
+   */
+  private static class BackgroundRefreshTask implements Runnable {
+
+    private final WeakReference<LazyTslCertificateSource> certificateSource;
+
+    BackgroundRefreshTask(LazyTslCertificateSource certificateSource) {
+      this.certificateSource = new WeakReference<>(certificateSource);
+    }
+
+    @Override
+    public void run() {
+      LazyTslCertificateSource source = this.certificateSource.get();
+      if (source == null) {
+        LOGGER.debug("TSL certificate source is no longer used, stopping background refresh");
+        return;
+      }
+      source.runBackgroundRefresh();
+    }
+
+  }
+
 }
@@ -0,0 +1,154 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.tsl.ServiceInfo;
+import eu.europa.esig.dss.x509.CertificatePool;
+import eu.europa.esig.dss.x509.CertificateSource;
+import eu.europa.esig.dss.x509.CertificateSourceType;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+/**
+ * Certificate pool of a single validation. Certificates of the shared TSL snapshot are looked up from its immutable
+ * {@link CertificateIndex} without locking and the snapshot is never modified. Certificates found within the
+ * signature and not present in the TSL are kept in a small overlay owned by this pool.
+ *
+ * The TSL snapshot is resolved on first access, so creating the pool does not load TSL. A certificate that is already
+ * present in the TSL is returned as is, the sources of the certificate in the current validation are not added to it.
+ * The overlay never contains TSL certificates.
+ */
+public class OverlayCertificatePool extends CertificatePool {
+
+  private static final Logger logger = LoggerFactory.getLogger(OverlayCertificatePool.class);
+  private final CertificateSource trustedCertSource;
+  private transient volatile CertificateIndex trustedCertificates;
+
+  /**
+   * @param trustedCertSource source of trusted certificates, resolved lazily
+   */
+  public OverlayCertificatePool(CertificateSource trustedCertSource) {
+    this.trustedCertSource = trustedCertSource;
+  }
+
+  /**
+   * @param snapshot TSL snapshot used as the base of the pool
+   */
+  public OverlayCertificatePool(TslSnapshot snapshot) {
+    this.trustedCertSource = snapshot.getCertificateSource();
+    this.trustedCertificates = snapshot.getCertificateIndex();
+  }
+
+  @Override
+  public List<CertificateToken> get(X500Principal x500Principal) {
+    List<CertificateToken> trusted = this.getTrustedCertificates().getBySubject(x500Principal);
+    List<CertificateToken> overlay = super.get(x500Principal);
+    if (overlay == null || overlay.isEmpty()) {
+      return trusted;
+    }
+    return this.combine(trusted, overlay);
+  }
+
+  @Override
+  public List<CertificateToken> getCertificateTokens() {
+    return this.combine(this.getTrustedCertificates().getCertificates(), super.getCertificateTokens());
+  }
+
+  @Override
+  public CertificateToken getInstance(CertificateToken cert, CertificateSourceType certSource) {
+    CertificateToken trusted = this.findTrusted(cert);
+    return trusted != null ? trusted : super.getInstance(cert, certSource);
+  }
+
+  @Override
+  public CertificateToken getInstance(CertificateToken cert, CertificateSourceType certSource,
+                                      ServiceInfo serviceInfo) {
+    CertificateToken trusted = this.findTrusted(cert);
+    return trusted != null ? trusted : super.getInstance(cert, certSource, serviceInfo);
+  }
+
+  @Override
+  public CertificateToken getInstance(CertificateToken certificateToAdd, Set<CertificateSourceType> sources,
+                                      Set<ServiceInfo> services) {
+    CertificateToken trusted = this.findTrusted(certificateToAdd);
+    return trusted != null ? trusted : super.getInstance(certificateToAdd, sources, services);
+  }
+
+  @Override
+  public int getNumberOfCertificates() {
+    return this.getTrustedCertificates().size() + super.getNumberOfCertificates();
+  }
+
+  /**
+   * Merges the certificates of the pool that are not in the TSL into the overlay.
+   */
+  @Override
+  public void merge(CertificatePool certPool) {
+    for (CertificateToken certificate : certPool.getCertificateTokens()) {
+      if (this.findTrusted(certificate) == null) {
+        super.getInstance(certificate, certPool.getSources(certificate.getDSSId()),
+            certPool.getRelatedServices(certificate));
+      }
+    }
+  }
+
+  /**
+   * @return number of certificates in the overlay of this validation
+   */
+  public int getNumberOfOverlayCertificates() {
+    return super.getNumberOfCertificates();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private CertificateIndex getTrustedCertificates() {
+    CertificateIndex index = this.trustedCertificates;
+    if (index == null) {
+      logger.debug("Resolving TSL snapshot of the validation pool");
+      index = this.resolveSnapshot().getCertificateIndex();
+      this.trustedCertificates = index;
+    }
+    return index;
+  }
+
+  private TslSnapshot resolveSnapshot() {
+    if (this.trustedCertSource instanceof SnapshotTslCertificateSource) {
+      return ((SnapshotTslCertificateSource) this.trustedCertSource).getSnapshot();
+    }
+    if (this.trustedCertSource instanceof LazyTslCertificateSource) {
+      return ((LazyTslCertificateSource) this.trustedCertSource).getSnapshot();
+    }
+    return TslSnapshot.of(this.trustedCertSource);
+  }
+
+  private CertificateToken findTrusted(CertificateToken certificate) {
+    return this.getTrustedCertificates().getByToken(certificate);
+  }
+
+  private List<CertificateToken> combine(List<CertificateToken> trusted, List<CertificateToken> overlay) {
+    List<CertificateToken> certificates = new ArrayList<>(trusted);
+    if (overlay != null) {
+      certificates.addAll(overlay);
+    }
+    return certificates;
+  }
+
+}
@@ -0,0 +1,91 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.util.List;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.tsl.TrustedListsCertificateSource;
+import eu.europa.esig.dss.x509.CertificatePool;
+import eu.europa.esig.dss.x509.CertificateSource;
+import eu.europa.esig.dss.x509.CertificateSourceType;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+/**
+ * Uses a shared read-only {@link TslSnapshot} so that each signature creation and validation process would see
+ * the same TSL without copying it. Certificates found within signatures are added only to the validation pool
+ * owned by this source, which avoids polluting the shared TSL.
+ */
+public class SnapshotTslCertificateSource implements CertificateSource {
+
+  private static final Logger logger = LoggerFactory.getLogger(SnapshotTslCertificateSource.class);
+  private CertificateSource certificateSource;
+  private transient TslSnapshot snapshot;
+  private transient CertificatePool validationPool;
+
+  /**
+   * @param certificateSource source of certificate
+   */
+  public SnapshotTslCertificateSource(CertificateSource certificateSource) {
+    logger.debug("Instantiating snapshot tsl cert source");
+    this.certificateSource = certificateSource;
+  }
+
+  /**
+   * Get the TSL snapshot used by this source. The snapshot is resolved on first access and stays the same for
+   * the lifetime of this object even if the TSL is refreshed meanwhile.
+   *
+   * @return TSL snapshot
+   */
+  public synchronized TslSnapshot getSnapshot() {
+    if (this.snapshot == null) {
+      if (this.certificateSource instanceof LazyTslCertificateSource) {
+        this.snapshot = ((LazyTslCertificateSource) this.certificateSource).getSnapshot();
+      } else {
+        this.snapshot = TslSnapshot.of(this.certificateSource);
+      }
+      logger.debug("Using TSL snapshot version {}", this.snapshot.getVersion());
+    }
+    return this.snapshot;
+  }
+
+  /**
+   * Get TrustedListsCertificateSource object defined in TslLoader.
+   *
+   * @return TrustedListsCertificateSource
+   */
+  public TrustedListsCertificateSource getTrustedListsCertificateSource() {
+    return this.getSnapshot().getTrustedListsCertificateSource();
+  }
+
+  @Override
+  public synchronized CertificatePool getCertificatePool() {
+    if (this.validationPool == null) {
+      this.validationPool = this.getSnapshot().createValidationPool();
+    }
+    return this.validationPool;
+  }
+
+  @Override
+  public CertificateToken addCertificate(CertificateToken certificate) {
+    return this.getCertificatePool().getInstance(certificate, CertificateSourceType.TRUSTED_LIST);
+  }
+
+  @Override
+  public List<CertificateToken> get(X500Principal x500Principal) {
+    return this.getCertificatePool().get(x500Principal);
+  }
+
+}
@@ -12,11 +12,16 @@ package org.digidoc4j.impl.asic.tsl;
 
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.exceptions.NotSupportedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,15 +30,24 @@ import eu.europa.esig.dss.tsl.KeyUsageBit;
 import eu.europa.esig.dss.tsl.KeyUsageCondition;
 import eu.europa.esig.dss.tsl.ServiceInfo;
 import eu.europa.esig.dss.tsl.ServiceInfoStatus;
+import eu.europa.esig.dss.tsl.TLInfo;
 import eu.europa.esig.dss.tsl.TrustedListsCertificateSource;
 import eu.europa.esig.dss.util.TimeDependentValues;
 import eu.europa.esig.dss.x509.CertificateToken;
 
 /**
  * Trusted List certificates
+ * <p/>
+ * A source published as a TSL snapshot is sealed and rejects adding certificates, a modified {@link #copy()} is
+ * published instead.
  */
-public class TSLCertificateSourceImpl extends TrustedListsCertificateSource implements TSLCertificateSource {
+public class TSLCertificateSourceImpl extends TrustedListsCertificateSource implements TSLCertificateSource,
+    IndexedCertificateSource {
   private static final Logger logger = LoggerFactory.getLogger(TSLCertificateSourceImpl.class);
+  private transient volatile CertificateIndex certificateIndex;
+  private transient volatile CertificateIndex previousCertificateIndex;
+  private final AtomicLong modificationCount = new AtomicLong();
+  private volatile boolean sealed;
 
   public TSLCertificateSourceImpl() {
   }
@@ -79,9 +93,129 @@ public class TSLCertificateSourceImpl extends TrustedListsCertificateSource impl
     TslLoader.invalidateCache();
   }
 
+  @Override
+  public CertificateToken addCertificate(CertificateToken certificate) {
+    this.checkNotSealed();
+    CertificateToken token = super.addCertificate(certificate);
+    this.modificationCount.incrementAndGet();
+    return token;
+  }
+
+  @Override
+  public CertificateToken addCertificate(CertificateToken certificate, ServiceInfo serviceInfo) {
+    this.checkNotSealed();
+    CertificateToken token = super.addCertificate(certificate, serviceInfo);
+    this.modificationCount.incrementAndGet();
+    return token;
+  }
+
+  /**
+   * Adds the certificates of the given source together with their service information. New certificate tokens are
+   * created, so the tokens of the given source are not modified.
+   *
+   * @param source source of the certificates to add
+   */
+  public void addCertificates(TSLCertificateSourceImpl source) {
+    for (CertificateToken certificate : source.getCertificates()) {
+      CertificateToken token = new CertificateToken(certificate.getCertificate());
+      Set<ServiceInfo> services = certificate.getAssociatedTSPS();
+      if (services == null || services.isEmpty()) {
+        this.addCertificate(token);
+      }
+      for (ServiceInfo serviceInfo : services == null ? Collections.<ServiceInfo>emptySet() : services) {
+        this.addCertificate(token, serviceInfo);
+      }
+    }
+  }
+
+  /**
+   * Adds the certificates and trusted list information of the given territories from the given source. New
+   * certificate tokens are created, so the tokens of the given source are not modified. The index of the given source
+   * is reused when indexing this source, so only certificates of other territories are parsed for the index.
+   *
+   * @param source      source of the certificates to add
+   * @param territories territories whose certificates are added
+   */
+  public void addTerritories(TSLCertificateSourceImpl source, Collection<String> territories) {
+    for (CertificateToken certificate : source.getCertificates()) {
+      Set<ServiceInfo> services = certificate.getAssociatedTSPS();
+      CertificateToken token = null;
+      for (ServiceInfo serviceInfo : services == null ? Collections.<ServiceInfo>emptySet() : services) {
+        if (territories.contains(serviceInfo.getTlCountryCode())) {
+          token = token == null ? new CertificateToken(certificate.getCertificate()) : token;
+          this.addCertificate(token, serviceInfo);
+        }
+      }
+    }
+    for (String territory : territories) {
+      TLInfo tlInfo = source.getSummary().get(territory);
+      if (tlInfo != null) {
+        this.updateTlInfo(territory, tlInfo);
+      }
+    }
+    this.previousCertificateIndex = source.certificateIndex;
+  }
+
+  /**
+   * Creates a copy of this source that is not sealed. Trusted list information of the territories is not copied.
+   *
+   * @return new source containing the certificates of this source
+   */
+  public TSLCertificateSourceImpl copy() {
+    TSLCertificateSourceImpl copy = new TSLCertificateSourceImpl();
+    copy.addCertificates(this);
+    copy.previousCertificateIndex = this.certificateIndex;
+    return copy;
+  }
+
+  /**
+   * Prevents adding certificates to this source.
+   */
+  public void seal() {
+    this.sealed = true;
+  }
+
+  public boolean isSealed() {
+    return sealed;
+  }
+
   @Override
   public void refresh() {
     logger.warn("Not possible to refresh this certificate source");
   }
 
+  /**
+   * Index is rebuilt when certificates have been added after the index was created. Certificates already indexed in
+   * the previous index of this source or of the source it was copied from are not parsed again.
+   *
+   * @return index of the TSL certificates
+   */
+  @Override
+  public CertificateIndex getCertificateIndex() {
+    CertificateIndex currentIndex = this.certificateIndex;
+    CertificateIndex index = CertificateIndex.refresh(currentIndex,
+        currentIndex == null ? this.previousCertificateIndex : currentIndex, this.getCertificatePool(),
+        this.modificationCount.get());
+    this.certificateIndex = index;
+    this.previousCertificateIndex = null;
+    return index;
+  }
+
+  /**
+   * Forces the certificate index to be rebuilt on next access.
+   */
+  public void invalidateCertificateIndex() {
+    this.certificateIndex = null;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void checkNotSealed() {
+    if (this.sealed) {
+      throw new NotSupportedException("Adding certificates to a published TSL, add them through the configuration TSL");
+    }
+  }
+
 }
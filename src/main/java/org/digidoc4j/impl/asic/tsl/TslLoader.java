@@ -14,8 +14,24 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.codec.binary.Hex;
 
 import org.apache.commons.io.FileUtils;
 import org.digidoc4j.Configuration;
@@ -30,6 +46,8 @@ import eu.europa.esig.dss.DSSException;
 import eu.europa.esig.dss.client.http.DataLoader;
 import eu.europa.esig.dss.client.http.Protocol;
 import eu.europa.esig.dss.client.http.commons.CommonsDataLoader;
+import eu.europa.esig.dss.tsl.TSLParserResult;
+import eu.europa.esig.dss.tsl.TSLValidationModel;
 import eu.europa.esig.dss.tsl.service.TSLRepository;
 import eu.europa.esig.dss.tsl.service.TSLValidationJob;
 import eu.europa.esig.dss.x509.KeyStoreCertificateSource;
@@ -42,11 +60,15 @@ public class TslLoader implements Serializable {
   public static final File fileCacheDirectory = new File(System.getProperty("java.io.tmpdir") + "/digidoc4jTSLCache");
   private static final Logger logger = LoggerFactory.getLogger(TslLoader.class);
   private static final String DEFAULT_KEYSTORE_TYPE = "JKS";
+  private static final String SNAPSHOT_FILE_PREFIX = "tsl-snapshot-";
+  private static final Map<Integer, ExecutorService> defaultExecutorServices = new HashMap<>();
   private transient TSLRepository tslRepository;
   private transient TSLCertificateSourceImpl tslCertificateSource;
+  private transient TSLCertificateSourceImpl previousCertificateSource;
   private transient TSLValidationJob tslValidationJob;
   private Configuration configuration;
   private boolean checkSignature = true;
+  private Long cacheExpirationTime;
 
   /**
    * @param configuration configuration context
@@ -68,17 +90,225 @@ public class TslLoader implements Serializable {
     }
   }
 
+  /**
+   * Shuts down the thread pools loading trusted lists of configurations without own TSL thread executor. Thread pools
+   * given by {@link Configuration#setTslThreadExecutor} are left to their owners.
+   */
+  public static synchronized void shutdown() {
+    for (ExecutorService executorService : TslLoader.defaultExecutorServices.values()) {
+      executorService.shutdown();
+    }
+    TslLoader.defaultExecutorServices.clear();
+  }
+
+  /**
+   * Creates a new loader with the same settings. The new loader does not share any loaded TSL objects with this one.
+   *
+   * @return new TSL loader
+   */
+  public TslLoader copy() {
+    TslLoader loader = new TslLoader(this.configuration);
+    loader.setCheckSignature(this.checkSignature);
+    loader.setCacheExpirationTime(this.cacheExpirationTime);
+    return loader;
+  }
+
   public void prepareTsl() {
+    this.prepareTsl(new TSLRepository());
+    this.tslRepository.setTrustedListsCertificateSource(this.tslCertificateSource);
+  }
+
+  /**
+   * Prepares a new TSL certificate source which reuses the trusted lists already parsed and validated by the given
+   * loader. The new loader gets its own repository seeded with the trusted lists of the previous loader. On refresh,
+   * only the trusted lists whose content has changed are parsed, validated and added to the new certificate source.
+   * Certificates of the unchanged trusted lists are taken over from the certificate source of the previous loader.
+   * The previous loader and its certificate source are not modified.
+   *
+   * @param previousLoader loader of the currently used TSL
+   */
+  public void prepareTsl(TslLoader previousLoader) {
+    if (previousLoader.getTslRepository() == null) {
+      this.prepareTsl();
+    } else {
+      this.prepareTsl(TslLoader.copyRepository(previousLoader.getTslRepository()));
+      this.tslRepository.setTrustedListsCertificateSource(this.tslCertificateSource);
+      this.previousCertificateSource = previousLoader.getTslCertificateSource();
+    }
+  }
+
+  /**
+   * Downloads and validates the trusted lists. Trusted lists of different territories are loaded in parallel and
+   * a territory that fails to load or times out does not prevent loading the other territories.
+   */
+  public void refresh() {
+    Map<String, TSLValidationModel> previousModels = new HashMap<>(
+        this.tslRepository.getAllMapTSLValidationModels());
+    Map<String, Integer> previousSequenceNumbers = this.getSequenceNumbers();
+    this.tslValidationJob.refresh();
+    this.logChangedTerritories(previousSequenceNumbers, this.getSequenceNumbers());
+    if (this.previousCertificateSource != null) {
+      this.addUnchangedTerritories(previousModels);
+      this.previousCertificateSource = null;
+    }
+    this.logMissingTerritories();
+  }
+
+  /**
+   * Replaces the prepared TSL certificate source with the one stored in the persistent TSL snapshot, if snapshots
+   * are enabled and a valid snapshot exists. Must be called after {@link #prepareTsl()}.
+   *
+   * @return creation time of the restored snapshot in milliseconds or null if the snapshot was not restored
+   */
+  public Long restoreSnapshot() {
+    if (!this.configuration.isTslPersistentSnapshot()) {
+      return null;
+    }
+    TslSnapshotStore store = this.createSnapshotStore();
+    TslSnapshotStore.LoadedSnapshot snapshot = store == null ? null : store.load(this.getCacheExpirationTime());
+    if (snapshot == null) {
+      return null;
+    }
+    this.tslCertificateSource = snapshot.getCertificateSource();
+    this.tslRepository.setTrustedListsCertificateSource(this.tslCertificateSource);
+    logger.info("Restored TSL from snapshot created at {}", new Date(snapshot.getCreationTime()));
+    return snapshot.getCreationTime();
+  }
+
+  /**
+   * Writes the loaded TSL into the persistent TSL snapshot, if snapshots are enabled. Must be called only after the
+   * TSL has been successfully loaded and validated.
+   */
+  public void storeSnapshot() {
+    TslSnapshotStore store = this.configuration.isTslPersistentSnapshot() ? this.createSnapshotStore() : null;
+    if (store != null) {
+      store.save(this.tslCertificateSource, this.tslRepository);
+    }
+  }
+
+  private TslSnapshotStore createSnapshotStore() {
+    String configurationKey = this.configuration.getTslLocation() + "|" + this.configuration.getTrustedTerritories()
+        + "|" + this.checkSignature;
+    String snapshotFileName = SNAPSHOT_FILE_PREFIX + Hex.encodeHexString(this.sha256(configurationKey.getBytes(
+        StandardCharsets.UTF_8))).substring(0, 16) + ".bin";
+    return TslSnapshotStore.create(new File(this.configuration.getTslSnapshotDirectory()), snapshotFileName,
+        this.createSnapshotKeyMaterial(configurationKey));
+  }
+
+  /**
+   * Binds the snapshot to the TSL keystore and TSL configuration it was validated with. The seal key is derived from
+   * it together with the secret of the snapshot directory.
+   */
+  private byte[] createSnapshotKeyMaterial(String configurationKey) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(Files.readAllBytes(this.getTslKeystoreFile().toPath()));
+      digest.update(this.configuration.getTslKeyStorePassword().getBytes(StandardCharsets.UTF_8));
+      digest.update(configurationKey.getBytes(StandardCharsets.UTF_8));
+      return digest.digest();
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new TslCertificateSourceInitializationException("Unable to create TSL snapshot seal key", e);
+    }
+  }
+
+  private byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new TslCertificateSourceInitializationException("Unable to create TSL snapshot file name", e);
+    }
+  }
+
+  private void prepareTsl(TSLRepository repository) {
     try {
       this.tslCertificateSource = new TSLCertificateSourceImpl();
-      this.tslRepository = new TSLRepository();
-      this.tslRepository.setTrustedListsCertificateSource(this.tslCertificateSource);
+      this.tslRepository = repository;
       this.tslValidationJob = this.createTslValidationJob(this.tslRepository);
     } catch (DSSException e) {
       throw new TslCertificateSourceInitializationException("Unable to load TSL", e);
     }
   }
 
+  /**
+   * Seeds a new repository with the trusted lists of the given one. The copies are marked synchronized, so that the
+   * refresh adds to the new certificate source only the trusted lists it replaces because their content has changed.
+   * Trusted lists filed under a territory other than their own are not copied and are loaded again.
+   */
+  private static TSLRepository copyRepository(TSLRepository repository) {
+    TSLRepository copy = new TSLRepository();
+    for (Map.Entry<String, TSLValidationModel> entry : repository.getAllMapTSLValidationModels().entrySet()) {
+      TSLValidationModel model = entry.getValue();
+      TSLParserResult parseResult = model.getParseResult();
+      if (parseResult == null || !entry.getKey().equals(parseResult.getTerritory())) {
+        logger.debug("Not reusing previously loaded trusted list of <{}>", entry.getKey());
+        continue;
+      }
+      copy.addParsedResultFromCacheToMap(parseResult);
+      TSLValidationModel copiedModel = copy.getByCountry(entry.getKey());
+      copiedModel.setUrl(model.getUrl());
+      copiedModel.setSha256FileContent(model.getSha256FileContent());
+      copiedModel.setFilepath(model.getFilepath());
+      copiedModel.setLoadedDate(model.getLoadedDate());
+      copiedModel.setValidationResult(model.getValidationResult());
+      copiedModel.setCertificateSourceSynchronized(true);
+    }
+    return copy;
+  }
+
+  /**
+   * Takes over the certificates and trusted list information of the territories whose trusted list content and
+   * sequence number have not changed from the previous certificate source. Territories already synchronized into the
+   * new certificate source by the refresh are not taken over.
+   */
+  private void addUnchangedTerritories(Map<String, TSLValidationModel> previousModels) {
+    Set<String> territories = new HashSet<>();
+    for (Map.Entry<String, TSLValidationModel> entry : previousModels.entrySet()) {
+      TSLValidationModel model = this.tslRepository.getByCountry(entry.getKey());
+      if (model != null && TslLoader.isUnchanged(entry.getValue(), model)
+          && !this.tslCertificateSource.getSummary().containsKey(entry.getKey())) {
+        territories.add(entry.getKey());
+      }
+    }
+    logger.debug("Taking over certificates of {} unchanged trusted lists", territories.size());
+    this.tslCertificateSource.addTerritories(this.previousCertificateSource, territories);
+  }
+
+  private static boolean isUnchanged(TSLValidationModel previousModel, TSLValidationModel model) {
+    TSLParserResult previousParseResult = previousModel.getParseResult();
+    TSLParserResult parseResult = model.getParseResult();
+    return previousParseResult != null && parseResult != null
+        && previousParseResult.getSequenceNumber() == parseResult.getSequenceNumber()
+        && Objects.equals(previousModel.getSha256FileContent(), model.getSha256FileContent());
+  }
+
+  private Map<String, Integer> getSequenceNumbers() {
+    Map<String, Integer> sequenceNumbers = new HashMap<>();
+    for (Map.Entry<String, TSLValidationModel> entry : this.tslRepository.getAllMapTSLValidationModels().entrySet()) {
+      TSLParserResult parseResult = entry.getValue().getParseResult();
+      if (parseResult != null) {
+        sequenceNumbers.put(entry.getKey(), parseResult.getSequenceNumber());
+      }
+    }
+    return sequenceNumbers;
+  }
+
+  private void logChangedTerritories(Map<String, Integer> previousSequenceNumbers,
+                                     Map<String, Integer> sequenceNumbers) {
+    if (previousSequenceNumbers.isEmpty()) {
+      return;
+    }
+    for (Map.Entry<String, Integer> entry : sequenceNumbers.entrySet()) {
+      Integer previousSequenceNumber = previousSequenceNumbers.get(entry.getKey());
+      if (previousSequenceNumber == null || previousSequenceNumber.intValue() != entry.getValue().intValue()) {
+        logger.info("Trusted list of <{}> has changed, sequence number {} -> {}", entry.getKey(),
+            previousSequenceNumber, entry.getValue());
+      }
+      if (previousSequenceNumber != null && entry.getValue() < previousSequenceNumber) {
+        logger.warn("Trusted list of <{}> has lower sequence number than the previously loaded one", entry.getKey());
+      }
+    }
+  }
+
   private TSLValidationJob createTslValidationJob(TSLRepository repository) {
     TSLValidationJob job = new TSLValidationJob();
     job.setDataLoader(this.createDataLoader());
@@ -91,15 +321,61 @@ public class TslLoader implements Serializable {
     job.setOjUrl("");
     job.setFilterTerritories(this.configuration.getTrustedTerritories());
     job.setLotlRootSchemeInfoUri("");
+    job.setExecutorService(this.getExecutorService());
     return job;
   }
 
+  private ExecutorService getExecutorService() {
+    if (this.configuration.getTslThreadExecutor() != null) {
+      return this.configuration.getTslThreadExecutor();
+    }
+    return TslLoader.getDefaultExecutorService(this.configuration.getTslLoaderThreads());
+  }
+
+  private static synchronized ExecutorService getDefaultExecutorService(int threads) {
+    //Loaders with the same number of threads share a thread pool
+    final int poolSize = Math.max(1, threads);
+    ExecutorService executorService = TslLoader.defaultExecutorServices.get(poolSize);
+    if (executorService == null || executorService.isShutdown()) {
+      logger.debug("Initializing TSL loader thread pool with <{}> threads", poolSize);
+      executorService = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "digidoc4j-tsl-loader-" + poolSize);
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+      TslLoader.defaultExecutorServices.put(poolSize, executorService);
+    }
+    return executorService;
+  }
+
+  private void logMissingTerritories() {
+    List<String> territories = this.configuration.getTrustedTerritories();
+    if (territories == null || territories.isEmpty() || this.tslRepository == null) {
+      return;
+    }
+    List<String> missingTerritories = new ArrayList<>();
+    for (String territory : territories) {
+      if (!this.tslRepository.getAllMapTSLValidationModels().containsKey(territory)) {
+        missingTerritories.add(territory);
+      }
+    }
+    if (!missingTerritories.isEmpty()) {
+      logger.warn("Trusted lists of territories {} were not loaded, continuing without them", missingTerritories);
+    }
+  }
+
   private DataLoader createDataLoader() {
     if (Protocol.isHttpUrl(this.configuration.getTslLocation())) {
       CachingDataLoader dataLoader = new CachingDataLoader(this.configuration);
-      dataLoader.setTimeoutConnection(this.configuration.getConnectionTimeout());
-      dataLoader.setTimeoutSocket(this.configuration.getSocketTimeout());
-      dataLoader.setCacheExpirationTime(this.configuration.getTslCacheExpirationTime());
+      dataLoader.setTimeoutConnection(this.limitToTerritoryTimeout(this.configuration.getConnectionTimeout()));
+      dataLoader.setTimeoutSocket(this.limitToTerritoryTimeout(this.configuration.getSocketTimeout()));
+      dataLoader.setDownloadTimeout(this.configuration.getTslTerritoryTimeout());
+      dataLoader.setCacheExpirationTime(this.getCacheExpirationTime());
       dataLoader.setFileCacheDirectory(this.fileCacheDirectory);
       logger.debug("Using file cache directory for storing TSL: {}", this.fileCacheDirectory);
       return dataLoader;
@@ -108,6 +384,21 @@ public class TslLoader implements Serializable {
     }
   }
 
+  private int limitToTerritoryTimeout(int timeout) {
+    long territoryTimeout = this.configuration.getTslTerritoryTimeout();
+    if (territoryTimeout > 0 && (timeout <= 0 || timeout > territoryTimeout)) {
+      return (int) Math.min(territoryTimeout, Integer.MAX_VALUE);
+    }
+    return timeout;
+  }
+
+  private long getCacheExpirationTime() {
+    if (this.cacheExpirationTime != null) {
+      return this.cacheExpirationTime;
+    }
+    return this.configuration.getTslCacheExpirationTime();
+  }
+
   private KeyStoreCertificateSource getKeyStore() {
     File tslKeystoreFile = this.getTslKeystoreFile();
     try {
@@ -145,6 +436,16 @@ public class TslLoader implements Serializable {
     this.checkSignature = checkSignature;
   }
 
+  /**
+   * Overrides the expiration time of the cached TSL files. By default TSL cache expiration time of the
+   * configuration is used.
+   *
+   * @param cacheExpirationTime expiration time of the cached files in milliseconds
+   */
+  public void setCacheExpirationTime(Long cacheExpirationTime) {
+    this.cacheExpirationTime = cacheExpirationTime;
+  }
+
   public TSLCertificateSourceImpl getTslCertificateSource() {
     return tslCertificateSource;
   }
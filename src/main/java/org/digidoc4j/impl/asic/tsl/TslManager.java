@@ -11,9 +11,13 @@
 package org.digidoc4j.impl.asic.tsl;
 
 import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.digidoc4j.Configuration;
 import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.TslState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +25,8 @@ public class TslManager implements Serializable {
 
   private static final Logger logger = LoggerFactory.getLogger(TslManager.class);
   private TSLCertificateSource tslCertificateSource;
+  private boolean tslLoadedByManager;
+  private transient LazyTslCertificateSource sharedTslCertificateSource;
   private Configuration configuration;
 
   public TslManager(Configuration configuration) {
@@ -32,14 +38,107 @@ public class TslManager implements Serializable {
       logger.debug("Using TSL cached copy");
       return tslCertificateSource;
     }
+    if (this.configuration.isTslShared()) {
+      return this.getSharedTsl();
+    }
     this.loadTsl();
     return this.tslCertificateSource;
   }
 
   public void setTsl(TSLCertificateSource certificateSource) {
+    this.releaseSharedTsl();
     this.tslCertificateSource = certificateSource;
+    this.tslLoadedByManager = false;
+  }
+
+  /**
+   * Releases the shared TSL acquired by this manager. The shared TSL is removed from the registry, and its background
+   * refresh stopped, after every configuration that acquired it has released it. The next {@link #getTsl()} acquires
+   * the shared TSL again.
+   */
+  public synchronized void releaseSharedTsl() {
+    if (this.sharedTslCertificateSource != null) {
+      TslRegistry.release(this.sharedTslCertificateSource);
+      this.sharedTslCertificateSource = null;
+    }
+  }
+
+  /**
+   * Drops the TSL loaded according to the configuration, so that the next {@link #getTsl()} takes the TSL according
+   * to the changed configuration. A TSL given by {@link #setTsl(TSLCertificateSource)} is kept.
+   */
+  public synchronized void resetLoadedTsl() {
+    this.releaseSharedTsl();
+    if (this.tslLoadedByManager) {
+      this.tslCertificateSource = null;
+      this.tslLoadedByManager = false;
+    }
+  }
+
+  /**
+   * Starts loading TSL in the background.
+   *
+   * @return future which completes with the state of the TSL after loading has finished
+   */
+  public Future<TslState> preloadTsl() {
+    TSLCertificateSource tsl = this.getTsl();
+    if (tsl instanceof LazyTslCertificateSource) {
+      return ((LazyTslCertificateSource) tsl).preload();
+    }
+    FutureTask<TslState> future = new FutureTask<>(new Callable<TslState>() {
+
+      @Override
+      public TslState call() {
+        return TslState.READY;
+      }
+
+    });
+    future.run();
+    return future;
   }
 
+  /**
+   * Returns the readiness state of the TSL without loading it.
+   *
+   * @return TSL state
+   */
+  public TslState getTslState() {
+    TSLCertificateSource tsl = this.tslCertificateSource != null ? this.tslCertificateSource
+        : this.sharedTslCertificateSource;
+    if (tsl == null && this.configuration.isTslShared()) {
+      //Shared TSL may already be loaded by another configuration
+      tsl = TslRegistry.find(this.configuration);
+    }
+    if (tsl == null) {
+      return TslState.NOT_LOADED;
+    }
+    if (tsl instanceof LazyTslCertificateSource) {
+      return ((LazyTslCertificateSource) tsl).getState();
+    }
+    return TslState.READY;
+  }
+
+  /**
+   * Creates a lazily loaded TSL certificate source according to the configuration.
+   *
+   * @param configuration configuration context
+   * @return TSL certificate source
+   */
+  static LazyTslCertificateSource createLazyTsl(Configuration configuration) {
+    TslLoader tslLoader = new TslLoader(configuration);
+    tslLoader.setCheckSignature(configuration.shouldValidateTslSignature());
+    LazyTslCertificateSource lazyTsl = new LazyTslCertificateSource(tslLoader);
+    lazyTsl.setCacheExpirationTime(configuration.getTslCacheExpirationTime());
+    lazyTsl.setBackgroundRefresh(configuration.isTslBackgroundRefresh());
+    lazyTsl.setRefreshAheadTime(configuration.getTslRefreshAheadTime());
+    lazyTsl.setMaxStalenessTime(configuration.getTslMaxStalenessTime());
+    return lazyTsl;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
   /**
    * Loading TSL in a single thread in a synchronized block to avoid duplicate TSL loading by multiple threads.
    */
@@ -47,13 +146,20 @@ public class TslManager implements Serializable {
     //Using double-checked locking to avoid other threads to start loading TSL
     if (this.tslCertificateSource == null) {
       logger.debug("Loading TSL in a synchronized block");
-      TslLoader tslLoader = new TslLoader(this.configuration);
-      tslLoader.setCheckSignature(this.configuration.shouldValidateTslSignature());
-      LazyTslCertificateSource lazyTsl = new LazyTslCertificateSource(tslLoader);
-      lazyTsl.setCacheExpirationTime(this.configuration.getTslCacheExpirationTime());
-      this.tslCertificateSource = lazyTsl;
+      this.tslCertificateSource = TslManager.createLazyTsl(this.configuration);
+      this.tslLoadedByManager = true;
       logger.debug("Finished loading TSL in a synchronized block");
     }
   }
 
+  /**
+   * Shared TSL is not serialized with the configuration, a copy of the configuration acquires its own reference.
+   */
+  private synchronized TSLCertificateSource getSharedTsl() {
+    if (this.sharedTslCertificateSource == null) {
+      this.sharedTslCertificateSource = TslRegistry.acquire(this.configuration);
+    }
+    return this.sharedTslCertificateSource;
+  }
+
 }
@@ -0,0 +1,120 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler running background TSL refreshes. A single daemon thread is shared by all TSL sources.
+ * <p/>
+ * Preloading runs in a separate small pool of daemon threads, so that loading one TSL for the first time does not
+ * wait behind refreshes of other TSLs or delay them.
+ */
+public final class TslRefreshScheduler {
+
+  private static final Logger logger = LoggerFactory.getLogger(TslRefreshScheduler.class);
+  private static final int PRELOAD_THREADS = 4;
+  private static final long PRELOAD_THREAD_KEEP_ALIVE_IN_SECONDS = 60;
+  private static ScheduledExecutorService scheduler;
+  private static ThreadPoolExecutor preloadExecutor;
+
+  private TslRefreshScheduler() {
+  }
+
+  /**
+   * Schedules a task to be run after the given delay.
+   *
+   * @param task    task to run
+   * @param delayInMilliseconds delay in milliseconds
+   * @return future of the scheduled task
+   */
+  public static ScheduledFuture<?> schedule(Runnable task, long delayInMilliseconds) {
+    logger.debug("Scheduling TSL refresh in {} ms", delayInMilliseconds);
+    return TslRefreshScheduler.getScheduler().schedule(task, Math.max(0, delayInMilliseconds), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Submits a TSL preloading task to be run as soon as possible in the preloading thread pool.
+   *
+   * @param task task to run
+   * @param <T> type of the task result
+   * @return future of the task
+   */
+  public static <T> Future<T> preload(Callable<T> task) {
+    return TslRefreshScheduler.getPreloadExecutor().submit(task);
+  }
+
+  /**
+   * Stops the scheduler and preloading threads. Scheduled refreshes that have not started yet are discarded.
+   */
+  public static synchronized void shutdown() {
+    if (TslRefreshScheduler.scheduler != null) {
+      TslRefreshScheduler.scheduler.shutdownNow();
+      TslRefreshScheduler.scheduler = null;
+    }
+    if (TslRefreshScheduler.preloadExecutor != null) {
+      TslRefreshScheduler.preloadExecutor.shutdownNow();
+      TslRefreshScheduler.preloadExecutor = null;
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static synchronized ScheduledExecutorService getScheduler() {
+    if (TslRefreshScheduler.scheduler == null) {
+      logger.debug("Initializing TSL refresh scheduler");
+      TslRefreshScheduler.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "digidoc4j-tsl-refresh");
+          thread.setDaemon(true);
+          return thread;
+        }
+
+      });
+    }
+    return TslRefreshScheduler.scheduler;
+  }
+
+  private static synchronized ThreadPoolExecutor getPreloadExecutor() {
+    if (TslRefreshScheduler.preloadExecutor == null) {
+      TslRefreshScheduler.preloadExecutor = new ThreadPoolExecutor(PRELOAD_THREADS, PRELOAD_THREADS,
+          PRELOAD_THREAD_KEEP_ALIVE_IN_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "digidoc4j-tsl-preload");
+              thread.setDaemon(true);
+              return thread;
+            }
+
+          });
+      TslRefreshScheduler.preloadExecutor.allowCoreThreadTimeOut(true);
+    }
+    return TslRefreshScheduler.preloadExecutor;
+  }
+
+}
@@ -0,0 +1,173 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.digidoc4j.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of shared TSL certificate sources.
+ * <p/>
+ * Configurations with the same TSL location, TSL keystore, trusted territories and TSL signature checking share one
+ * loaded and indexed TSL certificate source. The source is created from a copy of the configuration that acquired it
+ * first, so other TSL settings, like cache expiration and background refresh, are taken from that configuration and
+ * later changes of it don't affect the shared source. The registry counts the acquisitions of every source and
+ * removes the source, stopping its background refresh, when the last acquisition has been released.
+ */
+public final class TslRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(TslRegistry.class);
+  private static final Map<Key, Entry> entries = new HashMap<>();
+
+  private TslRegistry() {
+  }
+
+  /**
+   * Returns the shared TSL certificate source matching the configuration, creating it if necessary. Every
+   * acquisition must be released by {@link #release(LazyTslCertificateSource)} when the source is no longer used.
+   *
+   * @param configuration configuration context
+   * @return shared TSL certificate source
+   */
+  public static synchronized LazyTslCertificateSource acquire(Configuration configuration) {
+    Key key = new Key(configuration);
+    Entry entry = TslRegistry.entries.get(key);
+    if (entry == null) {
+      logger.debug("Creating shared TSL for <{}>", configuration.getTslLocation());
+      entry = new Entry(TslManager.createLazyTsl(configuration.copy()));
+      TslRegistry.entries.put(key, entry);
+    }
+    entry.references++;
+    return entry.certificateSource;
+  }
+
+  /**
+   * Releases an acquisition of the shared TSL certificate source. The source is removed from the registry and its
+   * background refresh is stopped when the last acquisition has been released.
+   *
+   * @param certificateSource shared TSL certificate source
+   */
+  public static synchronized void release(LazyTslCertificateSource certificateSource) {
+    Iterator<Map.Entry<Key, Entry>> iterator = TslRegistry.entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Entry> mapEntry = iterator.next();
+      Entry entry = mapEntry.getValue();
+      if (entry.certificateSource == certificateSource) {
+        entry.references--;
+        if (entry.references == 0) {
+          logger.debug("Removing shared TSL for <{}>", mapEntry.getKey().tslLocation);
+          iterator.remove();
+          certificateSource.setBackgroundRefresh(false);
+        }
+        return;
+      }
+    }
+    logger.warn("Released TSL is not shared through the registry");
+  }
+
+  /**
+   * Returns the shared TSL certificate source matching the configuration without creating it.
+   *
+   * @param configuration configuration context
+   * @return shared TSL certificate source or null if no configuration has acquired it
+   */
+  public static synchronized LazyTslCertificateSource find(Configuration configuration) {
+    Entry entry = TslRegistry.entries.get(new Key(configuration));
+    return entry == null ? null : entry.certificateSource;
+  }
+
+  /**
+   * @return number of shared TSL certificate sources in the registry
+   */
+  public static synchronized int size() {
+    return TslRegistry.entries.size();
+  }
+
+  /**
+   * @param certificateSource TSL certificate source
+   * @return true if the TSL certificate source is shared through the registry
+   */
+  public static synchronized boolean contains(LazyTslCertificateSource certificateSource) {
+    for (Entry entry : TslRegistry.entries.values()) {
+      if (entry.certificateSource == certificateSource) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static class Entry {
+
+    private final LazyTslCertificateSource certificateSource;
+    private int references;
+
+    Entry(LazyTslCertificateSource certificateSource) {
+      this.certificateSource = certificateSource;
+    }
+
+  }
+
+  private static class Key {
+
+    private final String tslLocation;
+    private final String tslKeyStoreLocation;
+    private final String tslKeyStorePassword;
+    private final List<String> trustedTerritories;
+    private final boolean validateTslSignature;
+
+    Key(Configuration configuration) {
+      this.tslLocation = configuration.getTslLocation();
+      this.tslKeyStoreLocation = configuration.getTslKeyStoreLocation();
+      this.tslKeyStorePassword = configuration.getTslKeyStorePassword();
+      List<String> territories = configuration.getTrustedTerritories();
+      this.trustedTerritories = territories == null ? Collections.<String>emptyList()
+          : Collections.unmodifiableList(new ArrayList<>(territories));
+      this.validateTslSignature = configuration.shouldValidateTslSignature();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return this.validateTslSignature == key.validateTslSignature
+          && Objects.equals(this.tslLocation, key.tslLocation)
+          && Objects.equals(this.tslKeyStoreLocation, key.tslKeyStoreLocation)
+          && Objects.equals(this.tslKeyStorePassword, key.tslKeyStorePassword)
+          && Objects.equals(this.trustedTerritories, key.trustedTerritories);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.tslLocation, this.tslKeyStoreLocation, this.tslKeyStorePassword,
+          this.trustedTerritories, this.validateTslSignature);
+    }
+
+  }
+
+}
@@ -0,0 +1,119 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.tsl.TrustedListsCertificateSource;
+import eu.europa.esig.dss.x509.CertificatePool;
+import eu.europa.esig.dss.x509.CertificateSource;
+
+/**
+ * Versioned read-only view of a loaded TSL. A new snapshot is published every time the TSL is refreshed and
+ * all signature creation and validation processes share the same snapshot instead of cloning the TSL.
+ *
+ * Nothing must be added to the certificate source of a snapshot. Certificates found within signatures are
+ * collected into a separate validation pool created by {@link #createValidationPool()}.
+ */
+public final class TslSnapshot {
+
+  private static final Logger logger = LoggerFactory.getLogger(TslSnapshot.class);
+  private final long version;
+  private final Date creationTime;
+  private final long loadTime;
+  private final CertificateSource certificateSource;
+  private final TrustedListsCertificateSource trustedListsCertificateSource;
+  private volatile CertificateIndex certificateIndex;
+
+  /**
+   * @param version                       version of the snapshot, increases with every TSL refresh
+   * @param loadTime                      time the TSL was loaded in milliseconds, the cache expiration time of the
+   *                                      TSL is counted from it
+   * @param certificateSource             loaded TSL certificate source
+   * @param trustedListsCertificateSource trusted lists certificate source used by DSS, may be null
+   */
+  public TslSnapshot(long version, long loadTime, CertificateSource certificateSource,
+                     TrustedListsCertificateSource trustedListsCertificateSource) {
+    this.version = version;
+    this.creationTime = new Date();
+    this.loadTime = loadTime;
+    this.certificateSource = certificateSource;
+    this.trustedListsCertificateSource = trustedListsCertificateSource;
+  }
+
+  /**
+   * Wraps a certificate source that is not refreshed by DigiDoc4J (e.g. a TSL set manually by the user).
+   *
+   * @param certificateSource source of certificates
+   * @return snapshot of the given source
+   */
+  public static TslSnapshot of(CertificateSource certificateSource) {
+    return new TslSnapshot(0, new Date().getTime(), certificateSource, null);
+  }
+
+  /**
+   * Creates a new certificate pool containing all the certificates of this snapshot. The returned pool belongs to
+   * the caller and can be populated with certificates found within signatures without affecting the snapshot.
+   * The snapshot certificates are not copied into the pool.
+   *
+   * @return new certificate pool
+   */
+  public CertificatePool createValidationPool() {
+    logger.debug("Creating validation pool from TSL snapshot version {}", this.version);
+    return new OverlayCertificatePool(this);
+  }
+
+  /**
+   * Get the index of the snapshot certificates for hash lookups. Certificate sources not maintaining their own index
+   * are indexed once per snapshot.
+   *
+   * @return certificate index
+   */
+  public CertificateIndex getCertificateIndex() {
+    if (this.certificateSource instanceof IndexedCertificateSource) {
+      return ((IndexedCertificateSource) this.certificateSource).getCertificateIndex();
+    }
+    CertificateIndex index = this.certificateIndex;
+    if (index == null) {
+      index = CertificateIndex.of(this.certificateSource.getCertificatePool().getCertificateTokens());
+      this.certificateIndex = index;
+    }
+    return index;
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Date getCreationTime() {
+    return new Date(creationTime.getTime());
+  }
+
+  public long getLoadTime() {
+    return loadTime;
+  }
+
+  public CertificateSource getCertificateSource() {
+    return certificateSource;
+  }
+
+  public TrustedListsCertificateSource getTrustedListsCertificateSource() {
+    return trustedListsCertificateSource;
+  }
+
+}
@@ -0,0 +1,526 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.asic.tsl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.digidoc4j.utils.ByteBufferInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.europa.esig.dss.tsl.TSLParserResult;
+import eu.europa.esig.dss.tsl.TSLValidationModel;
+import eu.europa.esig.dss.tsl.service.TSLRepository;
+
+/**
+ * Stores a successfully validated TSL certificate source in a binary file, so that a restarted JVM can use it
+ * without downloading, parsing and validating the trusted lists again.
+ * <p/>
+ * The file consists of a header with the territories of the trusted lists together with their sequence numbers and
+ * next update times, the serialized certificate source containing the certificates and their service info, and a
+ * HMAC-SHA256 seal over all of the preceding bytes. The seal key is derived from a random secret generated on first use
+ * together with the TSL keystore and the TSL configuration, so a snapshot written with a different trust anchor or TSL
+ * location is never accepted. The snapshot and the secret are kept in a directory accessible only by the current user,
+ * see {@link #create(File, String, byte[])}. The seal is verified before anything is deserialized and deserialization
+ * is restricted to the exact classes a TSL certificate source consists of.
+ */
+public class TslSnapshotStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(TslSnapshotStore.class);
+  private static final int MAGIC = 0x44344a54;
+  private static final int FORMAT_VERSION = 1;
+  private static final String SEAL_ALGORITHM = "HmacSHA256";
+  private static final int SEAL_LENGTH = 32;
+  private static final long UNKNOWN = -1;
+  private static final String SECRET_FILE_NAME = "seal.key";
+  private static final int SECRET_LENGTH = 32;
+  private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+  private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+  private final File file;
+  private final byte[] sealKey;
+
+  /**
+   * @param file snapshot file
+   * @param sealKey key used for computing the integrity seal of the snapshot
+   */
+  public TslSnapshotStore(File file, byte[] sealKey) {
+    this.file = file;
+    this.sealKey = sealKey.clone();
+  }
+
+  /**
+   * Creates a store of a snapshot file in the given directory. The directory is created accessible only by the current
+   * user. The seal key is derived from the given key material and a random secret stored in the directory, which is
+   * generated when the directory is used for the first time.
+   *
+   * @param directory   snapshot directory
+   * @param fileName    name of the snapshot file
+   * @param keyMaterial data the snapshot is bound to, e.g. the TSL keystore and TSL configuration
+   * @return snapshot store or null if the directory can't be used, because it is owned by another user or other users
+   * have access to it
+   */
+  public static TslSnapshotStore create(File directory, String fileName, byte[] keyMaterial) {
+    try {
+      Path directoryPath = directory.toPath().toAbsolutePath();
+      TslSnapshotStore.createPrivateDirectory(directoryPath);
+      byte[] secret = TslSnapshotStore.readOrCreateSecret(directoryPath.resolve(SECRET_FILE_NAME));
+      Mac mac = Mac.getInstance(SEAL_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, SEAL_ALGORITHM));
+      return new TslSnapshotStore(new File(directory, fileName), mac.doFinal(keyMaterial));
+    } catch (IOException | GeneralSecurityException e) {
+      logger.warn("TSL snapshot directory {} can't be used, TSL snapshots are disabled: {}", directory,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes the certificate source into the snapshot file. The file is replaced atomically, so concurrently starting
+   * processes never see a partially written snapshot. Failures are logged and ignored as the snapshot is only an
+   * optimization.
+   *
+   * @param certificateSource validated TSL certificate source
+   * @param repository TSL repository the territory metadata is taken from, may be null
+   */
+  public void save(TSLCertificateSourceImpl certificateSource, TSLRepository repository) {
+    try {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(buffer);
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(new Date().getTime());
+      List<TerritoryInfo> territories = this.getTerritories(repository);
+      out.writeLong(this.getEarliestNextUpdate(territories));
+      out.writeInt(territories.size());
+      for (TerritoryInfo territory : territories) {
+        out.writeUTF(territory.territory);
+        out.writeInt(territory.sequenceNumber);
+        out.writeLong(territory.nextUpdate);
+      }
+      byte[] payload = this.serialize(certificateSource);
+      out.writeInt(payload.length);
+      out.write(payload);
+      out.flush();
+      byte[] content = buffer.toByteArray();
+      Mac mac = this.createMac();
+      mac.update(content);
+      this.writeAtomically(content, mac.doFinal());
+      logger.debug("Stored TSL snapshot of {} bytes to {}", content.length + SEAL_LENGTH, this.file);
+    } catch (IOException | GeneralSecurityException | RuntimeException e) {
+      logger.warn("Unable to store TSL snapshot to {}: {}", this.file, e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the certificate source from the snapshot file. The snapshot is not used if it is missing, its seal does not
+   * match, it is older than the given age or any of its trusted lists has passed its next update time.
+   *
+   * @param maxAgeInMilliseconds maximum age of the snapshot
+   * @return loaded snapshot or null if the snapshot can't be used
+   */
+  public LoadedSnapshot load(long maxAgeInMilliseconds) {
+    if (!this.file.isFile()) {
+      logger.debug("TSL snapshot {} doesn't exist", this.file);
+      return null;
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "r");
+         FileChannel channel = randomAccessFile.getChannel()) {
+      long size = channel.size();
+      if (size <= SEAL_LENGTH || size > Integer.MAX_VALUE) {
+        logger.warn("TSL snapshot {} has invalid size {}", this.file, size);
+        return null;
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (!this.isSealValid(mapped, (int) size - SEAL_LENGTH)) {
+        logger.warn("TSL snapshot {} seal doesn't match, ignoring the snapshot", this.file);
+        return null;
+      }
+      ByteBuffer content = mapped.duplicate();
+      content.limit((int) size - SEAL_LENGTH);
+      return this.readContent(new DataInputStream(new ByteBufferInputStream(content)), maxAgeInMilliseconds);
+    } catch (IOException | GeneralSecurityException | ClassNotFoundException | RuntimeException e) {
+      logger.warn("Unable to load TSL snapshot from {}: {}", this.file, e.getMessage());
+      return null;
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static void createPrivateDirectory(Path directory) throws IOException {
+    boolean posix = TslSnapshotStore.isPosix(directory);
+    if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+      logger.debug("Creating TSL snapshot directory {}", directory);
+      if (posix) {
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+      } else {
+        Files.createDirectories(directory);
+      }
+    }
+    if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("Not a directory");
+    }
+    if (posix) {
+      String owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).getName();
+      if (!owner.equals(System.getProperty("user.name"))) {
+        throw new IOException("Directory is owned by " + owner);
+      }
+      if (!OWNER_ONLY_DIRECTORY.containsAll(Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS))) {
+        throw new IOException("Directory is accessible by other users");
+      }
+    }
+  }
+
+  private static byte[] readOrCreateSecret(Path file) throws IOException {
+    if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+      byte[] secret = new byte[SECRET_LENGTH];
+      new SecureRandom().nextBytes(secret);
+      Path directory = file.getParent();
+      Path tempFile = TslSnapshotStore.isPosix(directory) ? Files.createTempFile(directory, SECRET_FILE_NAME, ".tmp",
+          PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE)) : Files.createTempFile(directory, SECRET_FILE_NAME,
+          ".tmp");
+      try {
+        Files.write(tempFile, secret);
+        Files.move(tempFile, file);
+        logger.debug("Generated TSL snapshot secret {}", file);
+      } catch (FileAlreadyExistsException e) {
+        logger.debug("TSL snapshot secret {} was generated by another process", file);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+    if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("Secret is not a regular file");
+    }
+    byte[] secret = Files.readAllBytes(file);
+    if (secret.length != SECRET_LENGTH) {
+      throw new IOException("Secret has invalid length " + secret.length);
+    }
+    return secret;
+  }
+
+  private static boolean isPosix(Path path) {
+    return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+  }
+
+  private LoadedSnapshot readContent(DataInputStream in, long maxAgeInMilliseconds)
+      throws IOException, ClassNotFoundException {
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+      logger.warn("TSL snapshot {} has unsupported format", this.file);
+      return null;
+    }
+    long creationTime = in.readLong();
+    long earliestNextUpdate = in.readLong();
+    long currentTime = new Date().getTime();
+    if (currentTime - creationTime > maxAgeInMilliseconds) {
+      logger.debug("TSL snapshot {} created at {} has expired", this.file, new Date(creationTime));
+      return null;
+    }
+    if (earliestNextUpdate != UNKNOWN && currentTime > earliestNextUpdate) {
+      logger.debug("TSL snapshot {} contains a trusted list past its next update time {}", this.file,
+          new Date(earliestNextUpdate));
+      return null;
+    }
+    int territoryCount = in.readInt();
+    List<TerritoryInfo> territories = new ArrayList<>(territoryCount);
+    for (int i = 0; i < territoryCount; i++) {
+      territories.add(new TerritoryInfo(in.readUTF(), in.readInt(), in.readLong()));
+    }
+    in.readInt();
+    Object certificateSource = new RestrictedObjectInputStream(in).readObject();
+    if (!(certificateSource instanceof TSLCertificateSourceImpl)) {
+      logger.warn("TSL snapshot {} doesn't contain a TSL certificate source", this.file);
+      return null;
+    }
+    logger.debug("Loaded TSL snapshot created at {} with {} trusted lists", new Date(creationTime), territoryCount);
+    return new LoadedSnapshot((TSLCertificateSourceImpl) certificateSource, creationTime,
+        Collections.unmodifiableList(territories));
+  }
+
+  private boolean isSealValid(ByteBuffer mapped, int contentLength) throws GeneralSecurityException {
+    ByteBuffer content = mapped.duplicate();
+    content.limit(contentLength);
+    Mac mac = this.createMac();
+    mac.update(content);
+    byte[] expectedSeal = mac.doFinal();
+    byte[] actualSeal = new byte[SEAL_LENGTH];
+    ByteBuffer seal = mapped.duplicate();
+    seal.position(contentLength);
+    seal.get(actualSeal);
+    return MessageDigest.isEqual(expectedSeal, actualSeal);
+  }
+
+  private Mac createMac() throws GeneralSecurityException {
+    Mac mac = Mac.getInstance(SEAL_ALGORITHM);
+    mac.init(new SecretKeySpec(this.sealKey, SEAL_ALGORITHM));
+    return mac;
+  }
+
+  private byte[] serialize(TSLCertificateSourceImpl certificateSource) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+      out.writeObject(certificateSource);
+    }
+    return buffer.toByteArray();
+  }
+
+  private void writeAtomically(byte[] content, byte[] seal) throws IOException {
+    File directory = this.file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create directory " + directory);
+    }
+    File tempFile = File.createTempFile(this.file.getName(), ".tmp", directory);
+    try {
+      try (RandomAccessFile out = new RandomAccessFile(tempFile, "rw")) {
+        out.write(content);
+        out.write(seal);
+      }
+      Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  private List<TerritoryInfo> getTerritories(TSLRepository repository) {
+    List<TerritoryInfo> territories = new ArrayList<>();
+    if (repository == null) {
+      return territories;
+    }
+    for (Map.Entry<String, TSLValidationModel> entry : repository.getAllMapTSLValidationModels().entrySet()) {
+      TSLParserResult parseResult = entry.getValue().getParseResult();
+      if (parseResult == null) {
+        territories.add(new TerritoryInfo(entry.getKey(), (int) UNKNOWN, UNKNOWN));
+      } else {
+        Date nextUpdate = parseResult.getNextUpdateDate();
+        territories.add(new TerritoryInfo(entry.getKey(), parseResult.getSequenceNumber(),
+            nextUpdate == null ? UNKNOWN : nextUpdate.getTime()));
+      }
+    }
+    return territories;
+  }
+
+  private long getEarliestNextUpdate(List<TerritoryInfo> territories) {
+    long earliestNextUpdate = UNKNOWN;
+    for (TerritoryInfo territory : territories) {
+      if (territory.nextUpdate != UNKNOWN
+          && (earliestNextUpdate == UNKNOWN || territory.nextUpdate < earliestNextUpdate)) {
+        earliestNextUpdate = territory.nextUpdate;
+      }
+    }
+    return earliestNextUpdate;
+  }
+
+  /**
+   * Certificate source loaded from the snapshot file together with its metadata.
+   */
+  public static final class LoadedSnapshot {
+
+    private final TSLCertificateSourceImpl certificateSource;
+    private final long creationTime;
+    private final List<TerritoryInfo> territories;
+
+    private LoadedSnapshot(TSLCertificateSourceImpl certificateSource, long creationTime,
+                           List<TerritoryInfo> territories) {
+      this.certificateSource = certificateSource;
+      this.creationTime = creationTime;
+      this.territories = territories;
+    }
+
+    public TSLCertificateSourceImpl getCertificateSource() {
+      return certificateSource;
+    }
+
+    public long getCreationTime() {
+      return creationTime;
+    }
+
+    public List<TerritoryInfo> getTerritories() {
+      return territories;
+    }
+
+  }
+
+  /**
+   * Territory, sequence number and next update time of a trusted list stored in the snapshot.
+   */
+  public static final class TerritoryInfo {
+
+    private final String territory;
+    private final int sequenceNumber;
+    private final long nextUpdate;
+
+    private TerritoryInfo(String territory, int sequenceNumber, long nextUpdate) {
+      this.territory = territory;
+      this.sequenceNumber = sequenceNumber;
+      this.nextUpdate = nextUpdate;
+    }
+
+    public String getTerritory() {
+      return territory;
+    }
+
+    /**
+     * @return sequence number of the trusted list or -1 if unknown
+     */
+    public int getSequenceNumber() {
+      return sequenceNumber;
+    }
+
+    /**
+     * @return next update time of the trusted list in milliseconds or -1 if unknown
+     */
+    public long getNextUpdate() {
+      return nextUpdate;
+    }
+
+  }
+
+  private static class RestrictedObjectInputStream extends ObjectInputStream {
+
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+        "org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl",
+        "eu.europa.esig.dss.tsl.TrustedListsCertificateSource",
+        "eu.europa.esig.dss.x509.CommonTrustedCertificateSource",
+        "eu.europa.esig.dss.x509.CommonCertificateSource",
+        "eu.europa.esig.dss.x509.CertificatePool",
+        "eu.europa.esig.dss.x509.CertificateToken",
+        "eu.europa.esig.dss.x509.Token",
+        "eu.europa.esig.dss.x509.TokenValidationExtraInfo",
+        "eu.europa.esig.dss.x509.CertificateSourceType",
+        "eu.europa.esig.dss.TokenIdentifier",
+        "eu.europa.esig.dss.DigestAlgorithm",
+        "eu.europa.esig.dss.EncryptionAlgorithm",
+        "eu.europa.esig.dss.SignatureAlgorithm",
+        "eu.europa.esig.dss.MaskGenerationFunction",
+        "eu.europa.esig.dss.tsl.TLInfo",
+        "eu.europa.esig.dss.tsl.ServiceInfo",
+        "eu.europa.esig.dss.tsl.ServiceInfoStatus",
+        "eu.europa.esig.dss.tsl.KeyUsageBit",
+        "eu.europa.esig.dss.tsl.KeyUsageCondition",
+        "eu.europa.esig.dss.tsl.PolicyIdCondition",
+        "eu.europa.esig.dss.tsl.CompositeCondition",
+        "eu.europa.esig.dss.tsl.CriteriaListCondition",
+        "eu.europa.esig.dss.tsl.MatchingCriteriaIndicator",
+        "eu.europa.esig.dss.tsl.CertSubjectDNAttributeCondition",
+        "eu.europa.esig.dss.tsl.ExtendedKeyUsageCondition",
+        "eu.europa.esig.dss.tsl.QCStatementCondition",
+        "eu.europa.esig.dss.util.BaseTimeDependent",
+        "eu.europa.esig.dss.util.TimeDependentValues",
+        "eu.europa.esig.dss.util.MutableTimeDependentValues",
+        "org.bouncycastle.jcajce.provider.asymmetric.rsa.BCRSAPublicKey",
+        "org.bouncycastle.jcajce.provider.asymmetric.ec.BCECPublicKey",
+        "org.bouncycastle.jcajce.provider.asymmetric.dsa.BCDSAPublicKey",
+        "java.security.cert.Certificate$CertificateRep",
+        "java.security.KeyRep",
+        "java.security.KeyRep$Type",
+        "javax.security.auth.x500.X500Principal",
+        "java.math.BigInteger",
+        "java.lang.Object",
+        "java.lang.String",
+        "java.lang.Enum",
+        "java.lang.Number",
+        "java.lang.Boolean",
+        "java.lang.Integer",
+        "java.lang.Long",
+        "java.util.Date",
+        "java.util.ArrayList",
+        "java.util.LinkedList",
+        "java.util.Arrays$ArrayList",
+        "java.util.HashMap",
+        "java.util.LinkedHashMap",
+        "java.util.TreeMap",
+        "java.util.EnumMap",
+        "java.util.HashSet",
+        "java.util.LinkedHashSet",
+        "java.util.TreeSet",
+        "java.util.EnumSet$SerializationProxy",
+        "java.util.Collections$EmptyList",
+        "java.util.Collections$EmptySet",
+        "java.util.Collections$EmptyMap",
+        "java.util.Collections$SingletonList",
+        "java.util.Collections$SingletonSet",
+        "java.util.Collections$SingletonMap",
+        "java.util.Collections$UnmodifiableCollection",
+        "java.util.Collections$UnmodifiableList",
+        "java.util.Collections$UnmodifiableRandomAccessList",
+        "java.util.Collections$UnmodifiableSet",
+        "java.util.Collections$UnmodifiableMap",
+        "java.util.concurrent.ConcurrentHashMap",
+        "java.util.concurrent.ConcurrentHashMap$Segment",
+        "java.util.concurrent.locks.ReentrantLock",
+        "java.util.concurrent.locks.ReentrantLock$Sync",
+        "java.util.concurrent.locks.ReentrantLock$NonfairSync",
+        "java.util.concurrent.locks.AbstractQueuedSynchronizer",
+        "java.util.concurrent.locks.AbstractOwnableSynchronizer",
+        "java.util.concurrent.atomic.AtomicLong"));
+
+    RestrictedObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+      String name = description.getName();
+      if (name.startsWith("[")) {
+        name = name.replaceFirst("^\\[+", "");
+        if (name.length() == 1 || (name.startsWith("L") && name.endsWith(";")
+            && ALLOWED_CLASSES.contains(name.substring(1, name.length() - 1)))) {
+          return super.resolveClass(description);
+        }
+      } else if (ALLOWED_CLASSES.contains(name)) {
+        return super.resolveClass(description);
+      }
+      throw new IOException("Class " + description.getName() + " is not allowed in TSL snapshot");
+    }
+
+    @Override
+    protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+      throw new IOException("Proxy classes are not allowed in TSL snapshot");
+    }
+
+  }
+
+}
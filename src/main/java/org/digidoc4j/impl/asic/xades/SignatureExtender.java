@@ -31,6 +31,7 @@ import org.digidoc4j.OCSPSourceBuilder;
 import org.digidoc4j.Signature;
 import org.digidoc4j.SignatureProfile;
 import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.impl.SKOnlineTSPSource;
 import org.digidoc4j.impl.asic.AsicSignature;
 import org.digidoc4j.impl.asic.SkDataLoader;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocSignatureBuilder;
@@ -41,7 +42,6 @@ import org.slf4j.LoggerFactory;
 import eu.europa.esig.dss.DSSDocument;
 import eu.europa.esig.dss.Policy;
 import eu.europa.esig.dss.SignatureLevel;
-import eu.europa.esig.dss.client.tsp.OnlineTSPSource;
 import eu.europa.esig.dss.x509.ocsp.OCSPSource;
 
 public class SignatureExtender {
@@ -52,6 +52,7 @@ public class SignatureExtender {
   private DSSDocument detachedContent;
   private List<DSSDocument> detachedContents;
   private XadesSigningDssFacade extendingFacade;
+  private SKOnlineTSPSource tspSource;
 
   static {
     possibleExtensions.put(B_BES, new HashSet<>(asList(LT, LTA)));
@@ -73,14 +74,29 @@ public class SignatureExtender {
     extendingFacade = new XadesSigningDssFacade();
   }
 
+  /**
+   * Extends the signatures to the given profile. If OCSP responses are reused, baseline signatures extended to a
+   * timestamp based profile are extended in batches: all signatures of a batch are timestamped first and then get
+   * their OCSP responses, so that a single response of a signer produced after the last timestamp of the batch can
+   * be embedded into all the signatures of that signer.
+   *
+   * @param signaturesToExtend signatures to extend
+   * @param profile            target profile
+   * @return extended signature documents in the order of the signatures
+   * @see Configuration#setOCSPReuseWindow(long)
+   */
   public List<DSSDocument> extend(List<Signature> signaturesToExtend, SignatureProfile profile) {
     logger.debug("Extending signatures to " + profile);
     validatePossibilityToExtendTo(signaturesToExtend, profile);
     prepareExtendingFacade(profile);
     List<DSSDocument> extendedSignatures = new ArrayList<>();
-    for (Signature signature : signaturesToExtend) {
-      DSSDocument extendedSignature = extendSignature(signature, profile);
-      extendedSignatures.add(extendedSignature);
+    if (isExtendedInBatches(signaturesToExtend, profile)) {
+      extendInBatches(signaturesToExtend, profile, extendedSignatures);
+    } else {
+      for (Signature signature : signaturesToExtend) {
+        DSSDocument extendedSignature = extendSignature(signature, profile);
+        extendedSignatures.add(extendedSignature);
+      }
     }
     logger.debug("Finished extending signatures");
     return extendedSignatures;
@@ -88,7 +104,7 @@ public class SignatureExtender {
 
   private void prepareExtendingFacade(SignatureProfile profile) {
     extendingFacade.setCertificateSource(configuration.getTSL());
-    OnlineTSPSource tspSource = createTimeStampProviderSource(profile);
+    tspSource = createTimeStampProviderSource(profile);
     extendingFacade.setTspSource(tspSource);
     SignatureLevel signatureLevel = getSignatureLevel(profile);
     extendingFacade.setSignatureLevel(signatureLevel);
@@ -96,19 +112,62 @@ public class SignatureExtender {
   }
 
   private DSSDocument extendSignature(Signature signature, SignatureProfile profile) {
+    return extendSignature(signature, ((AsicSignature) signature).getSignatureDocument(), profile);
+  }
+
+  private DSSDocument extendSignature(Signature signature, DSSDocument signatureDocument, SignatureProfile profile) {
     OCSPSource ocspSource = createOcspSource(profile, ((AsicSignature) signature).getOrigin().getSignatureValue());
     extendingFacade.setOcspSource(ocspSource);
-    DSSDocument signatureDocument = ((AsicSignature) signature).getSignatureDocument();
     return extendingFacade.extendSignature(signatureDocument, detachedContents);
   }
 
+  private boolean isExtendedInBatches(List<Signature> signatures, SignatureProfile profile) {
+    if (signatures.size() < 2 || configuration.getOCSPReuseWindow() <= 0 || (profile != LT && profile != LTA)) {
+      return false;
+    }
+    for (Signature signature : signatures) {
+      if (signature.getProfile() != B_BES) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A batch is closed once half of the reuse window has passed since its first timestamp, so the OCSP response
+   * requested after the last timestamp stays within the allowed time delta of every timestamp of the batch.
+   */
+  private void extendInBatches(List<Signature> signatures, SignatureProfile profile,
+                               List<DSSDocument> extendedSignatures) {
+    long batchDuration = configuration.getOCSPReuseWindow() / 2;
+    SignatureLevel signatureLevel = getSignatureLevel(profile);
+    int batchStart = 0;
+    while (batchStart < signatures.size()) {
+      List<DSSDocument> timestampedSignatures = new ArrayList<>();
+      extendingFacade.setSignatureLevel(SignatureLevel.XAdES_BASELINE_T);
+      long batchStartTime = System.currentTimeMillis();
+      do {
+        Signature signature = signatures.get(batchStart + timestampedSignatures.size());
+        timestampedSignatures.add(extendSignature(signature, SignatureProfile.LT));
+      } while (batchStart + timestampedSignatures.size() < signatures.size()
+          && System.currentTimeMillis() - batchStartTime < batchDuration);
+      logger.debug("Timestamped batch of {} signatures, adding validation data", timestampedSignatures.size());
+      extendingFacade.setSignatureLevel(signatureLevel);
+      for (int i = 0; i < timestampedSignatures.size(); i++) {
+        extendedSignatures.add(extendSignature(signatures.get(batchStart + i), timestampedSignatures.get(i),
+            profile));
+      }
+      batchStart += timestampedSignatures.size();
+    }
+  }
+
   private OCSPSource createOcspSource(SignatureProfile profile, byte[] signatureValue) {
     return OCSPSourceBuilder.anOcspSource().withSignatureProfile(profile).withSignatureValue(signatureValue).
-        withConfiguration(this.configuration).build();
+        withTimeStampSource(tspSource).withConfiguration(this.configuration).build();
   }
 
-  private OnlineTSPSource createTimeStampProviderSource(SignatureProfile profile) {
-    OnlineTSPSource source = new OnlineTSPSource(this.configuration.getTspSource());
+  private SKOnlineTSPSource createTimeStampProviderSource(SignatureProfile profile) {
+    SKOnlineTSPSource source = new SKOnlineTSPSource(this.configuration.getTspSource(), this.configuration);
     SkDataLoader loader = SkDataLoader.timestamp(this.configuration);
     loader.setUserAgent(Helper.createBDocUserAgent(profile));
     source.setDataLoader(loader);
@@ -10,25 +10,20 @@
 
 package org.digidoc4j.impl.asic.xades;
 
-import java.io.IOException;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.ASN1OctetString;
-import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.asn1.x509.Extension;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.RespID;
 import org.digidoc4j.SignatureProfile;
 import org.digidoc4j.X509Cert;
 import org.digidoc4j.exceptions.CertificateNotFoundException;
+import org.digidoc4j.impl.asic.tsl.CertificateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +38,7 @@ public class TimemarkSignature extends BesSignature {
   private X509Cert ocspCertificate;
   private BasicOCSPResp ocspResponse;
   private Date ocspResponseTime;
+  private CertificateIndex certificateIndex;
 
   /**
    * @param xadesReportGenerator XADES validation report generator
@@ -116,46 +112,48 @@ public class TimemarkSignature extends BesSignature {
   }
 
   private X509Cert findOcspCertificate() {
-    String rId = "";
     String signatureId = getDssSignature().getId();
-    try {
-      RespID responderId = ocspResponse.getResponderId();
-      rId = responderId.toString();
-      String primitiveName = getCN(responderId.toASN1Primitive().getName());
-      byte[] keyHash = responderId.toASN1Primitive().getKeyHash();
-
-      boolean isKeyHash = useKeyHashForOCSP(primitiveName, keyHash);
-
-      if (isKeyHash) {
-        logger.debug("Using keyHash {} for OCSP certificate match", keyHash);
-      } else {
-        logger.debug("Using ASN1Primitive {} for OCSP certificate match", primitiveName);
-      }
+    RespID responderId = ocspResponse.getResponderId();
+    String rId = responderId.toString();
+    String primitiveName = getCN(responderId.toASN1Primitive().getName());
+    byte[] keyHash = responderId.toASN1Primitive().getKeyHash();
+
+    boolean isKeyHash = useKeyHashForOCSP(primitiveName, keyHash);
+
+    if (isKeyHash) {
+      logger.debug("Using keyHash {} for OCSP certificate match", keyHash);
+    } else {
+      logger.debug("Using ASN1Primitive {} for OCSP certificate match", primitiveName);
+    }
 
+    if (isKeyHash) {
+      List<CertificateToken> matches = this.getCertificateIndex().getBySubjectKeyIdentifier(keyHash);
+      if (!matches.isEmpty()) {
+        return new X509Cert(matches.get(0).getCertificate());
+      }
+    } else {
       for (CertificateToken cert : getDssSignature().getCertificates()) {
-        if (isKeyHash) {
-          ASN1Primitive skiPrimitive = JcaX509ExtensionUtils.parseExtensionValue(
-              cert.getCertificate().getExtensionValue(Extension.subjectKeyIdentifier.getId()));
-          byte[] keyIdentifier = ASN1OctetString.getInstance(skiPrimitive.getEncoded()).getOctets();
-          if (Arrays.equals(keyHash, keyIdentifier)) {
-            return new X509Cert(cert.getCertificate());
-          }
-        } else {
-          String certCn = getCN(new X500Name(cert.getSubjectX500Principal().getName()));
-          if (StringUtils.equals(certCn, primitiveName)) {
-            return new X509Cert(cert.getCertificate());
-          }
+        String certCn = getCN(new X500Name(cert.getSubjectX500Principal().getName()));
+        if (StringUtils.equals(certCn, primitiveName)) {
+          return new X509Cert(cert.getCertificate());
         }
       }
-
-    } catch (IOException e) {
-      logger.error("Unable to wrap and extract SubjectKeyIdentifier from certificate - technical error. {}", e);
     }
 
     logger.error("OCSP certificate for " + rId + " was not found in TSL");
     throw new CertificateNotFoundException("OCSP certificate for " + rId + " was not found in TSL", signatureId);
   }
 
+  /**
+   * Certificates of the signature are indexed only once per signature.
+   */
+  private CertificateIndex getCertificateIndex() {
+    if (this.certificateIndex == null) {
+      this.certificateIndex = CertificateIndex.of(getDssSignature().getCertificates());
+    }
+    return this.certificateIndex;
+  }
+
   private boolean useKeyHashForOCSP(String primitiveName, byte[] keyHash) {
     return (keyHash != null && keyHash.length > 0) && (primitiveName == null || primitiveName.trim().length() == 0);
   }
@@ -1,8 +1,8 @@
 package org.digidoc4j.signers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -50,8 +50,7 @@ public final class TimestampToken {
     }
     ContainerBuilder.ContainerDataFile containerDataFile = dataFiles.get(0);
     OnlineTSPSource onlineTSPSource = defineOnlineTSPSource(configuration);
-    byte[] dataFileDigest = getDigest(containerDataFile);
-    byte[] digest = DSSUtils.digest(digestAlgorithm, dataFileDigest);
+    byte[] digest = getDigest(digestAlgorithm, containerDataFile);
     DataFile timeStampToken = getTimestampToken(onlineTSPSource, digestAlgorithm, digest);
     return timeStampToken;
   }
@@ -65,9 +64,7 @@ public final class TimestampToken {
    */
   public static DataFile generateTimestampToken(DigestAlgorithm digestAlgorithm, DataFile containerDataFile) {
     OnlineTSPSource onlineTSPSource = defineOnlineTSPSource(null);
-    byte[] dataFileDigest;
-    dataFileDigest = containerDataFile.getBytes();
-    byte[] digest = DSSUtils.digest(digestAlgorithm, dataFileDigest);
+    byte[] digest = digest(digestAlgorithm, containerDataFile.getStream(), true);
     DataFile timeStampToken = getTimestampToken(onlineTSPSource, digestAlgorithm, digest);
     return timeStampToken;
   }
@@ -95,20 +92,28 @@ public final class TimestampToken {
     return timeStampToken;
   }
 
-  private static byte[] getDigest(ContainerBuilder.ContainerDataFile dataFile) {
+  private static byte[] getDigest(DigestAlgorithm digestAlgorithm, ContainerBuilder.ContainerDataFile dataFile) {
+    if (dataFile.isStream) {
+      return digest(digestAlgorithm, dataFile.inputStream, false);
+    }
     try {
-      byte[] dataFileDigest;
-      if (!dataFile.isStream) {
-        Path path = Paths.get(dataFile.filePath);
-        dataFileDigest = Files.readAllBytes(path);
-      } else {
-        dataFileDigest = IOUtils.toByteArray(dataFile.inputStream);
-      }
-      return dataFileDigest;
+      return digest(digestAlgorithm, Files.newInputStream(Paths.get(dataFile.filePath)), true);
     } catch (IOException e) {
-      e.printStackTrace();
+      throw new DigiDoc4JException("Cannot get file digest", e);
+    }
+  }
+
+  /**
+   * Hashes the content in a single pass with a fixed size buffer, so the content is never held in memory.
+   */
+  private static byte[] digest(DigestAlgorithm digestAlgorithm, InputStream stream, boolean close) {
+    try {
+      return DSSUtils.digest(digestAlgorithm, stream);
+    } finally {
+      if (close) {
+        IOUtils.closeQuietly(stream);
+      }
     }
-    throw new DigiDoc4JException("Cannot get file digest");
   }
 
 }
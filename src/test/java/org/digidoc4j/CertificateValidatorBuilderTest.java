@@ -1,6 +1,10 @@
 package org.digidoc4j;
 
 import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import org.digidoc4j.exceptions.CertificateValidationException;
 import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
@@ -49,6 +53,49 @@ public class CertificateValidatorBuilderTest extends AbstractTest {
     }
   }
 
+  @Test
+  public void testCertificateStatusesOfSeveralCertificatesWithSingleRequest() {
+    BatchCertificateValidator validator = this.buildBatchValidator();
+    validator.getCertificateSource().addCertificate(new CertificateToken(this.openX509Certificate(Paths.get
+        ("src/test/resources/testFiles/certs/TESTofEECertificationCentreRootCA.crt"))));
+    validator.getCertificateSource().addCertificate(new CertificateToken(this.openX509Certificate(Paths.get
+        ("src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt"))));
+    X509Certificate goodCertificate = this.openX509Certificate(Paths.get(
+        "src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt"));
+    X509Certificate revokedCertificate = this.openX509Certificate(Paths.get(
+        "src/test/resources/testFiles/certs/TESTofStatusRevoked.cer"));
+    Map<X509Certificate, CertificateValidationException> failures = validator.validate(
+        Arrays.asList(goodCertificate, revokedCertificate));
+    Assert.assertFalse(failures.containsKey(goodCertificate));
+    Assert.assertEquals("Not equals", CertificateValidationException.CertificateValidationStatus.REVOKED,
+        failures.get(revokedCertificate).getCertificateStatus());
+  }
+
+  @Test
+  public void testCertificateStatusesOfUntrustedCertificates() {
+    BatchCertificateValidator validator = this.buildBatchValidator();
+    X509Certificate certificate = this.openX509Certificate(Paths.get(
+        "src/test/resources/testFiles/certs/exampleCA.cer"));
+    Map<X509Certificate, CertificateValidationException> failures = validator.validate(
+        Collections.singletonList(certificate));
+    Assert.assertEquals("Not equals", CertificateValidationException.CertificateValidationStatus.UNTRUSTED,
+        failures.get(certificate).getCertificateStatus());
+  }
+
+  @Test
+  public void testCertificateStatusesOfSeveralCertificatesUseOCSPResponseCache() {
+    this.configuration.setOCSPCacheEnabled(true);
+    BatchCertificateValidator validator = this.buildBatchValidator();
+    validator.getCertificateSource().addCertificate(new CertificateToken(this.openX509Certificate(Paths.get
+        ("src/test/resources/testFiles/certs/TESTofEECertificationCentreRootCA.crt"))));
+    X509Certificate certificate = this.openX509Certificate(Paths.get(
+        "src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt"));
+    Assert.assertTrue(validator.validate(Collections.singletonList(certificate)).isEmpty());
+    Assert.assertEquals(1, this.configuration.getOCSPResponseCache().size());
+    validator.validate(certificate);
+    Assert.assertEquals(1, this.configuration.getOCSPResponseCache().size());
+  }
+
   @Test
   public void testProductionCertificateStatusUntrustedWithMissingOCSPResponseCertificate() {
     this.configuration = Configuration.of(Configuration.Mode.PROD);
@@ -97,4 +144,10 @@ public class CertificateValidatorBuilderTest extends AbstractTest {
     this.configuration = new Configuration(Configuration.Mode.TEST);
   }
 
+  private BatchCertificateValidator buildBatchValidator() {
+    CertificateValidator validator = new CertificateValidatorBuilder().withConfiguration(this.configuration).build();
+    Assert.assertTrue(validator instanceof BatchCertificateValidator);
+    return (BatchCertificateValidator) validator;
+  }
+
 }
@@ -24,16 +24,22 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.exceptions.ConfigurationException;
 import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.exceptions.TslCertificateSourceInitializationException;
 import org.digidoc4j.exceptions.TslKeyStoreNotFoundException;
+import org.digidoc4j.impl.AsyncTaskExecutor;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocContainer;
 import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
 import org.digidoc4j.impl.asic.tsl.TslLoader;
@@ -501,6 +507,16 @@ public class ConfigurationTest extends AbstractTest {
     Assert.assertEquals("/test_cache_dir", jDigiDocConf.get("DIGIDOC_DF_CACHE_DIR"));
   }
 
+  @Test
+  public void setTempFileDirectory() throws Exception {
+    Assert.assertNull(this.configuration.getTempFileDirectory());
+    this.configuration.setTempFileDirectory("/spill_dir");
+    Assert.assertEquals("/spill_dir", this.configuration.getTempFileDirectory());
+    Assert.assertEquals("/spill_dir", this.configuration.getJDigiDocConfiguration().get("DIGIDOC_DF_CACHE_DIR"));
+    this.configuration.setTempFileDirectory(null);
+    Assert.assertNull(this.configuration.getTempFileDirectory());
+  }
+
   @Test
   public void defaultJDigiDocCacheDirectory() throws Exception {
     Hashtable<String, String> jDigiDocConf =
@@ -780,6 +796,216 @@ public class ConfigurationTest extends AbstractTest {
     Assert.assertEquals(1776, this.configuration.getTslCacheExpirationTime());
   }
 
+  @Test
+  public void defaultTslBackgroundRefreshSettings() throws Exception {
+    Assert.assertFalse(this.configuration.isTslBackgroundRefresh());
+    Assert.assertEquals(Constant.ONE_HOUR_IN_MILLISECONDS, this.configuration.getTslRefreshAheadTime());
+    Assert.assertEquals(Constant.ONE_DAY_IN_MILLISECONDS, this.configuration.getTslMaxStalenessTime());
+  }
+
+  @Test
+  public void setTslBackgroundRefreshSettings() throws Exception {
+    this.configuration.setTslBackgroundRefresh(true);
+    this.configuration.setTslRefreshAheadTime(1337);
+    this.configuration.setTslMaxStalenessTime(1776);
+    Assert.assertTrue(this.configuration.isTslBackgroundRefresh());
+    Assert.assertEquals(1337, this.configuration.getTslRefreshAheadTime());
+    Assert.assertEquals(1776, this.configuration.getTslMaxStalenessTime());
+  }
+
+  @Test
+  public void loadTslBackgroundRefreshSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "TSL_BACKGROUND_REFRESH: true\nTSL_REFRESH_AHEAD_TIME: 1337\nTSL_MAX_STALENESS_TIME: 1776").getPath());
+    Assert.assertTrue(this.configuration.isTslBackgroundRefresh());
+    Assert.assertEquals(1337, this.configuration.getTslRefreshAheadTime());
+    Assert.assertEquals(1776, this.configuration.getTslMaxStalenessTime());
+  }
+
+  @Test
+  public void tslPersistentSnapshotIsDisabledByDefault() throws Exception {
+    Assert.assertFalse(this.configuration.isTslPersistentSnapshot());
+    this.configuration.setTslPersistentSnapshot(true);
+    Assert.assertTrue(this.configuration.isTslPersistentSnapshot());
+  }
+
+  @Test
+  public void loadTslPersistentSnapshotFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "TSL_PERSISTENT_SNAPSHOT: true\nTSL_SNAPSHOT_DIRECTORY: /opt/digidoc4j/tsl").getPath());
+    Assert.assertTrue(this.configuration.isTslPersistentSnapshot());
+    Assert.assertEquals("/opt/digidoc4j/tsl", this.configuration.getTslSnapshotDirectory());
+  }
+
+  @Test
+  public void tslSnapshotDirectoryIsInUserHomeByDefault() throws Exception {
+    Assert.assertEquals(new File(System.getProperty("user.home"), ".digidoc4j/tsl-snapshot").getPath(),
+        this.configuration.getTslSnapshotDirectory());
+  }
+
+  @Test
+  public void defaultOCSPCacheSettings() throws Exception {
+    Assert.assertFalse(this.configuration.isOCSPCacheEnabled());
+    Assert.assertEquals(60000, this.configuration.getOCSPCacheMaxAge());
+    Assert.assertEquals(10000, this.configuration.getOCSPCacheMaxSize());
+    Assert.assertEquals(20, this.configuration.getOCSPBatchSize());
+    Assert.assertSame(this.configuration.getOCSPResponseCache(), this.configuration.getOCSPResponseCache());
+  }
+
+  @Test
+  public void loadOCSPCacheSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "OCSP_CACHE_ENABLED: true\nOCSP_CACHE_MAX_AGE: 1337\nOCSP_CACHE_MAX_SIZE: 42\nOCSP_BATCH_SIZE: 5").getPath());
+    Assert.assertTrue(this.configuration.isOCSPCacheEnabled());
+    Assert.assertEquals(1337, this.configuration.getOCSPCacheMaxAge());
+    Assert.assertEquals(42, this.configuration.getOCSPCacheMaxSize());
+    Assert.assertEquals(5, this.configuration.getOCSPBatchSize());
+  }
+
+  @Test
+  public void defaultStreamingValidationSettings() throws Exception {
+    Assert.assertFalse(this.configuration.isStreamingValidation());
+    Assert.assertEquals(Arrays.asList(DigestAlgorithm.SHA256, DigestAlgorithm.SHA384, DigestAlgorithm.SHA512),
+        this.configuration.getStreamingValidationDigestAlgorithms());
+  }
+
+  @Test
+  public void loadStreamingValidationSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "STREAMING_VALIDATION: true\nSTREAMING_VALIDATION_DIGEST_ALGORITHMS: SHA1, SHA256").getPath());
+    Assert.assertTrue(this.configuration.isStreamingValidation());
+    Assert.assertEquals(Arrays.asList(DigestAlgorithm.SHA1, DigestAlgorithm.SHA256),
+        this.configuration.getStreamingValidationDigestAlgorithms());
+  }
+
+  @Test
+  public void lazyContainerLoadingIsDisabledByDefault() throws Exception {
+    Assert.assertFalse(this.configuration.isLazyContainerLoading());
+    Assert.assertFalse(this.configuration.isMemoryMappedContainerReading());
+  }
+
+  @Test
+  public void loadLazyContainerLoadingFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "LAZY_CONTAINER_LOADING: true\nMEMORY_MAPPED_CONTAINER_READING: true").getPath());
+    Assert.assertTrue(this.configuration.isLazyContainerLoading());
+    Assert.assertTrue(this.configuration.isMemoryMappedContainerReading());
+  }
+
+  @Test
+  public void defaultEndpointFailoverSettings() throws Exception {
+    Assert.assertTrue(this.configuration.getOcspFailoverSources().isEmpty());
+    Assert.assertTrue(this.configuration.getTspFailoverSources().isEmpty());
+    Assert.assertEquals(0, this.configuration.getEndpointHedgingPercentile());
+    Assert.assertEquals(3, this.configuration.getEndpointFailureThreshold());
+    Assert.assertEquals(30000, this.configuration.getEndpointOpenCircuitTime());
+    Assert.assertEquals(0, this.configuration.getEndpointMaxConcurrentRequests());
+    Assert.assertEquals(0, this.configuration.getEndpointMaxRequestsPerSecond());
+    Assert.assertEquals(5000, this.configuration.getEndpointQueueTimeout());
+  }
+
+  @Test
+  public void loadEndpointLimitsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "ENDPOINT_MAX_CONCURRENT_REQUESTS: 8\nENDPOINT_MAX_REQUESTS_PER_SECOND: 50\nENDPOINT_QUEUE_TIMEOUT: 250")
+        .getPath());
+    Assert.assertEquals(8, this.configuration.getEndpointMaxConcurrentRequests());
+    Assert.assertEquals(50, this.configuration.getEndpointMaxRequestsPerSecond());
+    Assert.assertEquals(250, this.configuration.getEndpointQueueTimeout());
+  }
+
+  @Test
+  public void loadEndpointFailoverSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "OCSP_FAILOVER_SOURCES: http://ocsp1.example.com, http://ocsp2.example.com\n" +
+            "TSP_FAILOVER_SOURCES: http://tsa.example.com\nENDPOINT_HEDGING_PERCENTILE: 95\n" +
+            "ENDPOINT_FAILURE_THRESHOLD: 5\nENDPOINT_OPEN_CIRCUIT_TIME: 1000").getPath());
+    Assert.assertEquals(Arrays.asList("http://ocsp1.example.com", "http://ocsp2.example.com"),
+        this.configuration.getOcspFailoverSources());
+    Assert.assertEquals(Collections.singletonList("http://tsa.example.com"),
+        this.configuration.getTspFailoverSources());
+    Assert.assertEquals(95, this.configuration.getEndpointHedgingPercentile());
+    Assert.assertEquals(5, this.configuration.getEndpointFailureThreshold());
+    Assert.assertEquals(1000, this.configuration.getEndpointOpenCircuitTime());
+  }
+
+  @Test
+  public void defaultConnectionPoolSettings() throws Exception {
+    Assert.assertFalse(this.configuration.isConnectionPoolEnabled());
+    Assert.assertEquals(20, this.configuration.getConnectionPoolMaxTotal());
+    Assert.assertEquals(10, this.configuration.getConnectionPoolMaxPerRoute());
+    Assert.assertEquals(30000, this.configuration.getConnectionKeepAliveTime());
+    Assert.assertEquals(60000, this.configuration.getConnectionIdleEvictionTime());
+  }
+
+  @Test
+  public void loadConnectionPoolSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter("CONNECTION_POOL_ENABLED: true\n"
+        + "CONNECTION_POOL_MAX_TOTAL: 40\nCONNECTION_POOL_MAX_PER_ROUTE: 4\nCONNECTION_KEEP_ALIVE_TIME: 1337\n"
+        + "CONNECTION_IDLE_EVICTION_TIME: 1776").getPath());
+    Assert.assertTrue(this.configuration.isConnectionPoolEnabled());
+    Assert.assertEquals(40, this.configuration.getConnectionPoolMaxTotal());
+    Assert.assertEquals(4, this.configuration.getConnectionPoolMaxPerRoute());
+    Assert.assertEquals(1337, this.configuration.getConnectionKeepAliveTime());
+    Assert.assertEquals(1776, this.configuration.getConnectionIdleEvictionTime());
+  }
+
+  @Test
+  public void defaultTslLoaderSettings() throws Exception {
+    Assert.assertEquals(8, this.configuration.getTslLoaderThreads());
+    Assert.assertEquals(60000, this.configuration.getTslTerritoryTimeout());
+    Assert.assertNull(this.configuration.getTslThreadExecutor());
+  }
+
+  @Test
+  public void loadTslLoaderSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "TSL_LOADER_THREADS: 3\nTSL_TERRITORY_TIMEOUT: 1337").getPath());
+    Assert.assertEquals(3, this.configuration.getTslLoaderThreads());
+    Assert.assertEquals(1337, this.configuration.getTslTerritoryTimeout());
+  }
+
+  @Test
+  public void defaultAsyncTaskSettings() throws Exception {
+    Assert.assertEquals(8, this.configuration.getAsyncTaskThreads());
+    Assert.assertEquals(100, this.configuration.getAsyncTaskQueueSize());
+    Assert.assertNull(this.configuration.getAsyncTaskExecutor());
+  }
+
+  @Test
+  public void loadAsyncTaskSettingsFromConfigurationFile() throws Exception {
+    this.configuration.loadConfiguration(this.generateConfigurationByParameter(
+        "ASYNC_TASK_THREADS: 3\nASYNC_TASK_QUEUE_SIZE: 7").getPath());
+    Assert.assertEquals(3, this.configuration.getAsyncTaskThreads());
+    Assert.assertEquals(7, this.configuration.getAsyncTaskQueueSize());
+  }
+
+  @Test
+  public void asyncTasksOverQueueSizeAreRejected() throws Exception {
+    this.configuration.setAsyncTaskThreads(1);
+    this.configuration.setAsyncTaskQueueSize(1);
+    final CountDownLatch latch = new CountDownLatch(1);
+    Callable<Object> task = new Callable<Object>() {
+
+      @Override
+      public Object call() throws Exception {
+        latch.await();
+        return null;
+      }
+
+    };
+    try {
+      AsyncTaskExecutor.submit(this.configuration, task, null);
+      AsyncTaskExecutor.submit(this.configuration, task, null);
+      AsyncTaskExecutor.submit(this.configuration, task, null);
+      Assert.fail("Task over the queue size must be rejected");
+    } catch (TechnicalException e) {
+      Assert.assertTrue(e.getMessage().contains("rejected"));
+    } finally {
+      latch.countDown();
+    }
+  }
+
   @Test
   public void defaultProxyConfiguration_shouldNotBeSet() throws Exception {
     Assert.assertFalse(this.configuration.isNetworkProxyEnabled());
@@ -14,15 +14,23 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FileUtils;
 import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.impl.DigestCache;
+import org.digidoc4j.impl.DigestCachingFileDocument;
 import org.digidoc4j.test.MockDataFile;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.europa.esig.dss.DSSException;
+import eu.europa.esig.dss.InMemoryDocument;
+
 public class DataFileTest extends AbstractTest {
 
   private DataFile dataFile;
@@ -142,8 +150,58 @@ public class DataFileTest extends AbstractTest {
 
   @Test
   public void testDigestIsCalculatedOnlyOnce() throws Exception {
+    final AtomicInteger digestCount = new AtomicInteger();
+    this.dataFile.setDocument(new InMemoryDocument(new byte[]{1, 2}, "fileName") {
+
+      @Override
+      public String getDigest(eu.europa.esig.dss.DigestAlgorithm digestAlgorithm) {
+        digestCount.incrementAndGet();
+        return super.getDigest(digestAlgorithm);
+      }
+
+    });
     byte[] digest = this.dataFile.calculateDigest();
-    Assert.assertEquals(digest, this.dataFile.calculateDigest(new URL("http://NonExisting.test")));
+    Assert.assertArrayEquals(digest, this.dataFile.calculateDigest(
+        new URL("http://www.w3.org/2001/04/xmlenc#sha256")));
+    Assert.assertEquals(1, digestCount.get());
+  }
+
+  @Test
+  public void testChangingReturnedDigestDoesNotChangeCachedDigest() throws Exception {
+    byte[] digest = this.dataFile.calculateDigest();
+    byte[] expectedDigest = digest.clone();
+    digest[0]++;
+    Assert.assertArrayEquals(expectedDigest, this.dataFile.calculateDigest());
+  }
+
+  @Test
+  public void testDigestsOfDifferentAlgorithmsAreCachedSeparately() throws Exception {
+    Assert.assertEquals("RqDqtqi3rTsWj07rrWc5kATAZIw7T1XHP/NPLCF05RU=",
+        Base64.encodeBase64String(this.dataFile.calculateDigest()));
+    Assert.assertEquals("OQj17m9Rt2vPXYrry+v/KHpf98Q=",
+        Base64.encodeBase64String(this.dataFile.calculateDigest(DigestAlgorithm.SHA1)));
+    Assert.assertEquals("RqDqtqi3rTsWj07rrWc5kATAZIw7T1XHP/NPLCF05RU=",
+        Base64.encodeBase64String(this.dataFile.calculateDigest(DigestAlgorithm.SHA256)));
+  }
+
+  @Test
+  public void testPrefilledDigestsAreCalculatedReadingFileOnce() throws Exception {
+    final AtomicInteger readCount = new AtomicInteger();
+    this.dataFile.setDocument(new DigestCachingFileDocument("src/test/resources/testFiles/helper-files/test.txt") {
+
+      @Override
+      public InputStream openStream() throws DSSException {
+        readCount.incrementAndGet();
+        return super.openStream();
+      }
+
+    });
+    DigestCache.prefill(this.dataFile.getDocument(), EnumSet.of(eu.europa.esig.dss.DigestAlgorithm.SHA512,
+        eu.europa.esig.dss.DigestAlgorithm.SHA256));
+    Assert.assertEquals("RqDqtqi3rTsWj07rrWc5kATAZIw7T1XHP/NPLCF05RU=",
+        Base64.encodeBase64String(this.dataFile.calculateDigest(DigestAlgorithm.SHA256)));
+    this.dataFile.calculateDigest(DigestAlgorithm.SHA512);
+    Assert.assertEquals(1, readCount.get());
   }
 
   /*
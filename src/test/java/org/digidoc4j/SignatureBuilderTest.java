@@ -15,6 +15,9 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.security.Security;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -151,6 +154,31 @@ public class SignatureBuilderTest extends AbstractTest {
     container.saveAsFile(this.getFileBy("bdoc"));
   }
 
+  @Test
+  public void finalizeSignatureAsynchronously_shouldNotifyCallback() throws Exception {
+    Container container = this.createNonEmptyContainer();
+    DataToSign dataToSign = SignatureBuilder.aSignature(container).withSignatureProfile(SignatureProfile.B_BES).
+        withSigningCertificate(this.pkcs12SignatureToken.getCertificate()).buildDataToSign();
+    byte[] signatureValue = TestSigningUtil.sign(dataToSign.getDataToSign(), dataToSign.getDigestAlgorithm());
+    final AtomicReference<Signature> callbackSignature = new AtomicReference<>();
+    Future<Signature> future = dataToSign.finalizeAsync(signatureValue, new AsyncCallback<Signature>() {
+
+      @Override
+      public void onSuccess(Signature result) {
+        callbackSignature.set(result);
+      }
+
+      @Override
+      public void onFailure(Exception exception) {
+        Assert.fail(exception.getMessage());
+      }
+
+    });
+    Signature signature = future.get(1, TimeUnit.MINUTES);
+    Assert.assertSame(signature, callbackSignature.get());
+    Assert.assertEquals(SignatureProfile.B_BES, signature.getProfile());
+  }
+
   @Test
   public void signatureProfileShouldBeSetProperlyForBDoc() throws Exception {
     Signature signature = createBDocSignatureWithProfile(SignatureProfile.B_BES);
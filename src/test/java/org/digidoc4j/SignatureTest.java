@@ -31,7 +31,9 @@ import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
 import org.digidoc4j.impl.asic.tsl.TslManager;
 import org.digidoc4j.impl.ddoc.DDocFacade;
 import org.digidoc4j.impl.ddoc.DDocOpener;
+import org.digidoc4j.test.MockResponderServer;
 import org.digidoc4j.test.TestAssert;
+import org.digidoc4j.test.util.TestCommonUtil;
 import org.digidoc4j.test.util.TestDataBuilderUtil;
 import org.digidoc4j.test.util.TestTSLUtil;
 import org.digidoc4j.utils.DateUtils;
@@ -449,6 +451,99 @@ public class SignatureTest extends AbstractTest {
     Assert.assertEquals(SignatureQualification.NA.getLabel(), result.getSignatureQualification(null).getLabel());
   }
 
+  @Test
+  public void signAndValidateWithMockResponderServer() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      this.configuration = new Configuration(Configuration.Mode.TEST);
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      Container container = this.createNonEmptyContainerByConfiguration();
+      Signature signature = this.createSignatureBy(container, SignatureProfile.LT, server.getSignatureToken());
+      Assert.assertEquals(1, server.getOcspRequestCount());
+      Assert.assertEquals(1, server.getTsaRequestCount());
+      Assert.assertTrue(signature.validateSignature().isValid());
+      String file = this.getFileBy("bdoc");
+      container.saveAsFile(file);
+      container = this.openContainerByConfiguration(Paths.get(file), this.configuration);
+      TestAssert.assertContainerIsValid(container);
+    }
+  }
+
+  @Test
+  public void signTwiceWithOCSPReuseWindow_doesNotReuseResponseProducedBeforeTimestamp() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      this.configuration = new Configuration(Configuration.Mode.TEST);
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      this.configuration.setOCSPReuseWindow(60000);
+      Container container = this.createNonEmptyContainerByConfiguration();
+      Signature signature = this.createSignatureBy(container, SignatureProfile.LT, server.getSignatureToken());
+      TestCommonUtil.sleepInSeconds(2);
+      Signature otherSignature = this.createSignatureBy(container, SignatureProfile.LT, server.getSignatureToken());
+      Assert.assertEquals(2, server.getOcspRequestCount());
+      Assert.assertEquals(2, server.getTsaRequestCount());
+      Assert.assertFalse(otherSignature.getOCSPResponseCreationTime().before(
+          otherSignature.getTimeStampCreationTime()));
+      Assert.assertTrue(signature.validateSignature().isValid());
+      Assert.assertTrue(otherSignature.validateSignature().isValid());
+      String file = this.getFileBy("bdoc");
+      container.saveAsFile(file);
+      container = this.openContainerByConfiguration(Paths.get(file), this.configuration);
+      TestAssert.assertContainerIsValid(container);
+    }
+  }
+
+  @Test
+  public void extendSignaturesWithOCSPReuseWindow_reusesResponseAfterTimestampingAllSignatures() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      this.configuration = new Configuration(Configuration.Mode.TEST);
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      this.configuration.setOCSPReuseWindow(60000);
+      Container container = this.createNonEmptyContainerByConfiguration();
+      for (int i = 0; i < 3; i++) {
+        this.createSignatureBy(container, SignatureProfile.B_BES, server.getSignatureToken());
+      }
+      container.extendSignatureProfile(SignatureProfile.LT);
+      Assert.assertEquals(3, server.getTsaRequestCount());
+      Assert.assertEquals(1, server.getOcspRequestCount());
+      for (Signature signature : container.getSignatures()) {
+        Assert.assertEquals(SignatureProfile.LT, signature.getProfile());
+        Assert.assertFalse(signature.getOCSPResponseCreationTime().before(signature.getTimeStampCreationTime()));
+        Assert.assertTrue(signature.validateSignature().isValid());
+      }
+      String file = this.getFileBy("bdoc");
+      container.saveAsFile(file);
+      container = this.openContainerByConfiguration(Paths.get(file), this.configuration);
+      TestAssert.assertContainerIsValid(container);
+    }
+  }
+
+  @Test
+  public void extendSignaturesWithoutOCSPReuseWindow_requestsResponseForEverySignature() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      this.configuration = new Configuration(Configuration.Mode.TEST);
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      Container container = this.createNonEmptyContainerByConfiguration();
+      for (int i = 0; i < 3; i++) {
+        this.createSignatureBy(container, SignatureProfile.B_BES, server.getSignatureToken());
+      }
+      container.extendSignatureProfile(SignatureProfile.LT);
+      Assert.assertEquals(3, server.getTsaRequestCount());
+      Assert.assertEquals(3, server.getOcspRequestCount());
+      TestAssert.assertContainerIsValid(container);
+    }
+  }
+
   /*
    * RESTRICTED METHODS
    */
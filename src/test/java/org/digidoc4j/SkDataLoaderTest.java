@@ -10,12 +10,34 @@
 
 package org.digidoc4j;
 
+import java.math.BigInteger;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.asn1.cmp.PKIStatus;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
 import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
 import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampRequestGenerator;
 import org.bouncycastle.tsp.TimeStampResponse;
+import org.digidoc4j.exceptions.EndpointOverloadedException;
 import org.digidoc4j.impl.asic.CachingDataLoader;
+import org.digidoc4j.impl.asic.EndpointGroup;
+import org.digidoc4j.impl.asic.EndpointLimiter;
+import org.digidoc4j.impl.asic.SkConnectionPool;
 import org.digidoc4j.impl.asic.SkDataLoader;
 import org.digidoc4j.impl.asic.tsl.TslLoader;
+import org.digidoc4j.test.MockResponderServer;
 import org.digidoc4j.test.MockSkDataLoader;
 import org.digidoc4j.test.TestAssert;
 import org.digidoc4j.utils.Helper;
@@ -27,10 +49,13 @@ import org.junit.Test;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
+import eu.europa.esig.dss.DSSException;
+import eu.europa.esig.dss.DSSRevocationUtils;
 import eu.europa.esig.dss.MimeType;
 import eu.europa.esig.dss.client.http.commons.CommonsDataLoader;
 import eu.europa.esig.dss.client.http.proxy.ProxyConfig;
 import eu.europa.esig.dss.client.http.proxy.ProxyProperties;
+import eu.europa.esig.dss.x509.CertificateToken;
 
 public class SkDataLoaderTest extends AbstractTest {
 
@@ -70,6 +95,219 @@ public class SkDataLoaderTest extends AbstractTest {
         withHeader("User-Agent", WireMock.containing("LIB DigiDoc4j")));
   }
 
+  @Test
+  public void ocspDataLoader_withConnectionPool_reusesSharedClient() throws Exception {
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody("response")));
+    this.configuration.setConnectionPoolEnabled(true);
+    SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    Assert.assertEquals("response", new String(dataLoader.post(MOCK_PROXY_URL, new byte[]{1})));
+    Assert.assertEquals("response", new String(dataLoader.post(MOCK_PROXY_URL, new byte[]{2})));
+    Assert.assertSame(SkConnectionPool.getHttpClient(this.configuration),
+        SkConnectionPool.getHttpClient(new Configuration(Configuration.Mode.TEST)));
+    WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlEqualTo("/")));
+  }
+
+  @Test
+  public void connectionPool_withDifferentProxyPasswords_usesDifferentClients() throws Exception {
+    Configuration configuration = this.createProxyConfiguration("password");
+    Assert.assertSame(SkConnectionPool.getHttpClient(configuration),
+        SkConnectionPool.getHttpClient(this.createProxyConfiguration("password")));
+    Assert.assertNotSame(SkConnectionPool.getHttpClient(configuration),
+        SkConnectionPool.getHttpClient(this.createProxyConfiguration("otherPassword")));
+  }
+
+  @Test
+  public void ocspDataLoader_withFailoverSources_failsOverToNextSource() throws Exception {
+    byte[] ocspResponse = new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, null).getEncoded();
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/primary")).willReturn(WireMock.aResponse()
+        .withStatus(500)));
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/failover")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody(ocspResponse)));
+    EndpointGroup.reset();
+    this.configuration.setOcspSource(MOCK_PROXY_URL + "primary");
+    this.configuration.setOcspFailoverSources(MOCK_PROXY_URL + "failover");
+    this.configuration.setEndpointFailureThreshold(1);
+    SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    Assert.assertArrayEquals(ocspResponse, dataLoader.post(MOCK_PROXY_URL + "primary", new byte[]{1}));
+    Assert.assertArrayEquals(ocspResponse, dataLoader.post(MOCK_PROXY_URL + "primary", new byte[]{2}));
+    WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlEqualTo("/primary")));
+    WireMock.verify(2, WireMock.postRequestedFor(WireMock.urlEqualTo("/failover")));
+  }
+
+  @Test
+  public void ocspDataLoader_withAllCircuitsOpen_failsWithoutSendingRequest() throws Exception {
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/primary")).willReturn(WireMock.aResponse()
+        .withStatus(500)));
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/failover")).willReturn(WireMock.aResponse()
+        .withStatus(500)));
+    EndpointGroup.reset();
+    this.configuration.setOcspSource(MOCK_PROXY_URL + "primary");
+    this.configuration.setOcspFailoverSources(MOCK_PROXY_URL + "failover");
+    this.configuration.setEndpointFailureThreshold(1);
+    this.configuration.setEndpointOpenCircuitTime(60000);
+    SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    try {
+      dataLoader.post(MOCK_PROXY_URL + "primary", new byte[]{1});
+      Assert.fail("Request to failing endpoints must fail");
+    } catch (RuntimeException e) {
+      //Both endpoints failed and opened their circuits
+    }
+    try {
+      dataLoader.post(MOCK_PROXY_URL + "primary", new byte[]{2});
+      Assert.fail("Request to endpoints with open circuits must fail");
+    } catch (DSSException e) {
+      Assert.assertTrue(e.getMessage().contains("are open"));
+      Assert.assertTrue(e.getMessage().contains(MOCK_PROXY_URL + "failover"));
+    }
+    WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlEqualTo("/primary")));
+    WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlEqualTo("/failover")));
+  }
+
+  @Test
+  public void ocspDataLoader_withHedging_usesResponseOfSourceAnsweringFirst() throws Exception {
+    byte[] ocspResponse = new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, null).getEncoded();
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/primary")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody(ocspResponse)));
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/secondary")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody(ocspResponse).withFixedDelay(100)));
+    EndpointGroup.reset();
+    this.measureLatency(MOCK_PROXY_URL + "primary", 10);
+    this.measureLatency(MOCK_PROXY_URL + "secondary", 10);
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/primary")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody(ocspResponse).withFixedDelay(5000)));
+    this.configuration.setOcspSource(MOCK_PROXY_URL + "primary");
+    this.configuration.setOcspFailoverSources(MOCK_PROXY_URL + "secondary");
+    this.configuration.setEndpointHedgingPercentile(90);
+    this.configuration.setSocketTimeout(10000);
+    SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    long start = System.currentTimeMillis();
+    Assert.assertArrayEquals(ocspResponse, dataLoader.post(MOCK_PROXY_URL + "primary", new byte[]{1}));
+    Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+    WireMock.verify(11, WireMock.postRequestedFor(WireMock.urlEqualTo("/secondary")));
+  }
+
+  @Test
+  public void ocspDataLoader_overRateLimit_failsFast() throws Exception {
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody("response")));
+    EndpointLimiter.reset();
+    this.configuration.setEndpointMaxRequestsPerSecond(1);
+    this.configuration.setEndpointQueueTimeout(0);
+    SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    Assert.assertEquals("response", new String(dataLoader.post(MOCK_PROXY_URL, new byte[]{1})));
+    try {
+      dataLoader.post(MOCK_PROXY_URL, new byte[]{2});
+      Assert.fail("Request over the rate limit must be rejected");
+    } catch (EndpointOverloadedException e) {
+      Assert.assertTrue(e.getMessage().contains("requests per second"));
+    }
+    EndpointLimiter limiter = EndpointLimiter.getLimiter(MOCK_PROXY_URL);
+    Assert.assertEquals(1, limiter.getAcceptedRequests());
+    Assert.assertEquals(1, limiter.getRejectedRequests());
+    WireMock.verify(1, WireMock.postRequestedFor(WireMock.urlEqualTo("/")));
+  }
+
+  @Test
+  public void ocspDataLoader_overConcurrencyLimit_rejectedAfterQueueTimeout() throws Exception {
+    WireMock.stubFor(WireMock.post(WireMock.urlEqualTo("/")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody("response").withFixedDelay(2000)));
+    EndpointLimiter.reset();
+    this.configuration.setEndpointMaxConcurrentRequests(1);
+    this.configuration.setEndpointQueueTimeout(100);
+    final SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<byte[]> first = executor.submit(new Callable<byte[]>() {
+
+        @Override
+        public byte[] call() {
+          return dataLoader.post(MOCK_PROXY_URL, new byte[]{1});
+        }
+
+      });
+      EndpointLimiter limiter = null;
+      while (limiter == null || limiter.getActiveRequests() == 0) {
+        Thread.sleep(10);
+        limiter = EndpointLimiter.getLimiter(MOCK_PROXY_URL);
+      }
+      try {
+        dataLoader.post(MOCK_PROXY_URL, new byte[]{2});
+        Assert.fail("Request over the concurrency limit must be rejected");
+      } catch (EndpointOverloadedException e) {
+        Assert.assertTrue(e.getMessage().contains("concurrent requests"));
+      }
+      Assert.assertEquals("response", new String(first.get(10, TimeUnit.SECONDS)));
+      Assert.assertEquals(0, limiter.getActiveRequests());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void endpointLimiter_withDifferentLimits_keepsLimitsOfFirstCaller() throws Exception {
+    EndpointLimiter.reset();
+    EndpointLimiter limiter = EndpointLimiter.getLimiter(MOCK_PROXY_URL, 1, 10);
+    Assert.assertSame(limiter, EndpointLimiter.getLimiter(MOCK_PROXY_URL, 2, 20));
+    Assert.assertEquals(1, limiter.getMaxConcurrentRequests());
+    Assert.assertEquals(10, limiter.getMaxRequestsPerSecond());
+  }
+
+  @Test
+  public void ocspDataLoader_withMockResponderServer() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      CertificateToken certificate = new CertificateToken(this.openX509Certificate(
+          Paths.get("src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt")));
+      OCSPReq ocspRequest = new OCSPReqBuilder().addRequest(DSSRevocationUtils.getOCSPCertificateID(certificate,
+          certificate)).build();
+      SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
+      dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+      OCSPResp ocspResp = new OCSPResp(dataLoader.post(this.configuration.getOcspSource(), ocspRequest.getEncoded()));
+      Assert.assertEquals(OCSPResp.SUCCESSFUL, ocspResp.getStatus());
+      BasicOCSPResp basicResponse = (BasicOCSPResp) ocspResp.getResponseObject();
+      Assert.assertTrue(basicResponse.isSignatureValid(new JcaContentVerifierProviderBuilder()
+          .build(server.getOcspCertificate())));
+      Assert.assertNull(basicResponse.getResponses()[0].getCertStatus());
+      Assert.assertEquals(1, server.getOcspRequestCount());
+    }
+  }
+
+  @Test
+  public void timestampDataLoader_withMockResponderServer() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      TimeStampRequestGenerator generator = new TimeStampRequestGenerator();
+      generator.setCertReq(true);
+      TimeStampRequest tsRequest = generator.generate(TSPAlgorithms.SHA256, new byte[32], BigInteger.ONE);
+      SkDataLoader dataLoader = SkDataLoader.timestamp(this.configuration);
+      dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+      TimeStampResponse tsResponse = new TimeStampResponse(dataLoader.post(this.configuration.getTspSource(),
+          tsRequest.getEncoded()));
+      Assert.assertEquals(PKIStatus.GRANTED, tsResponse.getStatus());
+      tsResponse.validate(tsRequest);
+      Assert.assertEquals(1, server.getTsaRequestCount());
+    }
+  }
+
+  @Test(expected = DSSException.class)
+  public void timestampDataLoader_withFailingMockResponderServer() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      server.setFailureRate(1);
+      SkDataLoader dataLoader = SkDataLoader.timestamp(this.configuration);
+      dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+      dataLoader.post(this.configuration.getTspSource(), new TimeStampRequestGenerator().generate(
+          TSPAlgorithms.SHA256, new byte[32]).getEncoded());
+    }
+  }
+
   @Test
   public void ocspDataLoader_withoutProxyConfiguration() throws Exception {
     SkDataLoader dataLoader = SkDataLoader.ocsp(this.configuration);
@@ -82,6 +320,37 @@ public class SkDataLoaderTest extends AbstractTest {
     Assert.assertNull(dataLoader.getProxyConfig());
   }
 
+  @Test
+  public void cachingDataLoader_usesConditionalRequests() throws Exception {
+    WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/tsl.xml")).atPriority(2).willReturn(WireMock.aResponse()
+        .withStatus(200).withHeader("ETag", "\"v1\"").withBody("content")));
+    WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/tsl.xml")).atPriority(1)
+        .withHeader("If-None-Match", WireMock.equalTo("\"v1\"")).willReturn(WireMock.aResponse().withStatus(304)));
+    CachingDataLoader dataLoader = new CachingDataLoader(this.configuration);
+    dataLoader.setFileCacheDirectory(this.testFolder.newFolder());
+    Assert.assertEquals("content", new String(dataLoader.get(MOCK_PROXY_URL + "tsl.xml", true)));
+    Assert.assertEquals("content", new String(dataLoader.get(MOCK_PROXY_URL + "tsl.xml", true)));
+    WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/tsl.xml"))
+        .withHeader("If-None-Match", WireMock.equalTo("\"v1\"")));
+  }
+
+  @Test
+  public void cachingDataLoader_abortsDownloadAfterDownloadTimeout() throws Exception {
+    WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/tsl.xml")).willReturn(WireMock.aResponse()
+        .withStatus(200).withBody("content").withFixedDelay(5000)));
+    CachingDataLoader dataLoader = new CachingDataLoader(this.configuration);
+    dataLoader.setFileCacheDirectory(this.testFolder.newFolder());
+    dataLoader.setDownloadTimeout(200);
+    long start = System.currentTimeMillis();
+    try {
+      dataLoader.get(MOCK_PROXY_URL + "tsl.xml", true);
+      Assert.fail("Download must be aborted");
+    } catch (DSSException e) {
+      Assert.assertTrue(e.getMessage().contains("did not finish in 200 ms"));
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 4000);
+  }
+
   @Test
   public void ocspDataLoader_withProxyConfiguration() throws Exception {
     this.configuration.setHttpProxyHost("proxyHost");
@@ -192,4 +461,38 @@ public class SkDataLoaderTest extends AbstractTest {
     this.configuration = new Configuration(Configuration.Mode.TEST);
   }
 
+  private void measureLatency(String url, int requests) {
+    final SkDataLoader dataLoader = SkDataLoader.ocsp(new Configuration(Configuration.Mode.TEST));
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    EndpointGroup endpointGroup = new EndpointGroup(Collections.singletonList(url), this.configuration);
+    for (int i = 0; i < requests; i++) {
+      endpointGroup.execute(new EndpointGroup.Request() {
+
+        @Override
+        public byte[] send(String endpointUrl) {
+          return dataLoader.post(endpointUrl, new byte[]{1});
+        }
+
+        @Override
+        public boolean isValid(byte[] response) {
+          return true;
+        }
+
+        @Override
+        public void abort(String endpointUrl) {
+        }
+
+      });
+    }
+  }
+
+  private Configuration createProxyConfiguration(String proxyPassword) {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setHttpProxyHost("proxyHost");
+    configuration.setHttpProxyPort(1345);
+    configuration.setHttpProxyUser("proxyUser");
+    configuration.setHttpProxyPassword(proxyPassword);
+    return configuration;
+  }
+
 }
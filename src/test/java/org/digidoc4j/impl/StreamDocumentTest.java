@@ -13,6 +13,7 @@ package org.digidoc4j.impl;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,6 +23,7 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.IOUtils;
 import org.digidoc4j.AbstractTest;
@@ -151,6 +153,25 @@ public class StreamDocumentTest extends AbstractTest {
     Assert.assertEquals("VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=", document.getDigest(DigestAlgorithm.SHA256));
   }
 
+  @Test
+  public void getDigest_ofSeveralAlgorithms_readsTemporaryFileOnce() throws Exception {
+    final AtomicInteger reads = new AtomicInteger();
+    StreamDocument document = new StreamDocument(new ByteArrayInputStream(new byte[]{0x041}), "suur_a.txt",
+        MimeType.TEXT) {
+
+      @Override
+      protected FileInputStream getTemporaryFileAsStream() throws FileNotFoundException {
+        reads.incrementAndGet();
+        return super.getTemporaryFileAsStream();
+      }
+
+    };
+    String sha512Digest = document.getDigest(DigestAlgorithm.SHA512);
+    Assert.assertEquals("VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=", document.getDigest(DigestAlgorithm.SHA256));
+    Assert.assertEquals(sha512Digest, document.getDigest(DigestAlgorithm.SHA512));
+    Assert.assertEquals(1, reads.get());
+  }
+
   /*
     NB! If this test fails then ensure that directory testFiles/tmp/readonly is read-only!
    */
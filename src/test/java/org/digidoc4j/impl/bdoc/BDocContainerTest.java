@@ -45,6 +45,7 @@ import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.exceptions.DuplicateDataFileException;
 import org.digidoc4j.exceptions.InvalidSignatureException;
 import org.digidoc4j.exceptions.OCSPRequestFailedException;
+import org.digidoc4j.impl.asic.DigestedEntryDocument;
 import org.digidoc4j.impl.asic.asice.AsicESignature;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocContainer;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocSignature;
@@ -215,6 +216,21 @@ public class BDocContainerTest extends AbstractTest {
     Assert.assertTrue(container.validate().isValid());
   }
 
+  @Test
+  public void openSignedContainerFromStream_inStreamingValidationMode_validatesAgainstDigests() throws Exception {
+    Container container = this.createNonEmptyContainerBy(Container.DocumentType.BDOC);
+    this.createSignatureBy(container, this.pkcs12SignatureToken);
+    String file = this.getFileBy("bdoc");
+    container.saveAsFile(file);
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setStreamingValidation(true);
+    try (InputStream stream = new FileInputStream(file)) {
+      container = ContainerBuilder.aContainer().withConfiguration(configuration).fromStream(stream).build();
+    }
+    Assert.assertTrue(container.getDataFiles().get(0).getDocument() instanceof DigestedEntryDocument);
+    Assert.assertTrue(container.validate().isValid());
+  }
+
   @Test
   public void testGetDefaultSignatureParameters() {
     Container container = this.createNonEmptyContainerBy(Container.DocumentType.BDOC);
@@ -258,6 +258,28 @@ public class ValidationTests extends AbstractTest {
         .open("src/test/resources/testFiles/invalid-containers/22913_signatures_xml_double.bdoc").validate();
   }
 
+  @Test(expected = DuplicateDataFileException.class)
+  public void duplicateFileThrowsException_whenMemoryMapped() {
+    this.configuration.setMemoryMappedContainerReading(true);
+    ContainerOpener.open("src/test/resources/testFiles/invalid-containers/22902_data_files_with_same_names.bdoc",
+        this.configuration).validate();
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void duplicateFileThrowsException_whenMemoryMappedAndLazilyLoaded() {
+    this.configuration.setMemoryMappedContainerReading(true);
+    this.configuration.setLazyContainerLoading(true);
+    ContainerOpener.open("src/test/resources/testFiles/invalid-containers/22902_data_files_with_same_names.bdoc",
+        this.configuration).validate();
+  }
+
+  @Test(expected = DigiDoc4JException.class)
+  public void duplicateSignatureFileThrowsException_whenMemoryMapped() {
+    this.configuration.setMemoryMappedContainerReading(true);
+    ContainerOpener.open("src/test/resources/testFiles/invalid-containers/22913_signatures_xml_double.bdoc",
+        this.configuration).validate();
+  }
+
   @Test
   public void missingManifestFile() {
     Container container = ContainerOpener
@@ -10,19 +10,31 @@
 
 package org.digidoc4j.impl.bdoc.asic;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.digidoc4j.AbstractTest;
 import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.asic.AsicContainer;
 import org.digidoc4j.impl.asic.AsicEntry;
+import org.digidoc4j.impl.asic.AsicFileContainerParser;
 import org.digidoc4j.impl.asic.AsicParseResult;
 import org.digidoc4j.impl.asic.AsicStreamContainerParser;
+import org.digidoc4j.impl.asic.DigestedEntryDocument;
+import org.digidoc4j.impl.asic.ZipEntryDocument;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.europa.esig.dss.InMemoryDocument;
+
 public class AsicContainerParserTest extends AbstractTest {
 
   @Test
@@ -83,6 +95,105 @@ public class AsicContainerParserTest extends AbstractTest {
     }
   }
 
+  @Test
+  public void parseBdocFromStream_dataFileLargerThanCacheLimit_isSpilledToTempFileDirectory() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+    File spillDirectory = this.testFolder.newFolder("spill");
+    configuration.setTempFileDirectory(spillDirectory.getPath());
+    String path = "src/test/resources/testFiles/invalid-containers/two_signatures.bdoc";
+    AsicParseResult result = new AsicStreamContainerParser(new FileInputStream(path), configuration).read();
+    DataFile dataFile = result.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof StreamDocument);
+    Assert.assertEquals(spillDirectory.getCanonicalFile(),
+        new File(dataFile.getDocument().getAbsolutePath()).getParentFile().getCanonicalFile());
+    Assert.assertArrayEquals(this.getParseResultFromFile(Paths.get(path)).getDataFiles().get(0).getBytes(),
+        dataFile.getBytes());
+  }
+
+  @Test
+  public void parseBdocFromStream_dataFileWithinCacheLimit_isKeptInMemory() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    String path = "src/test/resources/testFiles/invalid-containers/two_signatures.bdoc";
+    AsicParseResult result = new AsicStreamContainerParser(new FileInputStream(path), configuration).read();
+    Assert.assertTrue(result.getDataFiles().get(0).getDocument() instanceof InMemoryDocument);
+  }
+
+  @Test
+  public void parseBdocFromStream_inStreamingValidationMode_keepsOnlyDigests() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setStreamingValidation(true);
+    String path = "src/test/resources/testFiles/invalid-containers/two_signatures.bdoc";
+    AsicParseResult result = new AsicStreamContainerParser(new FileInputStream(path), configuration).read();
+    this.assertParseResultValid(result);
+    DataFile dataFile = result.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof DigestedEntryDocument);
+    DataFile expectedDataFile = this.getParseResultFromFile(Paths.get(path)).getDataFiles().get(0);
+    for (eu.europa.esig.dss.DigestAlgorithm digestAlgorithm : Arrays.asList(eu.europa.esig.dss.DigestAlgorithm.SHA256,
+        eu.europa.esig.dss.DigestAlgorithm.SHA384, eu.europa.esig.dss.DigestAlgorithm.SHA512)) {
+      Assert.assertEquals(expectedDataFile.getDocument().getDigest(digestAlgorithm),
+          dataFile.getDocument().getDigest(digestAlgorithm));
+    }
+    Assert.assertEquals(expectedDataFile.getBytes().length, dataFile.getFileSize());
+  }
+
+  @Test
+  public void parseBdocFromFile_lazily_readsDataFilesFromContainerFile() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setLazyContainerLoading(true);
+    String path = "src/test/resources/testFiles/invalid-containers/two_signatures.bdoc";
+    AsicParseResult result = new AsicFileContainerParser(path, configuration).read();
+    this.assertParseResultValid(result);
+    DataFile dataFile = result.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof ZipEntryDocument);
+    byte[] expectedBytes = this.getParseResultFromFile(Paths.get(path)).getDataFiles().get(0).getBytes();
+    Assert.assertArrayEquals(expectedBytes, dataFile.getBytes());
+    Assert.assertEquals(expectedBytes.length, dataFile.getFileSize());
+    result.getContainerFile().close();
+    try {
+      dataFile.getBytes();
+      Assert.fail("Data file was read from closed container");
+    } catch (TechnicalException e) {
+      Assert.assertTrue(e.getMessage().contains("is closed"));
+    }
+  }
+
+  @Test
+  public void parseBdocFromFile_throughMemoryMapping() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMemoryMappedContainerReading(true);
+    configuration.setLazyContainerLoading(true);
+    String path = "src/test/resources/testFiles/invalid-containers/two_signatures.bdoc";
+    AsicParseResult result = new AsicFileContainerParser(path, configuration).read();
+    try {
+      this.assertParseResultValid(result);
+      DataFile expectedDataFile = this.getParseResultFromFile(Paths.get(path)).getDataFiles().get(0);
+      DataFile dataFile = result.getDataFiles().get(0);
+      Assert.assertArrayEquals(expectedDataFile.getBytes(), dataFile.getBytes());
+      Assert.assertArrayEquals(expectedDataFile.calculateDigest(), dataFile.calculateDigest());
+    } finally {
+      result.getContainerFile().close();
+    }
+  }
+
+  @Test
+  public void lazilyOpenedContainer_savedOverItsOwnFile() throws Exception {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setLazyContainerLoading(true);
+    File file = this.testFolder.newFile("lazy.bdoc");
+    FileUtils.copyFile(new File("src/test/resources/testFiles/invalid-containers/two_signatures.bdoc"), file);
+    try (AsicContainer container = (AsicContainer) this.openContainerByConfiguration(file.toPath(),
+        configuration)) {
+      byte[] dataFileBytes = container.getDataFiles().get(0).getBytes();
+      container.saveAsFile(file.getPath());
+      Assert.assertArrayEquals(dataFileBytes, container.getDataFiles().get(0).getBytes());
+    }
+    Container container = this.openContainerBy(file.toPath());
+    Assert.assertEquals(2, container.getSignatures().size());
+    Assert.assertEquals("test.txt", container.getDataFiles().get(0).getName());
+  }
+
   /*
    * RESTRICTED METHODS
    */
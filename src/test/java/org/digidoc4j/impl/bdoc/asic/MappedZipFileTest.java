@@ -0,0 +1,112 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.asic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.impl.asic.MappedZipFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedZipFileTest extends AbstractTest {
+
+  private static final byte[] STORED_CONTENT = "application/vnd.etsi.asic-e+zip".getBytes();
+  private static final byte[] DEFLATED_CONTENT = RandomUtils.nextBytes(100000);
+
+  @Test
+  public void readEntriesFromCentralDirectory() throws Exception {
+    try (MappedZipFile zipFile = new MappedZipFile(this.createZipFile().getPath())) {
+      List<ZipEntry> entries = zipFile.entries();
+      Assert.assertEquals(2, entries.size());
+      Assert.assertEquals("mimetype", entries.get(0).getName());
+      Assert.assertEquals(ZipEntry.STORED, entries.get(0).getMethod());
+      Assert.assertEquals("data/test.bin", entries.get(1).getName());
+      Assert.assertEquals(ZipEntry.DEFLATED, entries.get(1).getMethod());
+      Assert.assertEquals(DEFLATED_CONTENT.length, entries.get(1).getSize());
+      Assert.assertEquals("container comment", zipFile.getComment());
+      Assert.assertNull(zipFile.getEntry("missing"));
+    }
+  }
+
+  @Test
+  public void readStoredAndDeflatedEntries() throws Exception {
+    try (MappedZipFile zipFile = new MappedZipFile(this.createZipFile().getPath())) {
+      try (InputStream stream = zipFile.getInputStream(zipFile.getEntry("mimetype"))) {
+        Assert.assertArrayEquals(STORED_CONTENT, IOUtils.toByteArray(stream));
+      }
+      try (InputStream stream = zipFile.getInputStream(zipFile.getEntry("data/test.bin"))) {
+        Assert.assertArrayEquals(DEFLATED_CONTENT, IOUtils.toByteArray(stream));
+      }
+    }
+  }
+
+  @Test
+  public void storedEntryIsExposedAsBufferSlice() throws Exception {
+    try (MappedZipFile zipFile = new MappedZipFile(this.createZipFile().getPath())) {
+      ByteBuffer content = zipFile.getStoredContent(zipFile.getEntry("mimetype"));
+      Assert.assertTrue(content.isReadOnly());
+      byte[] bytes = new byte[content.remaining()];
+      content.get(bytes);
+      Assert.assertArrayEquals(STORED_CONTENT, bytes);
+      Assert.assertNull(zipFile.getStoredContent(zipFile.getEntry("data/test.bin")));
+    }
+  }
+
+  @Test
+  public void entriesWithDuplicateNamesAreAllListed() throws Exception {
+    try (MappedZipFile zipFile = new MappedZipFile(
+        "src/test/resources/testFiles/invalid-containers/22902_data_files_with_same_names.bdoc")) {
+      List<ZipEntry> entries = zipFile.entries();
+      Assert.assertEquals(5, entries.size());
+      Assert.assertEquals("SK-JDD-PRG-GUIDE-20130122_loplik.docx", entries.get(2).getName());
+      Assert.assertEquals("SK-JDD-PRG-GUIDE-20130122_loplik.docx", entries.get(3).getName());
+      Assert.assertSame(entries.get(2), zipFile.getEntry("SK-JDD-PRG-GUIDE-20130122_loplik.docx"));
+      try (InputStream stream = zipFile.getInputStream(entries.get(3))) {
+        Assert.assertEquals(entries.get(3).getSize(), IOUtils.toByteArray(stream).length);
+      }
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private File createZipFile() throws Exception {
+    File file = this.testFolder.newFile();
+    try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+      ZipEntry storedEntry = new ZipEntry("mimetype");
+      storedEntry.setMethod(ZipEntry.STORED);
+      storedEntry.setSize(STORED_CONTENT.length);
+      CRC32 crc = new CRC32();
+      crc.update(STORED_CONTENT);
+      storedEntry.setCrc(crc.getValue());
+      stream.putNextEntry(storedEntry);
+      stream.write(STORED_CONTENT);
+      stream.closeEntry();
+      stream.putNextEntry(new ZipEntry("data/test.bin"));
+      stream.write(DEFLATED_CONTENT);
+      stream.closeEntry();
+      stream.setComment("container comment");
+    }
+    return file;
+  }
+
+}
@@ -1,9 +1,15 @@
 package org.digidoc4j.impl.bdoc.asic;
 
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.bouncycastle.cms.CMSSignedData;
 import org.digidoc4j.AbstractTest;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.Container;
@@ -13,6 +19,7 @@ import org.digidoc4j.SignatureValidationResult;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.impl.asic.TimeStampContainerValidationResult;
 import org.digidoc4j.impl.asic.manifest.ManifestValidator;
+import org.digidoc4j.test.MockResponderServer;
 import org.digidoc4j.test.TestAssert;
 import org.digidoc4j.test.util.TestDigiDoc4JUtil;
 import org.hamcrest.core.StringContains;
@@ -21,6 +28,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.SystemOutRule;
 
+import eu.europa.esig.dss.DSSUtils;
 import eu.europa.esig.dss.DigestAlgorithm;
 import eu.europa.esig.dss.MimeType;
 import eu.europa.esig.dss.SignatureAlgorithm;
@@ -81,6 +89,35 @@ public class TimeStampTokenTest extends AbstractTest {
     container.validate();
   }
 
+  @Test
+  public void timestampTokenOfLargeDataFile_coversDigestOfWholeFile() throws Exception {
+    File dataFile = this.testFolder.newFile("large.bin");
+    byte[] chunk = new byte[1024 * 1024];
+    new Random(1).nextBytes(chunk);
+    try (OutputStream stream = new FileOutputStream(dataFile)) {
+      for (int i = 0; i < 8; i++) {
+        stream.write(chunk);
+      }
+    }
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      String fileName = this.getFileBy("asics");
+      ContainerBuilder.aContainer(Container.DocumentType.ASICS).withConfiguration(this.configuration).
+          withDataFile(dataFile.getPath(), "application/octet-stream").withTimeStampToken(DigestAlgorithm.SHA256).
+          build().saveAsFile(fileName);
+      org.bouncycastle.tsp.TimeStampToken timeStampToken;
+      try (ZipFile zipFile = new ZipFile(fileName)) {
+        timeStampToken = new org.bouncycastle.tsp.TimeStampToken(new CMSSignedData(Utils.toByteArray(
+            zipFile.getInputStream(zipFile.getEntry(META_INF_TIMESTAMP_TST)))));
+      }
+      Assert.assertEquals(1, server.getTsaRequestCount());
+      try (InputStream stream = new FileInputStream(dataFile)) {
+        Assert.assertArrayEquals(DSSUtils.digest(DigestAlgorithm.SHA256, stream),
+            timeStampToken.getTimeStampInfo().getMessageImprintDigest());
+      }
+    }
+  }
+
   @Test
   public void generatedTimestampToken() throws Exception {
     try (FileInputStream fis = new FileInputStream("src/test/resources/testFiles/tst/timestamp.tst")) {
@@ -0,0 +1,84 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.ocsp;
+
+import java.io.File;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.FileUtils;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.impl.OCSPRequestSigner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.europa.esig.dss.DSSRevocationUtils;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+public class OCSPRequestSignerTest extends AbstractTest {
+
+  private File accessCertificateFile;
+
+  @Test
+  public void signedRequestContainsRequestorNameAndCertificate() throws Exception {
+    OCSPReq request = new OCSPRequestSigner(this.accessCertificateFile.getPath(), "test").sign(this.createBuilder());
+    Assert.assertTrue(request.isSigned());
+    Assert.assertEquals(1, request.getCerts().length);
+    Assert.assertEquals(GeneralName.directoryName, request.getRequestorName().getTagNo());
+  }
+
+  @Test
+  public void accessCertificateIsReloadedWhenFileChanges() throws Exception {
+    OCSPRequestSigner signer = new OCSPRequestSigner(this.accessCertificateFile.getPath(), "test");
+    GeneralName requestorName = signer.sign(this.createBuilder()).getRequestorName();
+    Assert.assertEquals(requestorName, signer.sign(this.createBuilder()).getRequestorName());
+    FileUtils.copyFile(new File("src/test/resources/testFiles/p12/MadDogOY.p12"), this.accessCertificateFile);
+    Assert.assertTrue(this.accessCertificateFile.setLastModified(this.accessCertificateFile.lastModified() - 10000));
+    Assert.assertNotEquals(requestorName, signer.sign(this.createBuilder()).getRequestorName());
+  }
+
+  @Test
+  public void configurationReusesSignerUntilAccessCertificateChanges() throws Exception {
+    this.configuration.setOCSPAccessCertificateFileName(this.accessCertificateFile.getPath());
+    this.configuration.setOCSPAccessCertificatePassword("test".toCharArray());
+    OCSPRequestSigner signer = this.configuration.getOCSPRequestSigner();
+    Assert.assertSame(signer, this.configuration.getOCSPRequestSigner());
+    this.configuration.setOCSPAccessCertificateFileName("src/test/resources/testFiles/p12/MadDogOY.p12");
+    Assert.assertNotSame(signer, this.configuration.getOCSPRequestSigner());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.configuration = new Configuration(Configuration.Mode.TEST);
+    try {
+      this.accessCertificateFile = this.testFolder.newFile("access.p12");
+      FileUtils.copyFile(new File("src/test/resources/testFiles/p12/signout.p12"), this.accessCertificateFile);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private OCSPReqBuilder createBuilder() {
+    CertificateToken token = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt")));
+    CertificateID certificateID = DSSRevocationUtils.getOCSPCertificateID(token, token);
+    return new OCSPReqBuilder().addRequest(certificateID);
+  }
+
+}
@@ -0,0 +1,68 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.ocsp;
+
+import java.nio.file.Paths;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.exceptions.SignatureVerificationException;
+import org.digidoc4j.impl.OCSPResponderVerifierCache;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OCSPResponderVerifierCacheTest extends AbstractTest {
+
+  private static final String RESPONDER_CERTIFICATE =
+      "src/test/resources/testFiles/certs/SK-OCSP-RESPONDER-2011_test.cer";
+  private X509CertificateHolder responderCertificate;
+
+  @Test
+  public void verifierIsReusedForSameTslSnapshot() throws Exception {
+    TSLCertificateSource tsl = this.configuration.getTSL();
+    ContentVerifierProvider provider = OCSPResponderVerifierCache.getVerifierProvider(tsl, this.responderCertificate);
+    Assert.assertSame(provider, OCSPResponderVerifierCache.getVerifierProvider(tsl, this.responderCertificate));
+  }
+
+  @Test
+  public void verifierIsResolvedForEveryResponseFromManuallySetTsl() throws Exception {
+    TSLCertificateSourceImpl tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get(RESPONDER_CERTIFICATE), tsl);
+    ContentVerifierProvider provider = OCSPResponderVerifierCache.getVerifierProvider(tsl, this.responderCertificate);
+    Assert.assertNotNull(provider);
+    Assert.assertNotSame(provider, OCSPResponderVerifierCache.getVerifierProvider(tsl, this.responderCertificate));
+  }
+
+  @Test(expected = SignatureVerificationException.class)
+  public void responderCertificateMissingFromTsl_shouldThrowException() throws Exception {
+    OCSPResponderVerifierCache.getVerifierProvider(new TSLCertificateSourceImpl(), this.responderCertificate);
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.configuration = new Configuration(Configuration.Mode.TEST);
+    try {
+      this.responderCertificate = new X509CertificateHolder(this.openX509Certificate(Paths.get(RESPONDER_CERTIFICATE))
+          .getEncoded());
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
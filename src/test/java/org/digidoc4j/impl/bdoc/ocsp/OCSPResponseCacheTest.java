@@ -0,0 +1,187 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.ocsp;
+
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.impl.OCSPResponseCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.europa.esig.dss.DSSRevocationUtils;
+import eu.europa.esig.dss.x509.CertificateToken;
+import eu.europa.esig.dss.x509.ocsp.OCSPToken;
+
+public class OCSPResponseCacheTest extends AbstractTest {
+
+  private static final String ACCESS_LOCATION = "http://demo.sk.ee/ocsp";
+  private static final long MAX_AGE = 60000;
+  private OCSPResponseCache cache;
+  private CertificateID certificateID;
+
+  @Test
+  public void freshResponseIsReused() {
+    CountingRequest request = new CountingRequest(this.createToken(new Date(), null));
+    OCSPToken token = this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    Assert.assertSame(token, this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request));
+    Assert.assertEquals(1, request.count.get());
+    Assert.assertEquals(1, this.cache.size());
+  }
+
+  @Test
+  public void responseOlderThanMaxAgeIsRequestedAgain() {
+    CountingRequest request = new CountingRequest(this.createToken(new Date(System.currentTimeMillis() - 10), null));
+    this.cache.getToken(ACCESS_LOCATION, this.certificateID, 1, request);
+    this.cache.getToken(ACCESS_LOCATION, this.certificateID, 1, request);
+    Assert.assertEquals(2, request.count.get());
+  }
+
+  @Test
+  public void responsePastNextUpdateIsRequestedAgain() {
+    CountingRequest request = new CountingRequest(this.createToken(new Date(),
+        new Date(System.currentTimeMillis() - 1)));
+    this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    Assert.assertEquals(2, request.count.get());
+  }
+
+  @Test
+  public void responsesOfDifferentRespondersAreCachedSeparately() {
+    CountingRequest request = new CountingRequest(this.createToken(new Date(), null));
+    this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    this.cache.getToken("http://ocsp.sk.ee", this.certificateID, MAX_AGE, request);
+    Assert.assertEquals(2, request.count.get());
+    Assert.assertEquals(2, this.cache.size());
+  }
+
+  @Test
+  public void failedRequestIsNotCached() {
+    Callable<OCSPToken> request = new Callable<OCSPToken>() {
+
+      @Override
+      public OCSPToken call() {
+        throw new IllegalStateException("OCSP responder is not available");
+      }
+
+    };
+    try {
+      this.cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+      Assert.fail("Exception expected");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("OCSP responder is not available", e.getMessage());
+    }
+    Assert.assertEquals(0, this.cache.size());
+  }
+
+  @Test
+  public void concurrentRequestsForSameCertificateAreSentOnce() throws Exception {
+    final CountDownLatch requestStarted = new CountDownLatch(1);
+    final CountDownLatch responseReceived = new CountDownLatch(1);
+    final CountingRequest request = new CountingRequest(this.createToken(new Date(), null)) {
+
+      @Override
+      public OCSPToken call() throws Exception {
+        requestStarted.countDown();
+        responseReceived.await(10, TimeUnit.SECONDS);
+        return super.call();
+      }
+
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Callable<OCSPToken> validation = new Callable<OCSPToken>() {
+
+        @Override
+        public OCSPToken call() {
+          return OCSPResponseCacheTest.this.cache.getToken(ACCESS_LOCATION,
+              OCSPResponseCacheTest.this.certificateID, MAX_AGE, request);
+        }
+
+      };
+      Future<OCSPToken> first = executor.submit(validation);
+      Assert.assertTrue(requestStarted.await(10, TimeUnit.SECONDS));
+      Future<OCSPToken> second = executor.submit(validation);
+      Thread.sleep(100);
+      responseReceived.countDown();
+      Assert.assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals(1, request.count.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void leastRecentlyUsedResponseIsDroppedWhenCacheIsFull() {
+    OCSPResponseCache cache = new OCSPResponseCache(1);
+    CountingRequest request = new CountingRequest(this.createToken(new Date(), null));
+    cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    cache.getToken("http://ocsp.sk.ee", this.certificateID, MAX_AGE, request);
+    cache.getToken(ACCESS_LOCATION, this.certificateID, MAX_AGE, request);
+    Assert.assertEquals(3, request.count.get());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.cache = new OCSPResponseCache(100);
+    CertificateToken token = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt")));
+    this.certificateID = DSSRevocationUtils.getOCSPCertificateID(token, token);
+  }
+
+  private OCSPToken createToken(final Date thisUpdate, final Date nextUpdate) {
+    return new OCSPToken() {
+
+      @Override
+      public Date getThisUpdate() {
+        return thisUpdate;
+      }
+
+      @Override
+      public Date getNextUpdate() {
+        return nextUpdate;
+      }
+
+    };
+  }
+
+  private static class CountingRequest implements Callable<OCSPToken> {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private final OCSPToken token;
+
+    CountingRequest(OCSPToken token) {
+      this.token = token;
+    }
+
+    @Override
+    public OCSPToken call() throws Exception {
+      this.count.incrementAndGet();
+      return this.token;
+    }
+
+  }
+
+}
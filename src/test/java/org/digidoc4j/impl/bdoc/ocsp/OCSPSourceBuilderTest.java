@@ -10,17 +10,32 @@
 
 package org.digidoc4j.impl.bdoc.ocsp;
 
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 import org.digidoc4j.AbstractTest;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.OCSPSourceBuilder;
 import org.digidoc4j.SignatureProfile;
+import org.digidoc4j.TSLCertificateSource;
 import org.digidoc4j.impl.CommonOCSPSource;
 import org.digidoc4j.impl.SKOnlineOCSPSource;
+import org.digidoc4j.impl.SKOnlineTSPSource;
+import org.digidoc4j.impl.asic.SkDataLoader;
 import org.digidoc4j.impl.asic.ocsp.BDocTMOcspSource;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
+import org.digidoc4j.test.MockResponderServer;
 import org.digidoc4j.test.TestAssert;
+import org.digidoc4j.test.util.TestCommonUtil;
+import org.digidoc4j.utils.Helper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.europa.esig.dss.DSSUtils;
+import eu.europa.esig.dss.DigestAlgorithm;
+import eu.europa.esig.dss.x509.CertificateToken;
+import eu.europa.esig.dss.x509.ocsp.OCSPToken;
+
 public class OCSPSourceBuilderTest extends AbstractTest {
 
   @Test
@@ -47,10 +62,83 @@ public class OCSPSourceBuilderTest extends AbstractTest {
     TestAssert.assertOCSPSource(this.configuration, source, "ASiC_E_BASELINE_LT_TM");
   }
 
+  @Test
+  public void buildTimestampOCSPSource_withReuseWindowCappedByAllowedDelta() throws Exception {
+    this.configuration.setOCSPReuseWindow(TimeUnit.HOURS.toMillis(1));
+    this.configuration.setAllowedTimestampAndOCSPResponseDeltaInMinutes(5);
+    CommonOCSPSource source = (CommonOCSPSource) OCSPSourceBuilder.anOcspSource().withSignatureProfile(
+        SignatureProfile.LT).withConfiguration(this.configuration).build();
+    Assert.assertEquals(TimeUnit.MINUTES.toMillis(5), source.getReuseWindow());
+    CommonOCSPSource defaultSource = (CommonOCSPSource) OCSPSourceBuilder.defaultOCSPSource().withConfiguration(
+        this.configuration).build();
+    Assert.assertEquals(0, defaultSource.getReuseWindow());
+  }
+
+  @Test
+  public void timestampOCSPSource_withReuseWindow_reusesResponseProducedAfterTimestamp() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      this.configuration.setOCSPReuseWindow(60000);
+      CertificateToken signerToken = new CertificateToken(this.openX509Certificate(
+          Paths.get("src/test/resources/testFiles/certs/TESTofStatusRevoked.cer")));
+      CertificateToken issuerToken = new CertificateToken(this.openX509Certificate(
+          Paths.get("src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt")));
+      SKOnlineTSPSource tspSource = this.createTimeStampSource(server);
+      this.timestamp(tspSource);
+      OCSPToken token = this.buildTimestampOCSPSource(tspSource).getOCSPToken(signerToken, issuerToken);
+      Assert.assertSame(token, this.buildTimestampOCSPSource(tspSource).getOCSPToken(signerToken, issuerToken));
+      Assert.assertEquals(1, server.getOcspRequestCount());
+      TestCommonUtil.sleepInSeconds(2);
+      this.timestamp(tspSource);
+      Assert.assertNotSame(token, this.buildTimestampOCSPSource(tspSource).getOCSPToken(signerToken, issuerToken));
+      Assert.assertEquals(2, server.getOcspRequestCount());
+    }
+  }
+
+  @Test
+  public void timestampOCSPSource_withReuseWindowButWithoutTimestamp_doesNotReuseResponse() throws Exception {
+    try (MockResponderServer server = new MockResponderServer().start()) {
+      server.configure(this.configuration);
+      TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+      server.addToTsl(tsl);
+      this.configuration.setTSL(tsl);
+      this.configuration.setOCSPReuseWindow(60000);
+      CertificateToken signerToken = new CertificateToken(this.openX509Certificate(
+          Paths.get("src/test/resources/testFiles/certs/TESTofStatusRevoked.cer")));
+      CertificateToken issuerToken = new CertificateToken(this.openX509Certificate(
+          Paths.get("src/test/resources/testFiles/certs/TESTofESTEID-SK2011.crt")));
+      SKOnlineTSPSource tspSource = this.createTimeStampSource(server);
+      this.buildTimestampOCSPSource(tspSource).getOCSPToken(signerToken, issuerToken);
+      this.buildTimestampOCSPSource(tspSource).getOCSPToken(signerToken, issuerToken);
+      Assert.assertEquals(2, server.getOcspRequestCount());
+    }
+  }
+
   /*
    * RESTRICTED METHODS
    */
 
+  private SKOnlineOCSPSource buildTimestampOCSPSource(SKOnlineTSPSource tspSource) {
+    return (SKOnlineOCSPSource) OCSPSourceBuilder.anOcspSource().withSignatureProfile(SignatureProfile.LT)
+        .withTimeStampSource(tspSource).withConfiguration(this.configuration).build();
+  }
+
+  private SKOnlineTSPSource createTimeStampSource(MockResponderServer server) {
+    SKOnlineTSPSource tspSource = new SKOnlineTSPSource(server.getTsaUrl(), this.configuration);
+    SkDataLoader dataLoader = SkDataLoader.timestamp(this.configuration);
+    dataLoader.setUserAgent(Helper.createBDocUserAgent(SignatureProfile.LT));
+    tspSource.setDataLoader(dataLoader);
+    return tspSource;
+  }
+
+  private void timestamp(SKOnlineTSPSource tspSource) {
+    tspSource.getTimeStampResponse(DigestAlgorithm.SHA256, DSSUtils.digest(DigestAlgorithm.SHA256, new byte[]{1}));
+    Assert.assertNotNull(tspSource.getLastTimeStampTime());
+  }
+
   @Override
   protected void before() {
     this.configuration = new Configuration(Configuration.Mode.TEST);
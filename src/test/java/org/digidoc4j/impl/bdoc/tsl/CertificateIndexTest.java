@@ -0,0 +1,125 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.tsl;
+
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.impl.asic.tsl.CertificateIndex;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.europa.esig.dss.x509.CertificateToken;
+
+public class CertificateIndexTest extends AbstractTest {
+
+  private CertificateToken rootCertificate;
+  private CertificateToken intermediateCertificate;
+  private CertificateIndex index;
+
+  @Test
+  public void findBySubject() {
+    List<CertificateToken> tokens = this.index.getBySubject(this.intermediateCertificate.getSubjectX500Principal());
+    Assert.assertEquals(1, tokens.size());
+    Assert.assertEquals(this.intermediateCertificate, tokens.get(0));
+  }
+
+  @Test
+  public void findBySubjectKeyIdentifier() throws Exception {
+    byte[] keyIdentifier = ASN1OctetString.getInstance(JcaX509ExtensionUtils.parseExtensionValue(
+        this.intermediateCertificate.getCertificate().getExtensionValue(Extension.subjectKeyIdentifier.getId())))
+        .getOctets();
+    List<CertificateToken> tokens = this.index.getBySubjectKeyIdentifier(keyIdentifier);
+    Assert.assertEquals(1, tokens.size());
+    Assert.assertEquals(this.intermediateCertificate, tokens.get(0));
+  }
+
+  @Test
+  public void findByIssuerAndSerialNumber() {
+    Assert.assertEquals(this.intermediateCertificate, this.index.getByIssuerAndSerialNumber(
+        this.intermediateCertificate.getCertificate().getIssuerX500Principal(),
+        this.intermediateCertificate.getCertificate().getSerialNumber()));
+  }
+
+  @Test
+  public void findByDigest() throws Exception {
+    byte[] digest = MessageDigest.getInstance("SHA-256").digest(this.rootCertificate.getEncoded());
+    Assert.assertEquals(this.rootCertificate, this.index.getByDigest(digest));
+    Assert.assertEquals(this.rootCertificate, this.index.getByEncoded(this.rootCertificate.getEncoded()));
+  }
+
+  @Test
+  public void unknownCertificateIsNotFound() throws Exception {
+    CertificateIndex rootIndex = CertificateIndex.of(Arrays.asList(this.rootCertificate));
+    Assert.assertTrue(rootIndex.getBySubject(this.intermediateCertificate.getSubjectX500Principal()).isEmpty());
+    Assert.assertNull(rootIndex.getByEncoded(this.intermediateCertificate.getEncoded()));
+  }
+
+  @Test
+  public void tslIndexIsRebuiltAfterAddingCertificates() {
+    TSLCertificateSourceImpl tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), tsl);
+    Assert.assertEquals(1, tsl.getCertificateIndex().size());
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/ESTEID-SK_2011.pem.crt"), tsl);
+    Assert.assertEquals(2, tsl.getCertificateIndex().size());
+    Assert.assertSame(tsl.getCertificateIndex(), tsl.getCertificateIndex());
+  }
+
+  @Test
+  public void tslIndexIsRebuiltAfterAddingServiceOfExistingCertificate() {
+    TSLCertificateSourceImpl tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), tsl);
+    CertificateIndex index = tsl.getCertificateIndex();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), tsl);
+    Assert.assertEquals(1, tsl.getCertificateIndex().size());
+    Assert.assertNotSame(index, tsl.getCertificateIndex());
+    Assert.assertTrue(tsl.getCertificateIndex().getVersion() > index.getVersion());
+  }
+
+  @Test
+  public void copiedTslIndexContainsTokensOfCopy() {
+    TSLCertificateSourceImpl tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), tsl);
+    CertificateToken rootToken = tsl.getCertificateIndex().getByEncoded(this.rootCertificate.getEncoded());
+    TSLCertificateSourceImpl copy = tsl.copy();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/ESTEID-SK_2011.pem.crt"), copy);
+    CertificateIndex index = copy.getCertificateIndex();
+    Assert.assertEquals(2, index.size());
+    CertificateToken copiedRootToken = index.getByEncoded(this.rootCertificate.getEncoded());
+    Assert.assertNotNull(copiedRootToken);
+    Assert.assertNotSame(rootToken, copiedRootToken);
+    Assert.assertSame(copiedRootToken, index.getByIssuerAndSerialNumber(
+        this.rootCertificate.getCertificate().getIssuerX500Principal(),
+        this.rootCertificate.getCertificate().getSerialNumber()));
+    Assert.assertNotNull(index.getByEncoded(this.intermediateCertificate.getEncoded()));
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.rootCertificate = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt")));
+    this.intermediateCertificate = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/ESTEID-SK_2011.pem.crt")));
+    this.index = CertificateIndex.of(Arrays.asList(this.rootCertificate, this.intermediateCertificate));
+  }
+
+}
@@ -10,11 +10,15 @@
 
 package org.digidoc4j.impl.bdoc.tsl;
 
+import java.nio.file.Paths;
+
 import org.digidoc4j.AbstractTest;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.TSLCertificateSource;
 import org.digidoc4j.impl.asic.SKCommonCertificateVerifier;
-import org.digidoc4j.impl.asic.tsl.LazyCertificatePool;
+import org.digidoc4j.impl.asic.tsl.LazyTslCertificateSource;
+import org.digidoc4j.impl.asic.tsl.OverlayCertificatePool;
+import org.digidoc4j.impl.asic.tsl.TslSnapshot;
 import org.digidoc4j.test.util.TestCommonUtil;
 import org.junit.Assert;
 import org.junit.Test;
@@ -24,15 +28,28 @@ import eu.europa.esig.dss.x509.CertificatePool;
 public class LazyTslLoadingTest extends AbstractTest {
 
   @Test
-  public void createLazyCertificatePool() throws Exception {
+  public void createOverlayCertificatePool() throws Exception {
     TSLCertificateSource tsl = this.configuration.getTSL();
     SKCommonCertificateVerifier certificateVerifier = new SKCommonCertificateVerifier();
     certificateVerifier.setTrustedCertSource(tsl);
     CertificatePool certificatePool = certificateVerifier.createValidationPool();
-    Assert.assertTrue(certificatePool instanceof LazyCertificatePool);
+    Assert.assertTrue(certificatePool instanceof OverlayCertificatePool);
     Assert.assertEquals(tsl.getCertificatePool().getNumberOfCertificates(), certificatePool.getNumberOfCertificates());
   }
 
+  @Test
+  public void addingCertificate_publishesNewSnapshotWithoutModifyingPreviousOne() throws Exception {
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) this.configuration.getTSL();
+    TslSnapshot snapshot = tsl.getSnapshot();
+    int numberOfCertificates = snapshot.getCertificateIndex().size();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/exampleCA.cer"), tsl);
+    Assert.assertEquals(numberOfCertificates, snapshot.getCertificateIndex().size());
+    Assert.assertEquals(snapshot.getVersion() + 1, tsl.getSnapshot().getVersion());
+    Assert.assertEquals(numberOfCertificates + 1, tsl.getSnapshot().getCertificateIndex().size());
+    tsl.refresh();
+    Assert.assertEquals(numberOfCertificates + 1, tsl.getSnapshot().getCertificateIndex().size());
+  }
+
   @Test
   public void populateParameters_withoutDownloadingTsl() throws Exception {
     this.evictTSLCache();
@@ -100,6 +100,36 @@ public class TslLoaderTest extends AbstractTest {
     this.assertCountryLoaded(tslRepository, "EE_T");
   }
 
+  @Test
+  public void refreshTsl_usesOwnRepositorySeededFromPreviousLoader() throws Exception {
+    this.configuration = new Configuration(Configuration.Mode.TEST);
+    TSLRepository previousRepository = this.initTSLAndGetRepository();
+    TSLValidationModel previousModel = previousRepository.getByCountry("EE_T");
+    TslLoader loader = this.tslLoader.copy();
+    loader.prepareTsl(this.tslLoader);
+    Assert.assertNotSame(previousRepository, loader.getTslRepository());
+    Assert.assertSame(previousModel.getParseResult(), loader.getTslRepository().getByCountry("EE_T")
+        .getParseResult());
+    loader.refresh();
+    Assert.assertTrue(loader.getTslCertificateSource().getCertificates().size() > 0);
+    Assert.assertSame(previousModel, previousRepository.getByCountry("EE_T"));
+    Assert.assertTrue(previousModel.isCertificateSourceSynchronized());
+  }
+
+  @Test
+  public void refreshTsl_takesOverCertificatesOfUnchangedTrustedLists() throws Exception {
+    this.configuration = new Configuration(Configuration.Mode.TEST);
+    this.initTSLAndGetRepository();
+    int certificateCount = this.tslLoader.getTslCertificateSource().getCertificates().size();
+    TslLoader loader = this.tslLoader.copy();
+    loader.prepareTsl(this.tslLoader);
+    TSLValidationModel seededModel = loader.getTslRepository().getByCountry("EE_T");
+    Assert.assertTrue(seededModel.isCertificateSourceSynchronized());
+    loader.refresh();
+    Assert.assertSame(seededModel, loader.getTslRepository().getByCountry("EE_T"));
+    Assert.assertEquals(certificateCount, loader.getTslCertificateSource().getCertificates().size());
+  }
+
   /**
    * Ignore countries with invalid TSL: DE (Germany) and HR (Croatia)
    */
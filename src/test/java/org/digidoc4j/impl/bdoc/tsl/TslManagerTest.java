@@ -10,17 +10,24 @@
 
 package org.digidoc4j.impl.bdoc.tsl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.digidoc4j.AbstractTest;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.TSLCertificateSource;
+import org.digidoc4j.TslState;
 import org.digidoc4j.impl.asic.tsl.LazyTslCertificateSource;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
 import org.digidoc4j.impl.asic.tsl.TslManager;
+import org.digidoc4j.impl.asic.tsl.TslRegistry;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class TslManagerTest extends AbstractTest {
 
   private TslManager tslManager;
+  private final List<Configuration> sharedTslConfigurations = new ArrayList<>();
 
   @Test
   public void getNewTsl() throws Exception {
@@ -52,10 +59,138 @@ public class TslManagerTest extends AbstractTest {
     Assert.assertEquals(1337, tsl.getCacheExpirationTime().longValue());
   }
 
+  @Test
+  public void getTslWithBackgroundRefreshSettings() throws Exception {
+    this.configuration.setTslBackgroundRefresh(true);
+    this.configuration.setTslRefreshAheadTime(1337);
+    this.configuration.setTslMaxStalenessTime(1776);
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) this.tslManager.getTsl();
+    Assert.assertTrue(tsl.isBackgroundRefresh());
+    Assert.assertEquals(1337, tsl.getRefreshAheadTime());
+    Assert.assertEquals(1776, tsl.getMaxStalenessTime());
+  }
+
+  @Test
+  public void preloadTsl() throws Exception {
+    Assert.assertEquals(TslState.NOT_LOADED, this.tslManager.getTslState());
+    Assert.assertEquals(TslState.READY, this.tslManager.preloadTsl().get());
+    Assert.assertEquals(TslState.READY, this.tslManager.getTslState());
+    Assert.assertNotNull(((LazyTslCertificateSource) this.tslManager.getTsl()).getLastCacheReloadingTime());
+  }
+
+  @Test
+  public void tslStateIsStaleAfterCacheExpiration() throws Exception {
+    this.configuration.setTslCacheExpirationTime(1);
+    this.tslManager.preloadTsl().get();
+    Thread.sleep(10);
+    Assert.assertEquals(TslState.STALE, this.tslManager.getTslState());
+  }
+
+  @Test
+  public void preloadOfInvalidTsl_completesWithFailedState() throws Exception {
+    this.configuration.setTslLocation("pole");
+    Assert.assertEquals(TslState.FAILED, this.tslManager.preloadTsl().get());
+    Assert.assertEquals(TslState.FAILED, this.tslManager.getTslState());
+  }
+
+  @Test
+  public void tslStateShowsFailedBackgroundRefresh() throws Exception {
+    this.configuration.setTslBackgroundRefresh(true);
+    this.configuration.setTslCacheExpirationTime(500);
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) this.tslManager.getTsl();
+    Assert.assertEquals(TslState.READY, tsl.preload().get());
+    this.configuration.setTslLocation("pole");
+    for (int i = 0; i < 100 && tsl.getState() != TslState.REFRESH_FAILED; i++) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(TslState.REFRESH_FAILED, tsl.getState());
+  }
+
+  @Test
+  public void sharedTslStateIsReportedBeforeConfigurationUsesIt() throws Exception {
+    Configuration configuration = this.createSharedTslConfiguration();
+    Configuration otherConfiguration = this.createSharedTslConfiguration();
+    Assert.assertEquals(TslState.READY, configuration.preloadTSL().get());
+    Assert.assertEquals(TslState.READY, otherConfiguration.getTslState());
+  }
+
+  @Test
+  public void sharedTslIsUsedByConfigurationsWithSameTrustSettings() throws Exception {
+    Configuration configuration = this.createSharedTslConfiguration();
+    Configuration otherConfiguration = this.createSharedTslConfiguration();
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) configuration.getTSL();
+    Assert.assertSame(tsl, otherConfiguration.getTSL());
+    Configuration copiedConfiguration = configuration.copy();
+    Assert.assertSame(tsl, copiedConfiguration.getTSL());
+    Assert.assertTrue(TslRegistry.contains(tsl));
+  }
+
+  @Test
+  public void sharedTslIsNotUsedByConfigurationsWithDifferentTerritories() throws Exception {
+    Configuration configuration = this.createSharedTslConfiguration();
+    Configuration otherConfiguration = this.createSharedTslConfiguration();
+    otherConfiguration.setTrustedTerritories("EE");
+    TSLCertificateSource tsl = configuration.getTSL();
+    Assert.assertNotSame(tsl, otherConfiguration.getTSL());
+  }
+
+  @Test
+  public void changingTrustSettingsReleasesSharedTsl() throws Exception {
+    Configuration configuration = this.createSharedTslConfiguration();
+    Configuration otherConfiguration = this.createSharedTslConfiguration();
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) configuration.getTSL();
+    Assert.assertSame(tsl, otherConfiguration.getTSL());
+    configuration.setTrustedTerritories("EE");
+    Assert.assertNotSame(tsl, configuration.getTSL());
+    Assert.assertSame(tsl, otherConfiguration.getTSL());
+    Assert.assertSame(tsl, this.createSharedTslConfiguration().getTSL());
+  }
+
+  @Test
+  public void sharedTslIsRemovedAfterLastConfigurationReleasesIt() throws Exception {
+    int size = TslRegistry.size();
+    Configuration configuration = this.createSharedTslConfiguration();
+    configuration.setTrustedTerritories("EE", "LV");
+    Configuration otherConfiguration = configuration.copy();
+    LazyTslCertificateSource tsl = (LazyTslCertificateSource) configuration.getTSL();
+    Assert.assertSame(tsl, otherConfiguration.getTSL());
+    Assert.assertEquals(size + 1, TslRegistry.size());
+    configuration.releaseSharedTSL();
+    Assert.assertTrue(TslRegistry.contains(tsl));
+    otherConfiguration.releaseSharedTSL();
+    Assert.assertEquals(size, TslRegistry.size());
+    Assert.assertFalse(TslRegistry.contains(tsl));
+    Assert.assertFalse(tsl.isBackgroundRefresh());
+  }
+
+  @Test
+  public void enablingSharedTslKeepsManuallySetTsl() throws Exception {
+    TSLCertificateSource tsl = new TSLCertificateSourceImpl();
+    this.configuration.setTSL(tsl);
+    this.configuration.setTslShared(true);
+    Assert.assertSame(tsl, this.configuration.getTSL());
+  }
+
+  @Test
+  public void enablingSharedTslReplacesLoadedTsl() throws Exception {
+    TSLCertificateSource tsl = this.configuration.getTSL();
+    this.configuration.setTslShared(true);
+    TSLCertificateSource sharedTsl = this.configuration.getTSL();
+    Assert.assertNotSame(tsl, sharedTsl);
+    Assert.assertTrue(TslRegistry.contains((LazyTslCertificateSource) sharedTsl));
+  }
+
   /*
    * RESTRICTED METHODS
    */
 
+  private Configuration createSharedTslConfiguration() {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setTslShared(true);
+    this.sharedTslConfigurations.add(configuration);
+    return configuration;
+  }
+
   @Override
   protected void before() {
     this.configuration = new Configuration(Configuration.Mode.TEST);
@@ -63,4 +198,12 @@ public class TslManagerTest extends AbstractTest {
     this.evictTSLCache();
   }
 
+  @Override
+  protected void after() {
+    for (Configuration configuration : this.sharedTslConfigurations) {
+      configuration.releaseSharedTSL();
+    }
+    this.configuration.releaseSharedTSL();
+  }
+
 }
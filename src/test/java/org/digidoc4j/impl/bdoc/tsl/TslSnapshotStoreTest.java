@@ -0,0 +1,122 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.tsl;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Constant;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
+import org.digidoc4j.impl.asic.tsl.TslSnapshotStore;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class TslSnapshotStoreTest extends AbstractTest {
+
+  private static final byte[] SEAL_KEY = "seal-key".getBytes();
+  private TSLCertificateSourceImpl tsl;
+  private File snapshotFile;
+
+  @Test
+  public void storedSnapshotIsLoaded() {
+    new TslSnapshotStore(this.snapshotFile, SEAL_KEY).save(this.tsl, null);
+    TslSnapshotStore.LoadedSnapshot snapshot = new TslSnapshotStore(this.snapshotFile, SEAL_KEY)
+        .load(Constant.ONE_DAY_IN_MILLISECONDS);
+    Assert.assertNotNull(snapshot);
+    Assert.assertEquals(1, snapshot.getCertificateSource().getCertificatePool().getNumberOfCertificates());
+    Assert.assertTrue(snapshot.getTerritories().isEmpty());
+  }
+
+  @Test
+  public void missingSnapshotIsNotLoaded() {
+    Assert.assertNull(new TslSnapshotStore(this.snapshotFile, SEAL_KEY).load(Constant.ONE_DAY_IN_MILLISECONDS));
+  }
+
+  @Test
+  public void snapshotWithDifferentSealKeyIsNotLoaded() {
+    new TslSnapshotStore(this.snapshotFile, SEAL_KEY).save(this.tsl, null);
+    Assert.assertNull(new TslSnapshotStore(this.snapshotFile, "other-key".getBytes())
+        .load(Constant.ONE_DAY_IN_MILLISECONDS));
+  }
+
+  @Test
+  public void modifiedSnapshotIsNotLoaded() throws Exception {
+    new TslSnapshotStore(this.snapshotFile, SEAL_KEY).save(this.tsl, null);
+    try (RandomAccessFile file = new RandomAccessFile(this.snapshotFile, "rw")) {
+      file.seek(file.length() / 2);
+      int value = file.read();
+      file.seek(file.length() / 2);
+      file.write(value ^ 0xFF);
+    }
+    Assert.assertNull(new TslSnapshotStore(this.snapshotFile, SEAL_KEY).load(Constant.ONE_DAY_IN_MILLISECONDS));
+  }
+
+  @Test
+  public void expiredSnapshotIsNotLoaded() throws Exception {
+    new TslSnapshotStore(this.snapshotFile, SEAL_KEY).save(this.tsl, null);
+    Thread.sleep(10);
+    Assert.assertNull(new TslSnapshotStore(this.snapshotFile, SEAL_KEY).load(1));
+  }
+
+  @Test
+  public void snapshotIsStoredInPrivateDirectory() throws Exception {
+    File directory = new File(this.testFolder.getRoot(), "snapshots");
+    TslSnapshotStore store = TslSnapshotStore.create(directory, "tsl-snapshot.bin", SEAL_KEY);
+    Assert.assertNotNull(store);
+    store.save(this.tsl, null);
+    Assert.assertNotNull(TslSnapshotStore.create(directory, "tsl-snapshot.bin", SEAL_KEY)
+        .load(Constant.ONE_DAY_IN_MILLISECONDS));
+    Assert.assertNull(TslSnapshotStore.create(directory, "tsl-snapshot.bin", "other-key".getBytes())
+        .load(Constant.ONE_DAY_IN_MILLISECONDS));
+    if (this.isPosix(directory)) {
+      Assert.assertEquals(PosixFilePermissions.fromString("rwx------"),
+          Files.getPosixFilePermissions(directory.toPath()));
+    }
+  }
+
+  @Test
+  public void snapshotOfDirectoryWithDifferentSecretIsNotLoaded() throws Exception {
+    File directory = new File(this.testFolder.getRoot(), "snapshots");
+    TslSnapshotStore.create(directory, "tsl-snapshot.bin", SEAL_KEY).save(this.tsl, null);
+    Files.delete(new File(directory, "seal.key").toPath());
+    Assert.assertNull(TslSnapshotStore.create(directory, "tsl-snapshot.bin", SEAL_KEY)
+        .load(Constant.ONE_DAY_IN_MILLISECONDS));
+  }
+
+  @Test
+  public void directoryAccessibleByOtherUsersIsNotUsed() throws Exception {
+    File directory = this.testFolder.newFolder("snapshots");
+    Assume.assumeTrue(this.isPosix(directory));
+    Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+    Assert.assertNull(TslSnapshotStore.create(directory, "tsl-snapshot.bin", SEAL_KEY));
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), this.tsl);
+    this.snapshotFile = new File(this.testFolder.getRoot(), "tsl-snapshot.bin");
+  }
+
+  private boolean isPosix(File file) {
+    return file.toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+  }
+
+}
@@ -0,0 +1,126 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.impl.bdoc.tsl;
+
+import java.nio.file.Paths;
+
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.impl.asic.tsl.OverlayCertificatePool;
+import org.digidoc4j.impl.asic.tsl.SnapshotTslCertificateSource;
+import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
+import org.digidoc4j.impl.asic.tsl.TslSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.europa.esig.dss.x509.CertificatePool;
+import eu.europa.esig.dss.x509.CertificateSourceType;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+public class TslSnapshotTest extends AbstractTest {
+
+  private TSLCertificateSourceImpl tsl;
+  private CertificateToken rootCertificate;
+  private CertificateToken intermediateCertificate;
+
+  @Test
+  public void snapshotOfManuallySetTsl() {
+    TslSnapshot snapshot = TslSnapshot.of(this.tsl);
+    Assert.assertEquals(0, snapshot.getVersion());
+    Assert.assertSame(this.tsl, snapshot.getCertificateSource());
+    Assert.assertNull(snapshot.getTrustedListsCertificateSource());
+  }
+
+  @Test
+  public void validationPoolContainsSnapshotCertificates() {
+    SnapshotTslCertificateSource source = new SnapshotTslCertificateSource(this.tsl);
+    Assert.assertEquals(1, source.getCertificatePool().getNumberOfCertificates());
+  }
+
+  @Test
+  public void addingCertificateDoesNotPolluteSharedTsl() throws Exception {
+    SnapshotTslCertificateSource source = new SnapshotTslCertificateSource(this.tsl);
+    source.addCertificate(this.intermediateCertificate);
+    Assert.assertEquals(2, source.getCertificatePool().getNumberOfCertificates());
+    Assert.assertEquals(1, this.tsl.getCertificatePool().getNumberOfCertificates());
+    Assert.assertEquals(1, new SnapshotTslCertificateSource(this.tsl).getCertificatePool().getNumberOfCertificates());
+  }
+
+  @Test
+  public void validationPoolReturnsSharedTokenOfTslCertificate() throws Exception {
+    CertificateToken tslCertificate = this.tsl.getCertificatePool().getCertificateTokens().get(0);
+    CertificatePool pool = TslSnapshot.of(this.tsl).createValidationPool();
+    CertificateToken certificate = this.rootCertificate;
+    Assert.assertSame(tslCertificate, pool.getInstance(certificate, CertificateSourceType.SIGNATURE));
+    Assert.assertEquals(1, pool.getNumberOfCertificates());
+    Assert.assertEquals(0, ((OverlayCertificatePool) pool).getNumberOfOverlayCertificates());
+    Assert.assertEquals(1, pool.get(tslCertificate.getCertificate().getSubjectX500Principal()).size());
+  }
+
+  @Test
+  public void validationPoolsDoNotShareSignatureCertificates() throws Exception {
+    TslSnapshot snapshot = TslSnapshot.of(this.tsl);
+    CertificatePool pool = snapshot.createValidationPool();
+    CertificatePool otherPool = snapshot.createValidationPool();
+    pool.getInstance(this.intermediateCertificate,
+        CertificateSourceType.SIGNATURE);
+    Assert.assertEquals(2, pool.getNumberOfCertificates());
+    Assert.assertEquals(1, otherPool.getNumberOfCertificates());
+    Assert.assertEquals(1, this.tsl.getCertificatePool().getNumberOfCertificates());
+  }
+
+  @Test
+  public void mergingPoolAddsOnlyCertificatesNotInTsl() throws Exception {
+    OverlayCertificatePool pool = (OverlayCertificatePool) TslSnapshot.of(this.tsl).createValidationPool();
+    CertificatePool signaturePool = new CertificatePool();
+    signaturePool.getInstance(this.rootCertificate,
+        CertificateSourceType.SIGNATURE);
+    signaturePool.getInstance(this.intermediateCertificate,
+        CertificateSourceType.SIGNATURE);
+    pool.merge(signaturePool);
+    Assert.assertEquals(1, pool.getNumberOfOverlayCertificates());
+    Assert.assertEquals(2, pool.getNumberOfCertificates());
+    Assert.assertEquals(2, pool.getCertificateTokens().size());
+  }
+
+  @Test(expected = NotSupportedException.class)
+  public void sealedTslRejectsAddingCertificates() throws Exception {
+    this.tsl.seal();
+    this.tsl.addCertificate(this.intermediateCertificate);
+  }
+
+  @Test
+  public void copyOfSealedTslCanBeModified() throws Exception {
+    this.tsl.seal();
+    TSLCertificateSourceImpl copy = this.tsl.copy();
+    copy.addCertificate(this.intermediateCertificate);
+    Assert.assertFalse(copy.isSealed());
+    Assert.assertEquals(2, copy.getCertificatePool().getNumberOfCertificates());
+    Assert.assertEquals(1, this.tsl.getCertificatePool().getNumberOfCertificates());
+    Assert.assertNotSame(this.tsl.getCertificates().get(0), copy.getCertificates().get(0));
+    Assert.assertFalse(copy.getCertificates().get(0).getAssociatedTSPS().isEmpty());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.tsl = new TSLCertificateSourceImpl();
+    this.addCertificateToTSL(Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt"), this.tsl);
+    this.rootCertificate = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/Juur-SK.pem.crt")));
+    this.intermediateCertificate = new CertificateToken(this.openX509Certificate(
+        Paths.get("src/test/resources/testFiles/certs/ESTEID-SK_2011.pem.crt")));
+  }
+
+}
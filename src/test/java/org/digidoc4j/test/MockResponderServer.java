@@ -0,0 +1,433 @@
+/* DigiDoc4J library
+*
+* This software is released under either the GNU Library General Public
+* License (see LICENSE.LGPL).
+*
+* Note that the only valid version of the LGPL license as far as this
+* project is concerned is the original GNU Library General Public License
+* Version 2.1, February 1999
+*/
+
+package org.digidoc4j.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponseGenerator;
+import org.bouncycastle.tsp.TimeStampTokenGenerator;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.SignatureToken;
+import org.digidoc4j.TSLCertificateSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import eu.europa.esig.dss.DSSException;
+import eu.europa.esig.dss.tsl.Condition;
+import eu.europa.esig.dss.tsl.ServiceInfo;
+import eu.europa.esig.dss.tsl.ServiceInfoStatus;
+import eu.europa.esig.dss.util.TimeDependentValues;
+import eu.europa.esig.dss.x509.CertificateToken;
+
+/**
+ * In-process OCSP responder and RFC 3161 time-stamping authority for offline and load tests.
+ * <p/>
+ * On start, a test CA is generated together with an OCSP responder certificate and a TSA certificate issued by it.
+ * The server listens on localhost, {@link #configure(Configuration)} points the OCSP and TSP sources of a
+ * configuration to it. Every certificate asked for is reported with the configured status, nonces are echoed back.
+ * Response latency and the rate of failed (HTTP 500) responses can be changed while the server is running.
+ * <p/>
+ * A signer certificate issued by the same CA is generated as well, {@link #getSignatureToken()} signs with it.
+ * Signatures made with the responses validate only if the certificates of the server are trusted, see
+ * {@link #addToTsl(TSLCertificateSource)}.
+ */
+public class MockResponderServer implements Closeable {
+
+  public static final String OCSP_PATH = "/ocsp";
+  public static final String TSA_PATH = "/tsa";
+  private static final Logger LOGGER = LoggerFactory.getLogger(MockResponderServer.class);
+  private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+  private static final ASN1ObjectIdentifier TSA_POLICY = new ASN1ObjectIdentifier("1.3.6.1.4.1.99999.1");
+  private static final String OCSP_SERVICE_TYPE = "http://uri.etsi.org/TrstSvc/Svctype/Certstatus/OCSP/QC";
+  private static final String TSA_SERVICE_TYPE = "http://uri.etsi.org/TrstSvc/Svctype/TSA/QTST";
+  private static final String GRANTED_STATUS = "http://uri.etsi.org/TrstSvc/TrustedList/Svcstatus/granted";
+  private final Random random = new Random();
+  private final AtomicLong serialNumber = new AtomicLong(System.currentTimeMillis());
+  private final AtomicLong ocspRequestCount = new AtomicLong();
+  private final AtomicLong tsaRequestCount = new AtomicLong();
+  private HttpServer server;
+  private ExecutorService executorService;
+  private X509Certificate caCertificate;
+  private X509Certificate ocspCertificate;
+  private PrivateKey ocspKey;
+  private X509Certificate tsaCertificate;
+  private PrivateKey tsaKey;
+  private X509Certificate signerCertificate;
+  private PrivateKey signerKey;
+  private volatile long latencyInMilliseconds;
+  private volatile double failureRate;
+  private volatile CertificateStatus certificateStatus = CertificateStatus.GOOD;
+
+  /**
+   * Generates the test certificates and starts listening on a free port.
+   *
+   * @return this server
+   */
+  public MockResponderServer start() {
+    return this.start(0);
+  }
+
+  /**
+   * Generates the test certificates and starts listening on the given port.
+   *
+   * @param port port on localhost, 0 for a free port
+   * @return this server
+   */
+  public MockResponderServer start(int port) {
+    try {
+      this.createCertificates();
+      this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+      this.server.createContext(OCSP_PATH, new ResponderHandler() {
+
+        @Override
+        protected byte[] respond(byte[] request) throws Exception {
+          MockResponderServer.this.ocspRequestCount.incrementAndGet();
+          return MockResponderServer.this.createOCSPResponse(request);
+        }
+
+      });
+      this.server.createContext(TSA_PATH, new ResponderHandler() {
+
+        @Override
+        protected byte[] respond(byte[] request) throws Exception {
+          MockResponderServer.this.tsaRequestCount.incrementAndGet();
+          return MockResponderServer.this.createTimeStampResponse(request);
+        }
+
+      });
+      this.executorService = Executors.newCachedThreadPool();
+      this.server.setExecutor(this.executorService);
+      this.server.start();
+      LOGGER.debug("Mock responder server started on port {}", this.getPort());
+      return this;
+    } catch (Exception e) {
+      throw new DSSException(e);
+    }
+  }
+
+  /**
+   * Points the OCSP and TSP sources of the configuration to this server.
+   *
+   * @param configuration configuration to change
+   */
+  public void configure(Configuration configuration) {
+    configuration.setOcspSource(this.getOcspUrl());
+    configuration.setTspSource(this.getTsaUrl());
+  }
+
+  /**
+   * Adds the CA certificate to the TSL as a trusted CA issuing qualified certificates, the OCSP responder
+   * certificate as a trusted OCSP service and the TSA certificate as a trusted time-stamping service, so that
+   * signatures made with {@link #getSignatureToken()} and the responses of this server validate.
+   *
+   * @param tsl TSL to add the certificates to
+   */
+  public void addToTsl(TSLCertificateSource tsl) {
+    tsl.addTSLCertificate(this.caCertificate);
+    tsl.addCertificate(new CertificateToken(this.ocspCertificate), this.createServiceInfo(OCSP_SERVICE_TYPE,
+        this.ocspCertificate));
+    tsl.addCertificate(new CertificateToken(this.tsaCertificate), this.createServiceInfo(TSA_SERVICE_TYPE,
+        this.tsaCertificate));
+  }
+
+  @Override
+  public void close() {
+    if (this.server != null) {
+      this.server.stop(0);
+      this.executorService.shutdownNow();
+      this.server = null;
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private byte[] createOCSPResponse(byte[] content) throws Exception {
+    OCSPReq request;
+    try {
+      request = new OCSPReq(content);
+    } catch (IOException e) {
+      LOGGER.debug("Malformed OCSP request: {}", e.getMessage());
+      return new OCSPRespBuilder().build(OCSPRespBuilder.MALFORMED_REQUEST, null).getEncoded();
+    }
+    BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(this.ocspCertificate.getPublicKey(),
+        this.createSHA1DigestCalculator());
+    Extension nonce = request.getExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nonce);
+    if (nonce != null) {
+      builder.setResponseExtensions(new Extensions(nonce));
+    }
+    Date now = new Date();
+    for (Req req : request.getRequestList()) {
+      builder.addResponse(req.getCertID(), this.certificateStatus, now, null, null);
+    }
+    X509CertificateHolder[] chain = {new X509CertificateHolder(this.ocspCertificate.getEncoded())};
+    return new OCSPRespBuilder().build(OCSPResp.SUCCESSFUL,
+        builder.build(this.createContentSigner(this.ocspKey), chain, now)).getEncoded();
+  }
+
+  private byte[] createTimeStampResponse(byte[] content) throws Exception {
+    TimeStampTokenGenerator tokenGenerator = new TimeStampTokenGenerator(new JcaSimpleSignerInfoGeneratorBuilder()
+        .build(SIGNATURE_ALGORITHM, this.tsaKey, this.tsaCertificate), this.createSHA1DigestCalculator(),
+        TSA_POLICY);
+    tokenGenerator.addCertificates(new JcaCertStore(Collections.singletonList(this.tsaCertificate)));
+    TimeStampResponseGenerator responseGenerator = new TimeStampResponseGenerator(tokenGenerator,
+        TSPAlgorithms.ALLOWED);
+    return responseGenerator.generate(new TimeStampRequest(content), BigInteger.valueOf(this.serialNumber
+        .incrementAndGet()), new Date()).getEncoded();
+  }
+
+  private void createCertificates() throws Exception {
+    KeyPair caKeyPair = this.generateKeyPair();
+    X500Name caName = new X500Name("CN=DigiDoc4J mock CA, O=DigiDoc4J, C=EE");
+    X509v3CertificateBuilder caBuilder = this.createCertificateBuilder(caName, caName, caKeyPair);
+    caBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+    caBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+    this.caCertificate = this.toCertificate(caBuilder, caKeyPair.getPrivate());
+    KeyPair ocspKeyPair = this.generateKeyPair();
+    X509v3CertificateBuilder ocspBuilder = this.createCertificateBuilder(caName,
+        new X500Name("CN=DigiDoc4J mock OCSP responder, O=DigiDoc4J, C=EE"), ocspKeyPair);
+    ocspBuilder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_OCSPSigning));
+    ocspBuilder.addExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nocheck, false, DERNull.INSTANCE);
+    this.ocspCertificate = this.toCertificate(ocspBuilder, caKeyPair.getPrivate());
+    this.ocspKey = ocspKeyPair.getPrivate();
+    KeyPair tsaKeyPair = this.generateKeyPair();
+    X509v3CertificateBuilder tsaBuilder = this.createCertificateBuilder(caName,
+        new X500Name("CN=DigiDoc4J mock TSA, O=DigiDoc4J, C=EE"), tsaKeyPair);
+    tsaBuilder.addExtension(Extension.extendedKeyUsage, true, new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping));
+    this.tsaCertificate = this.toCertificate(tsaBuilder, caKeyPair.getPrivate());
+    this.tsaKey = tsaKeyPair.getPrivate();
+    KeyPair signerKeyPair = this.generateKeyPair();
+    X509v3CertificateBuilder signerBuilder = this.createCertificateBuilder(caName,
+        new X500Name("CN=DigiDoc4J mock signer, SERIALNUMBER=PNOEE-38001085718, C=EE"), signerKeyPair);
+    signerBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.nonRepudiation));
+    this.signerCertificate = this.toCertificate(signerBuilder, caKeyPair.getPrivate());
+    this.signerKey = signerKeyPair.getPrivate();
+  }
+
+  private ServiceInfo createServiceInfo(String serviceType, X509Certificate certificate) {
+    ServiceInfoStatus status = new ServiceInfoStatus(serviceType, GRANTED_STATUS,
+        Collections.<String, List<Condition>>emptyMap(), null, null, null, certificate.getNotBefore(), null);
+    ServiceInfo serviceInfo = new ServiceInfo();
+    serviceInfo.setStatus(new TimeDependentValues<>(Collections.singletonList(status)));
+    return serviceInfo;
+  }
+
+  private X509v3CertificateBuilder createCertificateBuilder(X500Name issuer, X500Name subject, KeyPair keyPair) {
+    long now = System.currentTimeMillis();
+    return new JcaX509v3CertificateBuilder(issuer, BigInteger.valueOf(this.serialNumber.incrementAndGet()),
+        new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now + TimeUnit.DAYS.toMillis(365)), subject,
+        keyPair.getPublic());
+  }
+
+  private X509Certificate toCertificate(X509v3CertificateBuilder builder, PrivateKey issuerKey) throws Exception {
+    return new JcaX509CertificateConverter().getCertificate(builder.build(this.createContentSigner(issuerKey)));
+  }
+
+  private KeyPair generateKeyPair() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    return generator.generateKeyPair();
+  }
+
+  private ContentSigner createContentSigner(PrivateKey key) throws Exception {
+    return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(key);
+  }
+
+  private DigestCalculator createSHA1DigestCalculator() throws Exception {
+    return new JcaDigestCalculatorProviderBuilder().build().get(new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1));
+  }
+
+  private boolean isFailureInjected() {
+    double rate = this.failureRate;
+    if (rate <= 0) {
+      return false;
+    }
+    synchronized (this.random) {
+      return this.random.nextDouble() < rate;
+    }
+  }
+
+  private abstract class ResponderHandler implements HttpHandler {
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        byte[] request = IOUtils.toByteArray(exchange.getRequestBody());
+        long latency = MockResponderServer.this.latencyInMilliseconds;
+        if (latency > 0) {
+          Thread.sleep(latency);
+        }
+        if (MockResponderServer.this.isFailureInjected()) {
+          exchange.sendResponseHeaders(500, -1);
+          return;
+        }
+        byte[] response = this.respond(request);
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+          stream.write(response);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        exchange.sendResponseHeaders(503, -1);
+      } catch (Exception e) {
+        LOGGER.warn("Unable to create response", e);
+        exchange.sendResponseHeaders(500, -1);
+      } finally {
+        exchange.close();
+      }
+    }
+
+    protected abstract byte[] respond(byte[] request) throws Exception;
+
+  }
+
+  /*
+   * ACCESSORS
+   */
+
+  public int getPort() {
+    return this.server.getAddress().getPort();
+  }
+
+  public String getOcspUrl() {
+    return String.format("http://localhost:%d%s", this.getPort(), OCSP_PATH);
+  }
+
+  public String getTsaUrl() {
+    return String.format("http://localhost:%d%s", this.getPort(), TSA_PATH);
+  }
+
+  /**
+   * @return CA certificate that issued the OCSP responder and TSA certificates
+   */
+  public X509Certificate getCaCertificate() {
+    return caCertificate;
+  }
+
+  public X509Certificate getOcspCertificate() {
+    return ocspCertificate;
+  }
+
+  public X509Certificate getTsaCertificate() {
+    return tsaCertificate;
+  }
+
+  /**
+   * @return token signing with the signer certificate issued by the CA of this server
+   */
+  public SignatureToken getSignatureToken() {
+    return new SignatureToken() {
+
+      @Override
+      public X509Certificate getCertificate() {
+        return MockResponderServer.this.signerCertificate;
+      }
+
+      @Override
+      public byte[] sign(DigestAlgorithm digestAlgorithm, byte[] dataToSign) {
+        try {
+          Signature signature = Signature.getInstance(digestAlgorithm.name() + "withRSA");
+          signature.initSign(MockResponderServer.this.signerKey);
+          signature.update(dataToSign);
+          return signature.sign();
+        } catch (Exception e) {
+          throw new DSSException(e);
+        }
+      }
+
+    };
+  }
+
+  public long getOcspRequestCount() {
+    return ocspRequestCount.get();
+  }
+
+  public long getTsaRequestCount() {
+    return tsaRequestCount.get();
+  }
+
+  /**
+   * @param latencyInMilliseconds delay before every response
+   */
+  public void setLatency(long latencyInMilliseconds) {
+    this.latencyInMilliseconds = latencyInMilliseconds;
+  }
+
+  /**
+   * @param failureRate share of requests answered with HTTP 500, between 0 and 1
+   */
+  public void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  /**
+   * @param certificateStatus status reported for every certificate, {@link CertificateStatus#GOOD} by default
+   */
+  public void setCertificateStatus(CertificateStatus certificateStatus) {
+    this.certificateStatus = certificateStatus;
+  }
+
+}